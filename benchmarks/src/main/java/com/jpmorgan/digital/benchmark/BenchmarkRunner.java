@@ -0,0 +1,62 @@
+package com.jpmorgan.digital.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * BenchmarkRunner runs the benchmarks once per thread count and writes the results as JSON
+ *
+ * Usage: java -jar benchmarks.jar [threadCounts] [resultDirectory] [JMH options]
+ *
+ * <ul>
+ *     <li>threadCounts - comma separated, 1,2,4,8 by default</li>
+ *     <li>resultDirectory - results/ by default, one jmh-threads-N.json per thread count</li>
+ *     <li>JMH options - any option of the JMH command line like a benchmark regex or -p symbolCount=1000</li>
+ * </ul>
+ *
+ * The group benchmarks run with their own thread layout and are only run for the first thread count.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        String threadCounts = args.length > 0 ? args[0] : "1,2,4,8";
+        File resultDirectory = new File(args.length > 1 ? args[1] : "results");
+        String[] jmhArgs = new String[Math.max(args.length - 2, 0)];
+        System.arraycopy(args, Math.min(args.length, 2), jmhArgs, 0, jmhArgs.length);
+        CommandLineOptions commandLineOptions = new CommandLineOptions(jmhArgs);
+        if(!resultDirectory.isDirectory() && !resultDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Result directory can not be created: " + resultDirectory);
+        }
+
+        boolean first = true;
+        for(String threadCount : threadCounts.split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.parent(commandLineOptions);
+            if(commandLineOptions.getIncludes().isEmpty()) {
+                builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+            }
+            if(!first) {
+                builder.exclude("recordWithIndexReader");
+                builder.exclude("ConfigLoaderBenchmark");
+            }
+            Options options = builder
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, "jmh-threads-" + threads + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+            first = false;
+        }
+    }
+}
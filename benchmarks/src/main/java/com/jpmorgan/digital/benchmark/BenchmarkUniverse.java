@@ -0,0 +1,91 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+
+import java.io.File;
+
+/**
+ * BenchmarkUniverse builds a synthetic universe of stocks with preloaded trades for the benchmarks
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public final class BenchmarkUniverse {
+
+    public static final long SECOND = 1000000000L;
+
+    /**
+     * Length of the Volume Weighted price window
+     */
+    public static final long WINDOW = 300L * SECOND;
+
+    private BenchmarkUniverse() {
+    }
+
+    /**
+     * Function to reload the model from the config and add synthetic stocks to it
+     * @param symbolCount Number of synthetic stocks
+     * @return Symbols of the synthetic stocks
+     */
+    public static String[] createStocks(int symbolCount) {
+        StockModel stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        String[] symbols = new String[symbolCount];
+        StockDTO[] stocks = new StockDTO[symbolCount];
+        for(int i = 0; i < symbolCount; i++) {
+            StockDTO stock = new StockDTO();
+            symbols[i] = "S" + i;
+            stock.setStockSymbol(symbols[i]);
+            stock.setStockType((i & 1) == 0 ? "Common" : "Preferred");
+            stock.setLastDividend(1 + i % 20);
+            stock.setFixedDividend(1 + i % 3);
+            stock.setParValue(100);
+            stocks[i] = stock;
+        }
+        stockModel.addStocks(stocks);
+        return symbols;
+    }
+
+    /**
+     * Function to record trades for every stock before the provided time
+     *
+     * The share of trades inside the window is set by the occupancy, the rest are an hour older
+     *
+     * @param stockService Service to record trades with
+     * @param symbols Symbols of the stocks
+     * @param tradesPerSymbol Number of trades per stock
+     * @param windowOccupancy Share of the trades in the window, between 0 and 1
+     * @param currentTime Time in epoch nanoseconds the trades are recorded before
+     */
+    public static void recordTrades(StockService stockService, String[] symbols, int tradesPerSymbol,
+                                    double windowOccupancy, long currentTime) {
+        int tradesInWindow = (int) Math.round(tradesPerSymbol * windowOccupancy);
+        for(int i = 0; i < tradesPerSymbol; i++) {
+            boolean inWindow = i >= tradesPerSymbol - tradesInWindow;
+            long timestamp = inWindow
+                    ? currentTime - WINDOW + 1 + (WINDOW - 1) * (i - (tradesPerSymbol - tradesInWindow)) / Math.max(tradesInWindow, 1)
+                    : currentTime - 3600L * SECOND - WINDOW + WINDOW * i / tradesPerSymbol;
+            for(int j = 0; j < symbols.length; j++) {
+                stockService.recordTrade(symbols[j], timestamp, 1 + ((i + j) & 63), 10.0 + ((i * 31 + j) % 100),
+                        ((i + j) & 1) == 0 ? TradeDomain.Indicator.BUY : TradeDomain.Indicator.SELL);
+            }
+        }
+    }
+
+    /**
+     * Function to delete a directory of files written by a benchmark
+     * @param directory Directory to be deleted with its files
+     */
+    public static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,52 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.helper.ConfigLoader;
+import com.jpmorgan.digital.model.StockModel;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of loading the stock config at startup
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigLoaderBenchmark {
+
+    @Setup
+    public void setUp() {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+    }
+
+    @Benchmark
+    public ConfigLoader loadConfig() {
+        ConfigLoader configLoader = new ConfigLoader();
+        configLoader.loadConfig("/configStockExchange.xml");
+        return configLoader;
+    }
+
+    @Benchmark
+    public StockModel initStockModel() {
+        StockModel stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        return stockModel;
+    }
+}
@@ -0,0 +1,135 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.helper.ConfigLoader;
+import com.jpmorgan.digital.helper.StockConfigLoader;
+import com.jpmorgan.digital.model.StockModel;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of starting with a config of a full universe of stocks
+ *
+ * The config is written in every format for the synthetic universe. The legacy format is the XML config read by
+ * {@link ConfigLoader} with a lookup per field, like the stocks were loaded before {@link StockConfigLoader}, the model
+ * loads it like the xml format.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ConfigStartupBenchmark {
+
+    private static final String[] TAGS = {"TYPE", "LAST_DIVIDEND", "FIXED_DIVIDEND", "PAR_VALUE"};
+
+    @Param({"100000"})
+    public int symbolCount;
+
+    @Param({"legacy", "xml", "csv", "bin"})
+    public String format;
+
+    private File directory;
+
+    private File configFile;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws IOException {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        directory = Files.createTempDirectory("config-benchmark").toFile();
+        File xmlFile = new File(directory, "stocks.xml");
+        File csvFile = new File(directory, "stocks.csv");
+        List<StockDTO> stocks = new ArrayList<StockDTO>(symbolCount);
+        try (PrintWriter xml = new PrintWriter(xmlFile, "UTF-8"); PrintWriter csv = new PrintWriter(csvFile, "UTF-8")) {
+            xml.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            xml.println("<root>");
+            csv.println("symbol,type,lastDividend,fixedDividend,parValue");
+            for(int i = 0; i < symbolCount; i++) {
+                StockDTO stock = new StockDTO();
+                stock.setStockSymbol("S" + i);
+                stock.setStockType((i & 1) == 0 ? "Common" : "Preferred");
+                stock.setLastDividend(1 + i % 20);
+                stock.setFixedDividend(1 + i % 3);
+                stock.setParValue(100);
+                stocks.add(stock);
+                String[] values = {stock.getStockType(), String.valueOf(stock.getLastDividend()),
+                        String.valueOf(stock.getFixedDividend()), String.valueOf(stock.getParValue())};
+                xml.println("    <section>");
+                xml.println("        " + stock.getStockSymbol());
+                for(int j = 0; j < TAGS.length; j++) {
+                    xml.println("        <tag>");
+                    xml.println("            " + TAGS[j]);
+                    xml.println("            <value>" + values[j] + "</value>");
+                    xml.println("        </tag>");
+                }
+                xml.println("    </section>");
+                csv.println(stock.getStockSymbol() + "," + values[0] + "," + values[1] + "," + values[2] + "," + values[3]);
+            }
+            xml.println("</root>");
+        }
+        File binFile = new File(directory, "stocks.bin");
+        StockConfigLoader.writeBinary(stocks, binFile);
+        configFile = "csv".equals(format) ? csvFile : "bin".equals(format) ? binFile : xmlFile;
+        System.setProperty(StockModel.CONFIG_FILE_PROPERTY, configFile.getPath());
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        System.clearProperty(StockModel.CONFIG_FILE_PROPERTY);
+        StockModel.getModelInstance().init();
+        BenchmarkUniverse.deleteDirectory(directory);
+    }
+
+    /**
+     * Parsing the reference data of every stock of the config
+     */
+    @Benchmark
+    public Object loadConfig() throws IOException {
+        if("legacy".equals(format)) {
+            ConfigLoader configLoader = new ConfigLoader();
+            configLoader.loadConfigFile(configFile);
+            int total = 0;
+            for(String section : configLoader.getAllSection()) {
+                for(String tag : TAGS) {
+                    total += configLoader.getConfiguration(section, tag).length();
+                }
+            }
+            return total;
+        }
+        return StockConfigLoader.load(configFile);
+    }
+
+    /**
+     * Loading the model from the config, with the bars and aggregates of every stock
+     */
+    @Benchmark
+    public StockModel initStockModel() {
+        StockModel stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        return stockModel;
+    }
+}
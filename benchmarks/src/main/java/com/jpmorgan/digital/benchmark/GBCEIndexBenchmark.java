@@ -0,0 +1,71 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reading the GBCE All Share Index in every {@link com.jpmorgan.digital.helper.GBCEIndexMode}
+ *
+ * The PARALLEL mode splits every universe across the common fork-join pool, its scaling over SCAN depends on the
+ * cores of the box, set -Djava.util.concurrent.ForkJoinPool.common.parallelism in the JVM options to compare pool sizes
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class GBCEIndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int symbolCount;
+
+    @Param({"INCREMENTAL", "SCAN", "PARALLEL"})
+    public String mode;
+
+    private StockService stockService;
+
+    @Setup
+    public void setUp() {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        System.setProperty(StockModel.GBCE_INDEX_MODE_PROPERTY, mode);
+        System.setProperty(StockModel.GBCE_PARALLEL_THRESHOLD_PROPERTY, "1");
+        long currentTime = SystemTradeClock.getClockInstance().currentTimeNanos();
+        stockService = new StockServiceImpl(new SimulatedTradeClock(currentTime));
+        String[] symbols = BenchmarkUniverse.createStocks(symbolCount);
+        BenchmarkUniverse.recordTrades(stockService, symbols, 10, 1.0, currentTime);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty(StockModel.GBCE_INDEX_MODE_PROPERTY);
+        System.clearProperty(StockModel.GBCE_PARALLEL_THRESHOLD_PROPERTY);
+    }
+
+    @Benchmark
+    public double calculateGBCEAllShareIndex() {
+        return stockService.calculateGBCEAllShareIndex();
+    }
+}
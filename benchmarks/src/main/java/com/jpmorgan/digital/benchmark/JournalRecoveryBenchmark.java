@@ -0,0 +1,97 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the recovery of the stocks when the model is loaded, from the whole trade journal or from a snapshot
+ * taken before the last 1% of the trades and the journal records after it
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms6g", "-Xmx6g"})
+public class JournalRecoveryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int tradeCount;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private File journalDirectory;
+
+    private File snapshotDirectory;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws IOException {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        journalDirectory = Files.createTempDirectory("trade-journal").toFile();
+        System.setProperty(StockModel.JOURNAL_DIR_PROPERTY, journalDirectory.getAbsolutePath());
+        if(snapshot) {
+            snapshotDirectory = Files.createTempDirectory("stock-snapshot").toFile();
+            System.setProperty(StockModel.SNAPSHOT_DIR_PROPERTY, snapshotDirectory.getAbsolutePath());
+            System.setProperty(StockModel.SNAPSHOT_PERIOD_PROPERTY, "0");
+        }
+        StockModel stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        long currentTime = SystemTradeClock.getClockInstance().currentTimeNanos();
+        long firstTime = currentTime - tradeCount * BenchmarkUniverse.SECOND / 1000;
+        StockService stockService = new StockServiceImpl(new SimulatedTradeClock(currentTime));
+        int stockCount = stockModel.getAllStocks().length;
+        for(int i = 0; i < tradeCount; i++) {
+            if(snapshot && i == tradeCount - tradeCount / 100) {
+                stockModel.snapshot();
+            }
+            stockService.recordTrade(i % stockCount, firstTime + i * BenchmarkUniverse.SECOND / 1000, 1 + (i & 63), 10.0 + (i % 100),
+                    (i & 1) == 0 ? TradeDomain.Indicator.BUY : TradeDomain.Indicator.SELL);
+        }
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        System.clearProperty(StockModel.JOURNAL_DIR_PROPERTY);
+        System.clearProperty(StockModel.SNAPSHOT_DIR_PROPERTY);
+        System.clearProperty(StockModel.SNAPSHOT_PERIOD_PROPERTY);
+        StockModel.getModelInstance().init();
+        BenchmarkUniverse.deleteDirectory(journalDirectory);
+        if(snapshotDirectory != null) {
+            BenchmarkUniverse.deleteDirectory(snapshotDirectory);
+        }
+    }
+
+    @Benchmark
+    public long recoverFromJournal() {
+        StockModel stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        return stockModel.getStock(0).getRecordedTradeCount();
+    }
+}
@@ -0,0 +1,157 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.TradeBatch;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of recording trades, alone, in batches and next to readers of the GBCE All Share Index
+ *
+ * Every recorded trade stays in memory, so the universe is rebuilt before each iteration to keep
+ * the heap of all the iterations alike
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class RecordTradeBenchmark {
+
+    /**
+     * Trades recorded by each call of the batch benchmarks, which report the throughput of single trades
+     */
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"5", "1000", "10000"})
+    public int symbolCount;
+
+    @Param({"10", "1000"})
+    public int tradesPerSymbol;
+
+    @Param({"0.1", "1.0"})
+    public double windowOccupancy;
+
+    private StockService stockService;
+
+    private String[] symbols;
+
+    private int[] stockIds;
+
+    private long currentTime;
+
+    /**
+     * Position of the next symbol for each benchmark thread, threads start at different symbols
+     */
+    @State(Scope.Thread)
+    public static class SymbolCursor {
+        private static int threads;
+
+        private int next = 7919 * threads++;
+
+        private final TradeBatch batch = new TradeBatch(BATCH_SIZE);
+
+        String nextSymbol(String[] symbols) {
+            next = next + 1 >= symbols.length ? 0 : next + 1;
+            return symbols[next];
+        }
+
+        int nextStockId(int[] stockIds) {
+            next = next + 1 >= stockIds.length ? 0 : next + 1;
+            return stockIds[next];
+        }
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void setUp() {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        currentTime = SystemTradeClock.getClockInstance().currentTimeNanos();
+        stockService = new StockServiceImpl(new SimulatedTradeClock(currentTime));
+        symbols = BenchmarkUniverse.createStocks(symbolCount);
+        BenchmarkUniverse.recordTrades(stockService, symbols, tradesPerSymbol, windowOccupancy, currentTime);
+        stockIds = new int[symbols.length];
+        for(int i = 0; i < symbols.length; i++) {
+            stockIds[i] = stockService.getStockId(symbols[i]);
+        }
+    }
+
+    @Benchmark
+    public void recordTrade(SymbolCursor cursor) {
+        stockService.recordTrade(cursor.nextSymbol(symbols), currentTime, 100, 12.5, TradeDomain.Indicator.BUY);
+    }
+
+    @Benchmark
+    public void recordTradeById(SymbolCursor cursor) {
+        stockService.recordTrade(cursor.nextStockId(stockIds), currentTime, 100, 12.5, TradeDomain.Indicator.BUY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void recordTradeByIdInLoop(SymbolCursor cursor) {
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            stockService.recordTrade(cursor.nextStockId(stockIds), currentTime, 100, 12.5, TradeDomain.Indicator.BUY);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int recordTrades(SymbolCursor cursor) {
+        TradeBatch batch = cursor.batch;
+        batch.clear();
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(cursor.nextStockId(stockIds), currentTime, 100, 12.5, TradeDomain.Indicator.BUY);
+        }
+        return stockService.recordTrades(batch);
+    }
+
+    @Benchmark
+    public void recordTradeDomain(SymbolCursor cursor) {
+        TradeDomain trade = new TradeDomain();
+        trade.setTimestamp(ZonedDateTime.ofInstant(Instant.ofEpochSecond(0, currentTime), ZoneId.of("UTC")));
+        trade.setQuantity(100);
+        trade.setPrice(12.5);
+        trade.setIndicator(TradeDomain.Indicator.BUY);
+        stockService.recordTrade(cursor.nextSymbol(symbols), trade);
+    }
+
+    @Benchmark
+    @Group("recordWithIndexReader")
+    @GroupThreads(3)
+    public void recordTradeWithReader(SymbolCursor cursor) {
+        stockService.recordTrade(cursor.nextSymbol(symbols), currentTime, 100, 12.5, TradeDomain.Indicator.SELL);
+    }
+
+    @Benchmark
+    @Group("recordWithIndexReader")
+    @GroupThreads(1)
+    public double readIndexWithWriters() {
+        return stockService.calculateGBCEAllShareIndex();
+    }
+}
@@ -0,0 +1,196 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the read operations of StockService over a preloaded universe
+ *
+ * The clock stands still at the time the trades were loaded for, so every invocation sees the same
+ * window occupancy
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StockServiceBenchmark {
+
+    @Param({"5", "1000", "10000"})
+    public int symbolCount;
+
+    @Param({"10", "1000"})
+    public int tradesPerSymbol;
+
+    @Param({"0.1", "1.0"})
+    public double windowOccupancy;
+
+    private StockService stockService;
+
+    private String[] symbols;
+
+    private int[] stockIds;
+
+    /**
+     * Price of every stock by its id and the results of the bulk calculations
+     */
+    private double[] prices;
+
+    private double[] results;
+
+    /**
+     * Range of the historical Volume Weighted price, the hour before the window of last 5 minutes
+     */
+    private long rangeFromTime;
+
+    private long rangeToTime;
+
+    /**
+     * Position of the next symbol for each benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class SymbolCursor {
+        private int next;
+
+        String nextSymbol(String[] symbols) {
+            String symbol = symbols[next];
+            next = next + 1 == symbols.length ? 0 : next + 1;
+            return symbol;
+        }
+
+        int nextStockId(int[] stockIds) {
+            int stockId = stockIds[next];
+            next = next + 1 == stockIds.length ? 0 : next + 1;
+            return stockId;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        long currentTime = SystemTradeClock.getClockInstance().currentTimeNanos();
+        stockService = new StockServiceImpl(new SimulatedTradeClock(currentTime));
+        symbols = BenchmarkUniverse.createStocks(symbolCount);
+        BenchmarkUniverse.recordTrades(stockService, symbols, tradesPerSymbol, windowOccupancy, currentTime);
+        rangeFromTime = currentTime - 3900L * 1000000000L;
+        rangeToTime = currentTime - 300L * 1000000000L;
+        stockService.calculateGBCEAllShareIndex();
+        stockIds = new int[symbols.length];
+        for(int i = 0; i < symbols.length; i++) {
+            stockIds[i] = stockService.getStockId(symbols[i]);
+        }
+        prices = new double[StockModel.getModelInstance().getReferenceData().getStockIdCount()];
+        for(int i = 0; i < prices.length; i++) {
+            prices[i] = 20.0 + i % 17;
+        }
+        results = new double[prices.length];
+    }
+
+    @Benchmark
+    public double calculateVolWeightedPrice(SymbolCursor cursor) {
+        return stockService.calculateVolWeightedPrice(cursor.nextSymbol(symbols));
+    }
+
+    @Benchmark
+    public double calculateVolWeightedPriceById(SymbolCursor cursor) {
+        return stockService.calculateVolWeightedPrice(cursor.nextStockId(stockIds));
+    }
+
+    @Benchmark
+    public double calculateVolWeightedPriceOfSeveralWindows(SymbolCursor cursor) {
+        int stockId = cursor.nextStockId(stockIds);
+        return stockService.calculateVolWeightedPrice(stockId, 60)
+                + stockService.calculateVolWeightedPrice(stockId, 300)
+                + stockService.calculateVolWeightedPrice(stockId, 900)
+                + stockService.calculateVolWeightedPrice(stockId, 3600);
+    }
+
+    @Benchmark
+    public double calculateVolWeightedPriceOfRange(SymbolCursor cursor) {
+        return stockService.calculateVolWeightedPrice(cursor.nextStockId(stockIds), rangeFromTime, rangeToTime);
+    }
+
+    @Benchmark
+    public double scanVolWeightedPriceOfRange(SymbolCursor cursor) {
+        return StockHelper.scanVolWeightPrice(StockModel.getModelInstance().getStock(cursor.nextStockId(stockIds)), rangeFromTime, rangeToTime);
+    }
+
+    @Benchmark
+    public double calculateGBCEAllShareIndex() {
+        return stockService.calculateGBCEAllShareIndex();
+    }
+
+    @Benchmark
+    public double calculateDividendYield(SymbolCursor cursor) {
+        return stockService.calculateDividendYield(cursor.nextSymbol(symbols), 25.0);
+    }
+
+    @Benchmark
+    public double calculateDividendYieldById(SymbolCursor cursor) {
+        return stockService.calculateDividendYield(cursor.nextStockId(stockIds), 25.0);
+    }
+
+    @Benchmark
+    public double calculatePERatio(SymbolCursor cursor) {
+        return stockService.calculatePERatio(cursor.nextSymbol(symbols), 25.0);
+    }
+
+    /**
+     * Dividend Yield of every stock one by one, the per stock path the bulk calculation is compared with
+     */
+    @Benchmark
+    public double calculateDividendYieldOfEveryStock() {
+        double total = 0;
+        for(int stockId : stockIds) {
+            total += stockService.calculateDividendYield(stockId, prices[stockId]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double[] calculateDividendYields() {
+        stockService.calculateDividendYields(prices, results);
+        return results;
+    }
+
+    /**
+     * P/E Ratio of every stock one by one, the per stock path the bulk calculation is compared with
+     */
+    @Benchmark
+    public double calculatePERatioOfEveryStock() {
+        double total = 0;
+        for(int stockId : stockIds) {
+            total += stockService.calculatePERatio(stockId, prices[stockId]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double[] calculatePERatios() {
+        stockService.calculatePERatios(prices, results);
+        return results;
+    }
+}
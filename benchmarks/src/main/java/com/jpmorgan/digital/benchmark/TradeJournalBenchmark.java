@@ -0,0 +1,107 @@
+package com.jpmorgan.digital.benchmark;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of recording trades with and without the trade journal, to measure the overhead of journaling
+ *
+ * The universe and the journal are rebuilt before each iteration, as recorded trades stay in memory and on disk
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class TradeJournalBenchmark {
+
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    @Param({"5", "1000"})
+    public int symbolCount;
+
+    private StockService stockService;
+
+    private int[] stockIds;
+
+    private long currentTime;
+
+    private File journalDirectory;
+
+    /**
+     * Position of the next stock for each benchmark thread, threads start at different stocks
+     */
+    @State(Scope.Thread)
+    public static class StockCursor {
+        private static int threads;
+
+        private int next = 7919 * threads++;
+
+        int nextStockId(int[] stockIds) {
+            next = next + 1 >= stockIds.length ? 0 : next + 1;
+            return stockIds[next];
+        }
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void setUp() throws IOException {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        if(journaled) {
+            journalDirectory = Files.createTempDirectory("trade-journal").toFile();
+            System.setProperty(StockModel.JOURNAL_DIR_PROPERTY, journalDirectory.getAbsolutePath());
+        }
+        try {
+            currentTime = SystemTradeClock.getClockInstance().currentTimeNanos();
+            stockService = new StockServiceImpl(new SimulatedTradeClock(currentTime));
+            String[] symbols = BenchmarkUniverse.createStocks(symbolCount);
+            stockIds = new int[symbols.length];
+            for(int i = 0; i < symbols.length; i++) {
+                stockIds[i] = stockService.getStockId(symbols[i]);
+            }
+        } finally {
+            System.clearProperty(StockModel.JOURNAL_DIR_PROPERTY);
+        }
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+    public void tearDown() {
+        if(journalDirectory != null) {
+            StockModel.getModelInstance().getTradeJournal().close();
+            BenchmarkUniverse.deleteDirectory(journalDirectory);
+            journalDirectory = null;
+        }
+    }
+
+    @Benchmark
+    public void recordTradeById(StockCursor cursor) {
+        stockService.recordTrade(cursor.nextStockId(stockIds), currentTime, 100, 12.5, TradeDomain.Indicator.BUY);
+    }
+}
@@ -1,10 +1,11 @@
 package com.jpmorgan.digital.domain;
 
-import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.helper.TradeClock;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
 
 /**
@@ -20,19 +21,28 @@ import java.util.Date;
  *     <li>Price of Trade</li>
  * </ul>
  *
+ * Future timestamps are checked against the {@link TradeClock} of the trade, the wall clock by default
+ *
  *  @author Aman Chhabra
  *  @since 1.0
  */
-public class TradeDomain extends StockServiceImpl {
+public class TradeDomain {
 
     /**
      * Indicator values possible for a trade
+     *
+     * Declared in the same order as {@link com.jpmorgan.digital.dto.TradeDTO.Indicator} as the ordinal is what gets stored
      */
     public enum Indicator {
         BUY,
         SELL
     }
 
+    /**
+     * Clock to check the timestamp against
+     */
+    private final TradeClock clock;
+
     /**
      *  Timestamp of the trade
      */
@@ -53,6 +63,24 @@ public class TradeDomain extends StockServiceImpl {
      */
     private double price;
 
+    /**
+     * Creates a trade checked against the wall clock
+     */
+    public TradeDomain() {
+        this(SystemTradeClock.getClockInstance());
+    }
+
+    /**
+     * Creates a trade checked against the provided clock
+     * @param clock Source of current time
+     */
+    public TradeDomain(TradeClock clock) {
+        if(clock == null) {
+            throw new IllegalArgumentException("Clock can not be null");
+        }
+        this.clock = clock;
+    }
+
     /**
      * Check {@link com.jpmorgan.digital.domain.TradeDomain#timestamp} for more information
      */
@@ -152,8 +180,6 @@ public class TradeDomain extends StockServiceImpl {
      * @return boolean True - If Past or current time , False - If future time
      */
     private boolean verifyNotFutureTimestamp(ZonedDateTime time){
-        ChronoUnit unit = ChronoUnit.SECONDS;
-        long diff = unit.between(time,ZonedDateTime.now());
-        return diff>=0;
+        return !StockHelper.isFutureTimestamp(StockHelper.toEpochNanos(time), clock.currentTimeNanos());
     }
 }
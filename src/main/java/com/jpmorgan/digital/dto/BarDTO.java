@@ -0,0 +1,219 @@
+package com.jpmorgan.digital.dto;
+
+/**
+ * Class to store Open, High, Low, Close and Volume of the trades of a stock in one interval
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class BarDTO {
+
+    /**
+     * Symbol of the stock of the bar
+     */
+    private String stockSymbol;
+
+    /**
+     * Length of the interval of the bar in seconds
+     */
+    private int intervalSeconds;
+
+    /**
+     * Start of the interval in epoch nanoseconds, inclusive
+     */
+    private long startTime;
+
+    /**
+     * Price of the earliest trade of the interval
+     */
+    private double open;
+
+    /**
+     * Highest price of the interval
+     */
+    private double high;
+
+    /**
+     * Lowest price of the interval
+     */
+    private double low;
+
+    /**
+     * Price of the latest trade of the interval
+     */
+    private double close;
+
+    /**
+     * Total quantity of the trades of the interval
+     */
+    private long volume;
+
+    /**
+     * Total quantity of the Buy trades of the interval
+     */
+    private long buyVolume;
+
+    /**
+     * Total quantity of the Sell trades of the interval
+     */
+    private long sellVolume;
+
+    /**
+     * Number of trades of the interval
+     */
+    private int tradeCount;
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#stockSymbol} for more information
+     */
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#stockSymbol} for more information
+     */
+    public void setStockSymbol(String stockSymbol) {
+        this.stockSymbol = stockSymbol;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#intervalSeconds} for more information
+     */
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#intervalSeconds} for more information
+     */
+    public void setIntervalSeconds(int intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#startTime} for more information
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#startTime} for more information
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#open} for more information
+     */
+    public double getOpen() {
+        return open;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#open} for more information
+     */
+    public void setOpen(double open) {
+        this.open = open;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#high} for more information
+     */
+    public double getHigh() {
+        return high;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#high} for more information
+     */
+    public void setHigh(double high) {
+        this.high = high;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#low} for more information
+     */
+    public double getLow() {
+        return low;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#low} for more information
+     */
+    public void setLow(double low) {
+        this.low = low;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#close} for more information
+     */
+    public double getClose() {
+        return close;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#close} for more information
+     */
+    public void setClose(double close) {
+        this.close = close;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#volume} for more information
+     */
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#volume} for more information
+     */
+    public void setVolume(long volume) {
+        this.volume = volume;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#buyVolume} for more information
+     */
+    public long getBuyVolume() {
+        return buyVolume;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#buyVolume} for more information
+     */
+    public void setBuyVolume(long buyVolume) {
+        this.buyVolume = buyVolume;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#sellVolume} for more information
+     */
+    public long getSellVolume() {
+        return sellVolume;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#sellVolume} for more information
+     */
+    public void setSellVolume(long sellVolume) {
+        this.sellVolume = sellVolume;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#tradeCount} for more information
+     */
+    public int getTradeCount() {
+        return tradeCount;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.BarDTO#tradeCount} for more information
+     */
+    public void setTradeCount(int tradeCount) {
+        this.tradeCount = tradeCount;
+    }
+}
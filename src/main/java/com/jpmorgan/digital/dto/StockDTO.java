@@ -1,49 +1,371 @@
 package com.jpmorgan.digital.dto;
 
+import com.jpmorgan.digital.helper.BarAggregator;
+import com.jpmorgan.digital.helper.BarPublisher;
+import com.jpmorgan.digital.helper.LateTradePolicy;
+import com.jpmorgan.digital.helper.LateTradePublisher;
+import com.jpmorgan.digital.helper.PriceTicks;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.helper.TimeBucketAggregator;
+import com.jpmorgan.digital.helper.TradeJournal;
+import com.jpmorgan.digital.helper.TradeReorderBuffer;
+import com.jpmorgan.digital.helper.VolWeightedPriceAggregator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Class to store various information related to Stock
  *
+ * Trades of a stock are guarded by a lock of its own, so trades of different stocks are recorded
+ * in parallel. Volume Weighted price is read optimistically and never waits for a writer of the stock
+ *
+ * Trades are ingested by their own time. The watermark of the stock trails its latest trade by the allowed
+ * lateness, trades newer than the watermark are held in a reorder buffer until it passes them and are then
+ * added to the aggregates in time order. Trades older than the watermark are late, they are counted,
+ * passed to the {@link LateTradePublisher} and applied or dropped by the {@link LateTradePolicy}.
+ * Without lateness no trade is held and every trade out of time order is late.
+ *
+ * Prices are rounded to ticks of {@link PriceTicks} once when a trade is added, the store, the reorder buffer and all
+ * the aggregates keep ticks and exact totals, and prices are decimals again only in what the stock returns.
+ *
+ * Trades older than the retention before the watermark are evicted from the store and the time index on
+ * {@link #evictTrades(TradeCursor)}, the bounded aggregates are not affected. Without retention all the trades are kept.
+ *
+ * With a {@link TradeJournal} every trade is appended to the journal under the lock of the stock, so the journal holds
+ * the trades of a stock in the order they were added and the journal sequence of the latest one identifies the state
+ * of the stock written by {@link #writeSnapshot(DataOutputStream)}.
+ *
  * @author Aman Chhabra
  * @since 1.0
  */
 public class StockDTO {
 
+    /**
+     * Ways to calculate Dividend Yield, resolved once from the type of the stock
+     * <ul>
+     *     <li>COMMON - Last dividend / Price</li>
+     *     <li>PREFERRED - Fixed dividend * Par value / Price</li>
+     *     <li>NONE - Any other type, Dividend Yield is always 0</li>
+     * </ul>
+     */
+    public enum DividendYieldStrategy {
+        COMMON {
+            @Override
+            public double calculateDividendYield(ReferenceData referenceData, double price) {
+                return StockHelper.calculateDividendYieldForCommon(referenceData.getLastDividend(), price);
+            }
+        },
+        PREFERRED {
+            @Override
+            public double calculateDividendYield(ReferenceData referenceData, double price) {
+                return StockHelper.calculateDividendYieldForPreferred(referenceData.getFixedDividend(), referenceData.getParValue(), price);
+            }
+        },
+        NONE {
+            @Override
+            public double calculateDividendYield(ReferenceData referenceData, double price) {
+                return 0.0;
+            }
+        };
+
+        /**
+         * Function to calculate Dividend Yield of the provided stock
+         * @param stock Stock for which Dividend Yield needs to be calculated
+         * @param price Price of the stock
+         * @return dividendYield Calculated Dividend Yield
+         * @throws IllegalArgumentException When price is zero
+         * @since 1.1
+         */
+        public double calculateDividendYield(StockDTO stock, double price) throws IllegalArgumentException {
+            return calculateDividendYield(stock.getReferenceData(), price);
+        }
+
+        /**
+         * Function to calculate Dividend Yield from the reference data of a stock
+         * @param referenceData Reference data of the stock
+         * @param price Price of the stock
+         * @return dividendYield Calculated Dividend Yield
+         * @throws IllegalArgumentException When price is zero
+         * @since 1.1
+         */
+        public abstract double calculateDividendYield(ReferenceData referenceData, double price) throws IllegalArgumentException;
+
+        /**
+         * Function to resolve the strategy of a stock type, ignoring case
+         * @param stockType Common or Preferred
+         * @return strategy NONE for any other type
+         * @since 1.1
+         */
+        public static DividendYieldStrategy of(String stockType) {
+            if("Common".equalsIgnoreCase(stockType)) {
+                return COMMON;
+            }
+            if("Preferred".equalsIgnoreCase(stockType)) {
+                return PREFERRED;
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * Type, dividends and par value of a stock, which are replaced together so a reader never sees the type of one
+     * config with the dividends of another
+     */
+    public static final class ReferenceData {
+
+        /**
+         * Reference data of a stock which is not set up yet
+         */
+        public static final ReferenceData NONE = new ReferenceData(null, 0, 0, 0);
+
+        private final String stockType;
+
+        private final DividendYieldStrategy dividendYieldStrategy;
+
+        private final int lastDividend;
+
+        private final int fixedDividend;
+
+        private final int parValue;
+
+        /**
+         * Creates the reference data of a stock
+         * @param stockType Common or Preferred
+         * @param lastDividend Last dividend
+         * @param fixedDividend Fixed dividend
+         * @param parValue Par value
+         * @throws IllegalArgumentException When the fixed dividend or the par value is negative
+         */
+        public ReferenceData(String stockType, int lastDividend, int fixedDividend, int parValue) throws IllegalArgumentException {
+            if(fixedDividend < 0){
+                throw new IllegalArgumentException("Fixed dividend can not be negative");
+            }
+            if(parValue < 0){
+                throw new IllegalArgumentException("Par value can not be negative");
+            }
+            this.stockType = stockType;
+            this.dividendYieldStrategy = DividendYieldStrategy.of(stockType);
+            this.lastDividend = lastDividend;
+            this.fixedDividend = fixedDividend;
+            this.parValue = parValue;
+        }
+
+        public String getStockType() {
+            return stockType;
+        }
+
+        public DividendYieldStrategy getDividendYieldStrategy() {
+            return dividendYieldStrategy;
+        }
+
+        public int getLastDividend() {
+            return lastDividend;
+        }
+
+        public int getFixedDividend() {
+            return fixedDividend;
+        }
+
+        public int getParValue() {
+            return parValue;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof ReferenceData)) {
+                return false;
+            }
+            ReferenceData referenceData = (ReferenceData) other;
+            return Objects.equals(stockType, referenceData.stockType) && lastDividend == referenceData.lastDividend
+                    && fixedDividend == referenceData.fixedDividend && parValue == referenceData.parValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stockType, lastDividend, fixedDividend, parValue);
+        }
+    }
+
+    /**
+     * Volume Weighted price of the trades in last 5 minutes together with the time at which the oldest of them leaves
+     * the window, both read from the same state of the window
+     */
+    public static final class WindowPrice {
+
+        /**
+         * Window without any trade
+         */
+        public static final WindowPrice EMPTY = new WindowPrice(0.0, Long.MAX_VALUE);
+
+        private final double volWeightedPrice;
+
+        private final long nextExpiry;
+
+        WindowPrice(double volWeightedPrice, long nextExpiry) {
+            this.volWeightedPrice = volWeightedPrice;
+            this.nextExpiry = nextExpiry;
+        }
+
+        /**
+         * Check {@link com.jpmorgan.digital.dto.StockDTO#getVolWeightedPrice(long)} for more information
+         */
+        public double getVolWeightedPrice() {
+            return volWeightedPrice;
+        }
+
+        /**
+         * Check {@link com.jpmorgan.digital.dto.StockDTO#getNextWindowExpiry(long)} for more information
+         */
+        public long getNextExpiry() {
+            return nextExpiry;
+        }
+    }
+
+    private static final BarAggregator[] NO_BARS = new BarAggregator[0];
+
+    /**
+     * Maximum number of bar intervals of a stock
+     */
+    private static final int MAX_BAR_INTERVALS = 32;
+
+    /**
+     * Dense id of the stock assigned by {@link com.jpmorgan.digital.model.StockModel}, -1 when not added to a model
+     */
+    private int stockId = -1;
+
     /**
      * Symbol of Stock
      */
     private String stockSymbol;
 
     /**
-     * Type of stock
-     * <ul>
-     *     <li>Common</li>
-     *     <li>Preferred</li>
-     * </ul>
+     * Type of stock (Common or Preferred), its Dividend Yield calculation, last dividend, fixed dividend and par value,
+     * replaced as a whole when the config of the stock changes while its trades are kept
+     */
+    private volatile ReferenceData referenceData = ReferenceData.NONE;
+
+    /**
+     * All the trades for this stock, kept in columns of primitives
+     */
+    private final TradeStore tradeStore = new TradeStore();
+
+    /**
+     * Running totals of the trades in last 5 minutes for Volume Weighted price
+     */
+    private final VolWeightedPriceAggregator volWeightedPriceAggregator = new VolWeightedPriceAggregator();
+
+    /**
+     * Totals of the trades per second and per minute for Volume Weighted price of any window
+     */
+    private final TimeBucketAggregator timeBucketAggregator = new TimeBucketAggregator();
+
+    /**
+     * Trades sorted by time with running totals for Volume Weighted price of any time range
+     */
+    private final TradeTimeIndex tradeTimeIndex = new TradeTimeIndex();
+
+    /**
+     * Open, High, Low, Close and Volume bars of the stock, one aggregator per interval
+     */
+    private BarAggregator[] barAggregators = NO_BARS;
+
+    /**
+     * Publisher of the finished bars, none by default
+     */
+    private BarPublisher barPublisher;
+
+    /**
+     * Lock guarding the trades of this stock
+     */
+    private final StampedLock tradeLock = new StampedLock();
+
+    /**
+     * Number of trades recorded for this stock, guarded by the lock of the stock
+     */
+    private long recordedTradeCount;
+
+    /**
+     * Number of trades of this stock rejected by the service
+     */
+    private final LongAdder rejectedTradeCount = new LongAdder();
+
+    /**
+     * Lateness allowed for the trades of this stock in nanoseconds, 0 by default
+     */
+    private long latenessNanos;
+
+    /**
+     * Trades newer than the watermark, held until it passes them, none without lateness
      */
-    private String stockType;
+    private TradeReorderBuffer reorderBuffer;
 
     /**
-     * Last dividend of stock
+     * Time in epoch nanoseconds before which trades of this stock are late, guarded by the lock of the stock
      */
-    private int lastDividend;
+    private long watermark = Long.MIN_VALUE;
 
     /**
-     * Fixed dividend of stock
+     * What happens to the late trades of this stock
      */
-    private int fixedDividend;
+    private LateTradePolicy lateTradePolicy = LateTradePolicy.APPLY;
 
     /**
-     * Par Value of stock
+     * Publisher of the late trades, none by default
      */
-    private int parValue;
+    private LateTradePublisher lateTradePublisher;
 
     /**
-     * List of all the trades for this stock
+     * Number of trades of this stock which arrived beyond the watermark, guarded by the lock of the stock
      */
-    private List<TradeDTO> tradeList;
+    private long lateTradeCount;
+
+    /**
+     * Time in nanoseconds for which trades are kept in memory before the watermark, 0 to keep all the trades
+     */
+    private volatile long retentionNanos;
+
+    /**
+     * Number of trades of this stock evicted from memory, guarded by the lock of the stock
+     */
+    private long evictedTradeCount;
+
+    /**
+     * Journal the trades of this stock are appended to, none by default
+     */
+    private volatile TradeJournal tradeJournal;
+
+    /**
+     * Journal sequence of the latest trade of this stock, -1 when none, guarded by the lock of the stock
+     */
+    private long journalSequence = -1;
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#stockId} for more information
+     */
+    public int getStockId() {
+        return stockId;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#stockId} for more information
+     */
+    public void setStockId(int stockId) {
+        this.stockId = stockId;
+    }
 
     /**
      * Check {@link com.jpmorgan.digital.dto.StockDTO#stockSymbol} for more information
@@ -60,83 +382,984 @@ public class StockDTO {
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#stockType} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
+     */
+    public ReferenceData getReferenceData() {
+        return referenceData;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
+     */
+    public void setReferenceData(ReferenceData referenceData) {
+        if(referenceData == null) {
+            throw new IllegalArgumentException("Reference data can not be null");
+        }
+        this.referenceData = referenceData;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public String getStockType() {
-        return stockType;
+        return referenceData.getStockType();
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#stockType} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public void setStockType(String stockType) {
-        this.stockType = stockType;
+        ReferenceData current = referenceData;
+        referenceData = new ReferenceData(stockType, current.getLastDividend(), current.getFixedDividend(), current.getParValue());
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
+     */
+    public DividendYieldStrategy getDividendYieldStrategy() {
+        return referenceData.getDividendYieldStrategy();
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#lastDividend} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public int getLastDividend() {
-        return lastDividend;
+        return referenceData.getLastDividend();
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#lastDividend} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public void setLastDividend(int lastDividend) {
-        this.lastDividend = lastDividend;
+        ReferenceData current = referenceData;
+        referenceData = new ReferenceData(current.getStockType(), lastDividend, current.getFixedDividend(), current.getParValue());
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#fixedDividend} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public int getFixedDividend() {
-        return fixedDividend;
+        return referenceData.getFixedDividend();
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#fixedDividend} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public void setFixedDividend(int fixedDividend) {
-        if(fixedDividend < 0){
-            throw new IllegalArgumentException("Fixed dividend can not be negative");
-        }
-        this.fixedDividend = fixedDividend;
+        ReferenceData current = referenceData;
+        referenceData = new ReferenceData(current.getStockType(), current.getLastDividend(), fixedDividend, current.getParValue());
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#parValue} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public int getParValue() {
-        return parValue;
+        return referenceData.getParValue();
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#parValue} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#referenceData} for more information
      */
     public void setParValue(int parValue) {
-        if(parValue < 0){
-            throw new IllegalArgumentException("Par value can not be negative");
-        }
-        this.parValue = parValue;
+        ReferenceData current = referenceData;
+        referenceData = new ReferenceData(current.getStockType(), current.getLastDividend(), current.getFixedDividend(), parValue);
     }
 
     /**
      * Function to add trade for this stock
      *
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#tradeList} for more information
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#tradeStore} for more information
      */
     public void addTrade(TradeDTO tradeDTO){
-        if(tradeList == null) {
-            tradeList = new ArrayList<TradeDTO>();
+        addTrade(StockHelper.toEpochNanos(tradeDTO.getTimestamp()), tradeDTO.getQuantity(), tradeDTO.getPrice(),
+                (byte) TradeDTO.Indicator.valueOf(tradeDTO.getIndicator()).ordinal());
+    }
+
+    /**
+     * Function to add trade for this stock without creating any object
+     *
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade
+     * @param indicator Ordinal of {@link TradeDTO.Indicator} of the trade
+     * @since 1.1
+     */
+    public void addTrade(long timestamp, int quantity, double price, byte indicator){
+        addTrade(-1, timestamp, quantity, price, indicator);
+    }
+
+    /**
+     * Function to add a trade replayed from the journal, trades at or before the journal sequence of the stock are
+     * already part of its state and are ignored
+     *
+     * @param sequence Journal sequence of the trade
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade
+     * @param indicator Ordinal of {@link TradeDTO.Indicator} of the trade
+     * @return True - If the trade was added, False - If it was already part of the state of the stock
+     * @since 1.1
+     */
+    public boolean replayTrade(long sequence, long timestamp, int quantity, double price, byte indicator){
+        return addTrade(sequence, timestamp, quantity, price, indicator);
+    }
+
+    /**
+     * Function to add a group of trades of this stock holding its lock once, as recorded one after the other by
+     * {@link #addTrade(long, int, double, byte)}
+     *
+     * The trades are read from the columns at the provided positions, so a batch of trades of many stocks is added
+     * without copying the trades of each stock out of it
+     *
+     * @param timestamps Timestamps of the trades in epoch nanoseconds
+     * @param quantities Quantities of the trades
+     * @param prices Prices of the trades
+     * @param indicators Ordinals of {@link TradeDTO.Indicator} of the trades
+     * @param positions Positions of the trades of this stock in the columns, in the order they are added
+     * @param from First position of the positions to be added, inclusive
+     * @param to Last position of the positions to be added, exclusive
+     * @since 1.1
+     */
+    public void addTrades(long[] timestamps, int[] quantities, double[] prices, byte[] indicators, int[] positions, int from, int to){
+        BarDTO[] finishedBars = null;
+        List<TradeDTO> lateTrades = null;
+        long stamp = tradeLock.writeLock();
+        try {
+            for(int i = from; i < to; i++) {
+                int position = positions[i];
+                long timestamp = timestamps[position];
+                int quantity = quantities[position];
+                double price = prices[position];
+                byte indicator = indicators[position];
+                if(tradeJournal != null) {
+                    journalSequence = tradeJournal.append(stockId, timestamp, quantity, price, indicator);
+                }
+                if(timestamp < watermark && lateTradePublisher != null && lateTradePublisher.hasListeners()) {
+                    if(lateTrades == null) {
+                        lateTrades = new ArrayList<TradeDTO>();
+                    }
+                    lateTrades.add(createTrade(timestamp, quantity, price, indicator));
+                }
+                finishedBars = recordTrade(timestamp, quantity, PriceTicks.toTicks(price), indicator, finishedBars);
+            }
+        } finally {
+            tradeLock.unlockWrite(stamp);
         }
-        tradeList.add(tradeDTO);
+        if(lateTrades != null) {
+            for(TradeDTO lateTrade : lateTrades) {
+                lateTradePublisher.publish(stockSymbol, lateTrade);
+            }
+        }
+        publishBars(finishedBars);
     }
 
     /**
-     * Check {@link com.jpmorgan.digital.dto.StockDTO#tradeList} for more information
+     * Function to add a trade, appending it to the journal when it is not replayed from it
+     */
+    private boolean addTrade(long sequence, long timestamp, int quantity, double price, byte indicator){
+        BarDTO[] finishedBars;
+        TradeDTO lateTrade = null;
+        long stamp = tradeLock.writeLock();
+        try {
+            if(sequence >= 0) {
+                if(sequence <= journalSequence) {
+                    return false;
+                }
+                journalSequence = sequence;
+            } else if(tradeJournal != null) {
+                journalSequence = tradeJournal.append(stockId, timestamp, quantity, price, indicator);
+            }
+            if(timestamp < watermark && lateTradePublisher != null && lateTradePublisher.hasListeners()) {
+                lateTrade = createTrade(timestamp, quantity, price, indicator);
+            }
+            finishedBars = recordTrade(timestamp, quantity, PriceTicks.toTicks(price), indicator, null);
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+        if(lateTrade != null) {
+            lateTradePublisher.publish(stockSymbol, lateTrade);
+        }
+        publishBars(finishedBars);
+        return true;
+    }
+
+    /**
+     * Function to count a trade and add it to the aggregates or hold it for reordering, must be called under the write lock
+     * @param price Price of the trade in ticks
+     * @param finishedBars Bars finished so far
+     * @return finishedBars Bars finished so far and by the trade
+     */
+    private BarDTO[] recordTrade(long timestamp, int quantity, long price, byte indicator, BarDTO[] finishedBars) {
+        recordedTradeCount++;
+        if(timestamp < watermark) {
+            lateTradeCount++;
+            if(lateTradePolicy == LateTradePolicy.APPLY) {
+                finishedBars = concatBars(finishedBars, applyTrade(timestamp, quantity, price, indicator));
+            }
+        } else if(reorderBuffer == null) {
+            watermark = timestamp;
+            finishedBars = concatBars(finishedBars, applyTrade(timestamp, quantity, price, indicator));
+        } else {
+            if(reorderBuffer.isFull() && timestamp <= reorderBuffer.peekTimestamp()) {
+                watermark = timestamp;
+                finishedBars = concatBars(finishedBars, applyTrade(timestamp, quantity, price, indicator));
+            } else {
+                if(reorderBuffer.isFull()) {
+                    watermark = reorderBuffer.peekTimestamp();
+                    finishedBars = releaseOldestTrade(finishedBars);
+                }
+                reorderBuffer.addTrade(timestamp, quantity, price, indicator);
+                watermark = Math.max(watermark, timestamp - latenessNanos);
+            }
+            finishedBars = releaseTrades(finishedBars);
+        }
+        return finishedBars;
+    }
+
+    /**
+     * Function to move the watermark to the provided time less the lateness and add the trades it passes to the aggregates
+     *
+     * Without lateness no trade is held and nothing is done
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @return True - If any trade was released, False - Otherwise
+     * @since 1.1
+     */
+    public boolean releaseTrades(long currentTime) {
+        if(reorderBuffer == null) {
+            return false;
+        }
+        BarDTO[] finishedBars;
+        int released;
+        long stamp = tradeLock.writeLock();
+        try {
+            watermark = Math.max(watermark, currentTime - latenessNanos);
+            released = reorderBuffer.getTradeCount();
+            finishedBars = releaseTrades(null);
+            released -= reorderBuffer.getTradeCount();
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+        publishBars(finishedBars);
+        return released > 0;
+    }
+
+    /**
+     * Function to set how trades out of time order are handled
+     *
+     * Held trades are released, so lateness is expected to be set before trades are recorded
+     *
+     * @param latenessNanos Lateness allowed in nanoseconds, 0 to add every trade on arrival
+     * @param capacity Maximum number of trades held for reordering
+     * @param policy What happens to the trades which arrive beyond the watermark
+     * @throws IllegalArgumentException When lateness is negative, capacity is zero or negative or policy is null
+     * @since 1.1
+     */
+    public void setTradeReordering(long latenessNanos, int capacity, LateTradePolicy policy) throws IllegalArgumentException {
+        if(latenessNanos < 0) {
+            throw new IllegalArgumentException("Trade lateness can not be negative");
+        }
+        if(policy == null) {
+            throw new IllegalArgumentException("Late trade policy can not be null");
+        }
+        TradeReorderBuffer buffer = latenessNanos == 0 ? null : new TradeReorderBuffer(capacity);
+        BarDTO[] finishedBars = null;
+        long stamp = tradeLock.writeLock();
+        try {
+            if(reorderBuffer != null) {
+                watermark = Long.MAX_VALUE;
+                finishedBars = releaseTrades(null);
+            }
+            this.latenessNanos = latenessNanos;
+            this.reorderBuffer = buffer;
+            this.lateTradePolicy = policy;
+            this.watermark = Long.MIN_VALUE;
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+        publishBars(finishedBars);
+    }
+
+    /**
+     * Function to evict the trades older than the retention before the watermark
+     *
+     * Evicted trades are not modified afterwards, so the cursor can be iterated after the lock is released,
+     * e.g. to archive them
+     *
+     * @param evicted Cursor positioned over the trades evicted from the store, can be null
+     * @return count Number of trades evicted from the store
+     * @since 1.1
+     */
+    public int evictTrades(TradeCursor evicted) {
+        long retention = retentionNanos;
+        long stamp = tradeLock.writeLock();
+        try {
+            long evictBefore = retention == 0 || watermark == Long.MIN_VALUE ? Long.MIN_VALUE : watermark - retention;
+            int count = tradeStore.evictBefore(evictBefore, evicted);
+            tradeTimeIndex.evictBefore(evictBefore);
+            evictedTradeCount += count;
+            return count;
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Function to set the time for which trades are kept in memory before the watermark
+     * @param retentionNanos Retention in nanoseconds, 0 to keep all the trades
+     * @throws IllegalArgumentException When retention is negative
+     * @since 1.1
+     */
+    public void setRetentionNanos(long retentionNanos) throws IllegalArgumentException {
+        if(retentionNanos < 0) {
+            throw new IllegalArgumentException("Trade retention can not be negative");
+        }
+        this.retentionNanos = retentionNanos;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#retentionNanos} for more information
+     */
+    public long getRetentionNanos() {
+        return retentionNanos;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#evictedTradeCount} for more information
+     */
+    public long getEvictedTradeCount() {
+        long stamp = tradeLock.readLock();
+        try {
+            return evictedTradeCount;
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#tradeJournal} for more information
+     */
+    public void setTradeJournal(TradeJournal tradeJournal) {
+        this.tradeJournal = tradeJournal;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#journalSequence} for more information
+     */
+    public long getJournalSequence() {
+        long stamp = tradeLock.readLock();
+        try {
+            return journalSequence;
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to write the trades and aggregates of the stock, read back by {@link #readSnapshot(DataInputStream)}
+     *
+     * The aggregates and the time index are copied under the read lock of the stock, so trades of the stock wait only
+     * for the copy and not for the output. Retained trades are never modified and are written after the lock is released.
+     *
+     * @param out Output of the snapshot
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        DataOutputStream stateOut = new DataOutputStream(state);
+        TradeTimeIndex timeIndex;
+        TradeCursor trades = new TradeCursor();
+        long stamp = tradeLock.readLock();
+        try {
+            stateOut.writeLong(journalSequence);
+            stateOut.writeLong(recordedTradeCount);
+            stateOut.writeLong(lateTradeCount);
+            stateOut.writeLong(evictedTradeCount);
+            stateOut.writeLong(watermark);
+            volWeightedPriceAggregator.writeSnapshot(stateOut);
+            timeBucketAggregator.writeSnapshot(stateOut);
+            stateOut.writeInt(barAggregators.length);
+            for(BarAggregator barAggregator : barAggregators) {
+                stateOut.writeInt(barAggregator.getIntervalSeconds());
+                barAggregator.writeSnapshot(stateOut);
+            }
+            stateOut.writeBoolean(reorderBuffer != null);
+            if(reorderBuffer != null) {
+                reorderBuffer.writeSnapshot(stateOut);
+            }
+            timeIndex = tradeTimeIndex.copy();
+            tradeStore.openCursor(trades);
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+        out.writeInt(state.size());
+        state.writeTo(out);
+        timeIndex.writeSnapshot(out);
+        trades.writeSnapshot(out);
+    }
+
+    /**
+     * Function to replace the trades and aggregates of the stock with the ones written by {@link #writeSnapshot(DataOutputStream)}
+     *
+     * Bars of intervals the stock does not have anymore are skipped, held trades are held again when the stock
+     * has a lateness and added to the aggregates otherwise. Nothing is published.
+     *
+     * @param in Input of the snapshot
+     * @throws IOException When the snapshot can not be read
+     * @since 1.1
+     */
+    public void readSnapshot(DataInputStream in) throws IOException {
+        long stamp = tradeLock.writeLock();
+        try {
+            in.readInt();
+            journalSequence = in.readLong();
+            recordedTradeCount = in.readLong();
+            lateTradeCount = in.readLong();
+            evictedTradeCount = in.readLong();
+            watermark = in.readLong();
+            volWeightedPriceAggregator.readSnapshot(in);
+            timeBucketAggregator.readSnapshot(in);
+            int intervals = in.readInt();
+            for(int i = 0; i < intervals; i++) {
+                int intervalSeconds = in.readInt();
+                BarAggregator restored = new BarAggregator(intervalSeconds);
+                for(BarAggregator barAggregator : barAggregators) {
+                    if(barAggregator.getIntervalSeconds() == intervalSeconds) {
+                        restored = barAggregator;
+                    }
+                }
+                restored.readSnapshot(in);
+            }
+            TradeStore held = new TradeStore();
+            if(in.readBoolean()) {
+                int count = in.readInt();
+                for(int i = 0; i < count; i++) {
+                    held.addTrade(in.readLong(), in.readInt(), in.readLong(), in.readByte());
+                }
+            }
+            tradeTimeIndex.readSnapshot(in);
+            tradeStore.readSnapshot(in);
+            TradeCursor cursor = held.openCursor(new TradeCursor());
+            while(cursor.next()) {
+                if(reorderBuffer != null && !reorderBuffer.isFull() && cursor.getTimestamp() >= watermark) {
+                    reorderBuffer.addTrade(cursor.getTimestamp(), cursor.getQuantity(), cursor.getPriceTicks(), cursor.getIndicator());
+                } else {
+                    applyTrade(cursor.getTimestamp(), cursor.getQuantity(), cursor.getPriceTicks(), cursor.getIndicator());
+                }
+            }
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#lateTradePublisher} for more information
+     */
+    public void setLateTradePublisher(LateTradePublisher lateTradePublisher) {
+        this.lateTradePublisher = lateTradePublisher;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#latenessNanos} for more information
+     */
+    public long getLatenessNanos() {
+        return latenessNanos;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#lateTradePolicy} for more information
+     */
+    public LateTradePolicy getLateTradePolicy() {
+        return lateTradePolicy;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#watermark} for more information
+     */
+    public long getWatermark() {
+        long stamp = tradeLock.readLock();
+        try {
+            return watermark;
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to get the number of trades held until the watermark passes them
+     * @return count Number of trades
+     * @since 1.1
+     */
+    public int getPendingTradeCount() {
+        long stamp = tradeLock.readLock();
+        try {
+            return reorderBuffer == null ? 0 : reorderBuffer.getTradeCount();
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#lateTradeCount} for more information
+     */
+    public long getLateTradeCount() {
+        long stamp = tradeLock.readLock();
+        try {
+            return lateTradeCount;
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to set the intervals of the Open, High, Low, Close and Volume bars of this stock
+     *
+     * Bars built so far are dropped, so intervals are expected to be set before trades are recorded
+     *
+     * @param intervalSeconds Lengths of the intervals in seconds
+     * @throws IllegalArgumentException When an interval is zero or negative or there are more than 32 intervals
+     * @since 1.1
+     */
+    public void setBarIntervals(int[] intervalSeconds) throws IllegalArgumentException {
+        if(intervalSeconds.length > MAX_BAR_INTERVALS) {
+            throw new IllegalArgumentException("Stock can not have more than " + MAX_BAR_INTERVALS + " bar intervals");
+        }
+        BarAggregator[] aggregators = new BarAggregator[intervalSeconds.length];
+        for(int i = 0; i < intervalSeconds.length; i++) {
+            aggregators[i] = new BarAggregator(intervalSeconds[i]);
+        }
+        long stamp = tradeLock.writeLock();
+        try {
+            barAggregators = aggregators;
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#barPublisher} for more information
+     */
+    public void setBarPublisher(BarPublisher barPublisher) {
+        this.barPublisher = barPublisher;
+    }
+
+    /**
+     * Function to get the finished bars of an interval
+     * @param intervalSeconds Length of the interval in seconds
+     * @return bars Kept finished bars from oldest to latest
+     * @throws IllegalArgumentException When the interval is not configured for the stock
+     * @since 1.1
+     */
+    public BarDTO[] getBars(int intervalSeconds) throws IllegalArgumentException {
+        long stamp = tradeLock.readLock();
+        try {
+            return getBarAggregator(intervalSeconds).getBars(stockSymbol);
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to get the bar of the current interval
+     * @param intervalSeconds Length of the interval in seconds
+     * @return bar Current bar or null when there is no trade after the last finished bar
+     * @throws IllegalArgumentException When the interval is not configured for the stock
+     * @since 1.1
+     */
+    public BarDTO getCurrentBar(int intervalSeconds) throws IllegalArgumentException {
+        long stamp = tradeLock.readLock();
+        try {
+            return getBarAggregator(intervalSeconds).getCurrentBar(stockSymbol);
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to finish and publish the current bars whose interval is over at the provided time
+     * @param currentTime Current time in epoch nanoseconds
+     * @since 1.1
+     */
+    public void finishBars(long currentTime) {
+        BarDTO[] finishedBars;
+        long stamp = tradeLock.writeLock();
+        try {
+            int finished = 0;
+            for(int i = 0; i < barAggregators.length; i++) {
+                if(barAggregators[i].finishBar(currentTime)) {
+                    finished |= 1 << i;
+                }
+            }
+            finishedBars = collectFinishedBars(finished);
+        } finally {
+            tradeLock.unlockWrite(stamp);
+        }
+        publishBars(finishedBars);
+    }
+
+    /**
+     * Function to return copy of all the trades of this stock
+     *
+     * A TradeDTO is created for every trade, use {@link #openCursor(TradeCursor)} to scan the trades without creating objects
+     *
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#tradeStore} for more information
      */
     public TradeDTO[] getAllTrades(){
-        return tradeList.toArray(new TradeDTO[0]);
+        TradeCursor cursor = openCursor(new TradeCursor());
+        TradeDTO[] trades = new TradeDTO[cursor.getTradeCount()];
+        TradeDTO.Indicator[] indicators = TradeDTO.Indicator.values();
+        ZoneId zone = ZoneId.systemDefault();
+        int position = 0;
+        while(cursor.next()) {
+            TradeDTO trade = new TradeDTO();
+            trade.setTimestamp(ZonedDateTime.ofInstant(Instant.ofEpochSecond(0, cursor.getTimestamp()), zone));
+            trade.setQuantity(cursor.getQuantity());
+            trade.setPrice(cursor.getPrice());
+            trade.setIndicator(indicators[cursor.getIndicator()].toString());
+            trades[position++] = trade;
+        }
+        return trades;
+    }
+
+    /**
+     * Function to position the provided cursor before the first trade of this stock
+     *
+     * The cursor sees the trades recorded till now and can be iterated without holding any lock
+     *
+     * @param cursor Cursor to reuse
+     * @return cursor Positioned cursor
+     * @since 1.1
+     */
+    public TradeCursor openCursor(TradeCursor cursor) {
+        long stamp = tradeLock.readLock();
+        try {
+            return tradeStore.openCursor(cursor);
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of the trades in last 5 minutes
+     *
+     * The window is read optimistically, and again under the read lock when a writer raced with the read, even when
+     * the racing read failed. Expired trades are evicted only when no writer holds the stock
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the window
+     * @since 1.1
+     */
+    public double getVolWeightedPrice(long currentTime) {
+        long stamp = tradeLock.tryOptimisticRead();
+        double volWeightPrice = 0.0;
+        boolean expired = false;
+        try {
+            volWeightPrice = volWeightedPriceAggregator.peekVolWeightedPrice(currentTime);
+            expired = volWeightedPriceAggregator.hasExpired(currentTime);
+        } catch (RuntimeException e) {
+            stamp = 0L;
+        }
+        if(!tradeLock.validate(stamp)) {
+            stamp = tradeLock.readLock();
+            try {
+                volWeightPrice = volWeightedPriceAggregator.peekVolWeightedPrice(currentTime);
+                expired = volWeightedPriceAggregator.hasExpired(currentTime);
+            } finally {
+                tradeLock.unlockRead(stamp);
+            }
+        }
+        if(expired) {
+            evictExpiredIfFree(currentTime);
+        }
+        return volWeightPrice;
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of the trades in a window of any length
+     *
+     * The window is served from the buckets of the stock, check {@link TimeBucketAggregator} for how its
+     * start is aligned to whole buckets
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @param windowNanos Length of the window in nanoseconds
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the window
+     * @throws IllegalArgumentException When window is zero, negative or longer than the kept buckets
+     * @since 1.1
+     */
+    public double getVolWeightedPrice(long currentTime, long windowNanos) throws IllegalArgumentException {
+        long stamp = tradeLock.tryOptimisticRead();
+        double volWeightPrice = 0.0;
+        try {
+            volWeightPrice = timeBucketAggregator.getVolWeightedPrice(currentTime, windowNanos);
+        } catch (RuntimeException e) {
+            stamp = 0L;
+        }
+        if(!tradeLock.validate(stamp)) {
+            stamp = tradeLock.readLock();
+            try {
+                volWeightPrice = timeBucketAggregator.getVolWeightedPrice(currentTime, windowNanos);
+            } finally {
+                tradeLock.unlockRead(stamp);
+            }
+        }
+        return volWeightPrice;
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of the trades in a time range
+     *
+     * The range is served from the time index of the stock in O(log n), whatever its length and age
+     *
+     * @param fromTime Start of the range in epoch nanoseconds, inclusive
+     * @param toTime End of the range in epoch nanoseconds, exclusive
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the range
+     * @since 1.1
+     */
+    public double getRangeVolWeightedPrice(long fromTime, long toTime) {
+        long stamp = tradeLock.tryOptimisticRead();
+        double volWeightPrice = 0.0;
+        try {
+            volWeightPrice = tradeTimeIndex.getVolWeightedPrice(fromTime, toTime);
+        } catch (RuntimeException e) {
+            stamp = 0L;
+        }
+        if(!tradeLock.validate(stamp)) {
+            stamp = tradeLock.readLock();
+            try {
+                volWeightPrice = tradeTimeIndex.getVolWeightedPrice(fromTime, toTime);
+            } finally {
+                tradeLock.unlockRead(stamp);
+            }
+        }
+        return volWeightPrice;
+    }
+
+    /**
+     * Function to get the time at which the oldest trade in the window of last 5 minutes leaves it
+     * @param currentTime Current time in epoch nanoseconds
+     * @return expiry Time in epoch nanoseconds or Long.MAX_VALUE when there is no trade in the window
+     * @since 1.1
+     */
+    public long getNextWindowExpiry(long currentTime) {
+        long stamp = tradeLock.tryOptimisticRead();
+        long expiry = Long.MAX_VALUE;
+        try {
+            expiry = volWeightedPriceAggregator.peekNextExpiry(currentTime);
+        } catch (RuntimeException e) {
+            stamp = 0L;
+        }
+        if(!tradeLock.validate(stamp)) {
+            stamp = tradeLock.readLock();
+            try {
+                expiry = volWeightedPriceAggregator.peekNextExpiry(currentTime);
+            } finally {
+                tradeLock.unlockRead(stamp);
+            }
+        }
+        return expiry;
+    }
+
+    /**
+     * Function to get the Volume Weighted price of the trades in last 5 minutes and the time at which the oldest of
+     * them leaves the window, read together so an eviction by another reader can not fall between the two
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @return windowPrice Volume Weighted price and next expiry, {@link WindowPrice#EMPTY} when there is no trade in the window
+     * @since 1.1
+     */
+    public WindowPrice getWindowPrice(long currentTime) {
+        long stamp = tradeLock.tryOptimisticRead();
+        double volWeightPrice = 0.0;
+        long expiry = Long.MAX_VALUE;
+        boolean expired = false;
+        try {
+            volWeightPrice = volWeightedPriceAggregator.peekVolWeightedPrice(currentTime);
+            expiry = volWeightedPriceAggregator.peekNextExpiry(currentTime);
+            expired = volWeightedPriceAggregator.hasExpired(currentTime);
+        } catch (RuntimeException e) {
+            stamp = 0L;
+        }
+        if(!tradeLock.validate(stamp)) {
+            stamp = tradeLock.readLock();
+            try {
+                volWeightPrice = volWeightedPriceAggregator.peekVolWeightedPrice(currentTime);
+                expiry = volWeightedPriceAggregator.peekNextExpiry(currentTime);
+                expired = volWeightedPriceAggregator.hasExpired(currentTime);
+            } finally {
+                tradeLock.unlockRead(stamp);
+            }
+        }
+        if(expired) {
+            evictExpiredIfFree(currentTime);
+        }
+        if(expiry == Long.MAX_VALUE) {
+            return WindowPrice.EMPTY;
+        }
+        return new WindowPrice(volWeightPrice, expiry);
+    }
+
+    /**
+     * Running totals of the trades in last 5 minutes
+     *
+     * The aggregator is not thread safe, it must not be modified while trades are being recorded for the stock
+     *
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#volWeightedPriceAggregator} for more information
+     */
+    public VolWeightedPriceAggregator getVolWeightedPriceAggregator() {
+        return volWeightedPriceAggregator;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#recordedTradeCount} for more information
+     */
+    public long getRecordedTradeCount() {
+        long stamp = tradeLock.readLock();
+        try {
+            return recordedTradeCount;
+        } finally {
+            tradeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Function to count a trade of this stock rejected by the service
+     * @since 1.1
+     */
+    public void countRejectedTrade() {
+        rejectedTradeCount.increment();
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.StockDTO#rejectedTradeCount} for more information
+     */
+    public long getRejectedTradeCount() {
+        return rejectedTradeCount.sum();
+    }
+
+    /**
+     * Function to add a trade to all the aggregates of the stock, must be called under the write lock
+     * @param price Price of the trade in ticks
+     * @return finishedBars Bars finished by the trade when someone listens, null otherwise
+     */
+    private BarDTO[] applyTrade(long timestamp, int quantity, long price, byte indicator) {
+        tradeStore.addTrade(timestamp, quantity, price, indicator);
+        volWeightedPriceAggregator.evictExpired(timestamp);
+        volWeightedPriceAggregator.addTrade(timestamp, quantity, price);
+        timeBucketAggregator.addTrade(timestamp, quantity, price);
+        tradeTimeIndex.addTrade(timestamp, quantity, price);
+        int finished = 0;
+        for(int i = 0; i < barAggregators.length; i++) {
+            if(barAggregators[i].addTrade(timestamp, quantity, price, indicator)) {
+                finished |= 1 << i;
+            }
+        }
+        return collectFinishedBars(finished);
+    }
+
+    /**
+     * Function to add the held trades passed by the watermark in time order, must be called under the write lock
+     * @param finishedBars Bars finished so far
+     * @return finishedBars Bars finished so far and by the released trades
+     */
+    private BarDTO[] releaseTrades(BarDTO[] finishedBars) {
+        while(reorderBuffer.getTradeCount() > 0 && reorderBuffer.peekTimestamp() <= watermark) {
+            finishedBars = releaseOldestTrade(finishedBars);
+        }
+        return finishedBars;
+    }
+
+    /**
+     * Function to add the oldest held trade to the aggregates, must be called under the write lock
+     */
+    private BarDTO[] releaseOldestTrade(BarDTO[] finishedBars) {
+        BarDTO[] bars = applyTrade(reorderBuffer.peekTimestamp(), reorderBuffer.peekQuantity(),
+                reorderBuffer.peekPrice(), reorderBuffer.peekIndicator());
+        reorderBuffer.removeOldest();
+        return concatBars(finishedBars, bars);
+    }
+
+    /**
+     * Function to join the bars finished so far with the bars finished by the last change
+     */
+    private static BarDTO[] concatBars(BarDTO[] finishedBars, BarDTO[] bars) {
+        if(bars == null) {
+            return finishedBars;
+        }
+        if(finishedBars == null) {
+            return bars;
+        }
+        BarDTO[] allBars = new BarDTO[finishedBars.length + bars.length];
+        System.arraycopy(finishedBars, 0, allBars, 0, finishedBars.length);
+        System.arraycopy(bars, 0, allBars, finishedBars.length, bars.length);
+        return allBars;
+    }
+
+    /**
+     * Function to create the TradeDTO of a trade of this stock
+     */
+    private static TradeDTO createTrade(long timestamp, int quantity, double price, byte indicator) {
+        TradeDTO trade = new TradeDTO();
+        trade.setTimestamp(ZonedDateTime.ofInstant(Instant.ofEpochSecond(0, timestamp), ZoneId.systemDefault()));
+        trade.setQuantity(quantity);
+        trade.setPrice(price);
+        trade.setIndicator(TradeDTO.Indicator.values()[indicator].toString());
+        return trade;
+    }
+
+    /**
+     * Function to find the bar aggregator of an interval, must be called under the lock
+     */
+    private BarAggregator getBarAggregator(int intervalSeconds) {
+        for(BarAggregator barAggregator : barAggregators) {
+            if(barAggregator.getIntervalSeconds() == intervalSeconds) {
+                return barAggregator;
+            }
+        }
+        throw new IllegalArgumentException("Bar interval provided is not supported by the application");
+    }
+
+    /**
+     * Function to create the bars finished by the last change when someone listens, must be called under the lock
+     * @param finished Bit set of positions of the aggregators which finished a bar
+     */
+    private BarDTO[] collectFinishedBars(int finished) {
+        BarPublisher publisher = barPublisher;
+        if(finished == 0 || publisher == null || !publisher.hasListeners()) {
+            return null;
+        }
+        BarDTO[] bars = new BarDTO[Integer.bitCount(finished)];
+        int position = 0;
+        for(int i = 0; i < barAggregators.length; i++) {
+            if((finished & (1 << i)) != 0) {
+                bars[position++] = barAggregators[i].getLastBar(stockSymbol);
+            }
+        }
+        return bars;
+    }
+
+    /**
+     * Function to publish finished bars after the lock is released
+     */
+    private void publishBars(BarDTO[] finishedBars) {
+        if(finishedBars != null) {
+            for(BarDTO bar : finishedBars) {
+                barPublisher.publish(bar);
+            }
+        }
+    }
+
+    /**
+     * Function to evict expired trades from the window unless a writer holds the stock
+     */
+    private void evictExpiredIfFree(long currentTime) {
+        long stamp = tradeLock.tryWriteLock();
+        if(stamp != 0L) {
+            try {
+                volWeightedPriceAggregator.evictExpired(currentTime);
+            } finally {
+                tradeLock.unlockWrite(stamp);
+            }
+        }
     }
 }
@@ -0,0 +1,198 @@
+package com.jpmorgan.digital.dto;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+
+import java.util.Arrays;
+
+/**
+ * Class to collect trades of any stocks in columns for {@link com.jpmorgan.digital.service.StockService#recordTrades(TradeBatch)}
+ *
+ * A batch can be cleared and filled again for any number of calls, so once its columns have grown to the size of
+ * the batches recording does not allocate at all:
+ *
+ * <pre>
+ *     batch.clear();
+ *     batch.add(stockId, timestamp, quantity, price, TradeDomain.Indicator.BUY);
+ *     int recorded = stockService.recordTrades(batch);
+ * </pre>
+ *
+ * After recording, {@link #isRejected(int)} tells which trades of the batch were not recorded
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class TradeBatch {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] stockIds;
+
+    private long[] timestamps;
+
+    private int[] quantities;
+
+    private double[] prices;
+
+    private byte[] indicators;
+
+    /**
+     * Trades of the batch rejected when it was last recorded
+     */
+    private boolean[] rejected;
+
+    /**
+     * Scratch space of the stock id and position of the valid trades, to group them by stock
+     */
+    private long[] keys;
+
+    /**
+     * Scratch space of the positions of the valid trades grouped by stock
+     */
+    private int[] positions;
+
+    private int size;
+
+    /**
+     * Creates an empty batch
+     */
+    public TradeBatch() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty batch with columns for the provided number of trades
+     * @param capacity Number of trades before the columns grow
+     */
+    public TradeBatch(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of the batch should be positive");
+        }
+        stockIds = new int[capacity];
+        timestamps = new long[capacity];
+        quantities = new int[capacity];
+        prices = new double[capacity];
+        indicators = new byte[capacity];
+        rejected = new boolean[capacity];
+        keys = new long[capacity];
+        positions = new int[capacity];
+    }
+
+    /**
+     * Function to add a trade to the batch, trades are verified only when the batch is recorded
+     *
+     * @param stockId Stock id of the trade
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade
+     * @param indicator Buy or Sell Indicator of the trade
+     * @since 1.1
+     */
+    public void add(int stockId, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) {
+        if(size == stockIds.length) {
+            grow();
+        }
+        stockIds[size] = stockId;
+        timestamps[size] = timestamp;
+        quantities[size] = quantity;
+        prices[size] = price;
+        indicators[size] = indicator == null ? -1 : (byte) indicator.ordinal();
+        rejected[size] = false;
+        size++;
+    }
+
+    /**
+     * Function to remove all the trades of the batch, keeping its columns
+     * @since 1.1
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Function to tell whether a trade of the batch was rejected when the batch was last recorded
+     * @param position Position of the trade in the batch
+     * @return True - If the trade was rejected, False - If it was recorded or the batch is not recorded yet
+     * @since 1.1
+     */
+    public boolean isRejected(int position) {
+        if(position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is not in the batch of " + size + " trades");
+        }
+        return rejected[position];
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#size} for more information
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#stockIds} for more information
+     */
+    public int[] getStockIds() {
+        return stockIds;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#timestamps} for more information
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#quantities} for more information
+     */
+    public int[] getQuantities() {
+        return quantities;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#prices} for more information
+     */
+    public double[] getPrices() {
+        return prices;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#indicators} for more information
+     */
+    public byte[] getIndicators() {
+        return indicators;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#rejected} for more information
+     */
+    public boolean[] getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#keys} for more information
+     */
+    public long[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeBatch#positions} for more information
+     */
+    public int[] getPositions() {
+        return positions;
+    }
+
+    private void grow() {
+        int capacity = stockIds.length * 2;
+        stockIds = Arrays.copyOf(stockIds, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        indicators = Arrays.copyOf(indicators, capacity);
+        rejected = Arrays.copyOf(rejected, capacity);
+        keys = new long[capacity];
+        positions = new int[capacity];
+    }
+}
@@ -0,0 +1,141 @@
+package com.jpmorgan.digital.dto;
+
+import com.jpmorgan.digital.helper.PriceTicks;
+import com.jpmorgan.digital.helper.StockSnapshot;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Class to iterate over the trades of a {@link TradeStore} without creating an object per trade
+ *
+ * A cursor can be reused for any number of scans, so a scan does not allocate at all:
+ *
+ * <pre>
+ *     TradeCursor cursor = stock.openCursor(new TradeCursor());
+ *     while(cursor.next()) {
+ *         total += cursor.getQuantity() * cursor.getPrice();
+ *     }
+ * </pre>
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class TradeCursor {
+
+    private long[] timestamps;
+
+    private int[] quantities;
+
+    private long[] prices;
+
+    private byte[] indicators;
+
+    /**
+     * Position after the last trade visible to this cursor
+     */
+    private int end;
+
+    /**
+     * Number of trades visible to this cursor
+     */
+    private int size;
+
+    /**
+     * Position of the current trade
+     */
+    private int position = -1;
+
+    /**
+     * Function to point the cursor to the provided columns, before the trade at the from position
+     */
+    void reset(long[] timestamps, int[] quantities, long[] prices, byte[] indicators, int from, int to) {
+        this.timestamps = timestamps;
+        this.quantities = quantities;
+        this.prices = prices;
+        this.indicators = indicators;
+        this.end = to;
+        this.size = to - from;
+        this.position = from - 1;
+    }
+
+    /**
+     * Function to write the trades not visited yet in bulk, read back by {@link TradeStore#readSnapshot(java.io.DataInput)}
+     */
+    void writeSnapshot(DataOutput out) throws IOException {
+        int from = position + 1;
+        out.writeInt(end - from);
+        StockSnapshot.writeLongs(out, timestamps, from, end);
+        StockSnapshot.writeInts(out, quantities, from, end);
+        StockSnapshot.writeLongs(out, prices, from, end);
+        if(end > from) {
+            out.write(indicators, from, end - from);
+        }
+        position = end - 1;
+    }
+
+    /**
+     * Function to move to the next trade
+     * @return True - If cursor is on a trade, False - If all the trades are visited
+     * @since 1.1
+     */
+    public boolean next() {
+        if(position + 1 < end) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.dto.TradeCursor#size} for more information
+     */
+    public int getTradeCount() {
+        return size;
+    }
+
+    /**
+     * Function to get timestamp of the current trade
+     * @return timestamp Epoch nanoseconds
+     * @since 1.1
+     */
+    public long getTimestamp() {
+        return timestamps[position];
+    }
+
+    /**
+     * Function to get quantity of the current trade
+     * @return quantity int
+     * @since 1.1
+     */
+    public int getQuantity() {
+        return quantities[position];
+    }
+
+    /**
+     * Function to get price of the current trade
+     * @return price double
+     * @since 1.1
+     */
+    public double getPrice() {
+        return PriceTicks.toPrice(prices[position]);
+    }
+
+    /**
+     * Function to get price of the current trade in ticks, as kept by the store
+     * @return price Ticks of {@link PriceTicks}
+     * @since 1.1
+     */
+    public long getPriceTicks() {
+        return prices[position];
+    }
+
+    /**
+     * Function to get Buy or Sell Indicator of the current trade
+     * @return indicator Ordinal of {@link TradeDTO.Indicator}
+     * @since 1.1
+     */
+    public byte getIndicator() {
+        return indicators[position];
+    }
+}
@@ -0,0 +1,243 @@
+package com.jpmorgan.digital.dto;
+
+import com.jpmorgan.digital.helper.PriceTicks;
+import com.jpmorgan.digital.helper.StockSnapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class to index all the trades of a stock by time for Volume Weighted price of any range
+ *
+ * Trades are kept sorted by timestamp in columns of primitives together with running totals:
+ *
+ * <ul>
+ *     <li>Timestamp - long epoch nanoseconds</li>
+ *     <li>Quantity of this and all the older trades - long</li>
+ *     <li>Quantity x price in ticks of {@link com.jpmorgan.digital.helper.PriceTicks} of this and all the older trades - long</li>
+ * </ul>
+ *
+ * The totals of any range are the difference of the running totals at its two ends, which are found by
+ * binary search, so a range costs O(log n) whatever its length. The totals are exact, so the difference of
+ * two of them is exactly the total of the trades between, however many trades are before. The index costs
+ * 24 bytes per trade.
+ *
+ * Trades are expected to arrive in time order and are appended in O(1). A late trade is placed in its
+ * time ordered position by shifting, and adding to the running totals of, only the trades newer than it.
+ * Trades older than the retention of the stock are evicted from the oldest, ranges before the oldest
+ * retained trade only see the retained trades.
+ *
+ * The index is not thread safe, {@link StockDTO} guards it with the lock of the stock. Reads do not
+ * modify any state and tolerate racing with a writer, so they can run under an optimistic read.
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class TradeTimeIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Timestamps of the trades in epoch nanoseconds, sorted from oldest to latest
+     */
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+
+    /**
+     * Running total of quantity, parallel to timestamps
+     */
+    private long[] quantityTotals = new long[INITIAL_CAPACITY];
+
+    /**
+     * Running total of quantity x price in ticks, parallel to timestamps
+     */
+    private long[] quantityPriceTotals = new long[INITIAL_CAPACITY];
+
+    /**
+     * Position of the oldest retained trade
+     */
+    private int head;
+
+    /**
+     * Position after the latest trade
+     */
+    private int size;
+
+    /**
+     * Running totals of the evicted trades, the totals before the oldest retained trade
+     */
+    private long evictedQuantity;
+
+    private long evictedQuantityPrice;
+
+    /**
+     * Function to add a trade to the index
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade in ticks
+     * @since 1.1
+     */
+    public void addTrade(long timestamp, int quantity, long price) {
+        if(size == timestamps.length) {
+            compact();
+        }
+        long quantityPrice = quantity * price;
+        int position = size;
+        while(position > head && timestamps[position - 1] > timestamp) {
+            timestamps[position] = timestamps[position - 1];
+            quantityTotals[position] = quantityTotals[position - 1] + quantity;
+            quantityPriceTotals[position] = quantityPriceTotals[position - 1] + quantityPrice;
+            position--;
+        }
+        timestamps[position] = timestamp;
+        quantityTotals[position] = (position == head ? evictedQuantity : quantityTotals[position - 1]) + quantity;
+        quantityPriceTotals[position] = (position == head ? evictedQuantityPrice : quantityPriceTotals[position - 1]) + quantityPrice;
+        size++;
+    }
+
+    /**
+     * Function to evict the trades before the provided time
+     * @param time Time in epoch nanoseconds
+     * @return count Number of trades evicted
+     * @since 1.1
+     */
+    public int evictBefore(long time) {
+        int newHead = firstAtOrAfter(timestamps, head, size, time);
+        int count = newHead - head;
+        if(count > 0) {
+            evictedQuantity = quantityTotals[newHead - 1];
+            evictedQuantityPrice = quantityPriceTotals[newHead - 1];
+            head = newHead;
+        }
+        return count;
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of the trades in a time range
+     * @param fromTime Start of the range in epoch nanoseconds, inclusive
+     * @param toTime End of the range in epoch nanoseconds, exclusive
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the range
+     * @since 1.1
+     */
+    public double getVolWeightedPrice(long fromTime, long toTime) {
+        if(fromTime >= toTime) {
+            return 0.0;
+        }
+        long[] tradeTimestamps = timestamps;
+        long[] tradeQuantityTotals = quantityTotals;
+        long[] tradeQuantityPriceTotals = quantityPriceTotals;
+        int oldest = head;
+        long quantityBefore = evictedQuantity;
+        long quantityPriceBefore = evictedQuantityPrice;
+        int count = Math.min(size, Math.min(tradeTimestamps.length, Math.min(tradeQuantityTotals.length, tradeQuantityPriceTotals.length)));
+        if(oldest < 0 || oldest > count) {
+            return 0.0;
+        }
+        int first = firstAtOrAfter(tradeTimestamps, oldest, count, fromTime);
+        int end = firstAtOrAfter(tradeTimestamps, oldest, count, toTime);
+        if(first >= end) {
+            return 0.0;
+        }
+        long quantity = tradeQuantityTotals[end - 1] - (first == oldest ? quantityBefore : tradeQuantityTotals[first - 1]);
+        long quantityPrice = tradeQuantityPriceTotals[end - 1] - (first == oldest ? quantityPriceBefore : tradeQuantityPriceTotals[first - 1]);
+        return PriceTicks.toVolWeightedPrice(quantityPrice, quantity);
+    }
+
+    /**
+     * Function to get the number of retained trades
+     * @return count Number of trades
+     * @since 1.1
+     */
+    public int getTradeCount() {
+        return size - head;
+    }
+
+    /**
+     * Function to copy the retained trades to a new index, so it can be written after the lock of the stock is released
+     */
+    TradeTimeIndex copy() {
+        TradeTimeIndex copy = new TradeTimeIndex();
+        copy.timestamps = Arrays.copyOfRange(timestamps, head, size);
+        copy.quantityTotals = Arrays.copyOfRange(quantityTotals, head, size);
+        copy.quantityPriceTotals = Arrays.copyOfRange(quantityPriceTotals, head, size);
+        copy.size = size - head;
+        copy.evictedQuantity = evictedQuantity;
+        copy.evictedQuantityPrice = evictedQuantityPrice;
+        return copy;
+    }
+
+    /**
+     * Function to write the retained trades and the totals of the evicted trades in bulk
+     */
+    void writeSnapshot(DataOutput out) throws IOException {
+        out.writeLong(evictedQuantity);
+        out.writeLong(evictedQuantityPrice);
+        out.writeInt(size - head);
+        StockSnapshot.writeLongs(out, timestamps, head, size);
+        StockSnapshot.writeLongs(out, quantityTotals, head, size);
+        StockSnapshot.writeLongs(out, quantityPriceTotals, head, size);
+    }
+
+    /**
+     * Function to replace the index with the one written by {@link #writeSnapshot(DataOutput)}
+     */
+    void readSnapshot(DataInput in) throws IOException {
+        long newEvictedQuantity = in.readLong();
+        long newEvictedQuantityPrice = in.readLong();
+        int count = in.readInt();
+        if(count < 0) {
+            throw new IOException("Snapshot has a negative number of trades");
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, count << 1);
+        long[] newTimestamps = new long[capacity];
+        long[] newQuantityTotals = new long[capacity];
+        long[] newQuantityPriceTotals = new long[capacity];
+        StockSnapshot.readLongs(in, newTimestamps, 0, count);
+        StockSnapshot.readLongs(in, newQuantityTotals, 0, count);
+        StockSnapshot.readLongs(in, newQuantityPriceTotals, 0, count);
+        timestamps = newTimestamps;
+        quantityTotals = newQuantityTotals;
+        quantityPriceTotals = newQuantityPriceTotals;
+        head = 0;
+        size = count;
+        evictedQuantity = newEvictedQuantity;
+        evictedQuantityPrice = newEvictedQuantityPrice;
+    }
+
+    /**
+     * Function to find the position of the first trade at or after the provided time
+     */
+    private static int firstAtOrAfter(long[] tradeTimestamps, int from, int to, long time) {
+        int low = from;
+        int high = to;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(tradeTimestamps[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Function to move the retained trades to new columns of twice their number
+     */
+    private void compact() {
+        int retained = size - head;
+        int capacity = Math.max(INITIAL_CAPACITY, retained << 1);
+        long[] newTimestamps = new long[capacity];
+        long[] newQuantityTotals = new long[capacity];
+        long[] newQuantityPriceTotals = new long[capacity];
+        System.arraycopy(timestamps, head, newTimestamps, 0, retained);
+        System.arraycopy(quantityTotals, head, newQuantityTotals, 0, retained);
+        System.arraycopy(quantityPriceTotals, head, newQuantityPriceTotals, 0, retained);
+        timestamps = newTimestamps;
+        quantityTotals = newQuantityTotals;
+        quantityPriceTotals = newQuantityPriceTotals;
+        head = 0;
+        size = retained;
+    }
+}
@@ -0,0 +1,469 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.BarDTO;
+import com.jpmorgan.digital.dto.TradeDTO;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * BarAggregator builds Open, High, Low, Close and Volume bars of a single stock for one interval
+ *
+ * Every trade updates the bar of its interval in O(1). The bar is finished when a trade of a later
+ * interval arrives or when {@link #finishBar(long)} is called after the interval is over, and is kept in
+ * a ring of the latest {@link #DEFAULT_CAPACITY} finished bars. Intervals without any trade have no bar.
+ *
+ * Prices are kept in ticks of {@link PriceTicks} and turned to decimals only when a {@link BarDTO} is created.
+ *
+ * Trades late for the current bar take their time ordered place as its open or close. Trades late for a
+ * finished bar update its high, low and volumes while it is kept, its open and close stay as published.
+ *
+ * The aggregator is not thread safe, {@link com.jpmorgan.digital.dto.StockDTO} guards it with the lock of the stock.
+ * Columns of the ring are created with the first finished bar and grow up to the capacity.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class BarAggregator {
+
+    /**
+     * Default number of finished bars kept
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final long SECOND = 1000000000L;
+
+    private static final byte SELL = (byte) TradeDTO.Indicator.SELL.ordinal();
+
+    private final int intervalSeconds;
+
+    private final long intervalNanos;
+
+    /**
+     * Maximum number of finished bars kept
+     */
+    private final int capacity;
+
+    private long[] startTimes;
+
+    private long[] opens;
+
+    private long[] highs;
+
+    private long[] lows;
+
+    private long[] closes;
+
+    private long[] volumes;
+
+    private long[] buyVolumes;
+
+    private long[] sellVolumes;
+
+    private int[] tradeCounts;
+
+    /**
+     * Position of the oldest finished bar in the ring
+     */
+    private int head;
+
+    /**
+     * Number of finished bars in the ring
+     */
+    private int size;
+
+    /**
+     * Current bar, which is empty until its first trade
+     */
+    private int currentTradeCount;
+
+    private long currentStartTime;
+
+    private long currentOpen;
+
+    private long currentHigh;
+
+    private long currentLow;
+
+    private long currentClose;
+
+    private long currentOpenTime;
+
+    private long currentCloseTime;
+
+    private long currentVolume;
+
+    private long currentBuyVolume;
+
+    private long currentSellVolume;
+
+    /**
+     * Creates the aggregator for the provided interval keeping the default number of bars
+     * @param intervalSeconds Length of the interval in seconds
+     */
+    public BarAggregator(int intervalSeconds) {
+        this(intervalSeconds, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the aggregator for the provided interval
+     * @param intervalSeconds Length of the interval in seconds
+     * @param capacity Maximum number of finished bars kept
+     * @throws IllegalArgumentException When interval or capacity is zero or negative
+     */
+    public BarAggregator(int intervalSeconds, int capacity) throws IllegalArgumentException {
+        if(intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Bar interval can not be zero or negative");
+        }
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Bar capacity can not be zero or negative");
+        }
+        this.intervalSeconds = intervalSeconds;
+        this.intervalNanos = intervalSeconds * SECOND;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Function to add a trade to the bar of its interval
+     *
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade in ticks
+     * @param indicator Ordinal of {@link TradeDTO.Indicator} of the trade
+     * @return True - If the trade finished the current bar, False - Otherwise
+     * @since 1.1
+     */
+    public boolean addTrade(long timestamp, int quantity, long price, byte indicator) {
+        long startTime = Math.floorDiv(timestamp, intervalNanos) * intervalNanos;
+        boolean finished = false;
+        if(currentTradeCount > 0) {
+            if(startTime < currentStartTime) {
+                addLateTrade(startTime, quantity, price, indicator);
+                return false;
+            }
+            if(startTime > currentStartTime) {
+                finishCurrentBar();
+                finished = true;
+            }
+        } else if(size > 0 && startTime <= startTimes[(head + size - 1) % startTimes.length]) {
+            addLateTrade(startTime, quantity, price, indicator);
+            return false;
+        }
+        if(currentTradeCount == 0) {
+            currentStartTime = startTime;
+            currentOpen = price;
+            currentHigh = price;
+            currentLow = price;
+            currentClose = price;
+            currentOpenTime = timestamp;
+            currentCloseTime = timestamp;
+        } else {
+            if(timestamp < currentOpenTime) {
+                currentOpen = price;
+                currentOpenTime = timestamp;
+            }
+            if(timestamp >= currentCloseTime) {
+                currentClose = price;
+                currentCloseTime = timestamp;
+            }
+            currentHigh = Math.max(currentHigh, price);
+            currentLow = Math.min(currentLow, price);
+        }
+        currentVolume += quantity;
+        if(indicator == SELL) {
+            currentSellVolume += quantity;
+        } else {
+            currentBuyVolume += quantity;
+        }
+        currentTradeCount++;
+        return finished;
+    }
+
+    /**
+     * Function to finish the current bar when its interval is over at the provided time
+     * @param currentTime Current time in epoch nanoseconds
+     * @return True - If the current bar was finished, False - Otherwise
+     * @since 1.1
+     */
+    public boolean finishBar(long currentTime) {
+        if(currentTradeCount > 0 && currentTime - currentStartTime >= intervalNanos) {
+            finishCurrentBar();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Function to get the latest finished bar
+     * @param stockSymbol Symbol of the stock of the bar
+     * @return bar Latest finished bar or null when no bar is finished
+     * @since 1.1
+     */
+    public BarDTO getLastBar(String stockSymbol) {
+        if(size == 0) {
+            return null;
+        }
+        return toBar(stockSymbol, size - 1);
+    }
+
+    /**
+     * Function to get all the kept finished bars
+     * @param stockSymbol Symbol of the stock of the bars
+     * @return bars Finished bars from oldest to latest
+     * @since 1.1
+     */
+    public BarDTO[] getBars(String stockSymbol) {
+        BarDTO[] bars = new BarDTO[size];
+        for(int i = 0; i < size; i++) {
+            bars[i] = toBar(stockSymbol, i);
+        }
+        return bars;
+    }
+
+    /**
+     * Function to get the bar of the current interval
+     * @param stockSymbol Symbol of the stock of the bar
+     * @return bar Current bar or null when no trade is added after the last finished bar
+     * @since 1.1
+     */
+    public BarDTO getCurrentBar(String stockSymbol) {
+        if(currentTradeCount == 0) {
+            return null;
+        }
+        BarDTO bar = new BarDTO();
+        bar.setStockSymbol(stockSymbol);
+        bar.setIntervalSeconds(intervalSeconds);
+        bar.setStartTime(currentStartTime);
+        bar.setOpen(PriceTicks.toPrice(currentOpen));
+        bar.setHigh(PriceTicks.toPrice(currentHigh));
+        bar.setLow(PriceTicks.toPrice(currentLow));
+        bar.setClose(PriceTicks.toPrice(currentClose));
+        bar.setVolume(currentVolume);
+        bar.setBuyVolume(currentBuyVolume);
+        bar.setSellVolume(currentSellVolume);
+        bar.setTradeCount(currentTradeCount);
+        return bar;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.BarAggregator#intervalSeconds} for more information
+     */
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.BarAggregator#size} for more information
+     */
+    public int getBarCount() {
+        return size;
+    }
+
+    /**
+     * Function to write the finished bars from oldest to latest and the current bar, read back by {@link #readSnapshot(DataInput)}
+     * @param out Output of the snapshot
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for(int i = 0; i < size; i++) {
+            int slot = (head + i) % startTimes.length;
+            out.writeLong(startTimes[slot]);
+            out.writeLong(opens[slot]);
+            out.writeLong(highs[slot]);
+            out.writeLong(lows[slot]);
+            out.writeLong(closes[slot]);
+            out.writeLong(volumes[slot]);
+            out.writeLong(buyVolumes[slot]);
+            out.writeLong(sellVolumes[slot]);
+            out.writeInt(tradeCounts[slot]);
+        }
+        out.writeInt(currentTradeCount);
+        out.writeLong(currentStartTime);
+        out.writeLong(currentOpen);
+        out.writeLong(currentHigh);
+        out.writeLong(currentLow);
+        out.writeLong(currentClose);
+        out.writeLong(currentOpenTime);
+        out.writeLong(currentCloseTime);
+        out.writeLong(currentVolume);
+        out.writeLong(currentBuyVolume);
+        out.writeLong(currentSellVolume);
+    }
+
+    /**
+     * Function to replace the bars with the ones of a snapshot, only the latest bars up to the capacity are kept
+     * @param in Input of the snapshot
+     * @throws IOException When the snapshot can not be read
+     * @since 1.1
+     */
+    public void readSnapshot(DataInput in) throws IOException {
+        int count = in.readInt();
+        if(count < 0) {
+            throw new IOException("Snapshot has a negative number of bars");
+        }
+        startTimes = null;
+        head = 0;
+        size = 0;
+        int skipped = Math.max(0, count - capacity);
+        if(count > skipped) {
+            allocate(Math.min(Math.max(count - skipped, INITIAL_CAPACITY), capacity));
+        }
+        for(int i = 0; i < count; i++) {
+            long startTime = in.readLong();
+            long open = in.readLong();
+            long high = in.readLong();
+            long low = in.readLong();
+            long close = in.readLong();
+            long volume = in.readLong();
+            long buyVolume = in.readLong();
+            long sellVolume = in.readLong();
+            int tradeCount = in.readInt();
+            if(i >= skipped) {
+                startTimes[size] = startTime;
+                opens[size] = open;
+                highs[size] = high;
+                lows[size] = low;
+                closes[size] = close;
+                volumes[size] = volume;
+                buyVolumes[size] = buyVolume;
+                sellVolumes[size] = sellVolume;
+                tradeCounts[size] = tradeCount;
+                size++;
+            }
+        }
+        currentTradeCount = in.readInt();
+        currentStartTime = in.readLong();
+        currentOpen = in.readLong();
+        currentHigh = in.readLong();
+        currentLow = in.readLong();
+        currentClose = in.readLong();
+        currentOpenTime = in.readLong();
+        currentCloseTime = in.readLong();
+        currentVolume = in.readLong();
+        currentBuyVolume = in.readLong();
+        currentSellVolume = in.readLong();
+    }
+
+    /**
+     * Function to move the current bar to the ring, dropping the oldest bar when the ring is full
+     */
+    private void finishCurrentBar() {
+        if(startTimes == null) {
+            allocate(Math.min(INITIAL_CAPACITY, capacity));
+        } else if(size == startTimes.length && size < capacity) {
+            allocate(Math.min(startTimes.length << 1, capacity));
+        }
+        int slot;
+        if(size == startTimes.length) {
+            slot = head;
+            head = (head + 1) % startTimes.length;
+        } else {
+            slot = (head + size) % startTimes.length;
+            size++;
+        }
+        startTimes[slot] = currentStartTime;
+        opens[slot] = currentOpen;
+        highs[slot] = currentHigh;
+        lows[slot] = currentLow;
+        closes[slot] = currentClose;
+        volumes[slot] = currentVolume;
+        buyVolumes[slot] = currentBuyVolume;
+        sellVolumes[slot] = currentSellVolume;
+        tradeCounts[slot] = currentTradeCount;
+        currentTradeCount = 0;
+        currentVolume = 0;
+        currentBuyVolume = 0;
+        currentSellVolume = 0;
+    }
+
+    /**
+     * Function to add a trade to the kept finished bar of its interval, found by binary search on start time
+     */
+    private void addLateTrade(long startTime, int quantity, long price, byte indicator) {
+        int low = 0;
+        int high = size - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleStartTime = startTimes[(head + middle) % startTimes.length];
+            if(middleStartTime < startTime) {
+                low = middle + 1;
+            } else if(middleStartTime > startTime) {
+                high = middle - 1;
+            } else {
+                int slot = (head + middle) % startTimes.length;
+                highs[slot] = Math.max(highs[slot], price);
+                lows[slot] = Math.min(lows[slot], price);
+                volumes[slot] += quantity;
+                if(indicator == SELL) {
+                    sellVolumes[slot] += quantity;
+                } else {
+                    buyVolumes[slot] += quantity;
+                }
+                tradeCounts[slot]++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Function to create the BarDTO of the finished bar at the provided position from the oldest
+     */
+    private BarDTO toBar(String stockSymbol, int position) {
+        int slot = (head + position) % startTimes.length;
+        BarDTO bar = new BarDTO();
+        bar.setStockSymbol(stockSymbol);
+        bar.setIntervalSeconds(intervalSeconds);
+        bar.setStartTime(startTimes[slot]);
+        bar.setOpen(PriceTicks.toPrice(opens[slot]));
+        bar.setHigh(PriceTicks.toPrice(highs[slot]));
+        bar.setLow(PriceTicks.toPrice(lows[slot]));
+        bar.setClose(PriceTicks.toPrice(closes[slot]));
+        bar.setVolume(volumes[slot]);
+        bar.setBuyVolume(buyVolumes[slot]);
+        bar.setSellVolume(sellVolumes[slot]);
+        bar.setTradeCount(tradeCounts[slot]);
+        return bar;
+    }
+
+    /**
+     * Function to resize the columns of the ring keeping the bars from oldest to latest
+     */
+    private void allocate(int newCapacity) {
+        long[] newStartTimes = new long[newCapacity];
+        long[] newOpens = new long[newCapacity];
+        long[] newHighs = new long[newCapacity];
+        long[] newLows = new long[newCapacity];
+        long[] newCloses = new long[newCapacity];
+        long[] newVolumes = new long[newCapacity];
+        long[] newBuyVolumes = new long[newCapacity];
+        long[] newSellVolumes = new long[newCapacity];
+        int[] newTradeCounts = new int[newCapacity];
+        for(int i = 0; i < size; i++) {
+            int slot = (head + i) % startTimes.length;
+            newStartTimes[i] = startTimes[slot];
+            newOpens[i] = opens[slot];
+            newHighs[i] = highs[slot];
+            newLows[i] = lows[slot];
+            newCloses[i] = closes[slot];
+            newVolumes[i] = volumes[slot];
+            newBuyVolumes[i] = buyVolumes[slot];
+            newSellVolumes[i] = sellVolumes[slot];
+            newTradeCounts[i] = tradeCounts[slot];
+        }
+        startTimes = newStartTimes;
+        opens = newOpens;
+        highs = newHighs;
+        lows = newLows;
+        closes = newCloses;
+        volumes = newVolumes;
+        buyVolumes = newBuyVolumes;
+        sellVolumes = newSellVolumes;
+        tradeCounts = newTradeCounts;
+        head = 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.BarDTO;
+
+/**
+ * Listener notified of every finished Open, High, Low, Close and Volume bar
+ *
+ * Listeners are called on the thread which recorded the trade finishing the bar, after the lock of the
+ * stock is released, so they should return quickly
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public interface BarListener {
+
+    /**
+     * Function called when the interval of a bar is over
+     * @param bar Finished bar
+     * @since 1.1
+     */
+    void onBar(BarDTO bar);
+}
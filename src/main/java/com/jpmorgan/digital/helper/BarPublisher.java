@@ -0,0 +1,68 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.BarDTO;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * BarPublisher passes every finished bar to all the subscribed {@link BarListener}
+ *
+ * Subscriptions are rare compared to bars, so listeners are kept in a copy on write list and
+ * publishing takes no lock. A failing listener is logged and does not stop the others
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class BarPublisher {
+
+    private final static Logger logger = Logger.getLogger(BarPublisher.class);
+
+    private final List<BarListener> listeners = new CopyOnWriteArrayList<BarListener>();
+
+    /**
+     * Function to add a listener
+     * @param listener Listener to be notified of finished bars
+     * @since 1.1
+     */
+    public void subscribe(BarListener listener) {
+        if(listener == null) {
+            throw new IllegalArgumentException("Bar listener can not be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Function to remove a listener
+     * @param listener Subscribed listener
+     * @since 1.1
+     */
+    public void unsubscribe(BarListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Function to check if any listener is subscribed, bars are not created for publishing otherwise
+     * @return True - If there is a listener, False - Otherwise
+     * @since 1.1
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Function to notify all the listeners of a finished bar
+     * @param bar Finished bar
+     * @since 1.1
+     */
+    public void publish(BarDTO bar) {
+        for(BarListener listener : listeners) {
+            try {
+                listener.onBar(bar);
+            } catch (RuntimeException e) {
+                logger.error("publish :: Bar listener failed", e);
+            }
+        }
+    }
+}
@@ -5,8 +5,13 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
@@ -63,85 +68,113 @@ public class ConfigLoader {
                 if (logger.isInfoEnabled()) {
                     logger.info("Config load requested for path : " + path);
                 }
-                SAXParserFactory factory = SAXParserFactory.newInstance();
-                SAXParser saxParser = factory.newSAXParser();
+                parseConfig(inputStream);
+            }
+        } catch (Exception e) {
+            logger.error("XML Parsing failed!", e);
+        }
+    }
 
-                DefaultHandler handler = new DefaultHandler() {
-                    boolean section = false;
-                    boolean tag = false;
-                    String tagValue = "";
-                    boolean value = false;
+    /**
+     * Function to load config from a file of the filesystem and store it in the map
+     *
+     * Unlike {@link #loadConfig(String)} a config which can not be read or parsed is reported, so the caller can keep
+     * the config it already has
+     *
+     * @param file Config file
+     * @throws IOException When the file can not be read or is not a valid config
+     * @since 1.1
+     */
+    public void loadConfigFile(File file) throws IOException {
+        if (logger.isInfoEnabled()) {
+            logger.info("Config load requested for file : " + file);
+        }
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            parseConfig(inputStream);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Config " + file + " can not be parsed", e);
+        }
+    }
 
-                    public void startElement(String uri, String localName, String qName,
-                                             Attributes attributes) throws SAXException {
+    /**
+     * Function to parse a config in section, tag and value format into the map
+     */
+    private void parseConfig(InputStream inputStream) throws IOException, ParserConfigurationException, SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser saxParser = factory.newSAXParser();
 
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Start Element Detected : " + qName);
-                        }
+        DefaultHandler handler = new DefaultHandler() {
+            boolean section = false;
+            boolean tag = false;
+            String tagValue = "";
+            boolean value = false;
 
-                        if (qName.equalsIgnoreCase("SECTION")) {
-                            section = true;
-                        }
+            public void startElement(String uri, String localName, String qName,
+                                     Attributes attributes) throws SAXException {
 
-                        if (qName.equalsIgnoreCase("TAG")) {
-                            tag = true;
-                        }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Start Element Detected : " + qName);
+                }
 
-                        if (qName.equalsIgnoreCase("VALUE")) {
-                            value = true;
-                        }
+                if (qName.equalsIgnoreCase("SECTION")) {
+                    section = true;
+                }
 
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Element detected as : section:" + section + " Tag:" + tag + " value:" + value);
-                        }
+                if (qName.equalsIgnoreCase("TAG")) {
+                    tag = true;
+                }
 
-                    }
+                if (qName.equalsIgnoreCase("VALUE")) {
+                    value = true;
+                }
 
-                    public void endElement(String uri, String localName,
-                                           String qName) throws SAXException {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Element detected as : section:" + section + " Tag:" + tag + " value:" + value);
+                }
 
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("End Element detected : " + qName);
-                        }
+            }
 
-                    }
+            public void endElement(String uri, String localName,
+                                   String qName) throws SAXException {
+
+                if (logger.isDebugEnabled()) {
+                    logger.debug("End Element detected : " + qName);
+                }
 
-                    public void characters(char ch[], int start, int length) throws SAXException {
-
-                        if (section) {
-                            String newSection = new String(ch, start, length);
-                            createNewSection(newSection);
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("New section created " + newSection);
-                            }
-                            section = false;
-                        }
-
-                        if (tag) {
-                            tagValue = new String(ch, start, length);
-                            tag = false;
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("New tag detected " + tagValue);
-                            }
-                        }
-
-                        if (value) {
-                            String tagData = new String(ch, start, length);
-                            addTagValue(tagValue, tagData);
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("New tag value created " + tagData);
-                            }
-                            value = false;
-                        }
+            }
+
+            public void characters(char ch[], int start, int length) throws SAXException {
+
+                if (section) {
+                    String newSection = new String(ch, start, length);
+                    createNewSection(newSection);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("New section created " + newSection);
                     }
+                    section = false;
+                }
 
-                };
+                if (tag) {
+                    tagValue = new String(ch, start, length);
+                    tag = false;
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("New tag detected " + tagValue);
+                    }
+                }
 
-                saxParser.parse(inputStream, handler);
+                if (value) {
+                    String tagData = new String(ch, start, length);
+                    addTagValue(tagValue, tagData);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("New tag value created " + tagData);
+                    }
+                    value = false;
+                }
             }
-        } catch (Exception e) {
-            logger.error("XML Parsing failed!", e);
-        }
+
+        };
+
+        saxParser.parse(inputStream, handler);
     }
 
     /**
@@ -161,8 +194,8 @@ public class ConfigLoader {
                     throw new IllegalArgumentException("No configuration found for the provided section");
                 }
                 String tagValue = sectionData.get(tag);
-                if (logger.isInfoEnabled()) {
-                    logger.info("Get configuration requested for : Section-" + section + "  and tag-" + tag + " value provided-" + tagValue);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Get configuration requested for : Section-" + section + "  and tag-" + tag + " value provided-" + tagValue);
                 }
                 return tagValue;
 
@@ -183,7 +216,7 @@ public class ConfigLoader {
      * @since 1.0
      */
     private void createNewSection(String sectionName) {
-        sectionName = sectionName.replaceAll("\\s|\n", "");
+        sectionName = StockConfigLoader.strip(sectionName);
         sectionMap = new HashMap<String, String>();
         configData.put(sectionName, sectionMap);
     }
@@ -195,8 +228,8 @@ public class ConfigLoader {
      * @since 1.0
      */
     private void addTagValue(String tag, String value) {
-        tag = tag.replaceAll("\\s|\n", "");
-        value = value.replaceAll("\\s|\n", "");
+        tag = StockConfigLoader.strip(tag);
+        value = StockConfigLoader.strip(value);
         sectionMap.put(tag, value);
     }
 
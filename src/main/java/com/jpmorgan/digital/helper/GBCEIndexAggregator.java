@@ -0,0 +1,354 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * GBCEIndexAggregator keeps the GBCE All Share Index of all the stocks as a running sum of
+ * logarithms of their Volume Weighted prices
+ *
+ * The index is the geometric mean of the Volume Weighted prices i.e. exp(sum of log(price) / count).
+ * Only the term of a stock is replaced when
+ *
+ * <ul>
+ *     <li>A trade is recorded for it, see {@link #markUpdated(StockDTO)}</li>
+ *     <li>One of its trades leaves the 5 minutes window</li>
+ * </ul>
+ *
+ * Stocks are ordered in a heap by the time their oldest trade leaves the window, so only the stocks
+ * whose window actually changed are visited when the index is read. Stocks without any trade in the
+ * window (or with a zero Volume Weighted price) do not take part in the index.
+ *
+ * The term, the expiry and the position in the heap of a stock are kept in an entry owned by the
+ * aggregator, so a stock can take part in several indexes at once. Writers only flag the entry of the
+ * stock and queue it without locking, readers of the index are serialized among themselves and never
+ * block a writer
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class GBCEIndexAggregator implements StockIndexSink {
+
+    /**
+     * Number of term updates after which the sum of logarithms is recomputed to drop rounding residue
+     */
+    private static final int RESUM_INTERVAL = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * State of an entry without trades recorded since the last read of the index
+     */
+    private static final int IDLE = 0;
+
+    /**
+     * State of an entry queued for the next read of the index
+     */
+    private static final int PENDING = 1;
+
+    /**
+     * State of an entry of a removed or released stock, which is never queued again
+     */
+    private static final int REMOVED = 2;
+
+    private static final AtomicIntegerFieldUpdater<IndexEntry> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(IndexEntry.class, "state");
+
+    /**
+     * Entries of the indexed stocks, by identity of the stock
+     */
+    private final ConcurrentHashMap<StockDTO,IndexEntry> entries = new ConcurrentHashMap<StockDTO,IndexEntry>();
+
+    /**
+     * Entries of stocks with trades recorded since the last read of the index
+     */
+    private final Queue<IndexEntry> pending = new ConcurrentLinkedQueue<IndexEntry>();
+
+    /**
+     * Min heap of entries of stocks with trades in the window, ordered by the expiry of their oldest trade
+     */
+    private IndexEntry[] heap = new IndexEntry[INITIAL_CAPACITY];
+
+    private int heapSize;
+
+    /**
+     * Sum of logarithms of the Volume Weighted price of contributing stocks
+     */
+    private double logTotal;
+
+    /**
+     * Number of contributing stocks
+     */
+    private int stockCount;
+
+    /**
+     * Number of term updates since the sum of logarithms was last recomputed
+     */
+    private int updatesSinceResum;
+
+    /**
+     * Function to notify that a trade was added to the window of a stock
+     *
+     * The term of the stock is refreshed lazily on the next read of the index
+     *
+     * @param stock Stock for which trade was recorded
+     * @since 1.1
+     */
+    public void markUpdated(StockDTO stock) {
+        IndexEntry entry = entries.get(stock);
+        if(entry == null) {
+            entry = entries.computeIfAbsent(stock, IndexEntry::new);
+        }
+        if(STATE.compareAndSet(entry, IDLE, PENDING)) {
+            pending.offer(entry);
+        }
+    }
+
+    /**
+     * Function to index a stock added to the model, see {@link #markUpdated(StockDTO)}
+     *
+     * @param stock Added stock
+     * @since 1.1
+     */
+    @Override
+    public void stockAdded(StockDTO stock) {
+        markUpdated(stock);
+    }
+
+    /**
+     * Function to take a stock removed from the model out of the index, see {@link #removeStock(StockDTO)}
+     *
+     * @param stock Removed stock
+     * @since 1.1
+     */
+    @Override
+    public void stockRemoved(StockDTO stock) {
+        removeStock(stock);
+    }
+
+    /**
+     * Function to get GBCE All Share Index at the provided time
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @return gbceAllShareIndex Geometric mean of Volume Weighted prices or 0 when no stock has a trade in the window
+     * @since 1.1
+     */
+    public synchronized double getIndex(long currentTime) {
+        IndexEntry entry;
+        while((entry = pending.poll()) != null) {
+            if(STATE.compareAndSet(entry, PENDING, IDLE)) {
+                refresh(entry, currentTime);
+            }
+        }
+        while(heapSize > 0 && heap[0].expiry <= currentTime) {
+            refresh(heap[0], currentTime);
+        }
+        if(updatesSinceResum >= RESUM_INTERVAL) {
+            resum();
+        }
+        if(stockCount == 0) {
+            return 0.0;
+        }
+        return Math.exp(logTotal / stockCount);
+    }
+
+    /**
+     * Function to take a stock out of the index, for a stock which is removed when the stocks are reloaded
+     *
+     * Trades recorded for the stock afterwards are not added to the index anymore, the aggregator keeps the entry of
+     * the stock for that
+     *
+     * @param stock Stock to be removed
+     * @since 1.1
+     */
+    public synchronized void removeStock(StockDTO stock) {
+        IndexEntry entry = entries.computeIfAbsent(stock, IndexEntry::new);
+        STATE.set(entry, REMOVED);
+        if(entry.contributing) {
+            logTotal -= entry.term;
+            stockCount--;
+            entry.contributing = false;
+        }
+        if(stockCount == 0) {
+            logTotal = 0.0;
+        }
+        removeFromHeap(entry);
+    }
+
+    /**
+     * Function to take all the stocks out of the index, for an index which is not read anymore
+     *
+     * Stocks marked afterwards are indexed by this aggregator again
+     *
+     * @since 1.1
+     */
+    public synchronized void releaseStocks() {
+        Iterator<IndexEntry> iterator = entries.values().iterator();
+        while(iterator.hasNext()) {
+            STATE.set(iterator.next(), REMOVED);
+            iterator.remove();
+        }
+        for(int i = 0; i < heapSize; i++) {
+            heap[i] = null;
+        }
+        heapSize = 0;
+        logTotal = 0.0;
+        stockCount = 0;
+        updatesSinceResum = 0;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.GBCEIndexAggregator#stockCount} for more information
+     */
+    public synchronized int getStockCount() {
+        return stockCount;
+    }
+
+    /**
+     * Function to replace the term of a stock with its current Volume Weighted price and reposition
+     * it in the expiry heap
+     */
+    private void refresh(IndexEntry entry, long currentTime) {
+        StockDTO.WindowPrice windowPrice = entry.stock.getWindowPrice(currentTime);
+        double volWeightPrice = windowPrice.getVolWeightedPrice();
+        if(entry.contributing) {
+            logTotal -= entry.term;
+            stockCount--;
+        }
+        entry.contributing = volWeightPrice > 0;
+        if(entry.contributing) {
+            entry.term = Math.log(volWeightPrice);
+            logTotal += entry.term;
+            stockCount++;
+        }
+        if(stockCount == 0) {
+            logTotal = 0.0;
+        }
+        updatesSinceResum++;
+
+        long expiry = windowPrice.getNextExpiry();
+        if(expiry == Long.MAX_VALUE) {
+            removeFromHeap(entry);
+        } else if(entry.heapPosition < 0) {
+            entry.expiry = expiry;
+            addToHeap(entry);
+        } else {
+            entry.expiry = expiry;
+            siftUp(entry.heapPosition);
+            siftDown(entry.heapPosition);
+        }
+    }
+
+    /**
+     * Function to recompute the sum of logarithms from the terms of contributing stocks
+     */
+    private void resum() {
+        double total = 0.0;
+        for(IndexEntry entry : entries.values()) {
+            if(entry.contributing) {
+                total += entry.term;
+            }
+        }
+        logTotal = total;
+        updatesSinceResum = 0;
+    }
+
+    private void addToHeap(IndexEntry entry) {
+        if(heapSize == heap.length) {
+            IndexEntry[] newHeap = new IndexEntry[heapSize << 1];
+            System.arraycopy(heap, 0, newHeap, 0, heapSize);
+            heap = newHeap;
+        }
+        heap[heapSize] = entry;
+        entry.heapPosition = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    private void removeFromHeap(IndexEntry entry) {
+        int position = entry.heapPosition;
+        if(position < 0) {
+            return;
+        }
+        entry.heapPosition = -1;
+        heapSize--;
+        if(position == heapSize) {
+            heap[heapSize] = null;
+            return;
+        }
+        IndexEntry last = heap[heapSize];
+        heap[heapSize] = null;
+        heap[position] = last;
+        last.heapPosition = position;
+        siftUp(position);
+        siftDown(last.heapPosition);
+    }
+
+    private void siftUp(int position) {
+        IndexEntry entry = heap[position];
+        long expiry = entry.expiry;
+        while(position > 0) {
+            int parent = (position - 1) >>> 1;
+            if(heap[parent].expiry <= expiry) {
+                break;
+            }
+            moveInHeap(heap[parent], position);
+            position = parent;
+        }
+        moveInHeap(entry, position);
+    }
+
+    private void siftDown(int position) {
+        IndexEntry entry = heap[position];
+        long expiry = entry.expiry;
+        int half = heapSize >>> 1;
+        while(position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if(right < heapSize && heap[right].expiry < heap[child].expiry) {
+                child = right;
+            }
+            if(expiry <= heap[child].expiry) {
+                break;
+            }
+            moveInHeap(heap[child], position);
+            position = child;
+        }
+        moveInHeap(entry, position);
+    }
+
+    private void moveInHeap(IndexEntry entry, int position) {
+        heap[position] = entry;
+        entry.heapPosition = position;
+    }
+
+    /**
+     * IndexEntry is the state of a stock in the index, only the state is changed outside the lock of the aggregator
+     */
+    private static final class IndexEntry {
+
+        final StockDTO stock;
+
+        /**
+         * {@link #IDLE}, {@link #PENDING} or {@link #REMOVED}
+         */
+        volatile int state;
+
+        boolean contributing;
+
+        double term;
+
+        long expiry;
+
+        int heapPosition = -1;
+
+        IndexEntry(StockDTO stock) {
+            this.stock = stock;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.jpmorgan.digital.helper;
+
+/**
+ * How the GBCE All Share Index is calculated when it is read
+ *
+ * <ul>
+ *     <li>INCREMENTAL - The running index of {@link GBCEIndexAggregator} is refreshed for the changed stocks only, the default</li>
+ *     <li>SCAN - The Volume Weighted price of every stock is calculated again on a single thread</li>
+ *     <li>PARALLEL - Like SCAN, with the stocks split across a fork-join pool when there are at least as many as the
+ *     parallel threshold</li>
+ * </ul>
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public enum GBCEIndexMode {
+    INCREMENTAL,
+    SCAN,
+    PARALLEL
+}
@@ -0,0 +1,71 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * GBCEIndexTask sums the logarithms of the Volume Weighted prices of a range of stocks, splitting the range in
+ * halves forked in the pool until a range is small enough to be summed on its own
+ *
+ * Each task keeps the partial sum and count of its range, which are combined by its parent after the halves are done
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+class GBCEIndexTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of stocks summed by a single task without splitting
+     */
+    static final int LEAF_STOCKS = 1024;
+
+    private final StockDTO[] stocks;
+
+    private final int from;
+
+    private final int to;
+
+    private final long currentTime;
+
+    /**
+     * Sum of logarithms of the Volume Weighted price of the traded stocks of the range
+     */
+    double logTotal;
+
+    /**
+     * Number of traded stocks of the range
+     */
+    int tradedStockCount;
+
+    GBCEIndexTask(StockDTO[] stocks, int from, int to, long currentTime) {
+        this.stocks = stocks;
+        this.from = from;
+        this.to = to;
+        this.currentTime = currentTime;
+    }
+
+    @Override
+    protected void compute() {
+        if(to - from <= LEAF_STOCKS) {
+            for(int i = from; i < to; i++) {
+                double volWeightPrice = stocks[i].getVolWeightedPrice(currentTime);
+                if(volWeightPrice > 0) {
+                    logTotal += Math.log(volWeightPrice);
+                    tradedStockCount++;
+                }
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        GBCEIndexTask left = new GBCEIndexTask(stocks, from, middle, currentTime);
+        GBCEIndexTask right = new GBCEIndexTask(stocks, middle, to, currentTime);
+        left.fork();
+        right.compute();
+        left.join();
+        logTotal = left.logTotal + right.logTotal;
+        tradedStockCount = left.tradedStockCount + right.tradedStockCount;
+    }
+}
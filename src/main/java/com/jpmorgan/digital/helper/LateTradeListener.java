@@ -0,0 +1,23 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.TradeDTO;
+
+/**
+ * Listener notified of every trade which arrives after the watermark of its stock has passed its timestamp
+ *
+ * Listeners are called on the thread which recorded the trade, after the lock of the stock is released,
+ * so they should return quickly
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public interface LateTradeListener {
+
+    /**
+     * Function called when a trade arrives beyond the watermark
+     * @param stockSymbol Symbol of the stock of the trade
+     * @param trade Late trade
+     * @since 1.1
+     */
+    void onLateTrade(String stockSymbol, TradeDTO trade);
+}
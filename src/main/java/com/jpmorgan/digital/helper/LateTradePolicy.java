@@ -0,0 +1,17 @@
+package com.jpmorgan.digital.helper;
+
+/**
+ * What happens to a trade which arrives after the watermark of its stock has passed its timestamp
+ *
+ * <ul>
+ *     <li>APPLY - The trade is added to the aggregates which still keep its time, the default</li>
+ *     <li>DROP - The trade is only counted and passed to the {@link LateTradeListener}</li>
+ * </ul>
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public enum LateTradePolicy {
+    APPLY,
+    DROP
+}
@@ -0,0 +1,69 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.TradeDTO;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * LateTradePublisher passes every trade which arrives beyond the watermark to all the subscribed {@link LateTradeListener}
+ *
+ * Listeners are kept in a copy on write list and publishing takes no lock. A failing listener is logged
+ * and does not stop the others
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class LateTradePublisher {
+
+    private final static Logger logger = Logger.getLogger(LateTradePublisher.class);
+
+    private final List<LateTradeListener> listeners = new CopyOnWriteArrayList<LateTradeListener>();
+
+    /**
+     * Function to add a listener
+     * @param listener Listener to be notified of late trades
+     * @since 1.1
+     */
+    public void subscribe(LateTradeListener listener) {
+        if(listener == null) {
+            throw new IllegalArgumentException("Late trade listener can not be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Function to remove a listener
+     * @param listener Subscribed listener
+     * @since 1.1
+     */
+    public void unsubscribe(LateTradeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Function to check if any listener is subscribed, late trades are not created for publishing otherwise
+     * @return True - If there is a listener, False - Otherwise
+     * @since 1.1
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Function to notify all the listeners of a late trade
+     * @param stockSymbol Symbol of the stock of the trade
+     * @param trade Late trade
+     * @since 1.1
+     */
+    public void publish(String stockSymbol, TradeDTO trade) {
+        for(LateTradeListener listener : listeners) {
+            try {
+                listener.onLateTrade(stockSymbol, trade);
+            } catch (RuntimeException e) {
+                logger.error("publish :: Late trade listener failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.jpmorgan.digital.helper;
+
+import org.apache.log4j.Logger;
+
+/**
+ * PriceTicks converts prices between the decimal values of the API and the fixed point ticks kept by the stocks
+ *
+ * A tick is 1 / 10^{@link #SCALE} of the currency, so a price is held exactly as a long number of ticks:
+ *
+ * <pre>
+ *  Scale    Tick        Price 123.4567    Highest price
+ *  2        0.01        12346             ~9.0 x 10^13
+ *  4        0.0001      1234567           ~9.0 x 10^11
+ *  6        0.000001    123456700         ~9.0 x 10^9
+ * </pre>
+ *
+ * Prices are rounded to the nearest tick once, when a trade is recorded, and the trade store, reorder buffer, bars and
+ * Volume Weighted price aggregates keep ticks and sums of quantity x ticks in longs. Those sums are exact, a trade
+ * evicted from a window takes away exactly what it added, so the totals of a sliding window do not drift however many
+ * trades pass through it. The totals of a window or a bucket keep a carry of the times they wrapped around 2^64 next
+ * to the long, so any number of trades of the highest value can share them, see {@link #toVolWeightedPrice(long, long, long)}.
+ * Running totals may wrap around Long.MAX_VALUE, the difference of two totals stays exact as long as the quantity x
+ * ticks of the range it covers is below 2^63, about 9.2 x 10^14 of the currency at scale 4.
+ *
+ * A trade is held when its price is at most {@link #MAX_PRICE} and its quantity x ticks is at most Long.MAX_VALUE,
+ * see {@link #isValidTradeValue(int, double)}, e.g. a quantity of 1000 up to a price of about 9.2 x 10^11 at scale 4,
+ * but the largest quantity only up to a price of about 4.3 x 10^5.
+ *
+ * Prices are turned back to decimals only at the API boundary: trades returned as {@link com.jpmorgan.digital.dto.TradeDTO},
+ * bars, Volume Weighted prices and the journal and archive, which keep the price recorded.
+ *
+ * The scale is read from the system property {@value #SCALE_PROPERTY} when the class is loaded and can not change
+ * afterwards, snapshots written with another scale are not restored.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public final class PriceTicks {
+
+    private final static Logger logger = Logger.getLogger(PriceTicks.class);
+
+    /**
+     * System property of the number of decimals of a tick
+     */
+    public static final String SCALE_PROPERTY = "stock.price.scale";
+
+    /**
+     * Default number of decimals of a tick
+     */
+    public static final int DEFAULT_SCALE = 4;
+
+    /**
+     * Highest number of decimals of a tick
+     */
+    public static final int MAX_SCALE = 9;
+
+    /**
+     * Number of decimals of a tick
+     */
+    public static final int SCALE = loadScale();
+
+    /**
+     * Number of ticks of one unit of the currency, 10^{@link #SCALE}
+     */
+    public static final long TICKS_PER_UNIT = pow10(SCALE);
+
+    /**
+     * Highest price held exactly, 2^53 ticks, above which prices are rejected
+     */
+    public static final double MAX_PRICE = (double) (1L << 53) / TICKS_PER_UNIT;
+
+    private PriceTicks() {
+    }
+
+    /**
+     * Function to round a price to the nearest tick
+     * @param price Price at most {@link #MAX_PRICE}
+     * @return ticks Price in ticks
+     * @since 1.1
+     */
+    public static long toTicks(double price) {
+        return Math.round(price * TICKS_PER_UNIT);
+    }
+
+    /**
+     * Function to convert ticks to a price
+     * @param ticks Price in ticks
+     * @return price Decimal price
+     * @since 1.1
+     */
+    public static double toPrice(long ticks) {
+        return (double) ticks / TICKS_PER_UNIT;
+    }
+
+    /**
+     * Function to calculate a Volume Weighted price from exact totals
+     * @param quantityTicksTotal Total of quantity x ticks of the trades
+     * @param quantityTotal Total quantity of the trades
+     * @return volWeightPrice Decimal Volume Weighted price or 0 when the total quantity is zero or negative
+     * @since 1.1
+     */
+    public static double toVolWeightedPrice(long quantityTicksTotal, long quantityTotal) {
+        if(quantityTotal <= 0) {
+            return 0.0;
+        }
+        return (double) quantityTicksTotal / quantityTotal / TICKS_PER_UNIT;
+    }
+
+    /**
+     * Function to calculate a Volume Weighted price from exact totals wider than a long, whose quantity x ticks is
+     * carry x 2^64 + the total read as unsigned
+     * @param quantityTicksCarry Number of times the total of quantity x ticks wrapped around 2^64
+     * @param quantityTicksTotal Total of quantity x ticks of the trades modulo 2^64
+     * @param quantityTotal Total quantity of the trades
+     * @return volWeightPrice Decimal Volume Weighted price or 0 when the total quantity is zero or negative
+     * @since 1.1
+     */
+    public static double toVolWeightedPrice(long quantityTicksCarry, long quantityTicksTotal, long quantityTotal) {
+        if(quantityTicksCarry == 0 && quantityTicksTotal >= 0) {
+            return toVolWeightedPrice(quantityTicksTotal, quantityTotal);
+        }
+        if(quantityTotal <= 0) {
+            return 0.0;
+        }
+        double unsignedTotal = (double) (quantityTicksTotal >>> 1) * 2.0 + (quantityTicksTotal & 1);
+        return (quantityTicksCarry * 0x1p64 + unsignedTotal) / quantityTotal / TICKS_PER_UNIT;
+    }
+
+    /**
+     * Function to check if a price can be held in ticks
+     * @param price Decimal price
+     * @return True - If the price is from 0 to {@link #MAX_PRICE}, False - Otherwise or when it is not a number
+     * @since 1.1
+     */
+    public static boolean isValidPrice(double price) {
+        return price >= 0 && price <= MAX_PRICE;
+    }
+
+    /**
+     * Function to check if the quantity x ticks of a trade can be held in a long, so the value of a single trade never
+     * wraps around in the aggregates
+     * @param quantity Quantity of the trade, more than 0
+     * @param price Decimal price, valid for {@link #isValidPrice(double)}
+     * @return True - If quantity x ticks is at most Long.MAX_VALUE, False - Otherwise
+     * @since 1.1
+     */
+    public static boolean isValidTradeValue(int quantity, double price) {
+        return quantity > 0 && toTicks(price) <= Long.MAX_VALUE / quantity;
+    }
+
+    /**
+     * Function to read the scale from the system property and in case of a wrong scale returns the default
+     */
+    private static int loadScale() {
+        String value = System.getProperty(SCALE_PROPERTY);
+        if(value == null) {
+            return DEFAULT_SCALE;
+        }
+        try {
+            int scale = Integer.parseInt(value.trim());
+            if(scale >= 0 && scale <= MAX_SCALE) {
+                return scale;
+            }
+        } catch (NumberFormatException e) {
+            // default is used below
+        }
+        logger.error("loadScale :: Invalid " + SCALE_PROPERTY + " " + value + ", default " + DEFAULT_SCALE + " is used");
+        return DEFAULT_SCALE;
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for(int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,69 @@
+package com.jpmorgan.digital.helper;
+
+/**
+ * SimulatedTradeClock is a clock which only moves when told to
+ *
+ * It is used to replay trades of a past day, the clock is moved to the timestamp of every trade
+ * before it is recorded so Volume Weighted price and GBCE All Share Index are the ones of that day
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class SimulatedTradeClock implements TradeClock {
+
+    /**
+     * Current time in epoch nanoseconds
+     */
+    private volatile long currentTime;
+
+    /**
+     * Creates the clock at the provided time
+     * @param currentTime Time in epoch nanoseconds
+     */
+    public SimulatedTradeClock(long currentTime) {
+        this.currentTime = currentTime;
+    }
+
+    /**
+     * To get current time
+     *
+     * @return Current time in epoch nanoseconds
+     * @since 1.1
+     */
+    @Override
+    public long currentTimeNanos() {
+        return currentTime;
+    }
+
+    /**
+     * Function to set the clock to the provided time
+     * @param currentTime Time in epoch nanoseconds
+     * @since 1.1
+     */
+    public void setTime(long currentTime) {
+        this.currentTime = currentTime;
+    }
+
+    /**
+     * Function to move the clock to the provided time, an earlier time leaves the clock unchanged
+     * @param time Time in epoch nanoseconds
+     * @since 1.1
+     */
+    public synchronized void advanceTo(long time) {
+        if(time > currentTime) {
+            currentTime = time;
+        }
+    }
+
+    /**
+     * Function to move the clock forward
+     * @param nanos Duration in nanoseconds
+     * @since 1.1
+     */
+    public synchronized void advanceBy(long nanos) {
+        if(nanos < 0) {
+            throw new IllegalArgumentException("Clock can not be moved back");
+        }
+        currentTime += nanos;
+    }
+}
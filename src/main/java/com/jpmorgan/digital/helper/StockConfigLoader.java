@@ -0,0 +1,328 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * StockConfigLoader streams the reference data of the stocks straight into {@link StockDTO}, for universes of
+ * hundreds of thousands of stocks where {@link ConfigLoader} and a lookup per field are too slow to start with
+ *
+ * Three formats are read, chosen by the extension of the file:
+ *
+ * <ul>
+ *     <li>.xml or any other - the section, tag and value format of {@link ConfigLoader}, streamed with SAX</li>
+ *     <li>.csv - one stock per line: symbol,type,lastDividend,fixedDividend,parValue[,retentionSeconds], lines
+ *     starting with # and a first line starting with symbol are skipped. Files of more than
+ *     {@value #PARALLEL_CHUNK_BYTES} bytes are split at line ends and the chunks are parsed in parallel</li>
+ *     <li>.bin - the precompiled binary format written by {@link #writeBinary(Collection, File)}</li>
+ * </ul>
+ *
+ * Fields are read like {@link ConfigLoader} does, whitespace is dropped and numbers which are empty or invalid are 0,
+ * without any regular expression or logging per field.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class StockConfigLoader {
+
+    /**
+     * Minimum size of a chunk of a CSV file parsed on its own
+     */
+    public static final int PARALLEL_CHUNK_BYTES = 1 << 20;
+
+    private static final int MAGIC = 0x53535244;
+
+    private static final int VERSION = 1;
+
+    private static final long SECOND = 1000000000L;
+
+    private StockConfigLoader() {
+    }
+
+    /**
+     * Function to load the stocks of a config file in the format of its extension
+     * @param file Config file
+     * @return stocks Stocks with their reference data and retention, in the order of the file
+     * @throws IOException When the file can not be read or is not valid
+     * @since 1.1
+     */
+    public static List<StockDTO> load(File file) throws IOException {
+        String name = file.getName().toLowerCase();
+        if(name.endsWith(".csv")) {
+            return loadCsv(Files.readAllBytes(file.toPath()));
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            return name.endsWith(".bin") ? loadBinary(in) : loadXml(in);
+        }
+    }
+
+    /**
+     * Function to load the stocks of a config in the section, tag and value format
+     * @param in Config stream
+     * @return stocks Stocks in the order of the config
+     * @throws IOException When the config is not valid
+     * @since 1.1
+     */
+    public static List<StockDTO> loadXml(InputStream in) throws IOException {
+        List<StockDTO> stocks = new ArrayList<StockDTO>();
+        DefaultHandler handler = new DefaultHandler() {
+            private final StringBuilder text = new StringBuilder();
+            private StockDTO stock;
+            private String tag;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if("section".equalsIgnoreCase(qName)) {
+                    stock = new StockDTO();
+                } else if(stock != null && "tag".equalsIgnoreCase(qName)) {
+                    if(stock.getStockSymbol() == null) {
+                        stock.setStockSymbol(strip(text));
+                    }
+                } else if(stock != null && "value".equalsIgnoreCase(qName)) {
+                    tag = strip(text);
+                }
+                text.setLength(0);
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                if(stock != null && "value".equalsIgnoreCase(qName)) {
+                    setField(stock, tag, strip(text));
+                } else if(stock != null && "section".equalsIgnoreCase(qName)) {
+                    if(stock.getStockSymbol() == null) {
+                        stock.setStockSymbol(strip(text));
+                    }
+                    stocks.add(stock);
+                    stock = null;
+                }
+                text.setLength(0);
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                text.append(ch, start, length);
+            }
+        };
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.newSAXParser().parse(in, handler);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Config can not be parsed", e);
+        }
+        return stocks;
+    }
+
+    /**
+     * Function to load the stocks of a config in the CSV format, in parallel chunks when it is large
+     * @param content Config bytes in UTF-8
+     * @return stocks Stocks in the order of the config
+     * @since 1.1
+     */
+    public static List<StockDTO> loadCsv(byte[] content) {
+        int chunkCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), content.length / PARALLEL_CHUNK_BYTES));
+        int[] bounds = new int[chunkCount + 1];
+        bounds[chunkCount] = content.length;
+        for(int i = 1; i < chunkCount; i++) {
+            int position = Math.max(bounds[i - 1], (int) ((long) content.length * i / chunkCount));
+            while(position < content.length && content[position - 1] != '\n') {
+                position++;
+            }
+            bounds[i] = position;
+        }
+        List<List<StockDTO>> chunks = new ArrayList<List<StockDTO>>(chunkCount);
+        for(int i = 0; i < chunkCount; i++) {
+            chunks.add(null);
+        }
+        IntStream.range(0, chunkCount).parallel()
+                .forEach(i -> chunks.set(i, loadCsv(content, bounds[i], bounds[i + 1], i == 0)));
+        if(chunkCount == 1) {
+            return chunks.get(0);
+        }
+        List<StockDTO> stocks = new ArrayList<StockDTO>();
+        for(List<StockDTO> chunk : chunks) {
+            stocks.addAll(chunk);
+        }
+        return stocks;
+    }
+
+    /**
+     * Function to parse the lines of a chunk of a CSV config
+     */
+    private static List<StockDTO> loadCsv(byte[] content, int from, int to, boolean first) {
+        List<StockDTO> stocks = new ArrayList<StockDTO>();
+        String[] fields = new String[6];
+        int lineStart = from;
+        while(lineStart < to) {
+            int lineEnd = lineStart;
+            while(lineEnd < to && content[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+            boolean header = first && lineStart == from && line.trim().toLowerCase().startsWith("symbol");
+            lineStart = lineEnd + 1;
+            if(header || line.trim().isEmpty() || line.trim().startsWith("#")) {
+                continue;
+            }
+            int count = 0;
+            int fieldStart = 0;
+            for(int i = 0; i <= line.length() && count < fields.length; i++) {
+                if(i == line.length() || line.charAt(i) == ',') {
+                    fields[count++] = strip(line.substring(fieldStart, i));
+                    fieldStart = i + 1;
+                }
+            }
+            StockDTO stock = new StockDTO();
+            stock.setStockSymbol(fields[0]);
+            stock.setStockType(count > 1 && !fields[1].isEmpty() ? fields[1] : null);
+            stock.setLastDividend(count > 2 ? parseInt(fields[2]) : 0);
+            stock.setFixedDividend(count > 3 ? parseInt(fields[3]) : 0);
+            stock.setParValue(count > 4 ? parseInt(fields[4]) : 0);
+            stock.setRetentionNanos(count > 5 ? parseInt(fields[5]) * SECOND : 0);
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    /**
+     * Function to load the stocks of a config in the precompiled binary format
+     * @param in Config stream
+     * @return stocks Stocks in the order of the config
+     * @throws IOException When the config is not of a supported version or is truncated
+     * @since 1.1
+     */
+    public static List<StockDTO> loadBinary(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            if(data.readInt() != MAGIC || data.readInt() != VERSION) {
+                throw new IOException("Config is not of a supported version");
+            }
+            int count = data.readInt();
+            List<StockDTO> stocks = new ArrayList<StockDTO>(count);
+            for(int i = 0; i < count; i++) {
+                StockDTO stock = new StockDTO();
+                stock.setStockSymbol(data.readUTF());
+                stock.setStockType(data.readBoolean() ? data.readUTF() : null);
+                stock.setLastDividend(data.readInt());
+                stock.setFixedDividend(data.readInt());
+                stock.setParValue(data.readInt());
+                stock.setRetentionNanos(data.readInt() * SECOND);
+                stocks.add(stock);
+            }
+            return stocks;
+        } catch (EOFException e) {
+            throw new IOException("Config is truncated", e);
+        }
+    }
+
+    /**
+     * Function to precompile the reference data and retention of stocks into the binary format
+     * @param stocks Stocks to be written
+     * @param file Binary config file, with the .bin extension to be loaded by {@link #load(File)}
+     * @throws IOException When the file can not be written
+     * @since 1.1
+     */
+    public static void writeBinary(Collection<StockDTO> stocks, File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stocks.size());
+            for(StockDTO stock : stocks) {
+                out.writeUTF(stock.getStockSymbol());
+                out.writeBoolean(stock.getStockType() != null);
+                if(stock.getStockType() != null) {
+                    out.writeUTF(stock.getStockType());
+                }
+                out.writeInt(stock.getLastDividend());
+                out.writeInt(stock.getFixedDividend());
+                out.writeInt(stock.getParValue());
+                out.writeInt((int) (stock.getRetentionNanos() / SECOND));
+            }
+        }
+    }
+
+    /**
+     * Function to set a field of the config format of {@link ConfigLoader} on a stock, unknown tags are ignored
+     */
+    private static void setField(StockDTO stock, String tag, String value) {
+        if("TYPE".equals(tag)) {
+            stock.setStockType(value);
+        } else if("LAST_DIVIDEND".equals(tag)) {
+            stock.setLastDividend(parseInt(value));
+        } else if("FIXED_DIVIDEND".equals(tag)) {
+            stock.setFixedDividend(parseInt(value));
+        } else if("PAR_VALUE".equals(tag)) {
+            stock.setParValue(parseInt(value));
+        } else if("RETENTION_SECONDS".equals(tag)) {
+            stock.setRetentionNanos(parseInt(value) * SECOND);
+        }
+    }
+
+    /**
+     * Function to drop all the whitespace of a text, like the config format of {@link ConfigLoader}
+     * @param text Text to be stripped
+     * @return stripped Text without whitespace
+     * @since 1.1
+     */
+    public static String strip(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        while(i < length && !Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if(i == length) {
+            return text.toString();
+        }
+        StringBuilder stripped = new StringBuilder(length);
+        stripped.append(text, 0, i);
+        for(; i < length; i++) {
+            char character = text.charAt(i);
+            if(!Character.isWhitespace(character)) {
+                stripped.append(character);
+            }
+        }
+        return stripped.toString();
+    }
+
+    /**
+     * Function to parse a decimal integer without exceptions, in case of an empty or wrong integer returns 0
+     */
+    private static int parseInt(String value) {
+        boolean negative = value.startsWith("-");
+        int start = negative || value.startsWith("+") ? 1 : 0;
+        if(value.length() == start || value.length() - start > 10) {
+            return 0;
+        }
+        long number = 0;
+        for(int i = start; i < value.length(); i++) {
+            char digit = value.charAt(i);
+            if(digit < '0' || digit > '9') {
+                return 0;
+            }
+            number = number * 10 + (digit - '0');
+        }
+        number = negative ? -number : number;
+        return number > Integer.MAX_VALUE || number < Integer.MIN_VALUE ? 0 : (int) number;
+    }
+}
@@ -1,12 +1,13 @@
 package com.jpmorgan.digital.helper;
 
 import com.jpmorgan.digital.dto.StockDTO;
-import com.jpmorgan.digital.dto.TradeDTO;
+import com.jpmorgan.digital.dto.TradeCursor;
 import org.apache.log4j.Logger;
 
 import java.lang.IllegalArgumentException;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * StockHelper is a helper class to implement the business rules for StockServiceImpl
@@ -18,6 +19,8 @@ public class StockHelper {
 
     private final static Logger logger = Logger.getLogger(StockHelper.class);
 
+    private static final byte NO_DIVIDEND_YIELD = (byte) StockDTO.DividendYieldStrategy.NONE.ordinal();
+
     /**
      * Function to implement Dividend Yield for Stock Type common
      * @param dividend Last Dividend of the stock
@@ -82,49 +85,237 @@ public class StockHelper {
         return pERatio;
     }
 
+    /**
+     * Function to calculate Dividend Yield of all the stocks of a universe at once, like
+     * {@link StockDTO.DividendYieldStrategy#calculateDividendYield(StockDTO, double)} does for each of them
+     *
+     * The yields are divided in a loop over flat columns first and verified and rounded in a second loop, so neither
+     * loop looks up a stock or logs per stock. Where a single stock would fail, the result is NaN: for a negative
+     * price, a price of 0 of a Common or Preferred stock and an id without a stock
+     *
+     * @param referenceData Reference data of the universe
+     * @param prices Price of each stock by its id
+     * @param dividendYields Filled with the Dividend Yield of each stock by its id, at least as long as prices
+     * @since 1.1
+     */
+    public static void calculateDividendYields(StockReferenceData referenceData, double[] prices, double[] dividendYields) {
+        double[] yieldDividends = referenceData.getYieldDividends();
+        byte[] strategies = referenceData.getDividendYieldStrategies();
+        int count = Math.min(prices.length, yieldDividends.length);
+        for(int i = 0; i < count; i++) {
+            dividendYields[i] = yieldDividends[i] / prices[i];
+        }
+        for(int i = 0; i < count; i++) {
+            double price = prices[i];
+            byte strategy = strategies[i];
+            if(strategy == StockReferenceData.NO_STOCK || price < 0 || (price == 0.0 && strategy != NO_DIVIDEND_YIELD)) {
+                dividendYields[i] = Double.NaN;
+            } else {
+                dividendYields[i] = strategy == NO_DIVIDEND_YIELD ? 0.0 : getFormattedDouble(dividendYields[i]);
+            }
+        }
+        Arrays.fill(dividendYields, count, prices.length, Double.NaN);
+        if(logger.isDebugEnabled()){
+            logger.debug("Dividend yields calculated for " + prices.length + " stocks");
+        }
+    }
+
+    /**
+     * Function to calculate P/E Ratio of all the stocks of a universe at once, like {@link #calculatePERatio(int, double)}
+     * does for each of them
+     *
+     * Where a single stock would fail, the result is NaN: for a negative price, a last dividend of 0 and an id
+     * without a stock
+     *
+     * @param referenceData Reference data of the universe
+     * @param prices Price of each stock by its id
+     * @param pERatios Filled with the P/E Ratio of each stock by its id, at least as long as prices
+     * @since 1.1
+     */
+    public static void calculatePERatios(StockReferenceData referenceData, double[] prices, double[] pERatios) {
+        double[] lastDividends = referenceData.getLastDividends();
+        byte[] strategies = referenceData.getDividendYieldStrategies();
+        int count = Math.min(prices.length, lastDividends.length);
+        for(int i = 0; i < count; i++) {
+            pERatios[i] = prices[i] / lastDividends[i];
+        }
+        for(int i = 0; i < count; i++) {
+            if(strategies[i] == StockReferenceData.NO_STOCK || prices[i] < 0 || lastDividends[i] == 0.0) {
+                pERatios[i] = Double.NaN;
+            } else {
+                pERatios[i] = getFormattedDouble(pERatios[i]);
+            }
+        }
+        Arrays.fill(pERatios, count, prices.length, Double.NaN);
+        if(logger.isDebugEnabled()){
+            logger.debug("P/E Ratios calculated for " + prices.length + " stocks");
+        }
+    }
+
     /**
      * Function to calculate Volume Weighted price of a stock for all the trades in last 5 minutes
      *
+     * The running totals of the stock window are used, so the cost does not depend on the number of
+     * trades recorded for the stock
+     *
      * @param stock Given stock for which Volume Weighted price needs to be calculated
      * @return volWeightPrice Calculated Volume Weighted price
      * @since 1.0
      */
     public static double calculateVolWeightPrice(StockDTO stock){
-        double volWeightPrice = 0.0;
-        TradeDTO[] trades = stock.getAllTrades();
-        int noOfTrades = trades.length;
-        int quantityTotal = 0;
-        double quantityPriceTotal = 0.0;
-        ZonedDateTime currentTime = ZonedDateTime.now();
-        while(noOfTrades-->0) {
-            if(getTimeDifferenceInSeconds(trades[noOfTrades].getTimestamp(),currentTime)<300) {
-                quantityTotal = trades[noOfTrades].getQuantity();
-                quantityPriceTotal = trades[noOfTrades].getQuantity()*trades[noOfTrades].getPrice();
-            }
+        return calculateVolWeightPrice(stock, getCurrentTimeNanos());
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of a stock for all the trades in 5 minutes before the provided time
+     *
+     * @param stock Given stock for which Volume Weighted price needs to be calculated
+     * @param currentTime Current time in epoch nanoseconds, see {@link TradeClock}
+     * @return volWeightPrice Calculated Volume Weighted price
+     * @since 1.1
+     */
+    public static double calculateVolWeightPrice(StockDTO stock, long currentTime){
+        double volWeightPrice = stock.getVolWeightedPrice(currentTime);
+        volWeightPrice = getFormattedDouble(volWeightPrice);
+        if(logger.isInfoEnabled()){
+            logger.info("Volume Weighted Price-"+volWeightPrice+"calculated for trades of last 5 minutes for Stock -"+stock.getStockSymbol());
+        }
+        return volWeightPrice;
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of a stock for the trades in a window of any length before the provided time
+     *
+     * The per second and per minute buckets of the stock are used, so the cost depends only on the window length
+     *
+     * @param stock Given stock for which Volume Weighted price needs to be calculated
+     * @param currentTime Current time in epoch nanoseconds, see {@link TradeClock}
+     * @param windowSeconds Length of the window in seconds
+     * @return volWeightPrice Calculated Volume Weighted price
+     * @throws IllegalArgumentException When window is zero, negative or longer than the kept buckets
+     * @since 1.1
+     */
+    public static double calculateVolWeightPrice(StockDTO stock, long currentTime, int windowSeconds) throws IllegalArgumentException{
+        double volWeightPrice = stock.getVolWeightedPrice(currentTime, windowSeconds * 1000000000L);
+        volWeightPrice = getFormattedDouble(volWeightPrice);
+        if(logger.isInfoEnabled()){
+            logger.info("Volume Weighted Price-"+volWeightPrice+" calculated for trades of last "+windowSeconds+" seconds for Stock -"+stock.getStockSymbol());
         }
-        if(quantityTotal != 0) {
-            volWeightPrice = quantityPriceTotal/quantityTotal;
+        return volWeightPrice;
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of a stock for the trades in any time range
+     *
+     * The time index of the stock is used, so the cost depends neither on the length nor on the age of the range
+     *
+     * @param stock Given stock for which Volume Weighted price needs to be calculated
+     * @param fromTime Start of the range in epoch nanoseconds, inclusive
+     * @param toTime End of the range in epoch nanoseconds, exclusive
+     * @return volWeightPrice Calculated Volume Weighted price
+     * @throws IllegalArgumentException When range does not end after its start
+     * @since 1.1
+     */
+    public static double calculateRangeVolWeightPrice(StockDTO stock, long fromTime, long toTime) throws IllegalArgumentException{
+        if(fromTime >= toTime) {
+            throw new IllegalArgumentException("Range must end after its start");
         }
+        double volWeightPrice = stock.getRangeVolWeightedPrice(fromTime, toTime);
         volWeightPrice = getFormattedDouble(volWeightPrice);
         if(logger.isInfoEnabled()){
-            logger.info("Volume Weighted Price-"+volWeightPrice+"calculated for trades of last 5 minutes for Stock -"+stock.getStockSymbol());
+            logger.info("Volume Weighted Price-"+volWeightPrice+" calculated for trades from "+fromTime+" to "+toTime+" for Stock -"+stock.getStockSymbol());
         }
         return volWeightPrice;
     }
 
     /**
-     * Function to calculate GBCE All Share Index
+     * Function to calculate Volume Weighted price of a stock by scanning all of its trades
+     *
+     * This is the reference calculation for any time range, it visits every recorded trade but creates no object per trade
+     *
+     * @param stock Given stock for which Volume Weighted price needs to be calculated
+     * @param fromTime Start of the range in epoch nanoseconds, inclusive
+     * @param toTime End of the range in epoch nanoseconds, exclusive
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the range
+     * @since 1.1
+     */
+    public static double scanVolWeightPrice(StockDTO stock, long fromTime, long toTime) {
+        TradeCursor cursor = stock.openCursor(new TradeCursor());
+        long quantityTotal = 0;
+        double quantityPriceTotal = 0.0;
+        while(cursor.next()) {
+            long timestamp = cursor.getTimestamp();
+            if(timestamp >= fromTime && timestamp < toTime) {
+                quantityTotal += cursor.getQuantity();
+                quantityPriceTotal += cursor.getQuantity() * cursor.getPrice();
+            }
+        }
+        if(quantityTotal == 0) {
+            return 0.0;
+        }
+        return quantityPriceTotal / quantityTotal;
+    }
+
+    /**
+     * Function to calculate GBCE All Share Index i.e. geometric mean of Volume Weighted prices
+     *
+     * Stocks without any trade in last 5 minutes are not part of the index
+     *
      * @param stocks Stock for which Index needs to be calculated
      * @return gbceAllShareIndex - Calculated GBCE All Share Index
      * @since 1.0
      */
     public static double calculateGBCEAllShareIndex(StockDTO[] stocks) {
-        int noOfStocks = stocks.length;
-        double volWeightPriceTotal = 0;
-        while(noOfStocks-->0){
-            volWeightPriceTotal += calculateVolWeightPrice(stocks[noOfStocks]);
+        return calculateGBCEAllShareIndex(stocks, getCurrentTimeNanos());
+    }
+
+    /**
+     * Function to calculate GBCE All Share Index at the provided time
+     *
+     * @param stocks Stock for which Index needs to be calculated
+     * @param currentTime Current time in epoch nanoseconds, see {@link TradeClock}
+     * @return gbceAllShareIndex - Calculated GBCE All Share Index
+     * @since 1.1
+     */
+    public static double calculateGBCEAllShareIndex(StockDTO[] stocks, long currentTime) {
+        return calculateGBCEAllShareIndex(stocks, currentTime, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Function to calculate GBCE All Share Index at the provided time, splitting the stocks across the common
+     * fork-join pool when there are at least as many as the threshold
+     *
+     * Each task of the pool sums the logarithms of the Volume Weighted prices of its share of the stocks, and the
+     * partial sums are added up once all the tasks are done
+     *
+     * @param stocks Stock for which Index needs to be calculated
+     * @param currentTime Current time in epoch nanoseconds, see {@link TradeClock}
+     * @param parallelThreshold Number of stocks from which they are split across the pool
+     * @return gbceAllShareIndex - Calculated GBCE All Share Index
+     * @since 1.1
+     */
+    public static double calculateGBCEAllShareIndex(StockDTO[] stocks, long currentTime, int parallelThreshold) {
+        double logVolWeightPriceTotal = 0;
+        int noOfTradedStocks = 0;
+        if(stocks.length >= parallelThreshold && stocks.length > GBCEIndexTask.LEAF_STOCKS) {
+            GBCEIndexTask task = new GBCEIndexTask(stocks, 0, stocks.length, currentTime);
+            ForkJoinPool.commonPool().invoke(task);
+            logVolWeightPriceTotal = task.logTotal;
+            noOfTradedStocks = task.tradedStockCount;
+        } else {
+            int noOfStocks = stocks.length;
+            while(noOfStocks-->0){
+                double volWeightPrice = stocks[noOfStocks].getVolWeightedPrice(currentTime);
+                if(volWeightPrice > 0) {
+                    logVolWeightPriceTotal += Math.log(volWeightPrice);
+                    noOfTradedStocks++;
+                }
+            }
+        }
+        double gbceAllShareIndex = 0.0;
+        if(noOfTradedStocks != 0) {
+            gbceAllShareIndex = Math.exp(logVolWeightPriceTotal / noOfTradedStocks);
         }
-        double gbceAllShareIndex = Math.pow(volWeightPriceTotal, 1.0 / stocks.length);
         gbceAllShareIndex = StockHelper.getFormattedDouble(gbceAllShareIndex);
         if(logger.isInfoEnabled()){
             logger.info("GBCE All Shared Index -"+gbceAllShareIndex+" calculated for total "+stocks.length+" stocks");
@@ -132,6 +323,34 @@ public class StockHelper {
         return gbceAllShareIndex;
     }
 
+    /**
+     * Function to read GBCE All Share Index from the incrementally maintained index
+     *
+     * @param indexAggregator Running index of all the stocks
+     * @return gbceAllShareIndex - Calculated GBCE All Share Index
+     * @since 1.1
+     */
+    public static double calculateGBCEAllShareIndex(GBCEIndexAggregator indexAggregator) {
+        return calculateGBCEAllShareIndex(indexAggregator, getCurrentTimeNanos());
+    }
+
+    /**
+     * Function to read GBCE All Share Index from the incrementally maintained index at the provided time
+     *
+     * @param indexAggregator Running index of all the stocks
+     * @param currentTime Current time in epoch nanoseconds, see {@link TradeClock}
+     * @return gbceAllShareIndex - Calculated GBCE All Share Index
+     * @since 1.1
+     */
+    public static double calculateGBCEAllShareIndex(GBCEIndexAggregator indexAggregator, long currentTime) {
+        double gbceAllShareIndex = indexAggregator.getIndex(currentTime);
+        gbceAllShareIndex = StockHelper.getFormattedDouble(gbceAllShareIndex);
+        if(logger.isInfoEnabled()){
+            logger.info("GBCE All Shared Index -"+gbceAllShareIndex+" calculated for total "+indexAggregator.getStockCount()+" traded stocks");
+        }
+        return gbceAllShareIndex;
+    }
+
     /**
      * Function to round off Double to two decimals
      * @param value - Value which needs to be rounded off
@@ -145,15 +364,36 @@ public class StockHelper {
     }
 
     /**
-     * Function to calculate difference in seconds between two timestamps
-     * @param earlyTime - Early Timestamp
-     * @param latestTime - Latest Timestamp
-     * @return diff long
-     * @since 1.0
+     * Function to convert a timestamp to nanoseconds since epoch
+     * @param time - Timestamp
+     * @return epochNanos long
+     * @since 1.1
+     */
+    public static long toEpochNanos(ZonedDateTime time) {
+        return time.toEpochSecond() * 1000000000L + time.getNano();
+    }
+
+    /**
+     * Function to get current time in nanoseconds since epoch from {@link SystemTradeClock}
+     * @return epochNanos long
+     * @since 1.1
+     */
+    public static long getCurrentTimeNanos() {
+        return SystemTradeClock.getClockInstance().currentTimeNanos();
+    }
+
+    /**
+     * Function to verify if the provided timestamp is a future one
+     *
+     * As timestamps are compared in whole seconds, a timestamp less than a second ahead is not a future one
+     *
+     * @param timestamp - Timestamp in epoch nanoseconds
+     * @param currentTime - Current time in epoch nanoseconds
+     * @return boolean True - If future time, False - If Past or current time
+     * @since 1.1
      */
-    private static long getTimeDifferenceInSeconds(ZonedDateTime earlyTime, ZonedDateTime latestTime) {
-        ChronoUnit unit = ChronoUnit.SECONDS;
-        return unit.between(earlyTime,latestTime);
+    public static boolean isFutureTimestamp(long timestamp, long currentTime) {
+        return timestamp - currentTime >= 1000000000L;
     }
 
 }
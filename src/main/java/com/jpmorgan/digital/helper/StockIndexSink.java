@@ -0,0 +1,31 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+
+/**
+ * Sink of the stocks added to and removed from {@link com.jpmorgan.digital.model.StockModel}, which keeps the GBCE All
+ * Share Index of the stocks in step with them
+ *
+ * The {@link GBCEIndexAggregator} of the model is the sink unless a service indexing the stocks on its own threads,
+ * like {@link com.jpmorgan.digital.service.impl.ShardedStockService}, replaces it. The model calls the sink holding its
+ * lock, after the changed stocks are published, so the sink should return quickly
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public interface StockIndexSink {
+
+    /**
+     * Function called for a stock added to the model, or whose config changed, which may already have trades
+     * @param stock Added stock
+     * @since 1.1
+     */
+    void stockAdded(StockDTO stock);
+
+    /**
+     * Function called for a stock removed from the model, its trades are not part of the index anymore
+     * @param stock Removed stock
+     * @since 1.1
+     */
+    void stockRemoved(StockDTO stock);
+}
@@ -0,0 +1,111 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+
+import java.util.Arrays;
+
+/**
+ * Class to hold the reference data of all the stocks of a universe in flat columns indexed by stock id, for
+ * calculations over the whole universe in plain loops without any lookup, object or type comparison per stock
+ *
+ * The columns are a snapshot of the stocks it is created from, {@link com.jpmorgan.digital.model.StockModel}
+ * creates one with every change of its stocks. As the same columns are shared by all the readers of a universe,
+ * they are only handed out to the bulk functions of {@link StockHelper}
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class StockReferenceData {
+
+    /**
+     * Dividend yield strategy of the ids without a stock
+     */
+    public static final byte NO_STOCK = -1;
+
+    /**
+     * Last dividend of each stock
+     */
+    private final double[] lastDividends;
+
+    /**
+     * Dividend of each stock divided by the price for its Dividend Yield, last dividend for Common stocks and
+     * fixed dividend times par value for Preferred stocks
+     */
+    private final double[] yieldDividends;
+
+    /**
+     * Ordinal of {@link StockDTO.DividendYieldStrategy} of each stock, {@link #NO_STOCK} for ids without a stock
+     */
+    private final byte[] dividendYieldStrategies;
+
+    /**
+     * Creates the columns of the provided stocks
+     * @param stocksById Stocks indexed by their id, null for ids without a stock
+     */
+    public StockReferenceData(StockDTO[] stocksById) {
+        int count = stocksById.length;
+        lastDividends = new double[count];
+        yieldDividends = new double[count];
+        dividendYieldStrategies = new byte[count];
+        Arrays.fill(dividendYieldStrategies, NO_STOCK);
+        for(int i = 0; i < count; i++) {
+            StockDTO stock = stocksById[i];
+            if(stock == null) {
+                continue;
+            }
+            StockDTO.ReferenceData referenceData = stock.getReferenceData();
+            StockDTO.DividendYieldStrategy strategy = referenceData.getDividendYieldStrategy();
+            lastDividends[i] = referenceData.getLastDividend();
+            if(strategy == StockDTO.DividendYieldStrategy.COMMON) {
+                yieldDividends[i] = referenceData.getLastDividend();
+            } else if(strategy == StockDTO.DividendYieldStrategy.PREFERRED) {
+                yieldDividends[i] = referenceData.getFixedDividend() * referenceData.getParValue();
+            }
+            dividendYieldStrategies[i] = (byte) strategy.ordinal();
+        }
+    }
+
+    /**
+     * Function to get the number of stock ids of the columns
+     * @return count Number of stock ids, including the ids without a stock
+     * @since 1.1
+     */
+    public int getStockIdCount() {
+        return lastDividends.length;
+    }
+
+    /**
+     * Function to get the last dividend of a stock
+     * @param stockId Stock id
+     * @return lastDividend Last dividend of the stock, 0 for an id without a stock
+     * @throws IllegalArgumentException When the id is not an id of the universe
+     * @since 1.1
+     */
+    public double getLastDividend(int stockId) throws IllegalArgumentException {
+        if(stockId < 0 || stockId >= lastDividends.length) {
+            throw new IllegalArgumentException("Stock id provided is not supported by the application");
+        }
+        return lastDividends[stockId];
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.StockReferenceData#lastDividends} for more information
+     */
+    double[] getLastDividends() {
+        return lastDividends;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.StockReferenceData#yieldDividends} for more information
+     */
+    double[] getYieldDividends() {
+        return yieldDividends;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.StockReferenceData#dividendYieldStrategies} for more information
+     */
+    byte[] getDividendYieldStrategies() {
+        return dividendYieldStrategies;
+    }
+}
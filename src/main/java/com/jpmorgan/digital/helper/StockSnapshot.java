@@ -0,0 +1,287 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * StockSnapshot keeps point in time copies of the reference data, aggregates and retained trades of all the stocks
+ *
+ * A snapshot is written to {@code snapshot-<sequence>.dat}, where the sequence is the {@link TradeJournal} record
+ * count when the snapshot starts, and is moved in place only once it is complete and forced to disk:
+ *
+ * <ul>
+ *     <li>Header - magic, version, {@link PriceTicks#SCALE} of the prices, journal sequence and number of stocks</li>
+ *     <li>Every stock - symbol, type, dividends and par value followed by {@link StockDTO#writeSnapshot(DataOutputStream)}</li>
+ *     <li>Footer - magic</li>
+ * </ul>
+ *
+ * Recording is not stopped. Every stock is copied under its own read lock, together with the journal sequence of
+ * its latest trade, so the snapshot and the journal records of a stock after that sequence give its exact state.
+ * Columns of primitives are written in bulk, so restoring costs the size of the retained trades and not the work
+ * of adding every trade of the day again.
+ *
+ * The latest {@value #KEPT_SNAPSHOTS} snapshots are kept, so an older one can be restored when the latest is damaged.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class StockSnapshot {
+
+    private final static Logger logger = Logger.getLogger(StockSnapshot.class);
+
+    /**
+     * Number of snapshots kept in the directory
+     */
+    public static final int KEPT_SNAPSHOTS = 2;
+
+    private static final int MAGIC = 0x53534D53;
+
+    private static final int VERSION = 3;
+
+    private static final String FILE_PREFIX = "snapshot-";
+
+    private static final String FILE_SUFFIX = ".dat";
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final File directory;
+
+    /**
+     * Creates the snapshots of the provided directory, which is created when missing
+     * @param directory Directory of the snapshot files
+     * @throws IllegalArgumentException When the directory can not be created
+     */
+    public StockSnapshot(File directory) throws IllegalArgumentException {
+        if(directory == null || (!directory.isDirectory() && !directory.mkdirs())) {
+            throw new IllegalArgumentException("Snapshot directory can not be created");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Function to write a snapshot of the provided stocks and delete the snapshots which are not kept anymore
+     * @param stocks Stocks to be written
+     * @param journalSequence Record count of the journal before the first stock is copied, 0 without journal
+     * @return file Snapshot file
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public synchronized File write(StockDTO[] stocks, long journalSequence) throws IOException {
+        File file = new File(directory, String.format("%s%020d%s", FILE_PREFIX, journalSequence, FILE_SUFFIX));
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(PriceTicks.SCALE);
+            out.writeLong(journalSequence);
+            out.writeInt(stocks.length);
+            for(StockDTO stock : stocks) {
+                out.writeUTF(stock.getStockSymbol());
+                out.writeBoolean(stock.getStockType() != null);
+                if(stock.getStockType() != null) {
+                    out.writeUTF(stock.getStockType());
+                }
+                out.writeInt(stock.getLastDividend());
+                out.writeInt(stock.getFixedDividend());
+                out.writeInt(stock.getParValue());
+                stock.writeSnapshot(out);
+            }
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOut.getChannel().force(true);
+        } catch (IOException e) {
+            temporary.delete();
+            throw e;
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        List<File> files = getFiles();
+        for(int i = KEPT_SNAPSHOTS; i < files.size(); i++) {
+            if(!files.get(i).delete()) {
+                logger.error("write :: Snapshot " + files.get(i) + " could not be deleted");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Function to restore the stocks from a snapshot file
+     *
+     * Stocks of the provided map are restored in place, stocks of the snapshot which are not in the map are created
+     * with their reference data and passed to addStock before their state is restored. Stocks are left partly
+     * restored when the file is damaged, so they are expected to be loaded again before another snapshot is tried.
+     *
+     * @param file Snapshot file, one of {@link #getFiles()}
+     * @param stocks Stocks by their symbol
+     * @param addStock Function adding a stock of the snapshot which is not in the map
+     * @return journalSequence Record count of the journal when the snapshot started
+     * @throws IOException When the snapshot can not be read or is damaged
+     * @since 1.1
+     */
+    public synchronized long read(File file, Map<String, StockDTO> stocks, Consumer<StockDTO> addStock) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Snapshot " + file + " is not of a supported version");
+            }
+            if(in.readInt() != PriceTicks.SCALE) {
+                throw new IOException("Snapshot " + file + " has prices of another scale");
+            }
+            long journalSequence = in.readLong();
+            int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                String stockSymbol = in.readUTF();
+                String stockType = in.readBoolean() ? in.readUTF() : null;
+                int lastDividend = in.readInt();
+                int fixedDividend = in.readInt();
+                int parValue = in.readInt();
+                StockDTO stock = stocks.get(stockSymbol);
+                if(stock == null) {
+                    stock = new StockDTO();
+                    stock.setStockSymbol(stockSymbol);
+                    stock.setStockType(stockType);
+                    stock.setLastDividend(lastDividend);
+                    stock.setFixedDividend(fixedDividend);
+                    stock.setParValue(parValue);
+                    addStock.accept(stock);
+                }
+                stock.readSnapshot(in);
+            }
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Snapshot " + file + " is damaged");
+            }
+            return journalSequence;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot " + file + " is truncated", e);
+        }
+    }
+
+    /**
+     * Function to get the complete snapshot files of the directory
+     * @return files Snapshot files from latest to oldest
+     * @since 1.1
+     */
+    public List<File> getFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if(files == null) {
+            return new ArrayList<File>();
+        }
+        Arrays.sort(files, (first, second) -> second.getName().compareTo(first.getName()));
+        return new ArrayList<File>(Arrays.asList(files));
+    }
+
+    /**
+     * Function to get the journal sequence of a snapshot file
+     * @param file Snapshot file, one of {@link #getFiles()}
+     * @return journalSequence Record count of the journal when the snapshot started
+     * @since 1.1
+     */
+    public static long getJournalSequence(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    /**
+     * Function to write a range of a column of longs in bulk
+     * @since 1.1
+     */
+    public static void writeLongs(DataOutput out, long[] values, int from, int to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int position = from; position < to; ) {
+            int length = Math.min(to - position, CHUNK_SIZE / 8);
+            ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(values, position, length);
+            out.write(chunk, 0, length * 8);
+            position += length;
+        }
+    }
+
+    /**
+     * Function to read a range of a column of longs in bulk
+     * @since 1.1
+     */
+    public static void readLongs(DataInput in, long[] values, int from, int to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int position = from; position < to; ) {
+            int length = Math.min(to - position, CHUNK_SIZE / 8);
+            in.readFully(chunk, 0, length * 8);
+            ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(values, position, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Function to write a range of a column of ints in bulk
+     * @since 1.1
+     */
+    public static void writeInts(DataOutput out, int[] values, int from, int to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int position = from; position < to; ) {
+            int length = Math.min(to - position, CHUNK_SIZE / 4);
+            ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(values, position, length);
+            out.write(chunk, 0, length * 4);
+            position += length;
+        }
+    }
+
+    /**
+     * Function to read a range of a column of ints in bulk
+     * @since 1.1
+     */
+    public static void readInts(DataInput in, int[] values, int from, int to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int position = from; position < to; ) {
+            int length = Math.min(to - position, CHUNK_SIZE / 4);
+            in.readFully(chunk, 0, length * 4);
+            ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, position, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Function to write a range of a column of doubles in bulk
+     * @since 1.1
+     */
+    public static void writeDoubles(DataOutput out, double[] values, int from, int to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int position = from; position < to; ) {
+            int length = Math.min(to - position, CHUNK_SIZE / 8);
+            ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values, position, length);
+            out.write(chunk, 0, length * 8);
+            position += length;
+        }
+    }
+
+    /**
+     * Function to read a range of a column of doubles in bulk
+     * @since 1.1
+     */
+    public static void readDoubles(DataInput in, double[] values, int from, int to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int position = from; position < to; ) {
+            int length = Math.min(to - position, CHUNK_SIZE / 8);
+            in.readFully(chunk, 0, length * 8);
+            ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, position, length);
+            position += length;
+        }
+    }
+}
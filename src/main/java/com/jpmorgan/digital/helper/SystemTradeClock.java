@@ -0,0 +1,70 @@
+package com.jpmorgan.digital.helper;
+
+/**
+ * SystemTradeClock is the wall clock used by default
+ *
+ * The wall clock is read once and then advanced with {@link System#nanoTime()}, so reading the time
+ * neither creates an object nor goes back when the wall clock is adjusted. The wall clock is read
+ * again every second to follow its corrections, without ever returning an earlier time than before.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class SystemTradeClock implements TradeClock {
+
+    private static final long RESYNC_INTERVAL_NANOS = 1000000000L;
+
+    private static final SystemTradeClock clockInstance = new SystemTradeClock();
+
+    /**
+     * Pair of wall clock and nanoTime read together, replaced as a whole on resync
+     */
+    private static final class Base {
+        private final long wallNanos;
+        private final long nanoTime;
+
+        private Base(long wallNanos, long nanoTime) {
+            this.wallNanos = wallNanos;
+            this.nanoTime = nanoTime;
+        }
+    }
+
+    private volatile Base base;
+
+    /**
+     * Creates the clock synchronised with the wall clock
+     */
+    public SystemTradeClock() {
+        base = new Base(System.currentTimeMillis() * 1000000L, System.nanoTime());
+    }
+
+    /**
+     * Method to return the shared instance of the clock
+     * @return clockInstance
+     * @since 1.1
+     */
+    public static SystemTradeClock getClockInstance() {
+        return clockInstance;
+    }
+
+    /**
+     * To get current time
+     *
+     * @return Current time in epoch nanoseconds
+     * @since 1.1
+     */
+    @Override
+    public long currentTimeNanos() {
+        Base current = base;
+        long nanoTime = System.nanoTime();
+        long elapsed = nanoTime - current.nanoTime;
+        long time = current.wallNanos + elapsed;
+        if(elapsed >= RESYNC_INTERVAL_NANOS) {
+            long wallNanos = System.currentTimeMillis() * 1000000L;
+            // Follow the wall clock forward but never step back in time
+            base = new Base(Math.max(wallNanos, time), nanoTime);
+            return Math.max(wallNanos, time);
+        }
+        return time;
+    }
+}
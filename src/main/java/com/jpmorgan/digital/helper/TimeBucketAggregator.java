@@ -0,0 +1,317 @@
+package com.jpmorgan.digital.helper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * TimeBucketAggregator keeps the totals of the trades of a single stock per second and per minute,
+ * so the Volume Weighted price of any window can be read without visiting the trades
+ *
+ * Both levels are rings of buckets holding
+ *
+ * <ul>
+ *     <li>Quantity</li>
+ *     <li>Quantity x price in ticks of {@link PriceTicks}, exact with a carry of the times it wrapped around 2^64</li>
+ * </ul>
+ *
+ * A trade is added to the bucket of its second and the bucket of its minute. The ring of seconds covers
+ * the latest {@link #DEFAULT_SECOND_BUCKETS} seconds and the ring of minutes the latest
+ * {@link #DEFAULT_MINUTE_BUCKETS} minutes, buckets are cleared as the latest trade moves forward.
+ *
+ * A window is served from whole buckets, seconds for its oldest partial minute and minutes for the rest,
+ * so a query visits at most a minute of seconds plus the minutes of the window:
+ *
+ * <ul>
+ *     <li>The window starts after the second holding (current time - window length)</li>
+ *     <li>When that second has left the ring of seconds, the window starts at the next whole minute</li>
+ * </ul>
+ *
+ * The aggregator is not thread safe, {@link com.jpmorgan.digital.dto.StockDTO} guards it with the lock of the stock.
+ * Reads do not modify any state and visit a bounded number of buckets, so they can run under an optimistic read.
+ * Buckets are created with the first trade, stocks which are never traded cost no memory.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TimeBucketAggregator {
+
+    /**
+     * Default number of seconds kept, a little more than 8 minutes
+     */
+    public static final int DEFAULT_SECOND_BUCKETS = 512;
+
+    /**
+     * Default number of minutes kept, a little more than 2 hours
+     */
+    public static final int DEFAULT_MINUTE_BUCKETS = 128;
+
+    private static final long SECOND = 1000000000L;
+
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    /**
+     * Windows shorter than this are always read from the seconds when they can be
+     */
+    private static final long SECONDS_ONLY_SPAN = 2 * SECONDS_PER_MINUTE;
+
+    private final int secondBuckets;
+
+    private final int minuteBuckets;
+
+    private long[] secondQuantities;
+
+    private long[] secondQuantityPrices;
+
+    private int[] secondQuantityPriceCarries;
+
+    private long[] minuteQuantities;
+
+    private long[] minuteQuantityPrices;
+
+    private int[] minuteQuantityPriceCarries;
+
+    /**
+     * Latest second with a trade, in seconds since epoch
+     */
+    private long lastSecond = Long.MIN_VALUE;
+
+    /**
+     * Latest minute with a trade, in minutes since epoch
+     */
+    private long lastMinute = Long.MIN_VALUE;
+
+    /**
+     * Creates the aggregator with the default number of buckets
+     */
+    public TimeBucketAggregator() {
+        this(DEFAULT_SECOND_BUCKETS, DEFAULT_MINUTE_BUCKETS);
+    }
+
+    /**
+     * Creates the aggregator with the provided number of buckets
+     * @param secondBuckets Number of seconds kept, a power of two of at least 64
+     * @param minuteBuckets Number of minutes kept, a power of two of at least 2
+     * @throws IllegalArgumentException When a number of buckets is not supported
+     */
+    public TimeBucketAggregator(int secondBuckets, int minuteBuckets) throws IllegalArgumentException {
+        if(secondBuckets < 64 || Integer.bitCount(secondBuckets) != 1) {
+            throw new IllegalArgumentException("Second buckets must be a power of two of at least 64");
+        }
+        if(minuteBuckets < 2 || Integer.bitCount(minuteBuckets) != 1) {
+            throw new IllegalArgumentException("Minute buckets must be a power of two of at least 2");
+        }
+        this.secondBuckets = secondBuckets;
+        this.minuteBuckets = minuteBuckets;
+    }
+
+    /**
+     * Function to add a trade to the buckets of its second and minute
+     *
+     * A late trade is added to its own buckets as long as they are still kept
+     *
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade in ticks
+     * @since 1.1
+     */
+    public void addTrade(long timestamp, int quantity, long price) {
+        if(secondQuantities == null) {
+            secondQuantities = new long[secondBuckets];
+            secondQuantityPrices = new long[secondBuckets];
+            secondQuantityPriceCarries = new int[secondBuckets];
+            minuteQuantities = new long[minuteBuckets];
+            minuteQuantityPrices = new long[minuteBuckets];
+            minuteQuantityPriceCarries = new int[minuteBuckets];
+        }
+        long second = Math.floorDiv(timestamp, SECOND);
+        long minute = Math.floorDiv(second, SECONDS_PER_MINUTE);
+        if(second > lastSecond) {
+            lastSecond = clearBuckets(secondQuantities, secondQuantityPrices, secondQuantityPriceCarries, lastSecond, second);
+        }
+        if(minute > lastMinute) {
+            lastMinute = clearBuckets(minuteQuantities, minuteQuantityPrices, minuteQuantityPriceCarries, lastMinute, minute);
+        }
+        long quantityPrice = quantity * price;
+        if(second > lastSecond - secondBuckets) {
+            int slot = (int) second & (secondBuckets - 1);
+            secondQuantities[slot] += quantity;
+            secondQuantityPrices[slot] += quantityPrice;
+            if(Long.compareUnsigned(secondQuantityPrices[slot], quantityPrice) < 0) {
+                secondQuantityPriceCarries[slot]++;
+            }
+        }
+        if(minute > lastMinute - minuteBuckets) {
+            int slot = (int) minute & (minuteBuckets - 1);
+            minuteQuantities[slot] += quantity;
+            minuteQuantityPrices[slot] += quantityPrice;
+            if(Long.compareUnsigned(minuteQuantityPrices[slot], quantityPrice) < 0) {
+                minuteQuantityPriceCarries[slot]++;
+            }
+        }
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of the trades in the window before the provided time
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @param windowNanos Length of the window in nanoseconds
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the window
+     * @throws IllegalArgumentException When window is zero, negative or longer than {@link #getMaxWindowNanos()}
+     * @since 1.1
+     */
+    public double getVolWeightedPrice(long currentTime, long windowNanos) throws IllegalArgumentException {
+        if(windowNanos <= 0 || windowNanos > getMaxWindowNanos()) {
+            throw new IllegalArgumentException("Window must be more than 0 and at most " + getMaxWindowNanos() / SECOND + " seconds");
+        }
+        long[] seconds = secondQuantities;
+        long[] secondPrices = secondQuantityPrices;
+        int[] secondCarries = secondQuantityPriceCarries;
+        long[] minutes = minuteQuantities;
+        long[] minutePrices = minuteQuantityPrices;
+        int[] minuteCarries = minuteQuantityPriceCarries;
+        if(seconds == null || secondPrices == null || secondCarries == null || minutes == null || minutePrices == null
+                || minuteCarries == null) {
+            return 0.0;
+        }
+        long latestSecond = lastSecond;
+        long latestMinute = lastMinute;
+        long fromSecond = Math.floorDiv(currentTime - windowNanos, SECOND) + 1;
+        if(fromSecond > latestSecond) {
+            return 0.0;
+        }
+        long oldestSecond = latestSecond - secondBuckets + 1;
+        long firstWholeMinute = Math.floorDiv(fromSecond + SECONDS_PER_MINUTE - 1, SECONDS_PER_MINUTE);
+
+        long quantityTotal = 0;
+        long quantityPriceTotal = 0;
+        long quantityPriceCarry = 0;
+        if(fromSecond >= oldestSecond && (latestSecond - fromSecond < SECONDS_ONLY_SPAN || firstWholeMinute > latestMinute)) {
+            for(long second = fromSecond; second <= latestSecond; second++) {
+                int slot = (int) second & (secondBuckets - 1);
+                quantityTotal += seconds[slot];
+                quantityPriceTotal += secondPrices[slot];
+                quantityPriceCarry += secondCarries[slot];
+                if(Long.compareUnsigned(quantityPriceTotal, secondPrices[slot]) < 0) {
+                    quantityPriceCarry++;
+                }
+            }
+        } else {
+            if(fromSecond >= oldestSecond) {
+                long lastHeadSecond = firstWholeMinute * SECONDS_PER_MINUTE - 1;
+                for(long second = fromSecond; second <= lastHeadSecond; second++) {
+                    int slot = (int) second & (secondBuckets - 1);
+                    quantityTotal += seconds[slot];
+                    quantityPriceTotal += secondPrices[slot];
+                    quantityPriceCarry += secondCarries[slot];
+                    if(Long.compareUnsigned(quantityPriceTotal, secondPrices[slot]) < 0) {
+                        quantityPriceCarry++;
+                    }
+                }
+            }
+            long fromMinute = Math.max(firstWholeMinute, latestMinute - minuteBuckets + 1);
+            for(long minute = fromMinute; minute <= latestMinute; minute++) {
+                int slot = (int) minute & (minuteBuckets - 1);
+                quantityTotal += minutes[slot];
+                quantityPriceTotal += minutePrices[slot];
+                quantityPriceCarry += minuteCarries[slot];
+                if(Long.compareUnsigned(quantityPriceTotal, minutePrices[slot]) < 0) {
+                    quantityPriceCarry++;
+                }
+            }
+        }
+        return PriceTicks.toVolWeightedPrice(quantityPriceCarry, quantityPriceTotal, quantityTotal);
+    }
+
+    /**
+     * Function to get the longest window served from the kept minutes
+     * @return windowNanos Length of the window in nanoseconds
+     * @since 1.1
+     */
+    public long getMaxWindowNanos() {
+        return (minuteBuckets - 1) * SECONDS_PER_MINUTE * SECOND;
+    }
+
+    /**
+     * Function to write the buckets, read back by {@link #readSnapshot(DataInput)}
+     * @param out Output of the snapshot
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(secondBuckets);
+        out.writeInt(minuteBuckets);
+        out.writeLong(lastSecond);
+        out.writeLong(lastMinute);
+        out.writeBoolean(secondQuantities != null);
+        if(secondQuantities != null) {
+            StockSnapshot.writeLongs(out, secondQuantities, 0, secondBuckets);
+            StockSnapshot.writeLongs(out, secondQuantityPrices, 0, secondBuckets);
+            StockSnapshot.writeInts(out, secondQuantityPriceCarries, 0, secondBuckets);
+            StockSnapshot.writeLongs(out, minuteQuantities, 0, minuteBuckets);
+            StockSnapshot.writeLongs(out, minuteQuantityPrices, 0, minuteBuckets);
+            StockSnapshot.writeInts(out, minuteQuantityPriceCarries, 0, minuteBuckets);
+        }
+    }
+
+    /**
+     * Function to replace the buckets with the ones of a snapshot
+     * @param in Input of the snapshot
+     * @throws IOException When the snapshot can not be read or has another number of buckets
+     * @since 1.1
+     */
+    public void readSnapshot(DataInput in) throws IOException {
+        if(in.readInt() != secondBuckets || in.readInt() != minuteBuckets) {
+            throw new IOException("Snapshot has another number of time buckets");
+        }
+        long newLastSecond = in.readLong();
+        long newLastMinute = in.readLong();
+        if(in.readBoolean()) {
+            long[] newSecondQuantities = new long[secondBuckets];
+            long[] newSecondQuantityPrices = new long[secondBuckets];
+            int[] newSecondQuantityPriceCarries = new int[secondBuckets];
+            long[] newMinuteQuantities = new long[minuteBuckets];
+            long[] newMinuteQuantityPrices = new long[minuteBuckets];
+            int[] newMinuteQuantityPriceCarries = new int[minuteBuckets];
+            StockSnapshot.readLongs(in, newSecondQuantities, 0, secondBuckets);
+            StockSnapshot.readLongs(in, newSecondQuantityPrices, 0, secondBuckets);
+            StockSnapshot.readInts(in, newSecondQuantityPriceCarries, 0, secondBuckets);
+            StockSnapshot.readLongs(in, newMinuteQuantities, 0, minuteBuckets);
+            StockSnapshot.readLongs(in, newMinuteQuantityPrices, 0, minuteBuckets);
+            StockSnapshot.readInts(in, newMinuteQuantityPriceCarries, 0, minuteBuckets);
+            secondQuantities = newSecondQuantities;
+            secondQuantityPrices = newSecondQuantityPrices;
+            secondQuantityPriceCarries = newSecondQuantityPriceCarries;
+            minuteQuantities = newMinuteQuantities;
+            minuteQuantityPrices = newMinuteQuantityPrices;
+            minuteQuantityPriceCarries = newMinuteQuantityPriceCarries;
+        } else {
+            secondQuantities = null;
+            secondQuantityPrices = null;
+            secondQuantityPriceCarries = null;
+            minuteQuantities = null;
+            minuteQuantityPrices = null;
+            minuteQuantityPriceCarries = null;
+        }
+        lastSecond = newLastSecond;
+        lastMinute = newLastMinute;
+    }
+
+    /**
+     * Function to clear the buckets between the latest and the new bucket
+     * @return latest The new bucket
+     */
+    private static long clearBuckets(long[] quantities, long[] quantityPrices, int[] quantityPriceCarries, long latest, long next) {
+        if(latest != Long.MIN_VALUE) {
+            int mask = quantities.length - 1;
+            long count = Math.min(next - latest, quantities.length);
+            for(long bucket = next - count + 1; bucket <= next; bucket++) {
+                int slot = (int) bucket & mask;
+                quantities[slot] = 0;
+                quantityPrices[slot] = 0;
+                quantityPriceCarries[slot] = 0;
+            }
+        }
+        return next;
+    }
+}
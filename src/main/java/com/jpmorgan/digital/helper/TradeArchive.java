@@ -0,0 +1,147 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.TradeCursor;
+import com.jpmorgan.digital.dto.TradeStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * TradeArchive keeps the trades evicted from memory in a compressed file per stock
+ *
+ * Every eviction appends a block to the file of its stock, {@code <symbol>.trades} in the archive directory:
+ *
+ * <ul>
+ *     <li>Number of trades - varint</li>
+ *     <li>Timestamp - zigzag varint of the difference with the previous trade of the block, the first from 0</li>
+ *     <li>Quantity and Indicator - varint of quantity x 2 + ordinal of {@link com.jpmorgan.digital.dto.TradeDTO.Indicator}</li>
+ *     <li>Price - 8 bytes of the double</li>
+ * </ul>
+ *
+ * Trades a few milliseconds apart take around 13 bytes instead of the 21 bytes of their columns in memory.
+ * Writes of different stocks are serialised by the archive, it is meant for a single background evictor.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TradeArchive {
+
+    private static final String FILE_SUFFIX = ".trades";
+
+    private final File directory;
+
+    /**
+     * Creates the archive in the provided directory, which is created when missing
+     * @param directory Directory of the archive files
+     * @throws IllegalArgumentException When the directory can not be created
+     */
+    public TradeArchive(File directory) throws IllegalArgumentException {
+        if(directory == null || (!directory.isDirectory() && !directory.mkdirs())) {
+            throw new IllegalArgumentException("Trade archive directory can not be created");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Function to append the trades of a cursor to the file of their stock
+     * @param stockSymbol Symbol of the stock of the trades
+     * @param trades Cursor positioned before the trades to be archived
+     * @return count Number of trades archived
+     * @throws IOException When the file can not be written
+     * @since 1.1
+     */
+    public synchronized int write(String stockSymbol, TradeCursor trades) throws IOException {
+        int count = trades.getTradeCount();
+        if(count == 0) {
+            return 0;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getFile(stockSymbol), true)))) {
+            writeVarLong(out, count);
+            long previous = 0;
+            while(trades.next()) {
+                long timestamp = trades.getTimestamp();
+                long delta = timestamp - previous;
+                writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                writeVarLong(out, ((long) trades.getQuantity() << 1) | (trades.getIndicator() & 1));
+                out.writeDouble(trades.getPrice());
+                previous = timestamp;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Function to read all the archived trades of a stock
+     * @param stockSymbol Symbol of the stock
+     * @param store Store to which the trades are appended, in the order they were archived
+     * @return count Number of trades read
+     * @throws IOException When the file can not be read or is corrupted
+     * @since 1.1
+     */
+    public synchronized int read(String stockSymbol, TradeStore store) throws IOException {
+        File file = getFile(stockSymbol);
+        if(!file.isFile()) {
+            return 0;
+        }
+        int total = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while(true) {
+                int first = in.read();
+                if(first < 0) {
+                    return total;
+                }
+                long count = readVarLong(in, first);
+                long timestamp = 0;
+                for(long i = 0; i < count; i++) {
+                    long zigzag = readVarLong(in, in.readUnsignedByte());
+                    timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+                    long quantityIndicator = readVarLong(in, in.readUnsignedByte());
+                    store.addTrade(timestamp, (int) (quantityIndicator >>> 1), PriceTicks.toTicks(in.readDouble()), (byte) (quantityIndicator & 1));
+                    total++;
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Trade archive of " + stockSymbol + " is truncated", e);
+        }
+    }
+
+    /**
+     * Function to get the archive file of a stock
+     * @param stockSymbol Symbol of the stock
+     * @return file Archive file, which may not exist yet
+     * @since 1.1
+     */
+    public File getFile(String stockSymbol) {
+        return new File(directory, stockSymbol + FILE_SUFFIX);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int current = first;
+        while((current & 0x80) != 0) {
+            if(shift > 63) {
+                throw new IOException("Trade archive has a malformed number");
+            }
+            current = in.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
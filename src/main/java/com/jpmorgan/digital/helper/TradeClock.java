@@ -0,0 +1,26 @@
+package com.jpmorgan.digital.helper;
+
+/**
+ * TradeClock is the source of current time for all the time based calculations on trades
+ *
+ * The following implementations are available:
+ *
+ * <ul>
+ *     <li>{@link SystemTradeClock} - Wall clock for production</li>
+ *     <li>{@link SimulatedTradeClock} - Clock moved by the caller to replay historical trades</li>
+ * </ul>
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public interface TradeClock {
+
+    /**
+     * To get current time
+     *
+     * @return Current time in epoch nanoseconds
+     * @since 1.1
+     */
+    public long currentTimeNanos();
+
+}
@@ -0,0 +1,68 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeCursor;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+
+/**
+ * TradeEvictor evicts the trades older than the retention of every stock and writes them to the {@link TradeArchive}
+ *
+ * A stock is locked only while its trades are evicted, the archive is written after the lock is released.
+ * A failing archive is logged and does not stop the eviction, so heap stays bounded even when the disk is full.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TradeEvictor {
+
+    private final static Logger logger = Logger.getLogger(TradeEvictor.class);
+
+    /**
+     * Archive of the evicted trades, null when evicted trades are dropped
+     */
+    private final TradeArchive tradeArchive;
+
+    private final TradeCursor evicted = new TradeCursor();
+
+    /**
+     * Creates the evictor
+     * @param tradeArchive Archive of the evicted trades, null to drop them
+     */
+    public TradeEvictor(TradeArchive tradeArchive) {
+        this.tradeArchive = tradeArchive;
+    }
+
+    /**
+     * Function to evict the trades older than the retention of the provided stocks
+     * @param stocks Stocks whose trades are evicted
+     * @return count Number of trades evicted
+     * @since 1.1
+     */
+    public synchronized long evict(StockDTO[] stocks) {
+        long total = 0;
+        for(StockDTO stock : stocks) {
+            if(stock.getRetentionNanos() == 0) {
+                continue;
+            }
+            int count = stock.evictTrades(tradeArchive == null ? null : evicted);
+            if(count > 0 && tradeArchive != null) {
+                try {
+                    tradeArchive.write(stock.getStockSymbol(), evicted);
+                } catch (IOException e) {
+                    logger.error("evict :: Trades of " + stock.getStockSymbol() + " could not be archived", e);
+                }
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeEvictor#tradeArchive} for more information
+     */
+    public TradeArchive getTradeArchive() {
+        return tradeArchive;
+    }
+}
@@ -0,0 +1,472 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TradeJournal appends every recorded trade to memory mapped files, so the trades of the day survive a restart
+ *
+ * The journal is a directory of segments, {@code journal-<n>.dat}, each holding a fixed number of records of
+ * {@value #RECORD_SIZE} bytes:
+ *
+ * <pre>
+ *  Offset  Size  Field
+ *  0       8     Timestamp in epoch nanoseconds
+ *  8       8     Price
+ *  16      4     Quantity
+ *  20      4     Journal id of the stock
+ *  24      1     Ordinal of {@link com.jpmorgan.digital.dto.TradeDTO.Indicator}
+ *  25      3     Unused
+ *  28      4     Checksum of the fields above
+ * </pre>
+ *
+ * Journal ids of the stocks are kept in {@code symbols.txt}, so the journal does not depend on the ids of a
+ * {@link com.jpmorgan.digital.model.StockModel} which change when stocks are added to the config.
+ *
+ * A writer reserves its record with a single atomic increment and writes it into the mapped segment, so writers
+ * of different stocks never wait for each other. Segments are forced to disk by a background thread every flush
+ * period, one flush for all the records written in the period. Records written less than a period before a crash
+ * may be lost, a record torn by a crash fails its checksum and is skipped by {@link #replay(Map)}.
+ *
+ * Stocks append their own trades once {@link StockDTO#setTradeJournal(TradeJournal)} is called, under their lock, so
+ * the records of a stock are in the order its trades were added.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TradeJournal {
+
+    private final static Logger logger = Logger.getLogger(TradeJournal.class);
+
+    /**
+     * Size of a record in bytes
+     */
+    public static final int RECORD_SIZE = 32;
+
+    /**
+     * Default number of records of a segment, 64 MB
+     */
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 21;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final String SYMBOLS_FILE = "symbols.txt";
+
+    private final File directory;
+
+    private final int segmentShift;
+
+    private final int segmentRecords;
+
+    /**
+     * Mapped segments by their number, null until a record is reserved in them
+     */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[16];
+
+    /**
+     * Sequence of the next record
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Number of the oldest segment written since the last flush
+     */
+    private volatile int unflushedSegment;
+
+    /**
+     * Journal ids by stock id of the current model, -1 when the stock is not registered
+     */
+    private volatile int[] journalIds = new int[0];
+
+    /**
+     * Symbols by journal id
+     */
+    private final List<String> symbols = new ArrayList<String>();
+
+    private final Map<String, Integer> journalIdsBySymbol = new HashMap<String, Integer>();
+
+    private final ScheduledExecutorService flusher;
+
+    private volatile boolean closed;
+
+    /**
+     * Opens the journal of a directory with the default segment size, creating it when missing
+     * @param directory Directory of the journal
+     * @param flushMillis Time between flushes of the segments in milliseconds
+     * @throws IOException When the journal can not be read or created
+     */
+    public TradeJournal(File directory, long flushMillis) throws IOException {
+        this(directory, flushMillis, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens the journal of a directory, creating it when missing
+     *
+     * Appending resumes after the latest valid record of the existing segments
+     *
+     * @param directory Directory of the journal
+     * @param flushMillis Time between flushes of the segments in milliseconds
+     * @param segmentRecords Number of records of a segment, a power of two
+     * @throws IOException When the journal can not be read or created
+     * @throws IllegalArgumentException When flush period is not positive or segment size is not a power of two
+     */
+    public TradeJournal(File directory, long flushMillis, int segmentRecords) throws IOException, IllegalArgumentException {
+        if(flushMillis <= 0) {
+            throw new IllegalArgumentException("Journal flush period must be more than 0");
+        }
+        if(segmentRecords <= 0 || Integer.bitCount(segmentRecords) != 1) {
+            throw new IllegalArgumentException("Journal segment records must be a power of two");
+        }
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Journal directory " + directory + " can not be created");
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentRecords);
+        loadSymbols();
+        long sequence = findEnd();
+        nextSequence.set(sequence);
+        unflushedSegment = (int) (sequence >>> segmentShift);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trade-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to give a stock its journal id, the id of a symbol already in the journal is kept
+     * @param stock Stock added to the model
+     * @throws IOException When the symbols file can not be written
+     * @since 1.1
+     */
+    public synchronized void registerStock(StockDTO stock) throws IOException {
+        Integer journalId = journalIdsBySymbol.get(stock.getStockSymbol());
+        if(journalId == null) {
+            journalId = symbols.size();
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, SYMBOLS_FILE), true), StandardCharsets.UTF_8)) {
+                writer.write(journalId + " " + stock.getStockSymbol() + "\n");
+            }
+            symbols.add(stock.getStockSymbol());
+            journalIdsBySymbol.put(stock.getStockSymbol(), journalId);
+        }
+        int[] ids = journalIds;
+        if(stock.getStockId() >= ids.length) {
+            int length = Math.max(stock.getStockId() + 1, ids.length << 1);
+            int oldLength = ids.length;
+            ids = Arrays.copyOf(ids, length);
+            Arrays.fill(ids, oldLength, length, -1);
+        } else {
+            ids = ids.clone();
+        }
+        ids[stock.getStockId()] = journalId;
+        journalIds = ids;
+    }
+
+    /**
+     * Function to append a trade of a registered stock
+     * @param stockId Id of the stock in the model
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade
+     * @param indicator Ordinal of the Buy or Sell Indicator of the trade
+     * @return sequence Journal sequence of the trade
+     * @throws IllegalStateException When the stock is not registered, the journal is closed or a segment can not be mapped
+     * @since 1.1
+     */
+    public long append(int stockId, long timestamp, int quantity, double price, byte indicator) throws IllegalStateException {
+        int[] ids = journalIds;
+        int journalId = stockId >= 0 && stockId < ids.length ? ids[stockId] : -1;
+        if(journalId < 0) {
+            throw new IllegalStateException("Stock is not registered with the journal");
+        }
+        if(closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        long sequence = nextSequence.getAndIncrement();
+        MappedByteBuffer segment = getSegment((int) (sequence >>> segmentShift));
+        int offset = (int) (sequence & (segmentRecords - 1)) * RECORD_SIZE;
+        segment.putLong(offset, timestamp);
+        segment.putDouble(offset + 8, price);
+        segment.putInt(offset + 16, quantity);
+        segment.putInt(offset + 20, journalId);
+        segment.put(offset + 24, indicator);
+        segment.putInt(offset + 28, checksum(timestamp, price, quantity, journalId, indicator));
+        return sequence;
+    }
+
+    /**
+     * Function to add all the valid records of the journal to the stocks of their symbols, in journal order
+     *
+     * Records of symbols which are not provided and records failing their checksum are skipped
+     *
+     * @param stocks Stocks by their symbol
+     * @return count Number of trades added
+     * @throws IOException When a segment can not be read
+     * @since 1.1
+     */
+    public long replay(Map<String, StockDTO> stocks) throws IOException {
+        return replay(stocks, 0);
+    }
+
+    /**
+     * Function to add the valid records of the journal from the provided sequence to the stocks of their symbols,
+     * in journal order, with {@link StockDTO#replayTrade(long, long, int, double, byte)}
+     *
+     * Records of symbols which are not provided, records failing their checksum and records of deleted segments
+     * are skipped. Records at or before the journal sequence of their stock are already part of it and are ignored.
+     *
+     * @param stocks Stocks by their symbol
+     * @param fromSequence Sequence of the first record replayed
+     * @return count Number of trades added
+     * @throws IOException When a segment can not be read
+     * @since 1.1
+     */
+    public synchronized long replay(Map<String, StockDTO> stocks, long fromSequence) throws IOException {
+        StockDTO[] stocksByJournalId = new StockDTO[symbols.size()];
+        for(int i = 0; i < stocksByJournalId.length; i++) {
+            stocksByJournalId[i] = stocks.get(symbols.get(i));
+        }
+        long end = nextSequence.get();
+        long count = 0;
+        long skipped = 0;
+        for(int segmentNumber = (int) (Math.max(fromSequence, 0) >>> segmentShift); ((long) segmentNumber << segmentShift) < end; segmentNumber++) {
+            if(!new File(directory, segmentName(segmentNumber)).isFile()) {
+                continue;
+            }
+            MappedByteBuffer segment = getSegment(segmentNumber);
+            long first = (long) segmentNumber << segmentShift;
+            int records = (int) Math.min(segmentRecords, end - first);
+            for(int record = (int) Math.max(0, fromSequence - first); record < records; record++) {
+                int offset = record * RECORD_SIZE;
+                long timestamp = segment.getLong(offset);
+                double price = segment.getDouble(offset + 8);
+                int quantity = segment.getInt(offset + 16);
+                int journalId = segment.getInt(offset + 20);
+                byte indicator = segment.get(offset + 24);
+                if(quantity == 0) {
+                    continue;
+                }
+                if(quantity < 0 || journalId < 0 || journalId >= stocksByJournalId.length
+                        || segment.getInt(offset + 28) != checksum(timestamp, price, quantity, journalId, indicator)) {
+                    skipped++;
+                    continue;
+                }
+                StockDTO stock = stocksByJournalId[journalId];
+                if(stock == null) {
+                    skipped++;
+                    continue;
+                }
+                if(stock.replayTrade(first + record, timestamp, quantity, price, indicator)) {
+                    count++;
+                }
+            }
+        }
+        if(skipped > 0) {
+            logger.error("replay :: " + skipped + " journal records were torn or of unknown stocks and are skipped");
+        }
+        return count;
+    }
+
+    /**
+     * Function to force all the records appended so far to disk
+     * @since 1.1
+     */
+    public void flush() {
+        long sequence = nextSequence.get();
+        int lastSegment = (int) (Math.max(sequence - 1, 0) >>> segmentShift);
+        MappedByteBuffer[] mapped = segments;
+        for(int segmentNumber = unflushedSegment; segmentNumber <= lastSegment && segmentNumber < mapped.length; segmentNumber++) {
+            if(mapped[segmentNumber] != null) {
+                mapped[segmentNumber].force();
+            }
+        }
+        unflushedSegment = lastSegment;
+    }
+
+    /**
+     * Function to delete the segments holding only records before the provided sequence, once they are part of a snapshot
+     * @param sequence Sequence of the first record kept
+     * @return count Number of segments deleted
+     * @since 1.1
+     */
+    public synchronized int truncateBefore(long sequence) {
+        int lastDeleted = (int) (Math.min(sequence, nextSequence.get()) >>> segmentShift);
+        MappedByteBuffer[] mapped = segments;
+        int count = 0;
+        for(int segmentNumber = 0; segmentNumber < lastDeleted; segmentNumber++) {
+            File file = new File(directory, segmentName(segmentNumber));
+            if(file.isFile()) {
+                if(segmentNumber < mapped.length) {
+                    mapped[segmentNumber] = null;
+                }
+                if(file.delete()) {
+                    count++;
+                } else {
+                    logger.error("truncateBefore :: Journal segment " + file + " could not be deleted");
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Function to flush the journal and stop its background flushes, appends fail afterwards
+     * @since 1.1
+     */
+    public void close() {
+        closed = true;
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Function to continue the journal at the provided sequence when it is behind, e.g. when it is older than a snapshot
+     * @param sequence Sequence of the next record
+     * @since 1.1
+     */
+    public void skipTo(long sequence) {
+        nextSequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * Function to get the number of records of the journal, including the skipped ones
+     * @return count Number of records
+     * @since 1.1
+     */
+    public long getRecordCount() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeJournal#directory} for more information
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("flush :: Journal could not be flushed", e);
+        }
+    }
+
+    /**
+     * Function to get a mapped segment, mapping it on first use
+     */
+    private MappedByteBuffer getSegment(int segmentNumber) {
+        MappedByteBuffer[] mapped = segments;
+        if(segmentNumber < mapped.length && mapped[segmentNumber] != null) {
+            return mapped[segmentNumber];
+        }
+        return mapSegment(segmentNumber);
+    }
+
+    private synchronized MappedByteBuffer mapSegment(int segmentNumber) {
+        MappedByteBuffer[] mapped = segments;
+        if(segmentNumber >= mapped.length) {
+            mapped = Arrays.copyOf(mapped, Math.max(segmentNumber + 1, mapped.length << 1));
+        }
+        if(mapped[segmentNumber] == null) {
+            File file = new File(directory, segmentName(segmentNumber));
+            try (RandomAccessFile segmentFile = new RandomAccessFile(file, "rw")) {
+                mapped[segmentNumber] = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+            } catch (IOException e) {
+                throw new IllegalStateException("Journal segment " + file + " can not be mapped", e);
+            }
+            segments = mapped;
+        }
+        return mapped[segmentNumber];
+    }
+
+    /**
+     * Function to find the sequence after the latest valid record of the existing segments
+     */
+    private long findEnd() {
+        int lastSegment = -1;
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                String name = file.getName();
+                if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        lastSegment = Math.max(lastSegment, Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        logger.error("findEnd :: " + name + " is not a journal segment and is ignored");
+                    }
+                }
+            }
+        }
+        for(int segmentNumber = lastSegment; segmentNumber >= 0; segmentNumber--) {
+            MappedByteBuffer segment = getSegment(segmentNumber);
+            for(int record = segmentRecords - 1; record >= 0; record--) {
+                if(segment.getInt(record * RECORD_SIZE + 16) != 0) {
+                    return ((long) segmentNumber << segmentShift) + record + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Function to read the journal ids of the symbols
+     */
+    private void loadSymbols() throws IOException {
+        File file = new File(directory, SYMBOLS_FILE);
+        if(!file.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if(separator <= 0 || Integer.parseInt(line.substring(0, separator)) != symbols.size()) {
+                    throw new IOException("Journal symbols file is corrupted at " + line);
+                }
+                String symbol = line.substring(separator + 1);
+                journalIdsBySymbol.put(symbol, symbols.size());
+                symbols.add(symbol);
+            }
+        }
+    }
+
+    private static String segmentName(int segmentNumber) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX);
+    }
+
+    private static int checksum(long timestamp, double price, int quantity, int journalId, byte indicator) {
+        long hash = timestamp * 0x9E3779B97F4A7C15L;
+        hash ^= Double.doubleToRawLongBits(price) * 0xC2B2AE3D27D4EB4FL;
+        hash ^= (((long) quantity << 32) | (journalId & 0xFFFFFFFFL)) * 0x165667B19E3779F9L;
+        hash ^= indicator;
+        hash ^= hash >>> 29;
+        return (int) hash ^ (int) (hash >>> 32);
+    }
+}
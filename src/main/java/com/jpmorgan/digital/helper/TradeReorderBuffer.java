@@ -0,0 +1,212 @@
+package com.jpmorgan.digital.helper;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * TradeReorderBuffer holds the trades of a single stock until the lateness allowed for them is over,
+ * so they are passed on to the aggregates of the stock in time order
+ *
+ * Trades are kept in a ring sorted from oldest to latest. Trades arrive almost in time order, so a trade
+ * is inserted by shifting only the few held trades newer than it, and the oldest is removed in O(1).
+ *
+ * The buffer is bounded, the owner releases the oldest trade when it is full. It is not thread safe,
+ * {@link com.jpmorgan.digital.dto.StockDTO} guards it with the lock of the stock.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TradeReorderBuffer {
+
+    /**
+     * Default number of trades held
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Maximum number of trades held
+     */
+    private final int capacity;
+
+    private long[] timestamps;
+
+    private int[] quantities;
+
+    /**
+     * Prices of the held trades in ticks of {@link PriceTicks}
+     */
+    private long[] prices;
+
+    private byte[] indicators;
+
+    /**
+     * Position of the oldest trade in the ring
+     */
+    private int head;
+
+    /**
+     * Number of trades held
+     */
+    private int size;
+
+    /**
+     * Creates the buffer holding the default number of trades
+     */
+    public TradeReorderBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the buffer holding the provided number of trades
+     * @param capacity Maximum number of trades held
+     * @throws IllegalArgumentException When capacity is zero or negative
+     */
+    public TradeReorderBuffer(int capacity) throws IllegalArgumentException {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Reorder buffer capacity can not be zero or negative");
+        }
+        this.capacity = capacity;
+        allocate(Math.min(INITIAL_CAPACITY, capacity));
+    }
+
+    /**
+     * Function to hold a trade in its time ordered position
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade in ticks
+     * @param indicator Ordinal of the Buy or Sell Indicator of the trade
+     * @throws IllegalStateException When the buffer is full
+     * @since 1.1
+     */
+    public void addTrade(long timestamp, int quantity, long price, byte indicator) throws IllegalStateException {
+        if(size == capacity) {
+            throw new IllegalStateException("Reorder buffer is full");
+        }
+        if(size == timestamps.length) {
+            allocate(Math.min(timestamps.length << 1, capacity));
+        }
+        int mask = timestamps.length - 1;
+        int position = size;
+        while(position > 0 && timestamps[(head + position - 1) & mask] > timestamp) {
+            int from = (head + position - 1) & mask;
+            int to = (head + position) & mask;
+            timestamps[to] = timestamps[from];
+            quantities[to] = quantities[from];
+            prices[to] = prices[from];
+            indicators[to] = indicators[from];
+            position--;
+        }
+        int slot = (head + position) & mask;
+        timestamps[slot] = timestamp;
+        quantities[slot] = quantity;
+        prices[slot] = price;
+        indicators[slot] = indicator;
+        size++;
+    }
+
+    /**
+     * Function to remove the oldest trade, after it is read with the peek functions
+     * @since 1.1
+     */
+    public void removeOldest() {
+        if(size > 0) {
+            head = (head + 1) & (timestamps.length - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Function to get the timestamp of the oldest trade
+     * @return timestamp Timestamp in epoch nanoseconds or Long.MAX_VALUE when no trade is held
+     * @since 1.1
+     */
+    public long peekTimestamp() {
+        return size == 0 ? Long.MAX_VALUE : timestamps[head];
+    }
+
+    /**
+     * Function to get the quantity of the oldest trade
+     * @since 1.1
+     */
+    public int peekQuantity() {
+        return quantities[head];
+    }
+
+    /**
+     * Function to get the price of the oldest trade in ticks
+     * @since 1.1
+     */
+    public long peekPrice() {
+        return prices[head];
+    }
+
+    /**
+     * Function to get the indicator of the oldest trade
+     * @since 1.1
+     */
+    public byte peekIndicator() {
+        return indicators[head];
+    }
+
+    /**
+     * Function to check if no more trade can be held
+     * @return True - If the buffer is full, False - Otherwise
+     * @since 1.1
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeReorderBuffer#size} for more information
+     */
+    public int getTradeCount() {
+        return size;
+    }
+
+    /**
+     * Function to write the held trades from oldest to latest as timestamp, quantity, price and indicator after their number
+     * @param out Output of the snapshot
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        int mask = timestamps.length - 1;
+        out.writeInt(size);
+        for(int i = 0; i < size; i++) {
+            int slot = (head + i) & mask;
+            out.writeLong(timestamps[slot]);
+            out.writeInt(quantities[slot]);
+            out.writeLong(prices[slot]);
+            out.writeByte(indicators[slot]);
+        }
+    }
+
+    /**
+     * Function to resize the ring keeping the trades from oldest to latest, the size of the ring is a power of two
+     */
+    private void allocate(int newCapacity) {
+        int length = Integer.highestOneBit(newCapacity);
+        if(length < newCapacity) {
+            length <<= 1;
+        }
+        long[] newTimestamps = new long[length];
+        int[] newQuantities = new int[length];
+        long[] newPrices = new long[length];
+        byte[] newIndicators = new byte[length];
+        for(int i = 0; i < size; i++) {
+            int slot = (head + i) & (timestamps.length - 1);
+            newTimestamps[i] = timestamps[slot];
+            newQuantities[i] = quantities[slot];
+            newPrices[i] = prices[slot];
+            newIndicators[i] = indicators[slot];
+        }
+        timestamps = newTimestamps;
+        quantities = newQuantities;
+        prices = newPrices;
+        indicators = newIndicators;
+        head = 0;
+    }
+}
@@ -0,0 +1,204 @@
+package com.jpmorgan.digital.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TradeRing hands trades over from any number of producer threads to a single consumer thread through a bounded
+ * ring of slots, without locks and without any object per trade
+ *
+ * The fields of the trades are held in columns like {@link com.jpmorgan.digital.dto.TradeStore}. Every slot has a
+ * sequence telling whose turn it is:
+ *
+ * <pre>
+ *  Sequence of slot at position p    Meaning
+ *  p                                 Free for the producer of position p
+ *  p + 1                             Written, ready for the consumer
+ *  p + capacity                      Read, free for the producer of the next lap
+ * </pre>
+ *
+ * A producer claims a position with a compare and set of the tail, writes the fields of the slot and then its
+ * sequence, so the consumer which reads the sequence sees the fields. With a single producer the compare and set never
+ * fails, so the ring is as well the single producer single consumer ring of a dedicated feed. The consumer owns the
+ * head alone and frees a slot as soon as it copied its fields, so a trade never waits for the consumer to finish the
+ * trades before it.
+ *
+ * When the ring is full {@link #offer(int, long, int, double, byte)} returns false and the producer decides to retry,
+ * which is the back pressure of a consumer falling behind.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TradeRing {
+
+    private final int mask;
+
+    private final AtomicLongArray sequences;
+
+    private final int[] stockIds;
+
+    private final long[] timestamps;
+
+    private final int[] quantities;
+
+    private final double[] prices;
+
+    private final byte[] indicators;
+
+    /**
+     * Next position to be claimed by a producer
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next position to be read by the consumer, only used by the consumer thread
+     */
+    private long head;
+
+    /**
+     * Fields of the trade taken by the last {@link #poll()}
+     */
+    private int stockId;
+
+    private long timestamp;
+
+    private int quantity;
+
+    private double price;
+
+    private byte indicator;
+
+    /**
+     * Creates an empty ring
+     * @param capacity Number of slots, a power of two
+     * @throws IllegalArgumentException When capacity is not a power of two of at least 2
+     */
+    public TradeRing(int capacity) throws IllegalArgumentException {
+        if(capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two of at least 2");
+        }
+        mask = capacity - 1;
+        sequences = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        stockIds = new int[capacity];
+        timestamps = new long[capacity];
+        quantities = new int[capacity];
+        prices = new double[capacity];
+        indicators = new byte[capacity];
+    }
+
+    /**
+     * Function to add a trade, from any thread
+     * @param stockId Stock id of the trade
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade
+     * @param indicator Ordinal of Buy or Sell Indicator of the trade
+     * @return True - If the trade is added, False - If the ring is full
+     * @since 1.1
+     */
+    public boolean offer(int stockId, long timestamp, int quantity, double price, byte indicator) {
+        while(true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if(sequence == position) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    stockIds[slot] = stockId;
+                    timestamps[slot] = timestamp;
+                    quantities[slot] = quantity;
+                    prices[slot] = price;
+                    indicators[slot] = indicator;
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+            } else if(sequence < position) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Function to take the oldest trade, from the consumer thread only
+     * @return True - If a trade is taken and its fields can be read, False - If the ring is empty
+     * @since 1.1
+     */
+    public boolean poll() {
+        int slot = (int) head & mask;
+        if(sequences.get(slot) != head + 1) {
+            return false;
+        }
+        stockId = stockIds[slot];
+        timestamp = timestamps[slot];
+        quantity = quantities[slot];
+        price = prices[slot];
+        indicator = indicators[slot];
+        sequences.lazySet(slot, head + mask + 1);
+        head++;
+        return true;
+    }
+
+    /**
+     * Function to get the number of trades added so far, from any thread
+     * @return count Trades added since the ring was created
+     * @since 1.1
+     */
+    public long getOfferedCount() {
+        return tail.get();
+    }
+
+    /**
+     * Function to get the number of trades taken so far, from the consumer thread only
+     * @return count Trades taken since the ring was created
+     * @since 1.1
+     */
+    public long getPolledCount() {
+        return head;
+    }
+
+    /**
+     * Function to get the number of slots of the ring
+     * @return capacity Number of slots
+     * @since 1.1
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeRing#stockId} for more information
+     */
+    public int getStockId() {
+        return stockId;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeRing#timestamp} for more information
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeRing#quantity} for more information
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeRing#price} for more information
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.TradeRing#indicator} for more information
+     */
+    public byte getIndicator() {
+        return indicator;
+    }
+}
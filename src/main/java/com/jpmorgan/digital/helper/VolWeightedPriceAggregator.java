@@ -0,0 +1,373 @@
+package com.jpmorgan.digital.helper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * VolWeightedPriceAggregator keeps the running totals needed to calculate the Volume Weighted
+ * price of a single stock over a sliding time window
+ *
+ * Only the trades which are still inside the window are retained, ordered by their timestamp,
+ * together with the running totals of
+ *
+ * <ul>
+ *     <li>Quantity</li>
+ *     <li>Quantity x price in ticks of {@link PriceTicks}</li>
+ * </ul>
+ *
+ * Every trade is added and evicted exactly once, so the Volume Weighted price is available in
+ * amortized O(1) irrespective of the number of trades recorded for the stock. Both totals are longs, so
+ * an evicted trade takes away exactly what it added and the totals never drift. The total of quantity x price
+ * keeps a carry of the times it wrapped around 2^64, so the window holds any number of trades of the highest value.
+ *
+ * The aggregator is not thread safe, {@link com.jpmorgan.digital.dto.StockDTO} guards it with the lock of the stock.
+ * The peek functions do not modify any state and can be used under an optimistic read whose result is validated
+ * afterwards. The columns of the trades are replaced together when they grow, so a racing peek reads columns of the
+ * same length and never indexes out of them, though it may still read torn values which the validation discards
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class VolWeightedPriceAggregator {
+
+    /**
+     * Default length of the window i.e. 5 minutes in nanoseconds
+     */
+    public static final long DEFAULT_WINDOW_NANOS = 300L * 1000000000L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Length of the window in nanoseconds
+     */
+    private final long windowNanos;
+
+    /**
+     * Ring buffer of the trades, sorted from oldest to latest
+     */
+    private TradeColumns columns = new TradeColumns(INITIAL_CAPACITY);
+
+    /**
+     * Position of the oldest trade in the ring buffer
+     */
+    private int head;
+
+    /**
+     * Number of trades currently in the window
+     */
+    private int size;
+
+    /**
+     * Total quantity of the trades currently in the window
+     */
+    private long quantityTotal;
+
+    /**
+     * Total of quantity x price in ticks of the trades currently in the window
+     */
+    private long quantityPriceTotal;
+
+    /**
+     * Number of times the total of quantity x price in ticks wrapped around 2^64, the total is
+     * carry x 2^64 + {@link #quantityPriceTotal} read as unsigned
+     */
+    private long quantityPriceCarry;
+
+    /**
+     * Creates the aggregator for the default window of 5 minutes
+     */
+    public VolWeightedPriceAggregator() {
+        this(DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * Creates the aggregator for the provided window length
+     * @param windowNanos Length of the window in nanoseconds
+     * @throws IllegalArgumentException When window is zero or negative
+     */
+    public VolWeightedPriceAggregator(long windowNanos) throws IllegalArgumentException {
+        if(windowNanos <= 0) {
+            throw new IllegalArgumentException("Window can not be zero or negative");
+        }
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * Function to add a trade to the window
+     *
+     * Trades are expected to arrive in time order, a late trade is placed in its time ordered
+     * position by shifting only the trades which are newer than it
+     *
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade in ticks
+     * @since 1.1
+     */
+    public void addTrade(long timestamp, int quantity, long price) {
+        if(size == columns.timestamps.length) {
+            grow();
+        }
+        long[] timestamps = columns.timestamps;
+        int[] quantities = columns.quantities;
+        long[] prices = columns.prices;
+        int mask = timestamps.length - 1;
+        int position = size;
+        while(position > 0 && timestamps[(head + position - 1) & mask] > timestamp) {
+            int from = (head + position - 1) & mask;
+            int to = (head + position) & mask;
+            timestamps[to] = timestamps[from];
+            quantities[to] = quantities[from];
+            prices[to] = prices[from];
+            position--;
+        }
+        int slot = (head + position) & mask;
+        timestamps[slot] = timestamp;
+        quantities[slot] = quantity;
+        prices[slot] = price;
+        size++;
+        long quantityPrice = quantity * price;
+        quantityTotal += quantity;
+        quantityPriceTotal += quantityPrice;
+        if(Long.compareUnsigned(quantityPriceTotal, quantityPrice) < 0) {
+            quantityPriceCarry++;
+        }
+    }
+
+    /**
+     * Function to evict all the trades which are not in the window anymore
+     *
+     * A trade stays in the window while it is less than the window length older than current time
+     *
+     * @param currentTime Current time in epoch nanoseconds
+     * @since 1.1
+     */
+    public void evictExpired(long currentTime) {
+        long threshold = currentTime - windowNanos;
+        long[] timestamps = columns.timestamps;
+        int[] quantities = columns.quantities;
+        long[] prices = columns.prices;
+        int mask = timestamps.length - 1;
+        while(size > 0 && timestamps[head] <= threshold) {
+            long quantityPrice = quantities[head] * prices[head];
+            if(Long.compareUnsigned(quantityPriceTotal, quantityPrice) < 0) {
+                quantityPriceCarry--;
+            }
+            quantityTotal -= quantities[head];
+            quantityPriceTotal -= quantityPrice;
+            head = (head + 1) & mask;
+            size--;
+        }
+    }
+
+    /**
+     * Function to calculate Volume Weighted price of the trades in the window
+     * @param currentTime Current time in epoch nanoseconds
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the window
+     * @since 1.1
+     */
+    public double getVolWeightedPrice(long currentTime) {
+        evictExpired(currentTime);
+        return PriceTicks.toVolWeightedPrice(quantityPriceCarry, quantityPriceTotal, quantityTotal);
+    }
+
+    /**
+     * Function to calculate Volume Weighted price at the provided time without evicting expired trades
+     * @param currentTime Current time in epoch nanoseconds
+     * @return volWeightPrice Volume Weighted price or 0 when there is no trade in the window
+     * @since 1.1
+     */
+    public double peekVolWeightedPrice(long currentTime) {
+        TradeColumns tradeColumns = columns;
+        long[] tradeTimestamps = tradeColumns.timestamps;
+        int[] tradeQuantities = tradeColumns.quantities;
+        long[] tradePrices = tradeColumns.prices;
+        int mask = tradeTimestamps.length - 1;
+        int first = head;
+        int count = size;
+        long quantity = quantityTotal;
+        long quantityPrice = quantityPriceTotal;
+        long quantityPriceHigh = quantityPriceCarry;
+        long threshold = currentTime - windowNanos;
+        int expired = 0;
+        while(expired < count && tradeTimestamps[(first + expired) & mask] <= threshold) {
+            int slot = (first + expired) & mask;
+            long tradeQuantityPrice = tradeQuantities[slot] * tradePrices[slot];
+            if(Long.compareUnsigned(quantityPrice, tradeQuantityPrice) < 0) {
+                quantityPriceHigh--;
+            }
+            quantity -= tradeQuantities[slot];
+            quantityPrice -= tradeQuantityPrice;
+            expired++;
+        }
+        if(expired == count) {
+            return 0.0;
+        }
+        return PriceTicks.toVolWeightedPrice(quantityPriceHigh, quantityPrice, quantity);
+    }
+
+    /**
+     * Function to check if the window holds trades which have expired at the provided time
+     * @param currentTime Current time in epoch nanoseconds
+     * @return True - If eviction is due, False - Otherwise
+     * @since 1.1
+     */
+    public boolean hasExpired(long currentTime) {
+        long[] tradeTimestamps = columns.timestamps;
+        return size > 0 && tradeTimestamps[head & (tradeTimestamps.length - 1)] <= currentTime - windowNanos;
+    }
+
+    /**
+     * Function to get the time at which the oldest trade, which is still in the window at the provided
+     * time, leaves the window without evicting expired trades
+     * @param currentTime Current time in epoch nanoseconds
+     * @return expiry Time in epoch nanoseconds or Long.MAX_VALUE when there is no trade in the window
+     * @since 1.1
+     */
+    public long peekNextExpiry(long currentTime) {
+        long[] tradeTimestamps = columns.timestamps;
+        int mask = tradeTimestamps.length - 1;
+        int first = head;
+        int count = size;
+        long threshold = currentTime - windowNanos;
+        for(int i = 0; i < count; i++) {
+            long timestamp = tradeTimestamps[(first + i) & mask];
+            if(timestamp > threshold) {
+                return timestamp + windowNanos;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.VolWeightedPriceAggregator#quantityTotal} for more information
+     */
+    public long getQuantityTotal() {
+        return quantityTotal;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.VolWeightedPriceAggregator#quantityPriceTotal} for more information
+     */
+    public long getQuantityPriceTotal() {
+        return quantityPriceTotal;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.VolWeightedPriceAggregator#quantityPriceCarry} for more information
+     */
+    public long getQuantityPriceCarry() {
+        return quantityPriceCarry;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.VolWeightedPriceAggregator#size} for more information
+     */
+    public int getTradeCount() {
+        return size;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.helper.VolWeightedPriceAggregator#windowNanos} for more information
+     */
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+    /**
+     * Function to write the trades in the window and their totals, read back by {@link #readSnapshot(DataInput)}
+     * @param out Output of the snapshot
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        long[] timestamps = columns.timestamps;
+        int[] quantities = columns.quantities;
+        long[] prices = columns.prices;
+        int mask = timestamps.length - 1;
+        out.writeLong(quantityTotal);
+        out.writeLong(quantityPriceTotal);
+        out.writeInt(size);
+        for(int i = 0; i < size; i++) {
+            int slot = (head + i) & mask;
+            out.writeLong(timestamps[slot]);
+            out.writeInt(quantities[slot]);
+            out.writeLong(prices[slot]);
+        }
+    }
+
+    /**
+     * Function to replace the trades in the window and their totals with the ones of a snapshot
+     *
+     * The carry of the total of quantity x price is not written, it is counted again from the trades
+     *
+     * @param in Input of the snapshot
+     * @throws IOException When the snapshot can not be read
+     * @since 1.1
+     */
+    public void readSnapshot(DataInput in) throws IOException {
+        long newQuantityTotal = in.readLong();
+        long newQuantityPriceTotal = in.readLong();
+        int count = in.readInt();
+        if(count < 0) {
+            throw new IOException("Snapshot has a negative number of trades");
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(count, 1)) << 1);
+        TradeColumns newColumns = new TradeColumns(capacity);
+        long quantityPriceSum = 0;
+        long newQuantityPriceCarry = 0;
+        for(int i = 0; i < count; i++) {
+            newColumns.timestamps[i] = in.readLong();
+            newColumns.quantities[i] = in.readInt();
+            newColumns.prices[i] = in.readLong();
+            long quantityPrice = newColumns.quantities[i] * newColumns.prices[i];
+            quantityPriceSum += quantityPrice;
+            if(Long.compareUnsigned(quantityPriceSum, quantityPrice) < 0) {
+                newQuantityPriceCarry++;
+            }
+        }
+        columns = newColumns;
+        head = 0;
+        size = count;
+        quantityTotal = newQuantityTotal;
+        quantityPriceTotal = newQuantityPriceTotal;
+        quantityPriceCarry = newQuantityPriceCarry;
+    }
+
+    /**
+     * Function to double the capacity of the ring buffer keeping the trades in time order
+     */
+    private void grow() {
+        TradeColumns oldColumns = columns;
+        int capacity = oldColumns.timestamps.length;
+        TradeColumns newColumns = new TradeColumns(capacity << 1);
+        int firstPart = capacity - head;
+        System.arraycopy(oldColumns.timestamps, head, newColumns.timestamps, 0, firstPart);
+        System.arraycopy(oldColumns.timestamps, 0, newColumns.timestamps, firstPart, head);
+        System.arraycopy(oldColumns.quantities, head, newColumns.quantities, 0, firstPart);
+        System.arraycopy(oldColumns.quantities, 0, newColumns.quantities, firstPart, head);
+        System.arraycopy(oldColumns.prices, head, newColumns.prices, 0, firstPart);
+        System.arraycopy(oldColumns.prices, 0, newColumns.prices, firstPart, head);
+        columns = newColumns;
+        head = 0;
+    }
+
+    /**
+     * TradeColumns holds the timestamps in epoch nanoseconds, quantities and prices in ticks of the ring buffer, which
+     * are always replaced together
+     */
+    private static final class TradeColumns {
+
+        final long[] timestamps;
+
+        final int[] quantities;
+
+        final long[] prices;
+
+        TradeColumns(int capacity) {
+            timestamps = new long[capacity];
+            quantities = new int[capacity];
+            prices = new long[capacity];
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.jpmorgan.digital.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts latencies in buckets of logarithmic size, in the manner of an HDR histogram
+ *
+ * Latencies below 64 nanoseconds have a bucket each, every power of two above is split in 32 buckets,
+ * so any percentile is reported within about 3% of the real latency. Latencies above 2^36 nanoseconds
+ * (about 68 seconds) are counted in the last bucket.
+ *
+ * A latency is recorded with a single atomic increment and no lock. Threads are spread over a few
+ * stripes of buckets so that threads recording at the same time do not fight over the same counter,
+ * the stripes are summed only when a percentile is read.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Latencies below this have a bucket each
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+    private static final int LINEAR_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    private static final int MAX_EXPONENT = 36;
+
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - LINEAR_EXPONENT + 1) * SUB_BUCKET_COUNT;
+
+    private static final int STRIPE_COUNT = Math.min(8,
+            Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1)) << 1);
+
+    /**
+     * Counts of all the stripes, bucket i of stripe s is at s * BUCKET_COUNT + i
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPE_COUNT * BUCKET_COUNT);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Function to record latency of one call
+     * @param latencyNanos Latency in nanoseconds, negative latencies are recorded as 0
+     * @since 1.1
+     */
+    public void record(long latencyNanos) {
+        if(latencyNanos < 0) {
+            latencyNanos = 0;
+        }
+        int stripe = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+        counts.getAndIncrement(stripe * BUCKET_COUNT + bucketOf(latencyNanos));
+        long currentMax = max.get();
+        while(latencyNanos > currentMax && !max.compareAndSet(currentMax, latencyNanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for(int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Function to get latency at any percentile
+     *
+     * The highest latency of the bucket holding the percentile is returned, never more than the max
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return latency Latency in nanoseconds or 0 when nothing is recorded
+     * @since 1.1
+     */
+    @Override
+    public long getValueAtPercentile(double percentile) {
+        if(percentile < 0 || percentile > 100 || Double.isNaN(percentile)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long[] buckets = new long[BUCKET_COUNT];
+        long count = 0;
+        for(int i = 0; i < counts.length(); i++) {
+            long bucketCount = counts.get(i);
+            buckets[i % BUCKET_COUNT] += bucketCount;
+            count += bucketCount;
+        }
+        if(count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if(seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public void reset() {
+        for(int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Function to find the bucket of a latency
+     */
+    static int bucketOf(long latencyNanos) {
+        if(latencyNanos < LINEAR_LIMIT) {
+            return (int) latencyNanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(latencyNanos);
+        if(exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (latencyNanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_EXPONENT) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Function to find the highest latency counted in a bucket
+     */
+    static long highestValueOf(int bucket) {
+        if(bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKET_COUNT + LINEAR_EXPONENT;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+        if(bucket == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,59 @@
+package com.jpmorgan.digital.metrics;
+
+/**
+ * Management interface of {@link LatencyHistogram} published over JMX
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public interface LatencyHistogramMXBean {
+
+    /**
+     * Function to get number of recorded calls
+     * @return count Number of calls since start or last reset
+     * @since 1.1
+     */
+    long getCount();
+
+    /**
+     * Function to get the longest recorded call
+     * @return max Latency in nanoseconds
+     * @since 1.1
+     */
+    long getMaxNanos();
+
+    /**
+     * Function to get median latency
+     * @return p50 Latency in nanoseconds
+     * @since 1.1
+     */
+    long getP50Nanos();
+
+    /**
+     * Function to get 99th percentile latency
+     * @return p99 Latency in nanoseconds
+     * @since 1.1
+     */
+    long getP99Nanos();
+
+    /**
+     * Function to get 99.9th percentile latency
+     * @return p999 Latency in nanoseconds
+     * @since 1.1
+     */
+    long getP999Nanos();
+
+    /**
+     * Function to get latency at any percentile
+     * @param percentile Percentile between 0 and 100
+     * @return latency Latency in nanoseconds
+     * @since 1.1
+     */
+    long getValueAtPercentile(double percentile);
+
+    /**
+     * Function to clear all the recorded calls
+     * @since 1.1
+     */
+    void reset();
+}
@@ -0,0 +1,263 @@
+package com.jpmorgan.digital.metrics;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.model.StockModel;
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StockServiceMetrics keeps latency of every StockService function and counters of recorded and
+ * rejected trades, published as MBeans of the platform MBean server:
+ *
+ * <ul>
+ *     <li>com.jpmorgan.digital:type=StockService,name=recordTrade</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=recordTrades</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=calculateVolWeightedPrice</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=calculateGBCEAllShareIndex</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=calculateDividendYield</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=calculatePERatio</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=calculateDividendYields</li>
+ *     <li>com.jpmorgan.digital:type=StockService,name=calculatePERatios</li>
+ *     <li>com.jpmorgan.digital:type=TradeCounters</li>
+ * </ul>
+ *
+ * Recorded and rejected trades are counted on the stock itself, so the counters need no lookup of their own.
+ * Metrics created with the constructor are not published until {@link #register(MBeanServer)} is called
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class StockServiceMetrics implements TradeCountersMXBean {
+
+    private final static Logger logger = Logger.getLogger(StockServiceMetrics.class);
+
+    private static final String DOMAIN = "com.jpmorgan.digital";
+
+    private final LatencyHistogram recordTradeLatency = new LatencyHistogram();
+
+    /**
+     * Latency of recording a whole batch of trades
+     */
+    private final LatencyHistogram recordTradesLatency = new LatencyHistogram();
+
+    private final LatencyHistogram volWeightedPriceLatency = new LatencyHistogram();
+
+    private final LatencyHistogram gbceAllShareIndexLatency = new LatencyHistogram();
+
+    private final LatencyHistogram dividendYieldLatency = new LatencyHistogram();
+
+    private final LatencyHistogram pERatioLatency = new LatencyHistogram();
+
+    /**
+     * Latency of calculating Dividend Yield of a whole universe
+     */
+    private final LatencyHistogram dividendYieldsLatency = new LatencyHistogram();
+
+    /**
+     * Latency of calculating P/E Ratio of a whole universe
+     */
+    private final LatencyHistogram pERatiosLatency = new LatencyHistogram();
+
+    /**
+     * Trades rejected because their stock symbol was empty or not supported
+     */
+    private final LongAdder unknownSymbolTradesRejected = new LongAdder();
+
+    /**
+     * Holder of the shared instance, registered with the platform MBean server on first access
+     */
+    private static class MetricsHolder {
+        private static final StockServiceMetrics metricsInstance = createRegisteredInstance();
+    }
+
+    /**
+     * Creates metrics which are not published until registered
+     */
+    public StockServiceMetrics() {
+    }
+
+    /**
+     * Method to return the metrics shared by all the services, published over JMX
+     * @return metricsInstance StockServiceMetrics
+     * @since 1.1
+     */
+    public static StockServiceMetrics getMetricsInstance() {
+        return MetricsHolder.metricsInstance;
+    }
+
+    private static StockServiceMetrics createRegisteredInstance() {
+        StockServiceMetrics metrics = new StockServiceMetrics();
+        try {
+            metrics.register(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            logger.warn("Metrics could not be published over JMX : " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    /**
+     * Function to register all the MBeans with the provided server
+     * @param mBeanServer Server to register with
+     * @throws JMException When an MBean can not be registered
+     * @since 1.1
+     */
+    public void register(MBeanServer mBeanServer) throws JMException {
+        registerLatency(mBeanServer, "recordTrade", recordTradeLatency);
+        registerLatency(mBeanServer, "recordTrades", recordTradesLatency);
+        registerLatency(mBeanServer, "calculateVolWeightedPrice", volWeightedPriceLatency);
+        registerLatency(mBeanServer, "calculateGBCEAllShareIndex", gbceAllShareIndexLatency);
+        registerLatency(mBeanServer, "calculateDividendYield", dividendYieldLatency);
+        registerLatency(mBeanServer, "calculatePERatio", pERatioLatency);
+        registerLatency(mBeanServer, "calculateDividendYields", dividendYieldsLatency);
+        registerLatency(mBeanServer, "calculatePERatios", pERatiosLatency);
+        mBeanServer.registerMBean(this, new ObjectName(DOMAIN + ":type=TradeCounters"));
+    }
+
+    private void registerLatency(MBeanServer mBeanServer, String function, LatencyHistogram histogram) throws JMException {
+        mBeanServer.registerMBean(histogram, new ObjectName(DOMAIN + ":type=StockService,name=" + function));
+    }
+
+    /**
+     * Function to count a rejected trade
+     * @param stock Stock of the trade or null when the stock symbol is empty or not supported
+     * @since 1.1
+     */
+    public void tradeRejected(StockDTO stock) {
+        if(stock == null) {
+            unknownSymbolTradesRejected.increment();
+        } else {
+            stock.countRejectedTrade();
+        }
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#recordTradeLatency} for more information
+     */
+    public LatencyHistogram getRecordTradeLatency() {
+        return recordTradeLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#recordTradesLatency} for more information
+     */
+    public LatencyHistogram getRecordTradesLatency() {
+        return recordTradesLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#volWeightedPriceLatency} for more information
+     */
+    public LatencyHistogram getVolWeightedPriceLatency() {
+        return volWeightedPriceLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#gbceAllShareIndexLatency} for more information
+     */
+    public LatencyHistogram getGBCEAllShareIndexLatency() {
+        return gbceAllShareIndexLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#dividendYieldLatency} for more information
+     */
+    public LatencyHistogram getDividendYieldLatency() {
+        return dividendYieldLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#pERatioLatency} for more information
+     */
+    public LatencyHistogram getPERatioLatency() {
+        return pERatioLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#dividendYieldsLatency} for more information
+     */
+    public LatencyHistogram getDividendYieldsLatency() {
+        return dividendYieldsLatency;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.metrics.StockServiceMetrics#pERatiosLatency} for more information
+     */
+    public LatencyHistogram getPERatiosLatency() {
+        return pERatiosLatency;
+    }
+
+    @Override
+    public Map<String, Long> getTradesRecorded() {
+        Map<String, Long> tradesRecorded = new TreeMap<String, Long>();
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            tradesRecorded.put(stock.getStockSymbol(), stock.getRecordedTradeCount());
+        }
+        return tradesRecorded;
+    }
+
+    @Override
+    public Map<String, Long> getTradesRejected() {
+        Map<String, Long> tradesRejected = new TreeMap<String, Long>();
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            tradesRejected.put(stock.getStockSymbol(), stock.getRejectedTradeCount());
+        }
+        return tradesRejected;
+    }
+
+    @Override
+    public Map<String, Long> getTradesLate() {
+        Map<String, Long> tradesLate = new TreeMap<String, Long>();
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            tradesLate.put(stock.getStockSymbol(), stock.getLateTradeCount());
+        }
+        return tradesLate;
+    }
+
+    @Override
+    public long getTotalTradesRecorded() {
+        long total = 0;
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            total += stock.getRecordedTradeCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalTradesRejected() {
+        long total = unknownSymbolTradesRejected.sum();
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            total += stock.getRejectedTradeCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalTradesLate() {
+        long total = 0;
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            total += stock.getLateTradeCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalTradesEvicted() {
+        long total = 0;
+        for(StockDTO stock : StockModel.getModelInstance().getAllStocks()) {
+            total += stock.getEvictedTradeCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getUnknownSymbolTradesRejected() {
+        return unknownSymbolTradesRejected.sum();
+    }
+}
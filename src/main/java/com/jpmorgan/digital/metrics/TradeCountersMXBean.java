@@ -0,0 +1,68 @@
+package com.jpmorgan.digital.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the trade counters of every stock published over JMX
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public interface TradeCountersMXBean {
+
+    /**
+     * Function to get number of trades recorded for each stock
+     * @return tradesRecorded Map of stock symbol and count
+     * @since 1.1
+     */
+    Map<String, Long> getTradesRecorded();
+
+    /**
+     * Function to get number of trades rejected for each stock
+     * @return tradesRejected Map of stock symbol and count
+     * @since 1.1
+     */
+    Map<String, Long> getTradesRejected();
+
+    /**
+     * Function to get number of trades which arrived beyond the watermark for each stock
+     * @return tradesLate Map of stock symbol and count
+     * @since 1.1
+     */
+    Map<String, Long> getTradesLate();
+
+    /**
+     * Function to get number of trades recorded for all the stocks
+     * @return count Number of trades
+     * @since 1.1
+     */
+    long getTotalTradesRecorded();
+
+    /**
+     * Function to get number of trades rejected, including the trades of unsupported stock symbols
+     * @return count Number of trades
+     * @since 1.1
+     */
+    long getTotalTradesRejected();
+
+    /**
+     * Function to get number of trades which arrived beyond the watermark for all the stocks
+     * @return count Number of trades
+     * @since 1.1
+     */
+    long getTotalTradesLate();
+
+    /**
+     * Function to get number of trades evicted from memory for all the stocks
+     * @return count Number of trades
+     * @since 1.1
+     */
+    long getTotalTradesEvicted();
+
+    /**
+     * Function to get number of trades rejected because the stock symbol was empty or not supported
+     * @return count Number of trades
+     * @since 1.1
+     */
+    long getUnknownSymbolTradesRejected();
+}
@@ -1,27 +1,338 @@
 package com.jpmorgan.digital.model;
 
 import com.jpmorgan.digital.dto.StockDTO;
-import com.jpmorgan.digital.helper.ConfigLoader;
+import com.jpmorgan.digital.helper.BarPublisher;
+import com.jpmorgan.digital.helper.GBCEIndexAggregator;
+import com.jpmorgan.digital.helper.GBCEIndexMode;
+import com.jpmorgan.digital.helper.LateTradePolicy;
+import com.jpmorgan.digital.helper.LateTradePublisher;
+import com.jpmorgan.digital.helper.StockConfigLoader;
+import com.jpmorgan.digital.helper.StockIndexSink;
+import com.jpmorgan.digital.helper.StockReferenceData;
+import com.jpmorgan.digital.helper.StockSnapshot;
+import com.jpmorgan.digital.helper.TradeArchive;
+import com.jpmorgan.digital.helper.TradeEvictor;
+import com.jpmorgan.digital.helper.TradeJournal;
+import com.jpmorgan.digital.helper.TradeReorderBuffer;
+import org.apache.log4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * StockModel is a singleton class to keep all the Stocks
  *
+ * The instance is created on first use by the class loader, so it is safely published to all the threads.
+ * Stocks are kept in an immutable {@link StockUniverse} which is fully loaded before it is made visible, every change
+ * of the stocks publishes a new copy, so readers never lock and never see a partly loaded universe.
+ *
+ * Every stock is also given a dense integer id when it is loaded, ids of the config stocks follow the
+ * order of their symbols. A stock is found by its id with a single array read, without hashing its symbol.
+ *
+ * Every stock builds Open, High, Low, Close and Volume bars for the intervals in seconds of the
+ * system property {@value #BAR_INTERVALS_PROPERTY}, comma separated, 60 and 300 seconds by default
+ *
+ * Trades out of time order are handled by the system properties below, check {@link StockDTO} for their use
+ *
+ * <ul>
+ *     <li>{@value #TRADE_LATENESS_PROPERTY} - Lateness allowed in milliseconds, 0 by default</li>
+ *     <li>{@value #TRADE_REORDER_CAPACITY_PROPERTY} - Trades held for reordering per stock, 1024 by default</li>
+ *     <li>{@value #LATE_TRADE_POLICY_PROPERTY} - APPLY or DROP the trades beyond the watermark, APPLY by default</li>
+ * </ul>
+ *
+ * Trades are kept in memory for the retention of their stock, the RETENTION_SECONDS tag of the stock or the system
+ * properties below, older trades are evicted by a background thread:
+ *
+ * <ul>
+ *     <li>{@value #TRADE_RETENTION_PROPERTY} - Retention in seconds, 0 by default to keep all the trades</li>
+ *     <li>{@value #TRADE_EVICTION_PERIOD_PROPERTY} - Time between evictions in milliseconds, 1000 by default</li>
+ *     <li>{@value #TRADE_ARCHIVE_DIR_PROPERTY} - Directory of the {@link TradeArchive} of evicted trades, none by default</li>
+ * </ul>
+ *
+ * Recorded trades are appended to the {@link TradeJournal} of the system properties below, when it is set the journal
+ * is replayed into the stocks on every load, so the trades of the day survive a restart:
+ *
+ * <ul>
+ *     <li>{@value #JOURNAL_DIR_PROPERTY} - Directory of the journal, none by default</li>
+ *     <li>{@value #JOURNAL_FLUSH_PROPERTY} - Time between flushes of the journal in milliseconds, 10 by default</li>
+ * </ul>
+ *
+ * A {@link StockSnapshot} of all the stocks is written periodically by a background thread with the system properties
+ * below. On every load the latest snapshot is restored and only the journal records after it are replayed, older
+ * journal segments are deleted once two snapshots are written after them:
+ *
+ * <ul>
+ *     <li>{@value #SNAPSHOT_DIR_PROPERTY} - Directory of the snapshots, none by default</li>
+ *     <li>{@value #SNAPSHOT_PERIOD_PROPERTY} - Time between snapshots in seconds, 300 by default, 0 to write them only on {@link #snapshot()}</li>
+ * </ul>
+ *
+ * The GBCE All Share Index is read in the {@link GBCEIndexMode} of the system properties below:
+ *
+ * <ul>
+ *     <li>{@value #GBCE_INDEX_MODE_PROPERTY} - INCREMENTAL, SCAN or PARALLEL, INCREMENTAL by default</li>
+ *     <li>{@value #GBCE_PARALLEL_THRESHOLD_PROPERTY} - Number of stocks from which the PARALLEL mode splits them across
+ *     the common fork-join pool, 10000 by default, below it they are scanned on a single thread</li>
+ * </ul>
+ *
+ * Stocks are loaded by {@link StockConfigLoader} from configStockExchange.xml of the classpath, or from the XML, CSV or
+ * binary file of the system property {@value #CONFIG_FILE_PROPERTY}, which is then watched and reloaded on every
+ * change, check {@link #reloadConfig()}
+ *
  *  @author Aman Chhabra
  *  @since 1.0
  */
 public class StockModel {
 
+    private final static Logger logger = Logger.getLogger(StockModel.class);
+
+    /**
+     * System property of the bar intervals in seconds
+     */
+    public static final String BAR_INTERVALS_PROPERTY = "stock.bar.intervals";
+
+    private static final String DEFAULT_BAR_INTERVALS = "60,300";
+
+    /**
+     * System property of the lateness allowed for trades in milliseconds
+     */
+    public static final String TRADE_LATENESS_PROPERTY = "stock.trade.lateness.millis";
+
+    /**
+     * System property of the number of trades held for reordering per stock
+     */
+    public static final String TRADE_REORDER_CAPACITY_PROPERTY = "stock.trade.reorder.capacity";
+
+    /**
+     * System property of the {@link LateTradePolicy} of the trades beyond the watermark
+     */
+    public static final String LATE_TRADE_POLICY_PROPERTY = "stock.trade.late.policy";
+
+    /**
+     * System property of the retention of trades in memory in seconds
+     */
+    public static final String TRADE_RETENTION_PROPERTY = "stock.trade.retention.seconds";
+
+    /**
+     * System property of the time between evictions of trades in milliseconds
+     */
+    public static final String TRADE_EVICTION_PERIOD_PROPERTY = "stock.trade.eviction.period.millis";
+
+    /**
+     * System property of the directory of the archive of evicted trades
+     */
+    public static final String TRADE_ARCHIVE_DIR_PROPERTY = "stock.trade.archive.dir";
+
+    /**
+     * System property of the directory of the journal of recorded trades
+     */
+    public static final String JOURNAL_DIR_PROPERTY = "stock.journal.dir";
+
+    /**
+     * System property of the time between flushes of the journal in milliseconds
+     */
+    public static final String JOURNAL_FLUSH_PROPERTY = "stock.journal.flush.millis";
+
+    /**
+     * System property of the directory of the snapshots of the stocks
+     */
+    public static final String SNAPSHOT_DIR_PROPERTY = "stock.snapshot.dir";
+
+    /**
+     * System property of the time between snapshots of the stocks in seconds
+     */
+    public static final String SNAPSHOT_PERIOD_PROPERTY = "stock.snapshot.period.seconds";
+
+    /**
+     * System property of the config file of the stocks in the filesystem, watched for changes
+     */
+    public static final String CONFIG_FILE_PROPERTY = "stock.config.file";
+
+    /**
+     * System property of the {@link GBCEIndexMode} of the GBCE All Share Index
+     */
+    public static final String GBCE_INDEX_MODE_PROPERTY = "stock.gbce.index.mode";
+
+    /**
+     * System property of the number of stocks from which the GBCE All Share Index is calculated in parallel
+     */
+    public static final String GBCE_PARALLEL_THRESHOLD_PROPERTY = "stock.gbce.parallel.threshold";
+
+    private static final long DEFAULT_GBCE_PARALLEL_THRESHOLD = 10000;
+
+    private static final String CONFIG_RESOURCE = "/configStockExchange.xml";
+
+    /**
+     * Time without any change of the config file before it is reloaded, so a file being written is not read half way
+     */
+    private static final long CONFIG_SETTLE_MILLIS = 200;
+
+    private static final long DEFAULT_EVICTION_PERIOD_MILLIS = 1000;
+
+    private static final long DEFAULT_SNAPSHOT_PERIOD_SECONDS = 300;
+
+    private static final long DEFAULT_JOURNAL_FLUSH_MILLIS = 10;
+
+    private static final long MILLISECOND = 1000000L;
+
+    private static final long SECOND = 1000000000L;
+
     private StockModel()    {
        init();
     }
 
-    private static StockModel modelInstance;
+    /**
+     * Holder of the only instance, initialised on first access of {@link StockModel#getModelInstance()}
+     */
+    private static class ModelHolder {
+        private static final StockModel modelInstance = new StockModel();
+    }
+
+    /**
+     * StockUniverse is an immutable copy of the stocks by their symbol and by their id
+     */
+    private static final class StockUniverse {
+
+        private final Map<String,StockDTO> stocksBySymbol;
+
+        /**
+         * Stocks indexed by their id, ids of removed stocks are left empty
+         */
+        private final StockDTO[] stocksById;
+
+        /**
+         * Symbols of the config, only these stocks are removed when they are missing from a reloaded config
+         */
+        private final Set<String> configSymbols;
+
+        /**
+         * Reference data of the stocks in flat columns by their id
+         */
+        private final StockReferenceData referenceData;
+
+        /**
+         * All the stocks, copied for every caller of {@link #getAllStocks()}
+         */
+        private final StockDTO[] allStocks;
+
+        private StockUniverse(Map<String,StockDTO> stocksBySymbol, StockDTO[] stocksById, Set<String> configSymbols) {
+            this.allStocks = stocksBySymbol.values().toArray(new StockDTO[0]);
+            this.stocksBySymbol = Collections.unmodifiableMap(stocksBySymbol);
+            this.stocksById = stocksById;
+            this.configSymbols = Collections.unmodifiableSet(configSymbols);
+            this.referenceData = new StockReferenceData(stocksById);
+        }
+    }
+
+    /**
+     * Stocks of the model, replaced as a whole after every change so readers see the new stocks
+     */
+    private volatile StockUniverse stockUniverse;
+
+    /**
+     * Id of the next added stock, guarded by the model
+     */
+    private int nextStockId;
+
+    /**
+     * Config file of the system property, null when stocks are loaded from the classpath
+     */
+    private File configFile;
+
+    /**
+     * Watcher of the directory of the config file
+     */
+    private WatchService configWatchService;
 
-    private Map<String,StockDTO> stockMap;
+    private volatile GBCEIndexAggregator gbceIndexAggregator;
 
-    private ConfigLoader configLoader;
+    /**
+     * Sink of the added and removed stocks, the aggregator of the model unless a service indexing the stocks itself
+     * replaced it, guarded by the model
+     */
+    private StockIndexSink stockIndexSink;
+
+    /**
+     * Publisher of the finished bars of all the stocks, subscriptions are kept when the model is reloaded
+     */
+    private final BarPublisher barPublisher = new BarPublisher();
+
+    /**
+     * Intervals of the bars of every stock in seconds
+     */
+    private int[] barIntervals;
+
+    /**
+     * Publisher of the late trades of all the stocks, subscriptions are kept when the model is reloaded
+     */
+    private final LateTradePublisher lateTradePublisher = new LateTradePublisher();
+
+    /**
+     * Lateness allowed for the trades of every stock in nanoseconds
+     */
+    private long tradeLatenessNanos;
+
+    /**
+     * Number of trades held for reordering per stock
+     */
+    private int tradeReorderCapacity;
+
+    /**
+     * What happens to the trades beyond the watermark of every stock
+     */
+    private LateTradePolicy lateTradePolicy;
+
+    /**
+     * How the GBCE All Share Index is calculated when it is read
+     */
+    private GBCEIndexMode gbceIndexMode;
+
+    /**
+     * Number of stocks from which the GBCE All Share Index is calculated in parallel in the PARALLEL mode
+     */
+    private int gbceParallelThreshold;
+
+    /**
+     * Retention of the trades of stocks without a retention of their own in nanoseconds
+     */
+    private long tradeRetentionNanos;
+
+    /**
+     * Evictor of the trades older than the retention of their stock
+     */
+    private volatile TradeEvictor tradeEvictor;
+
+    /**
+     * Background thread running the evictor, started with the first stock having a retention
+     */
+    private ScheduledExecutorService evictionExecutor;
+
+    /**
+     * Journal of the recorded trades, null when it is not configured
+     */
+    private volatile TradeJournal tradeJournal;
+
+    /**
+     * Snapshots of the stocks, null when they are not configured
+     */
+    private volatile StockSnapshot stockSnapshot;
+
+    /**
+     * Background thread writing the snapshots
+     */
+    private ScheduledExecutorService snapshotExecutor;
 
     /**
      * Method to create and return only instance of Class
@@ -29,46 +340,495 @@ public class StockModel {
      * @since 1.0
      */
     public static StockModel getModelInstance(){
-        if(modelInstance == null)
-            modelInstance = new StockModel();
-        return modelInstance;
+        return ModelHolder.modelInstance;
     }
 
     /**
      * Function to load the initial stocks from the config
      * @since 1.0
      */
-    public void init(){
-        configLoader = new ConfigLoader();
-        configLoader.loadConfig("/configStockExchange.xml");
-        stockMap = new HashMap<String,StockDTO>();
-        Set<String> stocks = configLoader.getAllSection();
-        stocks.forEach(section -> loadStock(section));
+    public synchronized void init(){
+        stopConfigWatcher();
+        configFile = loadConfigFile();
+        barIntervals = loadBarIntervals();
+        tradeLatenessNanos = loadLong(TRADE_LATENESS_PROPERTY, 0) * MILLISECOND;
+        tradeReorderCapacity = (int) Math.max(1, loadLong(TRADE_REORDER_CAPACITY_PROPERTY, TradeReorderBuffer.DEFAULT_CAPACITY));
+        lateTradePolicy = loadLateTradePolicy();
+        gbceIndexMode = loadGBCEIndexMode();
+        gbceParallelThreshold = (int) loadLong(GBCE_PARALLEL_THRESHOLD_PROPERTY, DEFAULT_GBCE_PARALLEL_THRESHOLD);
+        tradeRetentionNanos = loadLong(TRADE_RETENTION_PROPERTY, 0) * SECOND;
+        tradeEvictor = new TradeEvictor(loadTradeArchive());
+        stopEviction();
+        stopSnapshots();
+        if(tradeJournal != null) {
+            tradeJournal.close();
+        }
+        TradeJournal journal = loadTradeJournal();
+        stockSnapshot = loadStockSnapshot();
+        Map<String,StockDTO> stocks = new HashMap<String,StockDTO>();
+        List<StockDTO> restoredStocks = new ArrayList<StockDTO>();
+        long journalSequence = restoreStocks(stocks, restoredStocks);
+        StockDTO[] stockArray = new StockDTO[stocks.size()];
+        for(StockDTO stock : stocks.values()) {
+            if(stock.getStockId() >= 0) {
+                stockArray[stock.getStockId()] = stock;
+            }
+        }
+        int stockId = stocks.size() - restoredStocks.size();
+        for(StockDTO stock : restoredStocks) {
+            stock.setStockId(stockId);
+            stockArray[stockId++] = stock;
+        }
+        nextStockId = stockId;
+        tradeJournal = replayTradeJournal(journal, stocks, journalSequence);
+        GBCEIndexAggregator aggregator = new GBCEIndexAggregator();
+        for(StockDTO stock : stockArray) {
+            if(stock != null && stock.getRecordedTradeCount() > 0) {
+                aggregator.markUpdated(stock);
+            }
+        }
+        gbceIndexAggregator = aggregator;
+        stockIndexSink = aggregator;
+        Set<String> configSymbols = new HashSet<String>(stocks.keySet());
+        for(StockDTO stock : restoredStocks) {
+            configSymbols.remove(stock.getStockSymbol());
+        }
+        stockUniverse = new StockUniverse(stocks, stockArray, configSymbols);
+        if(stockSnapshot != null) {
+            startSnapshots();
+        }
+        if(configFile != null) {
+            startConfigWatcher();
+        }
+        for(StockDTO stock : stockArray) {
+            if(stock != null && stock.getRetentionNanos() > 0) {
+                startEviction();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Function to set the bars, trade reordering and retention of a stock, which keeps its own retention if it has one
+     */
+    private void initStock(StockDTO stockInstance) {
+        initBars(stockInstance);
+        initTradeReordering(stockInstance);
+        if(stockInstance.getRetentionNanos() == 0) {
+            stockInstance.setRetentionNanos(tradeRetentionNanos);
+        }
+    }
+
+    /**
+     * Function to set the bar intervals and publisher of a stock
+     */
+    private void initBars(StockDTO stockInstance) {
+        stockInstance.setBarIntervals(barIntervals);
+        stockInstance.setBarPublisher(barPublisher);
     }
 
     /**
-     * Function to create and load Stock DTO for provided stock symbol
-     * @param stockSymbol Stock symbol
-     * @since 1.0
-     * */
-    private void loadStock(String stockSymbol){
-        StockDTO stockInstance = new StockDTO();
-        String stockType = configLoader.getConfiguration(stockSymbol,"TYPE");
-        int lastDividend = 0;
-        String lastDividendString = configLoader.getConfiguration(stockSymbol, "LAST_DIVIDEND");
-        lastDividend = convertToInteger(lastDividendString);
-        int fixedDividend = 0;
-        String fixedDividendString = configLoader.getConfiguration(stockSymbol, "FIXED_DIVIDEND");
-        fixedDividend = convertToInteger(fixedDividendString);
-        int parValue = 0;
-        String parValueString = configLoader.getConfiguration(stockSymbol, "PAR_VALUE");
-        parValue = convertToInteger(parValueString);
-        stockInstance.setStockSymbol(stockSymbol);
-        stockInstance.setStockType(stockType);
-        stockInstance.setLastDividend(lastDividend);
-        stockInstance.setFixedDividend(fixedDividend);
-        stockInstance.setParValue(parValue);
-        stockMap.put(stockSymbol, stockInstance);
+     * Function to set the lateness, reorder buffer, late trade policy and publisher of a stock
+     */
+    private void initTradeReordering(StockDTO stockInstance) {
+        stockInstance.setTradeReordering(tradeLatenessNanos, tradeReorderCapacity, lateTradePolicy);
+        stockInstance.setLateTradePublisher(lateTradePublisher);
+    }
+
+    /**
+     * Function to read the config file of the system property, none when it is not set
+     */
+    private File loadConfigFile() {
+        String file = System.getProperty(CONFIG_FILE_PROPERTY);
+        if(file == null || file.trim().isEmpty()) {
+            return null;
+        }
+        return new File(file.trim()).getAbsoluteFile();
+    }
+
+    /**
+     * Function to load the stocks of the config file, or of the config of the classpath when it is not set or can not
+     * be loaded, by their symbol
+     */
+    private SortedMap<String,StockDTO> loadConfigStocks() {
+        if(configFile != null) {
+            try {
+                return loadConfigStocks(configFile);
+            } catch (IOException | RuntimeException e) {
+                logger.error("loadConfigStocks :: Config " + configFile + " can not be loaded, config of the classpath is used until it changes", e);
+            }
+        }
+        if(logger.isInfoEnabled()) {
+            logger.info("loadConfigStocks :: Config load requested for path : " + CONFIG_RESOURCE);
+        }
+        try (InputStream in = StockModel.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if(in == null) {
+                logger.error("loadConfigStocks :: Config " + CONFIG_RESOURCE + " is not in the classpath, no stock is loaded");
+                return new TreeMap<String,StockDTO>();
+            }
+            return toStocksBySymbol(StockConfigLoader.loadXml(new BufferedInputStream(in, 1 << 16)), CONFIG_RESOURCE);
+        } catch (IOException | RuntimeException e) {
+            logger.error("loadConfigStocks :: Config " + CONFIG_RESOURCE + " can not be loaded, no stock is loaded", e);
+            return new TreeMap<String,StockDTO>();
+        }
+    }
+
+    /**
+     * Function to load the stocks of a config file with {@link StockConfigLoader} by their symbol
+     */
+    private SortedMap<String,StockDTO> loadConfigStocks(File file) throws IOException {
+        return toStocksBySymbol(StockConfigLoader.load(file), file.toString());
+    }
+
+    /**
+     * Function to set up the stocks loaded from a config and index them by their symbol
+     */
+    private SortedMap<String,StockDTO> toStocksBySymbol(List<StockDTO> loadedStocks, String config) throws IOException {
+        SortedMap<String,StockDTO> stocks = new TreeMap<String,StockDTO>();
+        for(StockDTO stock : loadedStocks) {
+            if(stock.getStockSymbol() == null || stock.getStockSymbol().isEmpty()) {
+                throw new IOException("Config " + config + " has a stock without symbol");
+            }
+            initStock(stock);
+            stocks.put(stock.getStockSymbol(), stock);
+        }
+        return stocks;
+    }
+
+    /**
+     * Function to watch the directory of the config file and reload the stocks once the file stops changing, must be
+     * called holding the model
+     */
+    private void startConfigWatcher() {
+        File directory = configFile.getParentFile();
+        String fileName = configFile.getName();
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.error("startConfigWatcher :: Config " + configFile + " can not be watched, it is loaded only on reloadConfig()", e);
+            return;
+        }
+        configWatchService = watchService;
+        Thread thread = new Thread(() -> {
+            try {
+                while(true) {
+                    boolean changed = isChanged(watchService.take(), fileName);
+                    WatchKey key;
+                    while((key = watchService.poll(CONFIG_SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        changed |= isChanged(key, fileName);
+                    }
+                    if(changed) {
+                        reloadConfig(watchService);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // watcher of a previous load
+            }
+        }, "stock-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Function to check whether the events of a key include the config file and reset the key
+     */
+    private boolean isChanged(WatchKey key, String fileName) {
+        boolean changed = false;
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context().toString())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Function to reload the stocks on a change seen by a watcher, unless the watcher belongs to a previous load
+     */
+    private synchronized void reloadConfig(WatchService watchService) {
+        if(watchService != configWatchService) {
+            return;
+        }
+        try {
+            reloadConfig();
+        } catch (IOException | RuntimeException e) {
+            logger.error("reloadConfig :: Config " + configFile + " can not be reloaded, stocks are left as they are", e);
+        }
+    }
+
+    /**
+     * Function to stop watching the config file of the previous load, must be called holding the model
+     */
+    private void stopConfigWatcher() {
+        if(configWatchService != null) {
+            try {
+                configWatchService.close();
+            } catch (IOException e) {
+                logger.error("stopConfigWatcher :: Config watcher can not be closed", e);
+            }
+            configWatchService = null;
+        }
+    }
+
+    /**
+     * Function to create the archive of the directory of the system property, none when it is not set or can not be created
+     */
+    private TradeArchive loadTradeArchive() {
+        String directory = System.getProperty(TRADE_ARCHIVE_DIR_PROPERTY);
+        if(directory == null || directory.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new TradeArchive(new File(directory.trim()));
+        } catch (IllegalArgumentException e) {
+            logger.error("loadTradeArchive :: Trade archive directory " + directory + " can not be created, evicted trades are dropped");
+            return null;
+        }
+    }
+
+    /**
+     * Function to load the stocks of the config, restoring the latest snapshot which can be read, and return the journal
+     * sequence of the snapshot or 0 when none is restored
+     */
+    private long restoreStocks(Map<String,StockDTO> stocks, List<StockDTO> restoredStocks) {
+        loadStocks(stocks);
+        StockSnapshot snapshot = stockSnapshot;
+        if(snapshot == null) {
+            return 0;
+        }
+        Consumer<StockDTO> addRestoredStock = stock -> {
+            initStock(stock);
+            stocks.put(stock.getStockSymbol(), stock);
+            restoredStocks.add(stock);
+        };
+        for(File file : snapshot.getFiles()) {
+            try {
+                long start = System.nanoTime();
+                long journalSequence = snapshot.read(file, stocks, addRestoredStock);
+                logger.info("restoreStocks :: " + stocks.size() + " stocks restored from " + file + " in " + (System.nanoTime() - start) / MILLISECOND + " ms");
+                return journalSequence;
+            } catch (IOException | RuntimeException e) {
+                logger.error("restoreStocks :: Snapshot " + file + " can not be restored, an older one is tried", e);
+                stocks.clear();
+                restoredStocks.clear();
+                loadStocks(stocks);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Function to load the stocks of the config with ids following the order of their symbols
+     */
+    private void loadStocks(Map<String,StockDTO> stocks) {
+        int stockId = 0;
+        for(StockDTO stock : loadConfigStocks().values()) {
+            stock.setStockId(stockId++);
+            stocks.put(stock.getStockSymbol(), stock);
+        }
+    }
+
+    /**
+     * Function to open the journal of the system property, none when it is not set or can not be opened
+     */
+    private TradeJournal loadTradeJournal() {
+        String directory = System.getProperty(JOURNAL_DIR_PROPERTY);
+        if(directory == null || directory.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new TradeJournal(new File(directory.trim()), Math.max(1, loadLong(JOURNAL_FLUSH_PROPERTY, DEFAULT_JOURNAL_FLUSH_MILLIS)));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("loadTradeJournal :: Trade journal " + directory + " can not be opened, trades are not journaled", e);
+            return null;
+        }
+    }
+
+    /**
+     * Function to replay the journal records after the snapshot into the stocks and journal their next trades
+     */
+    private TradeJournal replayTradeJournal(TradeJournal journal, Map<String,StockDTO> stocks, long journalSequence) {
+        if(journal == null) {
+            return null;
+        }
+        try {
+            for(StockDTO stock : stocks.values()) {
+                journal.registerStock(stock);
+            }
+            if(journal.getRecordCount() < journalSequence) {
+                logger.error("replayTradeJournal :: Trade journal ends before the snapshot, it continues after the snapshot");
+                journal.skipTo(journalSequence);
+            }
+            long start = System.nanoTime();
+            long count = journal.replay(stocks, journalSequence);
+            logger.info("replayTradeJournal :: " + count + " trades replayed from the journal in " + (System.nanoTime() - start) / MILLISECOND + " ms");
+            for(StockDTO stock : stocks.values()) {
+                stock.setTradeJournal(journal);
+            }
+            return journal;
+        } catch (IOException | IllegalStateException e) {
+            logger.error("replayTradeJournal :: Trade journal can not be replayed, trades are not journaled", e);
+            journal.close();
+            return null;
+        }
+    }
+
+    /**
+     * Function to create the snapshots of the directory of the system property, none when it is not set or can not be created
+     */
+    private StockSnapshot loadStockSnapshot() {
+        String directory = System.getProperty(SNAPSHOT_DIR_PROPERTY);
+        if(directory == null || directory.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new StockSnapshot(new File(directory.trim()));
+        } catch (IllegalArgumentException e) {
+            logger.error("loadStockSnapshot :: Snapshot directory " + directory + " can not be created, no snapshot is written");
+            return null;
+        }
+    }
+
+    /**
+     * Function to start the background snapshots when they have a period, must be called holding the model
+     */
+    private void startSnapshots() {
+        long period = loadLong(SNAPSHOT_PERIOD_PROPERTY, DEFAULT_SNAPSHOT_PERIOD_SECONDS);
+        if(period == 0) {
+            return;
+        }
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                logger.error("snapshot :: Snapshot of the stocks failed", e);
+            }
+        }, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Function to stop the background snapshots of the previous load, must be called holding the model
+     */
+    private void stopSnapshots() {
+        if(snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+            snapshotExecutor = null;
+        }
+    }
+
+    /**
+     * Function to start the background eviction of trades unless it is running, must be called holding the model
+     */
+    private void startEviction() {
+        if(evictionExecutor != null) {
+            return;
+        }
+        long period = Math.max(1, loadLong(TRADE_EVICTION_PERIOD_PROPERTY, DEFAULT_EVICTION_PERIOD_MILLIS));
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trade-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictionExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                evictTrades();
+            } catch (RuntimeException e) {
+                logger.error("evictTrades :: Eviction of trades failed", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to stop the background eviction of trades of the previous load, must be called holding the model
+     */
+    private void stopEviction() {
+        if(evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+            evictionExecutor = null;
+        }
+    }
+
+    /**
+     * Function to read a positive number from a system property and in case of a wrong number returns the default
+     */
+    private long loadLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if(value == null) {
+            return defaultValue;
+        }
+        try {
+            long number = Long.parseLong(value.trim());
+            if(number >= 0 && number <= Integer.MAX_VALUE) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // default is used below
+        }
+        logger.error("loadLong :: Invalid " + property + " " + value + ", default " + defaultValue + " is used");
+        return defaultValue;
+    }
+
+    /**
+     * Function to read the late trade policy from the system property and in case of a wrong policy returns APPLY
+     */
+    private LateTradePolicy loadLateTradePolicy() {
+        String policy = System.getProperty(LATE_TRADE_POLICY_PROPERTY, LateTradePolicy.APPLY.name());
+        try {
+            return LateTradePolicy.valueOf(policy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.error("loadLateTradePolicy :: Invalid late trade policy " + policy + ", default " + LateTradePolicy.APPLY + " is used");
+            return LateTradePolicy.APPLY;
+        }
+    }
+
+    /**
+     * Function to read the GBCE All Share Index mode from the system property and in case of a wrong mode returns INCREMENTAL
+     */
+    private GBCEIndexMode loadGBCEIndexMode() {
+        String mode = System.getProperty(GBCE_INDEX_MODE_PROPERTY, GBCEIndexMode.INCREMENTAL.name());
+        try {
+            return GBCEIndexMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.error("loadGBCEIndexMode :: Invalid GBCE index mode " + mode + ", default " + GBCEIndexMode.INCREMENTAL + " is used");
+            return GBCEIndexMode.INCREMENTAL;
+        }
+    }
+
+    /**
+     * Function to read the bar intervals from the system property and in case of wrong intervals returns the default
+     * @return barIntervals Intervals in seconds
+     */
+    private int[] loadBarIntervals() {
+        String intervals = System.getProperty(BAR_INTERVALS_PROPERTY, DEFAULT_BAR_INTERVALS);
+        try {
+            return parseBarIntervals(intervals);
+        } catch (IllegalArgumentException e) {
+            logger.error("loadBarIntervals :: Invalid bar intervals " + intervals + ", default " + DEFAULT_BAR_INTERVALS + " is used");
+            return parseBarIntervals(DEFAULT_BAR_INTERVALS);
+        }
+    }
+
+    private int[] parseBarIntervals(String intervals) {
+        if(intervals.trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] values = intervals.split(",");
+        int[] barIntervals = new int[values.length];
+        for(int i = 0; i < values.length; i++) {
+            barIntervals[i] = Integer.parseInt(values[i].trim());
+            if(barIntervals[i] <= 0) {
+                throw new IllegalArgumentException("Bar interval can not be zero or negative");
+            }
+        }
+        return barIntervals;
     }
 
     /**
@@ -78,36 +838,358 @@ public class StockModel {
      * @since 1.0
      */
     public StockDTO getStock(String stockSymbol) {
-      StockDTO stockInstance = stockMap.get(stockSymbol);
+        StockDTO stockInstance = findStock(stockSymbol);
         if(stockInstance == null) {
             throw new IllegalArgumentException("Stock symbol provided is not supported by the application");
         }
         return stockInstance;
     }
 
+    /**
+     * Function to find stock for a given Stock symbol without failing
+     * @param stockSymbol - Symbol of the stock
+     * @return stockInstance StockDTO or null when the symbol is not supported
+     * @since 1.1
+     */
+    public StockDTO findStock(String stockSymbol) {
+        if(stockSymbol == null) {
+            return null;
+        }
+        return stockUniverse.stocksBySymbol.get(stockSymbol);
+    }
+
+    /**
+     * Function to get stock for a given Stock id
+     * @param stockId - Id of the stock
+     * @return stockInstance StockDTO
+     * @since 1.1
+     */
+    public StockDTO getStock(int stockId) {
+        StockDTO stockInstance = findStock(stockId);
+        if(stockInstance == null) {
+            throw new IllegalArgumentException("Stock id provided is not supported by the application");
+        }
+        return stockInstance;
+    }
+
+    /**
+     * Function to find stock for a given Stock id without failing
+     * @param stockId - Id of the stock
+     * @return stockInstance StockDTO or null when the id is not supported
+     * @since 1.1
+     */
+    public StockDTO findStock(int stockId) {
+        StockDTO[] stocks = stockUniverse.stocksById;
+        if(stockId < 0 || stockId >= stocks.length) {
+            return null;
+        }
+        return stocks[stockId];
+    }
+
+    /**
+     * Function to get the reference data of all the stocks in flat columns by their id, read when the stocks were
+     * loaded, added or reloaded
+     * @return referenceData StockReferenceData
+     * @since 1.1
+     */
+    public StockReferenceData getReferenceData() {
+        return stockUniverse.referenceData;
+    }
+
+    /**
+     * Function to get id of the stock for a given Stock symbol
+     * @param stockSymbol - Symbol of the stock
+     * @return stockId Dense id of the stock
+     * @since 1.1
+     */
+    public int getStockId(String stockSymbol) {
+        return getStock(stockSymbol).getStockId();
+    }
+
+    /**
+     * Function to add a stock which is not part of the config, the stock is given the next id
+     * @param stock Stock to be added
+     * @throws IllegalArgumentException When stock symbol is empty or already supported
+     * @since 1.1
+     */
+    public void addStock(StockDTO stock) throws IllegalArgumentException {
+        addStocks(stock);
+    }
+
+    /**
+     * Function to add stocks which are not part of the config with a single copy of the universe, the stocks are given
+     * the next ids in their order
+     * @param stocks Stocks to be added
+     * @throws IllegalArgumentException When a stock symbol is empty or already supported, no stock is then added
+     * @since 1.1
+     */
+    public synchronized void addStocks(StockDTO... stocks) throws IllegalArgumentException {
+        StockUniverse universe = stockUniverse;
+        Map<String,StockDTO> stockMap = new HashMap<String,StockDTO>(universe.stocksBySymbol);
+        for(StockDTO stock : stocks) {
+            if(stock == null || stock.getStockSymbol() == null || stock.getStockSymbol().isEmpty()) {
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            if(stockMap.put(stock.getStockSymbol(), stock) != null) {
+                throw new IllegalArgumentException("Stock symbol provided is already supported by the application");
+            }
+        }
+        StockDTO[] stockArray = Arrays.copyOf(universe.stocksById, nextStockId + stocks.length);
+        TradeJournal journal = tradeJournal;
+        for(StockDTO stock : stocks) {
+            stock.setStockId(nextStockId);
+            if(journal != null) {
+                try {
+                    journal.registerStock(stock);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Stock can not be registered with the trade journal", e);
+                }
+                stock.setTradeJournal(journal);
+            }
+            initStock(stock);
+            if(stock.getRetentionNanos() > 0) {
+                startEviction();
+            }
+            stockArray[nextStockId++] = stock;
+        }
+        stockUniverse = new StockUniverse(stockMap, stockArray, universe.configSymbols);
+        StockIndexSink sink = stockIndexSink;
+        for(StockDTO stock : stocks) {
+            sink.stockAdded(stock);
+        }
+    }
+
+    /**
+     * Function to reload the stocks from the config file of the system property {@value #CONFIG_FILE_PROPERTY} now,
+     * instead of waiting for the watcher of the file
+     *
+     * A new universe is built aside and published at once, recording and reading never wait for it:
+     *
+     * <ul>
+     *     <li>Stocks whose reference data and retention did not change are kept with all their trades and their id</li>
+     *     <li>Stocks whose reference data or retention changed are updated in place with a new
+     *     {@link StockDTO.ReferenceData}, so they keep their id and every trade recorded before, during or after the
+     *     reload</li>
+     *     <li>New stocks of the config are given the next ids</li>
+     *     <li>Stocks of the previous config missing from the file are removed, stocks added with
+     *     {@link #addStock(StockDTO)} are kept</li>
+     * </ul>
+     *
+     * @throws IOException When the config file is not set, can not be read or is not valid, stocks are then left as they are
+     * @since 1.1
+     */
+    public synchronized void reloadConfig() throws IOException {
+        if(configFile == null) {
+            throw new IOException("Config file is not set with the system property " + CONFIG_FILE_PROPERTY);
+        }
+        long start = System.nanoTime();
+        SortedMap<String,StockDTO> loadedStocks = loadConfigStocks(configFile);
+        StockUniverse universe = stockUniverse;
+        Set<String> configSymbols = new HashSet<String>(loadedStocks.keySet());
+        Map<String,StockDTO> stocks = new HashMap<String,StockDTO>(universe.stocksBySymbol);
+        List<StockDTO> removedStocks = new ArrayList<StockDTO>();
+        for(String stockSymbol : universe.configSymbols) {
+            if(!configSymbols.contains(stockSymbol)) {
+                removedStocks.add(stocks.remove(stockSymbol));
+            }
+        }
+        List<StockDTO> addedStocks = new ArrayList<StockDTO>();
+        List<StockDTO> changedStocks = new ArrayList<StockDTO>();
+        int stockId = nextStockId;
+        TradeJournal journal = tradeJournal;
+        for(StockDTO stock : loadedStocks.values()) {
+            String stockSymbol = stock.getStockSymbol();
+            StockDTO current = stocks.get(stockSymbol);
+            if(current != null) {
+                if(!isSameReferenceData(current, stock)) {
+                    changedStocks.add(stock);
+                }
+                continue;
+            }
+            stock.setStockId(stockId++);
+            if(journal != null) {
+                journal.registerStock(stock);
+                stock.setTradeJournal(journal);
+            }
+            stocks.put(stockSymbol, stock);
+            addedStocks.add(stock);
+        }
+        List<StockDTO> updatedStocks = new ArrayList<StockDTO>();
+        for(StockDTO stock : changedStocks) {
+            StockDTO current = stocks.get(stock.getStockSymbol());
+            current.setReferenceData(stock.getReferenceData());
+            current.setRetentionNanos(stock.getRetentionNanos());
+            updatedStocks.add(current);
+        }
+        StockDTO[] stockArray = Arrays.copyOf(universe.stocksById, stockId);
+        for(StockDTO stock : removedStocks) {
+            stockArray[stock.getStockId()] = null;
+        }
+        for(StockDTO stock : addedStocks) {
+            stockArray[stock.getStockId()] = stock;
+        }
+        nextStockId = stockId;
+        stockUniverse = new StockUniverse(stocks, stockArray, configSymbols);
+        StockIndexSink sink = stockIndexSink;
+        for(StockDTO stock : removedStocks) {
+            sink.stockRemoved(stock);
+        }
+        addedStocks.addAll(updatedStocks);
+        for(StockDTO stock : addedStocks) {
+            sink.stockAdded(stock);
+            if(stock.getRetentionNanos() > 0) {
+                startEviction();
+            }
+        }
+        logger.info("reloadConfig :: " + (addedStocks.size() - updatedStocks.size()) + " stocks added, " + updatedStocks.size() + " updated and "
+                + removedStocks.size() + " removed from " + configFile + " in " + (System.nanoTime() - start) / MILLISECOND + " ms");
+    }
+
+    /**
+     * Function to check whether a loaded stock has the reference data and retention of the current stock
+     */
+    private boolean isSameReferenceData(StockDTO current, StockDTO loaded) {
+        return current.getReferenceData().equals(loaded.getReferenceData())
+                && current.getRetentionNanos() == loaded.getRetentionNanos();
+    }
+
     /**
      * Function to return all the stocks
      * @return Array of StockDTO
      * @since 1.0
      */
     public StockDTO[] getAllStocks(){
-        return stockMap.values().toArray(new StockDTO[0]);
+        return stockUniverse.allStocks.clone();
     }
 
     /**
-     * Function to convert String to integer and in case of wrong integer returns 0
-     * @param dataString
-     * @return
-     * @since 1.0
+     * Function to return the running GBCE All Share Index of all the stocks
+     * @return gbceIndexAggregator GBCEIndexAggregator
+     * @since 1.1
+     */
+    public GBCEIndexAggregator getGBCEIndexAggregator() {
+        return gbceIndexAggregator;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#stockIndexSink} for more information
+     */
+    public synchronized StockIndexSink getStockIndexSink() {
+        return stockIndexSink;
+    }
+
+    /**
+     * Function to replace the sink of the added and removed stocks, for a service indexing the stocks on its own
+     * threads, until the model is loaded again with {@link #init()}
+     *
+     * The new sink is handed all the current stocks at once. The aggregator of the model is released while another
+     * sink is set, and indexes all the stocks again once it is restored
+     *
+     * @param sink Sink of the added and removed stocks, null to restore the aggregator of the model
+     * @since 1.1
+     */
+    public synchronized void setStockIndexSink(StockIndexSink sink) {
+        StockIndexSink next = sink == null ? gbceIndexAggregator : sink;
+        if(next == stockIndexSink) {
+            return;
+        }
+        if(stockIndexSink == gbceIndexAggregator) {
+            gbceIndexAggregator.releaseStocks();
+        }
+        stockIndexSink = next;
+        for(StockDTO stock : stockUniverse.allStocks) {
+            next.stockAdded(stock);
+        }
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#gbceIndexMode} for more information
+     */
+    public GBCEIndexMode getGBCEIndexMode() {
+        return gbceIndexMode;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#gbceParallelThreshold} for more information
+     */
+    public int getGBCEParallelThreshold() {
+        return gbceParallelThreshold;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#barPublisher} for more information
+     */
+    public BarPublisher getBarPublisher() {
+        return barPublisher;
+    }
+
+    /**
+     * Function to evict the trades older than the retention of every stock now, instead of waiting for the background thread
+     * @return count Number of trades evicted
+     * @since 1.1
      */
-    private int convertToInteger(String dataString){
-       int data = 0;
-        try{
-           data = Integer.parseInt(dataString);
-       } catch (NumberFormatException e){
+    public long evictTrades() {
+        return tradeEvictor.evict(getAllStocks());
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#tradeEvictor} for more information
+     */
+    public TradeEvictor getTradeEvictor() {
+        return tradeEvictor;
+    }
 
+    /**
+     * Function to write a snapshot of all the stocks now, instead of waiting for the background thread
+     *
+     * Journal segments before the oldest kept snapshot are deleted afterwards
+     *
+     * @return file Snapshot file or null when snapshots are not configured
+     * @throws IOException When the snapshot can not be written
+     * @since 1.1
+     */
+    public File snapshot() throws IOException {
+        StockSnapshot snapshot = stockSnapshot;
+        if(snapshot == null) {
+            return null;
+        }
+        TradeJournal journal = tradeJournal;
+        long start = System.nanoTime();
+        File file = snapshot.write(getAllStocks(), journal == null ? 0 : journal.getRecordCount());
+        logger.info("snapshot :: Snapshot " + file + " written in " + (System.nanoTime() - start) / MILLISECOND + " ms");
+        List<File> files = snapshot.getFiles();
+        if(journal != null && files.size() >= StockSnapshot.KEPT_SNAPSHOTS) {
+            journal.truncateBefore(StockSnapshot.getJournalSequence(files.get(files.size() - 1)));
         }
-        return data;
+        return file;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#stockSnapshot} for more information
+     */
+    public StockSnapshot getStockSnapshot() {
+        return stockSnapshot;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#tradeJournal} for more information
+     */
+    public TradeJournal getTradeJournal() {
+        return tradeJournal;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#lateTradePublisher} for more information
+     */
+    public LateTradePublisher getLateTradePublisher() {
+        return lateTradePublisher;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.model.StockModel#barIntervals} for more information
+     */
+    public int[] getBarIntervals() {
+        return barIntervals.clone();
     }
 
 }
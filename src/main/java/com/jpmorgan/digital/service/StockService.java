@@ -1,6 +1,10 @@
 package com.jpmorgan.digital.service;
 
 import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.BarDTO;
+import com.jpmorgan.digital.dto.TradeBatch;
+import com.jpmorgan.digital.helper.BarListener;
+import com.jpmorgan.digital.helper.LateTradeListener;
 
 /**
  * StockService is the Service Interface that provide various operations that can be implemented on a stock
@@ -19,6 +23,18 @@ import com.jpmorgan.digital.domain.TradeDomain;
  */
 public interface StockService {
 
+    /**
+     *  To get the id of provided Stock symbol for the functions taking a stock id
+     *
+     *  Ids are resolved once, so the functions taking a stock id neither hash nor compare the symbol
+     *
+     *  @param stockSymbol Stock symbol
+     *
+     * @return Stock id
+     * @since 1.1
+     */
+    public int getStockId(String stockSymbol) throws IllegalArgumentException;
+
     /**
      *  To calculate the Dividend Yield of provided Stock instance
      *
@@ -30,6 +46,17 @@ public interface StockService {
      */
     public double calculateDividendYield(String stockSymbol, double price) throws IllegalArgumentException;
 
+    /**
+     *  To calculate the Dividend Yield of provided Stock id
+     *
+     *  @param stockId Stock id for which dividend yield needs to be calculated
+     *  @param price Price of stock
+     *
+     * @return Dividend Yield
+     * @since 1.1
+     */
+    public double calculateDividendYield(int stockId, double price) throws IllegalArgumentException;
+
     /**
      *  To calculate the P/E Ratio of provided Stock instance
      *
@@ -41,6 +68,39 @@ public interface StockService {
      */
     public double calculatePERatio(String stockSymbol, double price) throws IllegalArgumentException;
 
+    /**
+     *  To calculate the P/E Ratio of provided Stock id
+     *
+     *  @param stockId Stock id for which P/E ratio needs to be calculated
+     *  @param price Price of the stock
+     *
+     * @return P/E Ratio
+     * @since 1.1
+     */
+    public double calculatePERatio(int stockId, double price) throws IllegalArgumentException;
+
+    /**
+     *  To calculate the Dividend Yield of all the stocks at once from their price, without any lookup per stock.
+     *  Where a single stock would fail, its Dividend Yield is NaN
+     *
+     *  @param prices Price of each stock by its id
+     *  @param dividendYields Filled with the Dividend Yield of each stock by its id, at least as long as prices
+     *
+     * @since 1.1
+     */
+    public void calculateDividendYields(double[] prices, double[] dividendYields) throws IllegalArgumentException;
+
+    /**
+     *  To calculate the P/E Ratio of all the stocks at once from their price, without any lookup per stock.
+     *  Where a single stock would fail, its P/E Ratio is NaN
+     *
+     *  @param prices Price of each stock by its id
+     *  @param pERatios Filled with the P/E Ratio of each stock by its id, at least as long as prices
+     *
+     * @since 1.1
+     */
+    public void calculatePERatios(double[] prices, double[] pERatios) throws IllegalArgumentException;
+
     /**
      *  To record trade for provided stock
      *
@@ -51,6 +111,59 @@ public interface StockService {
      */
     public void recordTrade(String stockSymbol, TradeDomain tradeData) throws IllegalArgumentException;
 
+    /**
+     *  To record trade for provided stock without creating any object
+     *
+     *  @param stockSymbol Stock symbol for which trade needs to be stored
+     *  @param timestamp Timestamp of the trade in epoch nanoseconds
+     *  @param quantity Quantity of the trade
+     *  @param price Price of the trade
+     *  @param indicator Buy or Sell Indicator of the trade
+     *
+     * @since 1.1
+     */
+    public void recordTrade(String stockSymbol, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) throws IllegalArgumentException;
+
+    /**
+     *  To record trade for provided stock id without creating any object
+     *
+     *  @param stockId Stock id for which trade needs to be stored
+     *  @param timestamp Timestamp of the trade in epoch nanoseconds
+     *  @param quantity Quantity of the trade
+     *  @param price Price of the trade
+     *  @param indicator Buy or Sell Indicator of the trade
+     *
+     * @since 1.1
+     */
+    public void recordTrade(int stockId, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) throws IllegalArgumentException;
+
+    /**
+     *  To record a batch of trades of any stocks, trades are verified together and the trades of each stock are
+     *  recorded at once. Invalid trades are rejected one by one, without failing the rest of the batch
+     *
+     *  @param batch Trades that need to be stored, rejected trades are flagged in it
+     *
+     * @return Number of recorded trades
+     * @since 1.1
+     */
+    public int recordTrades(TradeBatch batch) throws IllegalArgumentException;
+
+    /**
+     *  To record a batch of trades of any stocks held in columns, trades are verified together and the trades of
+     *  each stock are recorded at once. Invalid trades are rejected one by one, without failing the rest of the batch
+     *
+     *  @param stockIds Stock ids of the trades
+     *  @param timestamps Timestamps of the trades in epoch nanoseconds
+     *  @param quantities Quantities of the trades
+     *  @param prices Prices of the trades
+     *  @param indicators Ordinals of Buy or Sell Indicator of the trades
+     *  @param count Number of trades in the columns
+     *
+     * @return Number of recorded trades
+     * @since 1.1
+     */
+    public int recordTrades(int[] stockIds, long[] timestamps, int[] quantities, double[] prices, byte[] indicators, int count) throws IllegalArgumentException;
+
     /**
      *  To calculate the volume of provided Stock instance based on trades in past 5 minutes
      *
@@ -61,6 +174,66 @@ public interface StockService {
      */
     public double calculateVolWeightedPrice(String stockSymbol) throws IllegalArgumentException;
 
+    /**
+     *  To calculate the volume of provided Stock id based on trades in past 5 minutes
+     *
+     *  @param stockId Stock id for which volume weighted stock price need to be calculated
+     *
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    public double calculateVolWeightedPrice(int stockId) throws IllegalArgumentException;
+
+    /**
+     *  To calculate the volume of provided Stock instance based on trades in a window of any length
+     *
+     *  The window is aligned to whole seconds, or to whole minutes beyond the latest 8 minutes
+     *
+     *  @param stockSymbol Stock for which volume weighted stock price need to be calculated
+     *  @param windowSeconds Length of the window in seconds, at most 2 hours
+     *
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    public double calculateVolWeightedPrice(String stockSymbol, int windowSeconds) throws IllegalArgumentException;
+
+    /**
+     *  To calculate the volume of provided Stock id based on trades in a window of any length
+     *
+     *  @param stockId Stock id for which volume weighted stock price need to be calculated
+     *  @param windowSeconds Length of the window in seconds, at most 2 hours
+     *
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    public double calculateVolWeightedPrice(int stockId, int windowSeconds) throws IllegalArgumentException;
+
+    /**
+     *  To calculate the volume of provided Stock instance based on trades in any time range
+     *
+     *  Every recorded trade is kept in a time index, so any historical range is answered in O(log n)
+     *
+     *  @param stockSymbol Stock for which volume weighted stock price need to be calculated
+     *  @param fromTime Start of the range in epoch nanoseconds, inclusive
+     *  @param toTime End of the range in epoch nanoseconds, exclusive
+     *
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    public double calculateVolWeightedPrice(String stockSymbol, long fromTime, long toTime) throws IllegalArgumentException;
+
+    /**
+     *  To calculate the volume of provided Stock id based on trades in any time range
+     *
+     *  @param stockId Stock id for which volume weighted stock price need to be calculated
+     *  @param fromTime Start of the range in epoch nanoseconds, inclusive
+     *  @param toTime End of the range in epoch nanoseconds, exclusive
+     *
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    public double calculateVolWeightedPrice(int stockId, long fromTime, long toTime) throws IllegalArgumentException;
+
     /**
      * To calculate the GBCE All Share Index for all the stocks
      *
@@ -69,4 +242,72 @@ public interface StockService {
      */
     public double calculateGBCEAllShareIndex();
 
+    /**
+     * To get the finished Open, High, Low, Close and Volume bars of provided Stock instance
+     *
+     * @param stockSymbol Stock for which bars are needed
+     * @param intervalSeconds Interval of the bars in seconds, one of the configured bar intervals
+     *
+     * @return Finished bars from oldest to latest
+     * @since 1.1
+     */
+    public BarDTO[] getBars(String stockSymbol, int intervalSeconds) throws IllegalArgumentException;
+
+    /**
+     * To get the Open, High, Low, Close and Volume bar of the current interval of provided Stock instance
+     *
+     * @param stockSymbol Stock for which bar is needed
+     * @param intervalSeconds Interval of the bar in seconds, one of the configured bar intervals
+     *
+     * @return Current bar or null when there is no trade in the current interval
+     * @since 1.1
+     */
+    public BarDTO getCurrentBar(String stockSymbol, int intervalSeconds) throws IllegalArgumentException;
+
+    /**
+     * To subscribe to the bars of all the stocks, listener is called when a bar is finished
+     *
+     * @param listener Listener of finished bars
+     * @since 1.1
+     */
+    public void subscribeBars(BarListener listener) throws IllegalArgumentException;
+
+    /**
+     * To unsubscribe from the bars of all the stocks
+     *
+     * @param listener Subscribed listener
+     * @since 1.1
+     */
+    public void unsubscribeBars(BarListener listener);
+
+    /**
+     * To finish the bars whose interval is over, for stocks without any new trade since
+     *
+     * @since 1.1
+     */
+    public void finishBars();
+
+    /**
+     * To subscribe to the trades of all the stocks which arrive after the watermark has passed them
+     *
+     * @param listener Listener of late trades
+     * @since 1.1
+     */
+    public void subscribeLateTrades(LateTradeListener listener) throws IllegalArgumentException;
+
+    /**
+     * To unsubscribe from the late trades of all the stocks
+     *
+     * @param listener Subscribed listener
+     * @since 1.1
+     */
+    public void unsubscribeLateTrades(LateTradeListener listener);
+
+    /**
+     * To add the trades held for reordering whose lateness is over at the current time, for stocks without any new trade since
+     *
+     * @since 1.1
+     */
+    public void releaseTrades();
+
 }
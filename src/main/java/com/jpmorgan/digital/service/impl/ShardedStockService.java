@@ -0,0 +1,276 @@
+package com.jpmorgan.digital.service.impl;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.helper.GBCEIndexMode;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.helper.StockIndexSink;
+import com.jpmorgan.digital.helper.TradeClock;
+import com.jpmorgan.digital.helper.TradeRing;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import org.apache.log4j.Logger;
+
+/**
+ * ShardedStockService is the Stock Service where the stocks are split by symbol over a fixed number of shards, each
+ * with a single thread adding the trades of its stocks
+ *
+ * Trades are verified on the thread recording them, so an invalid trade is still rejected right away, and are then
+ * handed over to the shard of the stock through its {@link TradeRing}. A trade handed over is counted as recorded, a
+ * shard failing to add it afterwards only logs it. As a stock only ever has the thread of its
+ * shard adding trades, its lock is never contended and the producers never wait for each other on a stock, so the
+ * throughput grows with the number of shards up to the number of cores.
+ *
+ * Recording a trade is asynchronous: the Volume Weighted price, the bars and the GBCE All Share Index see the trade
+ * once its shard added it. {@link #flush()} waits until all the trades recorded before it are added. The GBCE All
+ * Share Index in {@link GBCEIndexMode#INCREMENTAL} mode combines the sums of logarithms published by the shards,
+ * without waiting for any of them.
+ *
+ * The stocks of the model are served by a single service at a time. The service replaces the {@link StockIndexSink} of
+ * the model when it is created, so the stocks added and removed afterwards, e.g. by a reload of the config, reach the
+ * shards owning them, and {@link #shutdown()} stops the shards and gives the stocks back to the index of the model.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class ShardedStockService extends StockServiceImpl {
+
+    private final static Logger logger = Logger.getLogger(ShardedStockService.class);
+
+    /**
+     * Number of trades each shard can hold before the producers wait
+     */
+    public static final int DEFAULT_RING_CAPACITY = 1 << 16;
+
+    private final StockModel stockModel = StockModel.getModelInstance();
+
+    private final TradeShard[] shards;
+
+    private final StockIndexSink indexSink = new ShardIndexSink();
+
+    /**
+     * Creates the service with the provided number of shards on the provided clock
+     * @param clock Source of current time
+     * @param shardCount Number of shards, usually the number of cores left to the service
+     */
+    public ShardedStockService(TradeClock clock, int shardCount) throws IllegalArgumentException {
+        this(clock, StockServiceMetrics.getMetricsInstance(), shardCount, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Creates the service with the provided number of shards on the provided clock, reporting to the provided metrics
+     * @param clock Source of current time
+     * @param metrics Metrics of the service
+     * @param shardCount Number of shards, usually the number of cores left to the service
+     * @param ringCapacity Number of trades each shard can hold before the producers wait, a power of two
+     */
+    public ShardedStockService(TradeClock clock, StockServiceMetrics metrics, int shardCount, int ringCapacity) throws IllegalArgumentException {
+        super(clock, metrics);
+        if(shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        if(ringCapacity < 2 || Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two of at least 2");
+        }
+        shards = new TradeShard[shardCount];
+        for(int i = 0; i < shardCount; i++) {
+            shards[i] = new TradeShard(i, ringCapacity, clock);
+        }
+        for(TradeShard shard : shards) {
+            shard.start();
+        }
+        stockModel.setStockIndexSink(indexSink);
+        flush();
+        if(logger.isInfoEnabled()) {
+            logger.info("ShardedStockService :: Started " + shardCount + " shards of " + ringCapacity + " trades");
+        }
+    }
+
+    /**
+     * Function to get the shard of a stock, which is the same for a symbol as long as the number of shards is
+     *
+     * @param stockSymbol Stock symbol
+     * @param shardCount Number of shards
+     * @return shard Shard of the stock from 0 to shardCount - 1
+     * @since 1.1
+     */
+    public static int shardOf(String stockSymbol, int shardCount) {
+        int hash = stockSymbol.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return (hash & 0x7fffffff) % shardCount;
+    }
+
+    /**
+     * Function to get the number of shards of the service
+     * @return shardCount Number of shards
+     * @since 1.1
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * To wait until the trades recorded so far are added to their stocks and to the GBCE All Share Index
+     *
+     * @throws IllegalStateException When a shard is stopped
+     * @since 1.1
+     */
+    public void flush() throws IllegalStateException {
+        for(TradeShard shard : shards) {
+            shard.flush();
+        }
+    }
+
+    /**
+     * To stop the shards once the trades recorded so far are added, trades can not be recorded afterwards
+     *
+     * @since 1.1
+     */
+    public void shutdown() {
+        try {
+            for(TradeShard shard : shards) {
+                shard.stop();
+            }
+        } catch (InterruptedException e) {
+            logger.error("shutdown :: Interrupted while stopping the shards");
+            Thread.currentThread().interrupt();
+        }
+        if(stockModel.getStockIndexSink() == indexSink) {
+            stockModel.setStockIndexSink(null);
+        }
+    }
+
+    /**
+     * To calculate the GBCE All Share Index for all the stocks, from the sums published by the shards in
+     * {@link GBCEIndexMode#INCREMENTAL} mode
+     *
+     * @return GBCE All Share Index
+     * @since 1.1
+     */
+    @Override
+    public double calculateGBCEAllShareIndex() {
+        if(stockModel.getGBCEIndexMode() != GBCEIndexMode.INCREMENTAL) {
+            return super.calculateGBCEAllShareIndex();
+        }
+        long startTime = System.nanoTime();
+        try {
+            double logTotal = 0.0;
+            int stockCount = 0;
+            for(TradeShard shard : shards) {
+                TradeShard.IndexPartial partial = shard.getIndexPartial();
+                logTotal += partial.logTotal;
+                stockCount += partial.stockCount;
+            }
+            if(stockCount == 0) {
+                return 0.0;
+            }
+            return StockHelper.getFormattedDouble(Math.exp(logTotal / stockCount));
+        } finally {
+            getMetrics().getGBCEAllShareIndexLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To finish the bars whose interval is over at the time of the clock of the service, on the shards of the stocks
+     *
+     * @since 1.1
+     */
+    @Override
+    public void finishBars() {
+        offerAll(TradeShard.FINISH_BARS);
+    }
+
+    /**
+     * To add the trades held for reordering whose lateness is over at the time of the clock of the service, on the
+     * shards of the stocks
+     *
+     * @since 1.1
+     */
+    @Override
+    public void releaseTrades() {
+        offerAll(TradeShard.RELEASE_TRADES);
+    }
+
+    /**
+     * Function to hand a verified trade over to the shard of the stock
+     */
+    @Override
+    void addTrade(StockDTO stock, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) {
+        shardOf(stock).offer(stock.getStockId(), timestamp, quantity, price, (byte) indicator.ordinal());
+    }
+
+    /**
+     * Function to verify a batch of trades and hand the valid ones over to the shards of their stocks in the order
+     * of the batch
+     */
+    @Override
+    int recordTrades(int[] stockIds, long[] timestamps, int[] quantities, double[] prices, byte[] indicators,
+                     int count, boolean[] rejected, long[] keys, int[] positions) {
+        long startTime = System.nanoTime();
+        try {
+            long currentTime = getClock().currentTimeNanos();
+            int recorded = 0;
+            for(int i = 0; i < count; i++) {
+                StockDTO stock = stockModel.findStock(stockIds[i]);
+                if(isValidTrade(stock, timestamps[i], quantities[i], prices[i], indicators[i], currentTime)) {
+                    shardOf(stock).offer(stockIds[i], timestamps[i], quantities[i], prices[i], indicators[i]);
+                    if(rejected != null) {
+                        rejected[i] = false;
+                    }
+                    recorded++;
+                } else {
+                    rejectTrade(rejected, i, stock);
+                }
+            }
+            if(recorded < count) {
+                logger.error("recordTrades :: " + (count - recorded) + " of " + count + " trades were rejected");
+            }
+            return recorded;
+        } finally {
+            getMetrics().getRecordTradesLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    private TradeShard shardOf(StockDTO stock) {
+        return shards[shardOf(stock.getStockSymbol(), shards.length)];
+    }
+
+    /**
+     * Function to hand a command about a stock over to the shard of the stock, a stopped shard has nothing to index
+     */
+    private void offerStock(int command, StockDTO stock) {
+        try {
+            shardOf(stock).offer(command, getClock().currentTimeNanos(), stock.getStockId(), 0.0, (byte) 0);
+        } catch (IllegalStateException e) {
+            logger.error("offerStock :: Stock " + stock.getStockSymbol() + " can not be handed over to its shard", e);
+        }
+    }
+
+    /**
+     * Function to hand a command at the time of the clock of the service over to all the shards
+     */
+    private void offerAll(int command) {
+        long currentTime = getClock().currentTimeNanos();
+        for(TradeShard shard : shards) {
+            shard.offer(command, currentTime, 0, 0.0, (byte) 0);
+        }
+    }
+
+    /**
+     * ShardIndexSink hands the stocks added to and removed from the model over to the shards owning them
+     */
+    private final class ShardIndexSink implements StockIndexSink {
+
+        @Override
+        public void stockAdded(StockDTO stock) {
+            offerStock(TradeShard.ADD_STOCK, stock);
+        }
+
+        @Override
+        public void stockRemoved(StockDTO stock) {
+            offerStock(TradeShard.REMOVE_STOCK, stock);
+        }
+    }
+}
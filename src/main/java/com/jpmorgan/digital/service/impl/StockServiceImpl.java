@@ -1,13 +1,24 @@
 package com.jpmorgan.digital.service.impl;
 
 import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.BarDTO;
 import com.jpmorgan.digital.dto.StockDTO;
-import com.jpmorgan.digital.dto.TradeDTO;
+import com.jpmorgan.digital.dto.TradeBatch;
+import com.jpmorgan.digital.helper.BarListener;
+import com.jpmorgan.digital.helper.GBCEIndexAggregator;
+import com.jpmorgan.digital.helper.GBCEIndexMode;
+import com.jpmorgan.digital.helper.PriceTicks;
+import com.jpmorgan.digital.helper.LateTradeListener;
 import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.helper.TradeClock;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
 import com.jpmorgan.digital.model.StockModel;
 import com.jpmorgan.digital.service.StockService;
 import org.apache.log4j.Logger;
 
+import java.util.Arrays;
+
 /**
  * StockServiceImpl is the implementation of StockService class that provide definition of
  * various operations that can be implemented on a stock
@@ -17,22 +28,91 @@ import org.apache.log4j.Logger;
  * <ul>
  *     <li>Calculate Dividend Yield</li>
  *     <li>Calculate P/E Ration</li>
+ *     <li>Calculate Dividend Yield and P/E Ratio of all the stocks at once</li>
  *     <li>Record Trade</li>
+ *     <li>Record a batch of Trades</li>
  *     <li>Calculate volume weighted stock price based on trades in past 5 minutes</li>
  * </ul>
  *
+ * All the time based operations read the current time from the {@link TradeClock} of the service,
+ * a {@link com.jpmorgan.digital.helper.SimulatedTradeClock} replays the trades of a past day.
+ * Latency of every operation and the recorded and rejected trades are kept in {@link StockServiceMetrics}
+ *
  *  @author Aman Chhabra
  *  @since 1.0
  */
-public class StockServiceImpl extends StockHelper implements StockService{
+public class StockServiceImpl implements StockService{
 
     private final static Logger logger = Logger.getLogger(StockServiceImpl.class);
 
+    private static final int INDICATOR_COUNT = TradeDomain.Indicator.values().length;
+
     private StockModel stockModel = StockModel.getModelInstance();
 
-    private static String stockTypeCommon = "Common";
+    private final TradeClock clock;
+
+    private final StockServiceMetrics metrics;
+
+    /**
+     * Creates the service on the wall clock
+     */
+    public StockServiceImpl() {
+        this(SystemTradeClock.getClockInstance());
+    }
 
-    private static String stockTypePreferred = "Preferred";
+    /**
+     * Creates the service on the provided clock
+     * @param clock Source of current time
+     */
+    public StockServiceImpl(TradeClock clock) {
+        this(clock, StockServiceMetrics.getMetricsInstance());
+    }
+
+    /**
+     * Creates the service on the provided clock, reporting to the provided metrics
+     * @param clock Source of current time
+     * @param metrics Metrics of the service
+     */
+    public StockServiceImpl(TradeClock clock, StockServiceMetrics metrics) {
+        if(clock == null) {
+            throw new IllegalArgumentException("Clock can not be null");
+        }
+        if(metrics == null) {
+            throw new IllegalArgumentException("Metrics can not be null");
+        }
+        this.clock = clock;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.service.impl.StockServiceImpl#clock} for more information
+     */
+    public TradeClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.service.impl.StockServiceImpl#metrics} for more information
+     */
+    public StockServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * To get the id of provided Stock symbol for the functions taking a stock id
+     *
+     * @param stockSymbol Stock symbol
+     * @return Stock id
+     * @since 1.1
+     */
+    @Override
+    public int getStockId(String stockSymbol) throws IllegalArgumentException{
+        if(stockSymbol == null || stockSymbol.isEmpty()) {
+            logger.error("getStockId :: Stock Symbol can not be empty");
+            throw new IllegalArgumentException("Stock Symbol can not be empty");
+        }
+        return stockModel.getStockId(stockSymbol);
+    }
 
     /**
      * To calculate the Dividend Yield of provided Stock instance
@@ -44,22 +124,38 @@ public class StockServiceImpl extends StockHelper implements StockService{
      */
     @Override
     public double calculateDividendYield(String stockSymbol, double price) throws IllegalArgumentException{
-        double dividendYield = 0;
-        if(price < 0) {
-            logger.error("calculateDividendYield :: Price can not be negative");
-            throw new IllegalArgumentException("Price can not be negative");
-        }
-        if(stockSymbol == null || stockSymbol.isEmpty()) {
-            logger.error("calculateDividendYield :: Stock Symbol can not be empty");
-            throw new IllegalArgumentException("Stock Symbol can not be empty");
+        long startTime = System.nanoTime();
+        try {
+            verifyPrice("calculateDividendYield", price);
+            if(stockSymbol == null || stockSymbol.isEmpty()) {
+                logger.error("calculateDividendYield :: Stock Symbol can not be empty");
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            StockDTO stock = stockModel.getStock(stockSymbol);
+            return stock.getDividendYieldStrategy().calculateDividendYield(stock, price);
+        } finally {
+            metrics.getDividendYieldLatency().record(System.nanoTime() - startTime);
         }
-        StockDTO stock = stockModel.getStock(stockSymbol);
-        if(stockTypeCommon.equalsIgnoreCase(stock.getStockType())) {
-            dividendYield = StockHelper.calculateDividendYieldForCommon(stock.getLastDividend(),price);
-        } else if (stockTypePreferred.equalsIgnoreCase(stock.getStockType())) {
-            dividendYield = StockHelper.calculateDividendYieldForPreferred(stock.getFixedDividend(),stock.getParValue(),price);
+    }
+
+    /**
+     * To calculate the Dividend Yield of provided Stock id
+     *
+     * @param stockId Stock id for which dividend yield needs to be calculated
+     * @param price   Price of stock
+     * @return Dividend Yield
+     * @since 1.1
+     */
+    @Override
+    public double calculateDividendYield(int stockId, double price) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            verifyPrice("calculateDividendYield", price);
+            StockDTO stock = stockModel.getStock(stockId);
+            return stock.getDividendYieldStrategy().calculateDividendYield(stock, price);
+        } finally {
+            metrics.getDividendYieldLatency().record(System.nanoTime() - startTime);
         }
-        return dividendYield;
     }
 
     /**
@@ -72,18 +168,74 @@ public class StockServiceImpl extends StockHelper implements StockService{
      */
     @Override
     public double calculatePERatio(String stockSymbol, double price) throws IllegalArgumentException{
-        double pERatio;
-        if(price < 0) {
-            logger.error("calculatePERatio :: Price can not be negative");
-            throw new IllegalArgumentException("Price can not be negative");
+        long startTime = System.nanoTime();
+        try {
+            verifyPrice("calculatePERatio", price);
+            if(stockSymbol == null || stockSymbol.isEmpty()) {
+                logger.error("calculatePERatio :: Stock Symbol can not be empty");
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            return StockHelper.calculatePERatio(stockModel.getStock(stockSymbol).getLastDividend(), price);
+        } finally {
+            metrics.getPERatioLatency().record(System.nanoTime() - startTime);
         }
-        if(stockSymbol == null || stockSymbol.isEmpty()) {
-            logger.error("calculatePERatio :: Stock Symbol can not be empty");
-            throw new IllegalArgumentException("Stock Symbol can not be empty");
+    }
+
+    /**
+     * To calculate the P/E Ratio of provided Stock id
+     *
+     * @param stockId Stock id for which P/E ratio needs to be calculated
+     * @param price   Price of the stock
+     * @return P/E Ratio
+     * @since 1.1
+     */
+    @Override
+    public double calculatePERatio(int stockId, double price) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            verifyPrice("calculatePERatio", price);
+            return StockHelper.calculatePERatio(stockModel.getStock(stockId).getLastDividend(), price);
+        } finally {
+            metrics.getPERatioLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the Dividend Yield of all the stocks at once from their price, without any lookup per stock.
+     * Where a single stock would fail, its Dividend Yield is NaN
+     *
+     * @param prices         Price of each stock by its id
+     * @param dividendYields Filled with the Dividend Yield of each stock by its id, at least as long as prices
+     * @since 1.1
+     */
+    @Override
+    public void calculateDividendYields(double[] prices, double[] dividendYields) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            verifyPrices("calculateDividendYields", prices, dividendYields);
+            StockHelper.calculateDividendYields(stockModel.getReferenceData(), prices, dividendYields);
+        } finally {
+            metrics.getDividendYieldsLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the P/E Ratio of all the stocks at once from their price, without any lookup per stock.
+     * Where a single stock would fail, its P/E Ratio is NaN
+     *
+     * @param prices   Price of each stock by its id
+     * @param pERatios Filled with the P/E Ratio of each stock by its id, at least as long as prices
+     * @since 1.1
+     */
+    @Override
+    public void calculatePERatios(double[] prices, double[] pERatios) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            verifyPrices("calculatePERatios", prices, pERatios);
+            StockHelper.calculatePERatios(stockModel.getReferenceData(), prices, pERatios);
+        } finally {
+            metrics.getPERatiosLatency().record(System.nanoTime() - startTime);
         }
-        StockDTO stock = stockModel.getStock(stockSymbol);
-        pERatio = StockHelper.calculatePERatio(stock.getLastDividend(),price);
-        return pERatio;
     }
 
     /**
@@ -95,21 +247,115 @@ public class StockServiceImpl extends StockHelper implements StockService{
      */
     @Override
     public void recordTrade(String stockSymbol, TradeDomain tradeData) throws IllegalArgumentException{
-        if(stockSymbol == null || stockSymbol.isEmpty()) {
-            logger.error("recordTrade :: Stock Symbol can not be empty");
-            throw new IllegalArgumentException("Stock Symbol can not be empty");
-        }
         if(tradeData == null){
             logger.error("recordTrade :: Trade can not be null");
+            metrics.tradeRejected(stockModel.findStock(stockSymbol));
             throw new IllegalArgumentException("Trade can not be null");
         }
-        StockDTO stock = stockModel.getStock(stockSymbol);
-        TradeDTO trade = new TradeDTO();
-        trade.setIndicator(tradeData.getIndicator().toString());
-        trade.setPrice(tradeData.getPrice());
-        trade.setQuantity(tradeData.getQuantity());
-        trade.setTimestamp(tradeData.getTimestamp());
-        stock.addTrade(trade);
+        if(tradeData.getTimestamp() == null){
+            logger.error("recordTrade :: Trade timestamp can not be null");
+            metrics.tradeRejected(stockModel.findStock(stockSymbol));
+            throw new IllegalArgumentException("Trade timestamp can not be null");
+        }
+        recordTrade(stockSymbol, StockHelper.toEpochNanos(tradeData.getTimestamp()), tradeData.getQuantity(),
+                tradeData.getPrice(), tradeData.getIndicator());
+    }
+
+    /**
+     * To record trade for provided stock without creating any object
+     *
+     * @param stockSymbol Stock symbol for which trade needs to be stored
+     * @param timestamp   Timestamp of the trade in epoch nanoseconds
+     * @param quantity    Quantity of the trade
+     * @param price       Price of the trade
+     * @param indicator   Buy or Sell Indicator of the trade
+     * @since 1.1
+     */
+    @Override
+    public void recordTrade(String stockSymbol, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            if(stockSymbol == null || stockSymbol.isEmpty()) {
+                logger.error("recordTrade :: Stock Symbol can not be empty");
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            verifyTrade(timestamp, quantity, price, indicator);
+            addTrade(stockModel.getStock(stockSymbol), timestamp, quantity, price, indicator);
+        } catch (IllegalArgumentException e) {
+            metrics.tradeRejected(stockModel.findStock(stockSymbol));
+            throw e;
+        } finally {
+            metrics.getRecordTradeLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To record trade for provided stock id without creating any object
+     *
+     * @param stockId     Stock id for which trade needs to be stored
+     * @param timestamp   Timestamp of the trade in epoch nanoseconds
+     * @param quantity    Quantity of the trade
+     * @param price       Price of the trade
+     * @param indicator   Buy or Sell Indicator of the trade
+     * @since 1.1
+     */
+    @Override
+    public void recordTrade(int stockId, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            verifyTrade(timestamp, quantity, price, indicator);
+            addTrade(stockModel.getStock(stockId), timestamp, quantity, price, indicator);
+        } catch (IllegalArgumentException e) {
+            metrics.tradeRejected(stockModel.findStock(stockId));
+            throw e;
+        } finally {
+            metrics.getRecordTradeLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To record a batch of trades of any stocks, trades are verified together and the trades of each stock are
+     * recorded at once. Invalid trades are rejected one by one, without failing the rest of the batch
+     *
+     * @param batch Trades that need to be stored, rejected trades are flagged in it
+     * @return Number of recorded trades
+     * @since 1.1
+     */
+    @Override
+    public int recordTrades(TradeBatch batch) throws IllegalArgumentException{
+        if(batch == null) {
+            logger.error("recordTrades :: Batch can not be null");
+            throw new IllegalArgumentException("Batch can not be null");
+        }
+        return recordTrades(batch.getStockIds(), batch.getTimestamps(), batch.getQuantities(), batch.getPrices(),
+                batch.getIndicators(), batch.size(), batch.getRejected(), batch.getKeys(), batch.getPositions());
+    }
+
+    /**
+     * To record a batch of trades of any stocks held in columns, trades are verified together and the trades of
+     * each stock are recorded at once. Invalid trades are rejected one by one, without failing the rest of the batch
+     *
+     * @param stockIds   Stock ids of the trades
+     * @param timestamps Timestamps of the trades in epoch nanoseconds
+     * @param quantities Quantities of the trades
+     * @param prices     Prices of the trades
+     * @param indicators Ordinals of Buy or Sell Indicator of the trades
+     * @param count      Number of trades in the columns
+     * @return Number of recorded trades
+     * @since 1.1
+     */
+    @Override
+    public int recordTrades(int[] stockIds, long[] timestamps, int[] quantities, double[] prices, byte[] indicators, int count) throws IllegalArgumentException{
+        if(stockIds == null || timestamps == null || quantities == null || prices == null || indicators == null) {
+            logger.error("recordTrades :: Trade columns can not be null");
+            throw new IllegalArgumentException("Trade columns can not be null");
+        }
+        if(count < 0 || stockIds.length < count || timestamps.length < count || quantities.length < count
+                || prices.length < count || indicators.length < count) {
+            logger.error("recordTrades :: Trade columns can not be shorter than the count of trades");
+            throw new IllegalArgumentException("Trade columns can not be shorter than the count of trades");
+        }
+        return recordTrades(stockIds, timestamps, quantities, prices, indicators, count, null, new long[count], new int[count]);
     }
 
     /**
@@ -121,28 +367,389 @@ public class StockServiceImpl extends StockHelper implements StockService{
      */
     @Override
     public double calculateVolWeightedPrice(String stockSymbol) throws IllegalArgumentException{
-        if(stockSymbol == null || stockSymbol.isEmpty()) {
-            logger.error("calculateVolWeightedPrice :: Stock Symbol can not be empty");
-            throw new IllegalArgumentException("Stock Symbol can not be empty");
+        long startTime = System.nanoTime();
+        try {
+            if(stockSymbol == null || stockSymbol.isEmpty()) {
+                logger.error("calculateVolWeightedPrice :: Stock Symbol can not be empty");
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            return StockHelper.calculateVolWeightPrice(stockModel.getStock(stockSymbol), clock.currentTimeNanos());
+        } finally {
+            metrics.getVolWeightedPriceLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the volume of provided Stock id based on trades in past 5 minutes
+     *
+     * @param stockId Stock id for which volume weighted stock price need to be calculated
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    @Override
+    public double calculateVolWeightedPrice(int stockId) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            return StockHelper.calculateVolWeightPrice(stockModel.getStock(stockId), clock.currentTimeNanos());
+        } finally {
+            metrics.getVolWeightedPriceLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the volume of provided Stock instance based on trades in a window of any length
+     *
+     * @param stockSymbol   Stock for which volume weighted stock price need to be calculated
+     * @param windowSeconds Length of the window in seconds
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    @Override
+    public double calculateVolWeightedPrice(String stockSymbol, int windowSeconds) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            if(stockSymbol == null || stockSymbol.isEmpty()) {
+                logger.error("calculateVolWeightedPrice :: Stock Symbol can not be empty");
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            return StockHelper.calculateVolWeightPrice(stockModel.getStock(stockSymbol), clock.currentTimeNanos(), windowSeconds);
+        } finally {
+            metrics.getVolWeightedPriceLatency().record(System.nanoTime() - startTime);
         }
-        double volWeightedPrice = 0.0;
-        StockDTO stock = stockModel.getStock(stockSymbol);
-        volWeightedPrice = StockHelper.calculateVolWeightPrice(stock);
-        return volWeightedPrice;
     }
 
     /**
-     * To calculate the GBCE All Share Index for all the stocks
+     * To calculate the volume of provided Stock id based on trades in a window of any length
+     *
+     * @param stockId       Stock id for which volume weighted stock price need to be calculated
+     * @param windowSeconds Length of the window in seconds
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    @Override
+    public double calculateVolWeightedPrice(int stockId, int windowSeconds) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            return StockHelper.calculateVolWeightPrice(stockModel.getStock(stockId), clock.currentTimeNanos(), windowSeconds);
+        } finally {
+            metrics.getVolWeightedPriceLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the volume of provided Stock instance based on trades in any time range
+     *
+     * @param stockSymbol Stock for which volume weighted stock price need to be calculated
+     * @param fromTime    Start of the range in epoch nanoseconds, inclusive
+     * @param toTime      End of the range in epoch nanoseconds, exclusive
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    @Override
+    public double calculateVolWeightedPrice(String stockSymbol, long fromTime, long toTime) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            if(stockSymbol == null || stockSymbol.isEmpty()) {
+                logger.error("calculateVolWeightedPrice :: Stock Symbol can not be empty");
+                throw new IllegalArgumentException("Stock Symbol can not be empty");
+            }
+            return StockHelper.calculateRangeVolWeightPrice(stockModel.getStock(stockSymbol), fromTime, toTime);
+        } finally {
+            metrics.getVolWeightedPriceLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the volume of provided Stock id based on trades in any time range
+     *
+     * @param stockId  Stock id for which volume weighted stock price need to be calculated
+     * @param fromTime Start of the range in epoch nanoseconds, inclusive
+     * @param toTime   End of the range in epoch nanoseconds, exclusive
+     * @return Volume Weighted price
+     * @since 1.1
+     */
+    @Override
+    public double calculateVolWeightedPrice(int stockId, long fromTime, long toTime) throws IllegalArgumentException{
+        long startTime = System.nanoTime();
+        try {
+            return StockHelper.calculateRangeVolWeightPrice(stockModel.getStock(stockId), fromTime, toTime);
+        } finally {
+            metrics.getVolWeightedPriceLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To calculate the GBCE All Share Index for all the stocks, in the {@link GBCEIndexMode} of the model
      *
      * @return GBCE All Share Index
      * @since 1.0
      */
     @Override
     public double calculateGBCEAllShareIndex() {
-        double gbceAllShareIndex = 0.0;
-        StockDTO stocks[] = stockModel.getAllStocks();
-        gbceAllShareIndex = StockHelper.calculateGBCEAllShareIndex(stocks);
-        return gbceAllShareIndex;
+        long startTime = System.nanoTime();
+        try {
+            double gbceAllShareIndex = 0.0;
+            GBCEIndexMode mode = stockModel.getGBCEIndexMode();
+            if(mode == GBCEIndexMode.SCAN) {
+                gbceAllShareIndex = StockHelper.calculateGBCEAllShareIndex(stockModel.getAllStocks(), clock.currentTimeNanos());
+            } else if(mode == GBCEIndexMode.PARALLEL) {
+                gbceAllShareIndex = StockHelper.calculateGBCEAllShareIndex(stockModel.getAllStocks(), clock.currentTimeNanos(),
+                        stockModel.getGBCEParallelThreshold());
+            } else {
+                gbceAllShareIndex = StockHelper.calculateGBCEAllShareIndex(stockModel.getGBCEIndexAggregator(), clock.currentTimeNanos());
+            }
+            return gbceAllShareIndex;
+        } finally {
+            metrics.getGBCEAllShareIndexLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * To get the finished Open, High, Low, Close and Volume bars of provided Stock instance
+     *
+     * @param stockSymbol     Stock for which bars are needed
+     * @param intervalSeconds Interval of the bars in seconds
+     * @return Finished bars from oldest to latest
+     * @since 1.1
+     */
+    @Override
+    public BarDTO[] getBars(String stockSymbol, int intervalSeconds) throws IllegalArgumentException{
+        if(stockSymbol == null || stockSymbol.isEmpty()) {
+            logger.error("getBars :: Stock Symbol can not be empty");
+            throw new IllegalArgumentException("Stock Symbol can not be empty");
+        }
+        return stockModel.getStock(stockSymbol).getBars(intervalSeconds);
+    }
+
+    /**
+     * To get the Open, High, Low, Close and Volume bar of the current interval of provided Stock instance
+     *
+     * @param stockSymbol     Stock for which bar is needed
+     * @param intervalSeconds Interval of the bar in seconds
+     * @return Current bar or null when there is no trade in the current interval
+     * @since 1.1
+     */
+    @Override
+    public BarDTO getCurrentBar(String stockSymbol, int intervalSeconds) throws IllegalArgumentException{
+        if(stockSymbol == null || stockSymbol.isEmpty()) {
+            logger.error("getCurrentBar :: Stock Symbol can not be empty");
+            throw new IllegalArgumentException("Stock Symbol can not be empty");
+        }
+        return stockModel.getStock(stockSymbol).getCurrentBar(intervalSeconds);
+    }
+
+    /**
+     * To subscribe to the bars of all the stocks
+     *
+     * @param listener Listener of finished bars
+     * @since 1.1
+     */
+    @Override
+    public void subscribeBars(BarListener listener) throws IllegalArgumentException{
+        stockModel.getBarPublisher().subscribe(listener);
+    }
+
+    /**
+     * To unsubscribe from the bars of all the stocks
+     *
+     * @param listener Subscribed listener
+     * @since 1.1
+     */
+    @Override
+    public void unsubscribeBars(BarListener listener) {
+        stockModel.getBarPublisher().unsubscribe(listener);
+    }
+
+    /**
+     * To finish the bars whose interval is over at the time of the clock of the service
+     *
+     * @since 1.1
+     */
+    @Override
+    public void finishBars() {
+        long currentTime = clock.currentTimeNanos();
+        for(StockDTO stock : stockModel.getAllStocks()) {
+            stock.finishBars(currentTime);
+        }
+    }
+
+    /**
+     * To subscribe to the trades of all the stocks which arrive after the watermark has passed them
+     *
+     * @param listener Listener of late trades
+     * @since 1.1
+     */
+    @Override
+    public void subscribeLateTrades(LateTradeListener listener) throws IllegalArgumentException{
+        stockModel.getLateTradePublisher().subscribe(listener);
+    }
+
+    /**
+     * To unsubscribe from the late trades of all the stocks
+     *
+     * @param listener Subscribed listener
+     * @since 1.1
+     */
+    @Override
+    public void unsubscribeLateTrades(LateTradeListener listener) {
+        stockModel.getLateTradePublisher().unsubscribe(listener);
+    }
+
+    /**
+     * To add the trades held for reordering whose lateness is over at the time of the clock of the service
+     *
+     * @since 1.1
+     */
+    @Override
+    public void releaseTrades() {
+        long currentTime = clock.currentTimeNanos();
+        for(StockDTO stock : stockModel.getAllStocks()) {
+            if(stock.releaseTrades(currentTime)) {
+                stockModel.getGBCEIndexAggregator().markUpdated(stock);
+            }
+        }
+    }
+
+    /**
+     * Function to reject a negative price of a stock
+     */
+    private void verifyPrice(String function, double price) {
+        if(price < 0) {
+            logger.error(function + " :: Price can not be negative");
+            throw new IllegalArgumentException("Price can not be negative");
+        }
+    }
+
+    /**
+     * Function to reject missing prices or results of the stocks, or results shorter than the prices
+     */
+    private void verifyPrices(String function, double[] prices, double[] results) {
+        if(prices == null || results == null) {
+            logger.error(function + " :: Prices and results can not be null");
+            throw new IllegalArgumentException("Prices and results can not be null");
+        }
+        if(results.length < prices.length) {
+            logger.error(function + " :: Results can not be shorter than the prices");
+            throw new IllegalArgumentException("Results can not be shorter than the prices");
+        }
+    }
+
+    /**
+     * Function to reject a trade with invalid quantity, price, indicator or timestamp
+     */
+    private void verifyTrade(long timestamp, int quantity, double price, TradeDomain.Indicator indicator) {
+        if(quantity <= 0){
+            logger.error("recordTrade :: Quantity can not be zero or negative");
+            throw new IllegalArgumentException("Quantity can not be zero or negative");
+        }
+        if(price < 0){
+            logger.error("recordTrade :: Trade price can not be negative");
+            throw new IllegalArgumentException("Trade price can not be negative");
+        }
+        if(!PriceTicks.isValidPrice(price)){
+            logger.error("recordTrade :: Trade price can not be more than " + PriceTicks.MAX_PRICE);
+            throw new IllegalArgumentException("Trade price can not be more than " + PriceTicks.MAX_PRICE);
+        }
+        if(!PriceTicks.isValidTradeValue(quantity, price)){
+            logger.error("recordTrade :: Trade quantity x price can not be more than " + Long.MAX_VALUE + " ticks");
+            throw new IllegalArgumentException("Trade quantity x price can not be more than " + Long.MAX_VALUE + " ticks");
+        }
+        if(indicator == null){
+            logger.error("recordTrade :: Trade indicator can not be null");
+            throw new IllegalArgumentException("Trade indicator can not be null");
+        }
+        if(StockHelper.isFutureTimestamp(timestamp, clock.currentTimeNanos())){
+            logger.error("recordTrade :: Trade can not be of future timestamp");
+            throw new IllegalArgumentException("Trade can not be of future timestamp");
+        }
+    }
+
+    /**
+     * Function to verify a batch of trades in a single pass, group the valid trades by stock keeping their order and
+     * add the trades of each stock holding its lock once
+     *
+     * The stock id and position of each valid trade are packed in a long, so sorting the keys groups the trades
+     * of a stock in the order of the batch without any object per trade. Overridden by {@link ShardedStockService}
+     * to hand the trades over to the shards of their stocks
+     */
+    int recordTrades(int[] stockIds, long[] timestamps, int[] quantities, double[] prices, byte[] indicators,
+                     int count, boolean[] rejected, long[] keys, int[] positions) {
+        long startTime = System.nanoTime();
+        try {
+            long currentTime = clock.currentTimeNanos();
+            int valid = 0;
+            for(int i = 0; i < count; i++) {
+                int stockId = stockIds[i];
+                StockDTO stock = stockModel.findStock(stockId);
+                if(isValidTrade(stock, timestamps[i], quantities[i], prices[i], indicators[i], currentTime)) {
+                    keys[valid++] = (long) stockId << 32 | i;
+                    if(rejected != null) {
+                        rejected[i] = false;
+                    }
+                } else {
+                    rejectTrade(rejected, i, stock);
+                }
+            }
+            Arrays.sort(keys, 0, valid);
+            for(int i = 0; i < valid; i++) {
+                positions[i] = (int) keys[i];
+            }
+            GBCEIndexAggregator gbceIndexAggregator = stockModel.getGBCEIndexAggregator();
+            int recorded = 0;
+            int from = 0;
+            while(from < valid) {
+                int stockId = (int) (keys[from] >>> 32);
+                int to = from + 1;
+                while(to < valid && (int) (keys[to] >>> 32) == stockId) {
+                    to++;
+                }
+                StockDTO stock = stockModel.findStock(stockId);
+                if(stock == null) {
+                    for(int i = from; i < to; i++) {
+                        rejectTrade(rejected, positions[i], null);
+                    }
+                } else {
+                    stock.addTrades(timestamps, quantities, prices, indicators, positions, from, to);
+                    gbceIndexAggregator.markUpdated(stock);
+                    recorded += to - from;
+                }
+                from = to;
+            }
+            if(recorded < count) {
+                logger.error("recordTrades :: " + (count - recorded) + " of " + count + " trades were rejected");
+            }
+            return recorded;
+        } finally {
+            metrics.getRecordTradesLatency().record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Function to check a trade of a batch, without logging or throwing for every invalid trade
+     * @param stock Stock of the trade, null when its stock id is not supported
+     */
+    boolean isValidTrade(StockDTO stock, long timestamp, int quantity, double price, byte indicator, long currentTime) {
+        return stock != null && quantity > 0 && PriceTicks.isValidPrice(price) && PriceTicks.isValidTradeValue(quantity, price)
+                && indicator >= 0 && indicator < INDICATOR_COUNT && !StockHelper.isFutureTimestamp(timestamp, currentTime);
+    }
+
+    /**
+     * Function to count a rejected trade of a batch and flag it when the batch keeps flags
+     */
+    void rejectTrade(boolean[] rejected, int position, StockDTO stock) {
+        if(rejected != null) {
+            rejected[position] = true;
+        }
+        metrics.tradeRejected(stock);
+    }
+
+    /**
+     * Function to add a verified trade to the stock and the GBCE All Share Index, overridden by
+     * {@link ShardedStockService} to hand the trade over to the shard of the stock
+     */
+    void addTrade(StockDTO stock, long timestamp, int quantity, double price, TradeDomain.Indicator indicator) {
+        stock.addTrade(timestamp, quantity, price, (byte) indicator.ordinal());
+        stockModel.getGBCEIndexAggregator().markUpdated(stock);
     }
 
 }
@@ -0,0 +1,350 @@
+package com.jpmorgan.digital.service.impl;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.helper.GBCEIndexAggregator;
+import com.jpmorgan.digital.helper.TradeClock;
+import com.jpmorgan.digital.helper.TradeRing;
+import com.jpmorgan.digital.model.StockModel;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TradeShard is the thread of {@link ShardedStockService} which owns the stocks of a shard
+ *
+ * It is the only thread adding trades to its stocks: it takes the trades handed over by the producers from its
+ * {@link TradeRing} and adds them in the order they were claimed, so the trades of a stock are never contended. The
+ * shard keeps the GBCE All Share Index of its stocks in its own {@link GBCEIndexAggregator} and publishes the sum of
+ * logarithms and the number of stocks of the index after every batch of trades and every idle wake up, which readers
+ * combine without ever waiting for a shard. Stocks added to and removed from the model reach the shard through the ring
+ * as commands, in order with the trades, so only the thread of the shard ever changes its index.
+ *
+ * Without trades the shard spins, then yields and then parks for {@value #PARK_NANOS} nanoseconds between two looks
+ * at the ring, so a trade waits at most that long once the shard is idle and an idle shard takes no CPU.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+class TradeShard implements Runnable {
+
+    private final static Logger logger = Logger.getLogger(TradeShard.class);
+
+    /**
+     * Stock id of the command to add the trades held for reordering whose lateness is over at its timestamp
+     */
+    static final int RELEASE_TRADES = -1;
+
+    /**
+     * Stock id of the command to finish the bars whose interval is over at its timestamp
+     */
+    static final int FINISH_BARS = -2;
+
+    /**
+     * Stock id of the command to index a stock added to the model, the id of the stock is in its quantity
+     */
+    static final int ADD_STOCK = -3;
+
+    /**
+     * Stock id of the command to take a stock removed from the model out of the index, the id of the stock is in its
+     * quantity
+     */
+    static final int REMOVE_STOCK = -4;
+
+    /**
+     * Number of trades added between two publications of the index
+     */
+    private static final int DRAIN_LIMIT = 1024;
+
+    private static final int SPIN_LOOPS = 64;
+
+    private static final int YIELD_LOOPS = 64;
+
+    private static final long PARK_NANOS = 50000L;
+
+    private static final IndexPartial NO_INDEX = new IndexPartial(0.0, 0);
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int shardId;
+
+    private final TradeRing ring;
+
+    private final TradeClock clock;
+
+    private final StockModel stockModel = StockModel.getModelInstance();
+
+    private final GBCEIndexAggregator indexAggregator = new GBCEIndexAggregator();
+
+    /**
+     * Stocks of the shard by id, a removed stock is kept so the trades handed over before its removal are still added,
+     * only used by the thread of the shard
+     */
+    private StockDTO[] stocksById = new StockDTO[INITIAL_CAPACITY];
+
+    /**
+     * Stocks of the shard which are not removed, for the commands run on all of them, only used by the thread of the shard
+     */
+    private final List<StockDTO> stocks = new ArrayList<StockDTO>();
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private volatile Throwable failure;
+
+    /**
+     * Index of the stocks of the shard at the last publication
+     */
+    private volatile IndexPartial indexPartial = NO_INDEX;
+
+    /**
+     * Number of trades and commands taken from the ring and added before the last publication
+     */
+    private volatile long publishedCount;
+
+    /**
+     * Requests of a publication by {@link #flush()}
+     */
+    private final AtomicLong flushRequests = new AtomicLong();
+
+    /**
+     * Last request of a publication served
+     */
+    private volatile long flushedRequest;
+
+    /**
+     * Creates the shard with its thread, not started yet
+     */
+    TradeShard(int shardId, int ringCapacity, TradeClock clock) {
+        this.shardId = shardId;
+        this.ring = new TradeRing(ringCapacity);
+        this.clock = clock;
+        thread = new Thread(this, "stock-shard-" + shardId);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Function to hand a trade or a command over to the shard, waiting while its ring is full
+     *
+     * A trade handed over while the shard is stopping may land after the last look of its thread at the ring, it is
+     * then added by {@link #drainStopped()} before returning
+     *
+     * @throws IllegalStateException When the shard is stopped
+     */
+    void offer(int stockId, long timestamp, int quantity, double price, byte indicator) throws IllegalStateException {
+        verifyRunning();
+        while(!ring.offer(stockId, timestamp, quantity, price, indicator)) {
+            verifyRunning();
+            Thread.yield();
+        }
+        if(!running) {
+            drainStopped();
+            if(failure != null) {
+                verifyRunning();
+            }
+        }
+    }
+
+    /**
+     * Function to wait until the trades handed over so far are added and the index published after them
+     * @throws IllegalStateException When the shard is stopped before
+     */
+    void flush() throws IllegalStateException {
+        long request = flushRequests.incrementAndGet();
+        long offered = ring.getOfferedCount();
+        while(flushedRequest < request || publishedCount < offered) {
+            if(!thread.isAlive()) {
+                verifyRunning();
+                return;
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Function to stop the shard once the trades handed over so far are added
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+        drainStopped();
+    }
+
+    /**
+     * Function to get the index of the stocks of the shard at the last publication
+     */
+    IndexPartial getIndexPartial() {
+        return indexPartial;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int idleLoops = 0;
+            while(true) {
+                boolean stopping = !running;
+                long request = flushRequests.get();
+                int added = 0;
+                while(added < DRAIN_LIMIT && ring.poll()) {
+                    apply();
+                    added++;
+                }
+                publish(clock.currentTimeNanos());
+                publishedCount = ring.getPolledCount();
+                flushedRequest = request;
+                if(added > 0) {
+                    idleLoops = 0;
+                } else if(stopping) {
+                    return;
+                } else {
+                    idle(idleLoops++);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            logger.error("run :: Shard " + shardId + " stopped", e);
+            failure = e;
+            running = false;
+        }
+    }
+
+    /**
+     * Function to add the trades and run the commands left in the ring once the thread of the shard is over, unless
+     * it failed, the shard is then drained by one caller at a time
+     */
+    private synchronized void drainStopped() {
+        boolean interrupted = false;
+        while(thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(failure == null) {
+            while(ring.poll()) {
+                apply();
+            }
+            publish(clock.currentTimeNanos());
+            publishedCount = ring.getPolledCount();
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Function to add the trade or run the command just taken from the ring
+     */
+    private void apply() {
+        int stockId = ring.getStockId();
+        if(stockId == ADD_STOCK) {
+            StockDTO stock = findStock(ring.getQuantity());
+            if(stock != null) {
+                indexAggregator.markUpdated(stock);
+            }
+            return;
+        }
+        if(stockId == REMOVE_STOCK) {
+            int removedId = ring.getQuantity();
+            if(removedId < stocksById.length && stocksById[removedId] != null) {
+                stocks.remove(stocksById[removedId]);
+                indexAggregator.removeStock(stocksById[removedId]);
+            }
+            return;
+        }
+        if(stockId == RELEASE_TRADES || stockId == FINISH_BARS) {
+            for(StockDTO stock : stocks) {
+                if(stockId == FINISH_BARS) {
+                    stock.finishBars(ring.getTimestamp());
+                } else if(stock.releaseTrades(ring.getTimestamp())) {
+                    indexAggregator.markUpdated(stock);
+                }
+            }
+            return;
+        }
+        StockDTO stock = findStock(stockId);
+        if(stock == null) {
+            logger.error("apply :: Stock " + stockId + " was removed before its trade was added");
+            return;
+        }
+        try {
+            stock.addTrade(ring.getTimestamp(), ring.getQuantity(), ring.getPrice(), ring.getIndicator());
+        } catch (RuntimeException e) {
+            logger.error("apply :: Trade of " + stock.getStockSymbol() + " can not be added", e);
+            return;
+        }
+        indexAggregator.markUpdated(stock);
+    }
+
+    /**
+     * Function to find a stock of the shard, a stock not known to the shard yet is looked up in the model
+     */
+    private StockDTO findStock(int stockId) {
+        if(stockId < stocksById.length && stocksById[stockId] != null) {
+            return stocksById[stockId];
+        }
+        StockDTO stock = stockModel.findStock(stockId);
+        if(stock != null) {
+            if(stockId >= stocksById.length) {
+                stocksById = Arrays.copyOf(stocksById, Math.max(stockId + 1, stocksById.length << 1));
+            }
+            stocksById[stockId] = stock;
+            stocks.add(stock);
+        }
+        return stock;
+    }
+
+    /**
+     * Function to publish the index of the stocks of the shard, a new partial is created only when it changed
+     */
+    private void publish(long currentTime) {
+        double index = indexAggregator.getIndex(currentTime);
+        int stockCount = indexAggregator.getStockCount();
+        double logTotal = stockCount == 0 ? 0.0 : Math.log(index) * stockCount;
+        IndexPartial partial = indexPartial;
+        if(partial.logTotal != logTotal || partial.stockCount != stockCount) {
+            indexPartial = new IndexPartial(logTotal, stockCount);
+        }
+    }
+
+    private void idle(int idleLoops) {
+        if(idleLoops < SPIN_LOOPS) {
+            return;
+        }
+        if(idleLoops < SPIN_LOOPS + YIELD_LOOPS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private void verifyRunning() {
+        if(!running) {
+            Throwable error = failure;
+            throw new IllegalStateException("Shard " + shardId + " is stopped" + (error == null ? "" : " after " + error), error);
+        }
+    }
+
+    /**
+     * IndexPartial is the sum of logarithms of the Volume Weighted prices of the stocks of a shard in the index
+     */
+    static final class IndexPartial {
+
+        final double logTotal;
+
+        final int stockCount;
+
+        IndexPartial(double logTotal, int stockCount) {
+            this.logTotal = logTotal;
+            this.stockCount = stockCount;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.jpmorgan.digital.tools;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.log4j.Logger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+/**
+ * GcMonitor follows the heap and the garbage collections of the JVM during a soak test
+ *
+ * Collections are counted from the garbage collector MXBeans. The longest collection is taken from the notification
+ * sent at the end of every collection, where the JVM sends them, and is reset every time it is read so every report
+ * interval gets its own. The heap after the last collection is the live data kept by the application, unlike the heap
+ * used, which also has the garbage not collected yet, so it is the one to follow for a leak.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class GcMonitor implements NotificationListener {
+
+    private final static Logger logger = Logger.getLogger(GcMonitor.class);
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
+
+    /**
+     * Longest collection since the last read in milliseconds
+     */
+    private long maxPauseMillis;
+
+    /**
+     * Function to listen to the end of the collections of the JVM, where it sends notifications
+     * @since 1.1
+     */
+    public void start() {
+        for(GarbageCollectorMXBean collector : collectors) {
+            if(collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+    }
+
+    /**
+     * Function to stop listening to the collections
+     * @since 1.1
+     */
+    public void stop() {
+        for(GarbageCollectorMXBean collector : collectors) {
+            if(collector instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    logger.debug("stop :: No listener on " + collector.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Function to record the duration of a finished collection
+     */
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long duration = info.getGcInfo().getDuration();
+            synchronized (this) {
+                maxPauseMillis = Math.max(maxPauseMillis, duration);
+            }
+        }
+    }
+
+    /**
+     * Function to get the longest collection since the last call and start over
+     * @return maxPauseMillis Longest collection in milliseconds, 0 without collection or notification
+     * @since 1.1
+     */
+    public synchronized long takeMaxPauseMillis() {
+        long pause = maxPauseMillis;
+        maxPauseMillis = 0;
+        return pause;
+    }
+
+    /**
+     * Function to get the number of collections since the JVM started
+     * @return count Number of collections of all the collectors
+     * @since 1.1
+     */
+    public long getCollectionCount() {
+        long count = 0;
+        for(GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    /**
+     * Function to get the time spent in collections since the JVM started
+     * @return time Time of all the collectors in milliseconds
+     * @since 1.1
+     */
+    public long getCollectionTimeMillis() {
+        long time = 0;
+        for(GarbageCollectorMXBean collector : collectors) {
+            time += Math.max(collector.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /**
+     * Function to get the heap used now, with the garbage not collected yet
+     * @return heapUsed Heap used in megabytes
+     * @since 1.1
+     */
+    public long getHeapUsedMegabytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / MEGABYTE;
+    }
+
+    /**
+     * Function to get the heap used after the last collection of each heap pool
+     * @return heapAfterGc Heap live after collections in megabytes
+     * @since 1.1
+     */
+    public long getHeapAfterGcMegabytes() {
+        long used = 0;
+        for(MemoryPoolMXBean memoryPool : memoryPools) {
+            MemoryUsage usage = memoryPool.getType() == MemoryType.HEAP ? memoryPool.getCollectionUsage() : null;
+            if(usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used / MEGABYTE;
+    }
+}
@@ -0,0 +1,675 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeCursor;
+import com.jpmorgan.digital.helper.LateTradePolicy;
+import com.jpmorgan.digital.helper.PriceTicks;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.helper.TradeClock;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LoadGenerator stresses an in process {@link StockService} with synthetic trades and queries from many threads and
+ * checks that no trade is lost, to soak test the service for hours under contention
+ *
+ * Every thread draws the symbol of each operation from a {@link ZipfSampler}, so a few symbols take most of the
+ * trades and their locks are contended like those of the most traded stocks of a market. An operation is a query with
+ * the read ratio, the GBCE All Share Index for the index ratio of the queries and the Volume Weighted price of the
+ * symbol otherwise, and a trade recorded at the current time of the clock in the other cases.
+ *
+ * Threads count the trades they record by symbol without sharing anything. Every report interval the threads are
+ * held between two batches of operations and the counts are checked against the trades recorded by each stock, which
+ * catches a lost or doubled update at most one interval after it happened. At the end the quantity and quantity x price
+ * of the trades kept by every stock are checked as well, for the stocks whose trades were neither evicted, held for
+ * reordering nor dropped as late. Queries are checked to give a price within the prices traded.
+ *
+ * Every report interval a line has the operations per second, the heap used and live after collections and the
+ * collections of the interval from {@link GcMonitor}, so a leak shows as a live heap growing from line to line.
+ *
+ * <pre>
+ *     java -cp SuperSimpleStockMarket-1.0.jar com.jpmorgan.digital.tools.LoadGenerator [--symbols=1000] [--zipf=1.0]
+ *          [--threads=4] [--read-ratio=0.2] [--index-ratio=0.1] [--duration=60] [--report-every=10] [--seed=42]
+ * </pre>
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class LoadGenerator {
+
+    public static final int DEFAULT_SYMBOL_COUNT = 1000;
+
+    public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    public static final double DEFAULT_READ_RATIO = 0.2;
+
+    public static final double DEFAULT_INDEX_RATIO = 0.1;
+
+    public static final long DEFAULT_DURATION_MILLIS = 60000L;
+
+    public static final long DEFAULT_REPORT_INTERVAL_MILLIS = 10000L;
+
+    /**
+     * Lowest price of the synthetic trades
+     */
+    static final double MIN_PRICE = 10.0;
+
+    /**
+     * Number of cents above the lowest price of the synthetic trades, so prices are whole cents
+     */
+    private static final int PRICE_CENTS = 100000;
+
+    /**
+     * Highest price of the synthetic trades
+     */
+    static final double MAX_PRICE = MIN_PRICE + (PRICE_CENTS - 1) / 100.0;
+
+    private static final int MAX_QUANTITY = 100;
+
+    /**
+     * Number of operations of a thread between two chances to check the invariants
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Number of violation messages kept, violations after them are only counted
+     */
+    private static final int MAX_VIOLATION_MESSAGES = 100;
+
+    private static final long MILLISECOND = 1000000L;
+
+    private final StockService stockService;
+
+    private final TradeClock clock;
+
+    private final StockServiceMetrics metrics;
+
+    private final String[] symbols;
+
+    private double zipfExponent = DEFAULT_ZIPF_EXPONENT;
+
+    private int threadCount = DEFAULT_THREAD_COUNT;
+
+    private double readRatio = DEFAULT_READ_RATIO;
+
+    private double indexRatio = DEFAULT_INDEX_RATIO;
+
+    private long durationMillis = DEFAULT_DURATION_MILLIS;
+
+    private long reportIntervalMillis = DEFAULT_REPORT_INTERVAL_MILLIS;
+
+    private long seed = 42;
+
+    /**
+     * Held by the threads while they run a batch of operations and by the checks, so counts are checked at rest
+     */
+    private final ReentrantReadWriteLock checkLock = new ReentrantReadWriteLock();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    private volatile boolean stopped;
+
+    private StockDTO[] stocks;
+
+    private int[] stockIds;
+
+    private Worker[] workers;
+
+    /**
+     * Heap live after collections at the first report in megabytes
+     */
+    private long firstHeapAfterGc;
+
+    /**
+     * Trades recorded by every stock before the run
+     */
+    private long[] baseTradeCounts;
+
+    private long[] baseQuantities;
+
+    private long[] baseNotionals;
+
+    private final List<String> violations = new ArrayList<String>();
+
+    private long violationCount;
+
+    private long elapsedNanos;
+
+    private long lastHeapAfterGc;
+
+    private long collectionCount;
+
+    private long collectionTimeMillis;
+
+    private long maxPauseMillis;
+
+    /**
+     * Creates the generator of a service
+     * @param stockService Service the load is sent to
+     * @param clock Clock of the service, giving the time of the trades
+     * @param metrics Metrics of the service, read for the latencies of the report
+     * @param symbols Symbols of the stocks of the model traded, in decreasing popularity
+     * @throws IllegalArgumentException When no symbol is provided or a symbol is not supported
+     */
+    public LoadGenerator(StockService stockService, TradeClock clock, StockServiceMetrics metrics, String[] symbols)
+            throws IllegalArgumentException {
+        if(symbols == null || symbols.length == 0) {
+            throw new IllegalArgumentException("Load needs at least one symbol");
+        }
+        this.stockService = stockService;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.symbols = symbols.clone();
+        stocks = new StockDTO[symbols.length];
+        stockIds = new int[symbols.length];
+        for(int i = 0; i < symbols.length; i++) {
+            stockIds[i] = stockService.getStockId(symbols[i]);
+            stocks[i] = StockModel.getModelInstance().getStock(symbols[i]);
+        }
+    }
+
+    /**
+     * Function to add synthetic stocks to the model, to be traded by the generator
+     * @param symbolCount Number of stocks
+     * @return symbols Symbols of the stocks, L0 to L(symbolCount - 1)
+     * @throws IllegalArgumentException When symbol count is not positive or the stocks are already in the model
+     * @since 1.1
+     */
+    public static String[] createStocks(int symbolCount) throws IllegalArgumentException {
+        if(symbolCount <= 0) {
+            throw new IllegalArgumentException("Number of symbols must be positive");
+        }
+        String[] symbols = new String[symbolCount];
+        StockDTO[] stocks = new StockDTO[symbolCount];
+        for(int i = 0; i < symbolCount; i++) {
+            StockDTO stock = new StockDTO();
+            symbols[i] = "L" + i;
+            stock.setStockSymbol(symbols[i]);
+            stock.setStockType((i & 1) == 0 ? "Common" : "Preferred");
+            stock.setLastDividend(1 + i % 20);
+            stock.setFixedDividend(1 + i % 3);
+            stock.setParValue(100);
+            stocks[i] = stock;
+        }
+        StockModel.getModelInstance().addStocks(stocks);
+        return symbols;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#zipfExponent} for more information
+     */
+    public void setZipfExponent(double zipfExponent) {
+        if(!(zipfExponent >= 0) || Double.isInfinite(zipfExponent)) {
+            throw new IllegalArgumentException("Zipf exponent must be 0 or a positive number");
+        }
+        this.zipfExponent = zipfExponent;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#threadCount} for more information
+     */
+    public void setThreadCount(int threadCount) {
+        if(threadCount <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#readRatio} for more information
+     */
+    public void setReadRatio(double readRatio) {
+        if(!(readRatio >= 0 && readRatio <= 1)) {
+            throw new IllegalArgumentException("Read ratio must be from 0 to 1");
+        }
+        this.readRatio = readRatio;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#indexRatio} for more information
+     */
+    public void setIndexRatio(double indexRatio) {
+        if(!(indexRatio >= 0 && indexRatio <= 1)) {
+            throw new IllegalArgumentException("Index ratio must be from 0 to 1");
+        }
+        this.indexRatio = indexRatio;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#durationMillis} for more information
+     */
+    public void setDurationMillis(long durationMillis) {
+        if(durationMillis <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#reportIntervalMillis} for more information
+     */
+    public void setReportIntervalMillis(long reportIntervalMillis) {
+        if(reportIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Report interval must be positive");
+        }
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#seed} for more information
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Function to run the load for the duration, checking the invariants and printing a line every report interval
+     * @param out Stream of the interval lines
+     * @return True - If every invariant held and no thread failed, False - Otherwise
+     * @throws InterruptedException When the calling thread is interrupted, the load is then stopped
+     * @since 1.1
+     */
+    public boolean run(PrintStream out) throws InterruptedException {
+        ZipfSampler sampler = new ZipfSampler(symbols.length, zipfExponent);
+        baseTradeCounts = new long[symbols.length];
+        baseQuantities = new long[symbols.length];
+        baseNotionals = new long[symbols.length];
+        for(int i = 0; i < symbols.length; i++) {
+            baseTradeCounts[i] = stocks[i].getRecordedTradeCount();
+            sumTrades(i, baseQuantities, baseNotionals);
+        }
+        GcMonitor gcMonitor = new GcMonitor();
+        gcMonitor.start();
+        long startCollectionCount = gcMonitor.getCollectionCount();
+        long startCollectionTime = gcMonitor.getCollectionTimeMillis();
+        firstHeapAfterGc = -1;
+        out.println(String.format(Locale.ROOT, "%10s %12s %12s %10s %10s %10s %8s %10s %10s %10s", "elapsed s",
+                "writes/s", "reads/s", "rejected", "heap MB", "live MB", "gc", "gc ms", "pause ms", "violations"));
+
+        stopped = false;
+        workers = new Worker[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for(int i = 0; i < threadCount; i++) {
+            workers[i] = new Worker(sampler, new SplittableRandom(seed + i));
+            threads[i] = new Thread(workers[i], "load-generator-" + i);
+            threads[i].setDaemon(true);
+        }
+        long startTime = System.nanoTime();
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        long endTime = startTime + durationMillis * MILLISECOND;
+        long lastWrites = 0;
+        long lastReads = 0;
+        long lastTime = startTime;
+        long lastCollectionCount = startCollectionCount;
+        long lastCollectionTime = startCollectionTime;
+        try {
+            while(failure.get() == null) {
+                long now = System.nanoTime();
+                if(now >= endTime) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(reportIntervalMillis * MILLISECOND, endTime - now));
+                checkLock.writeLock().lock();
+                try {
+                    now = System.nanoTime();
+                    checkTradeCounts();
+                    long writes = 0;
+                    long reads = 0;
+                    long rejected = 0;
+                    for(Worker worker : workers) {
+                        writes += worker.writes;
+                        reads += worker.reads;
+                        rejected += worker.rejected;
+                    }
+                    double seconds = (now - lastTime) / 1e9;
+                    long count = gcMonitor.getCollectionCount();
+                    long time = gcMonitor.getCollectionTimeMillis();
+                    long pause = gcMonitor.takeMaxPauseMillis();
+                    maxPauseMillis = Math.max(maxPauseMillis, pause);
+                    long heapAfterGc = gcMonitor.getHeapAfterGcMegabytes();
+                    if(firstHeapAfterGc < 0) {
+                        firstHeapAfterGc = heapAfterGc;
+                    }
+                    out.println(String.format(Locale.ROOT, "%10.1f %12.0f %12.0f %10d %10d %10d %8d %10d %10d %10d",
+                            (now - startTime) / 1e9, (writes - lastWrites) / seconds, (reads - lastReads) / seconds,
+                            rejected, gcMonitor.getHeapUsedMegabytes(), heapAfterGc,
+                            count - lastCollectionCount, time - lastCollectionTime, pause, violationCount));
+                    lastWrites = writes;
+                    lastReads = reads;
+                    lastTime = now;
+                    lastCollectionCount = count;
+                    lastCollectionTime = time;
+                } finally {
+                    checkLock.writeLock().unlock();
+                }
+            }
+        } finally {
+            stopped = true;
+            for(Thread thread : threads) {
+                thread.join();
+            }
+            elapsedNanos = System.nanoTime() - startTime;
+            gcMonitor.stop();
+        }
+        maxPauseMillis = Math.max(maxPauseMillis, gcMonitor.takeMaxPauseMillis());
+        collectionCount = gcMonitor.getCollectionCount() - startCollectionCount;
+        collectionTimeMillis = gcMonitor.getCollectionTimeMillis() - startCollectionTime;
+        lastHeapAfterGc = gcMonitor.getHeapAfterGcMegabytes();
+        if(firstHeapAfterGc < 0) {
+            firstHeapAfterGc = lastHeapAfterGc;
+        }
+        checkInvariants();
+        return isPassed();
+    }
+
+    /**
+     * Function to check the trade counts, volumes and queries of the load against the stocks, once the load is over
+     * @return violations Number of violations found by this check
+     * @since 1.1
+     */
+    public long checkInvariants() {
+        long before = violationCount;
+        checkTradeCounts();
+        long[] quantities = new long[symbols.length];
+        long[] notionals = new long[symbols.length];
+        for(int i = 0; i < symbols.length; i++) {
+            StockDTO stock = stocks[i];
+            if(stock.getEvictedTradeCount() > 0 || stock.getPendingTradeCount() > 0
+                    || (stock.getLateTradeCount() > 0 && stock.getLateTradePolicy() == LateTradePolicy.DROP)) {
+                continue;
+            }
+            sumTrades(i, quantities, notionals);
+            long expectedQuantity = baseQuantities[i];
+            long expectedNotional = baseNotionals[i];
+            for(Worker worker : workers) {
+                expectedQuantity += worker.quantities[i];
+                expectedNotional += worker.notionals[i];
+            }
+            if(quantities[i] != expectedQuantity || notionals[i] != expectedNotional) {
+                addViolation("Stock " + symbols[i] + " keeps a volume of " + quantities[i] + " and quantity x ticks of "
+                        + notionals[i] + " instead of " + expectedQuantity + " and " + expectedNotional);
+            }
+        }
+        long rejected = 0;
+        long invalidReads = 0;
+        for(Worker worker : workers) {
+            rejected += worker.rejected;
+            invalidReads += worker.invalidReads;
+        }
+        if(rejected > 0) {
+            addViolation(rejected + " valid trades were rejected by the service");
+        }
+        if(invalidReads > 0) {
+            addViolation(invalidReads + " queries gave a price outside of the prices traded");
+        }
+        Throwable error = failure.get();
+        if(error != null) {
+            addViolation("Load thread failed with " + error);
+        }
+        return violationCount - before;
+    }
+
+    /**
+     * Function to print the totals, latencies, collections and violations of the run
+     * @param out Stream of the report
+     * @since 1.1
+     */
+    public void printReport(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.println(String.format(Locale.ROOT, "%-28s %.1f s", "Elapsed", seconds));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Symbols", symbols.length));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Threads", threadCount));
+        out.println(String.format(Locale.ROOT, "%-28s %d (%.0f/s)", "Trades recorded", getWriteCount(), getWriteCount() / seconds));
+        out.println(String.format(Locale.ROOT, "%-28s %d (%.0f/s)", "Queries", getReadCount(), getReadCount() / seconds));
+        out.println(String.format(Locale.ROOT, "%-28s %d MB at the first report to %d MB", "Live heap after GC", firstHeapAfterGc, lastHeapAfterGc));
+        out.println(String.format(Locale.ROOT, "%-28s %d taking %d ms, longest %d ms", "Collections", collectionCount,
+                collectionTimeMillis, maxPauseMillis));
+        out.println();
+        TapeReplay.printLatencies(out, metrics);
+        out.println();
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Invariant violations", violationCount));
+        for(String violation : violations) {
+            out.println("  " + violation);
+        }
+        out.println(isPassed() ? "PASSED" : "FAILED");
+    }
+
+    /**
+     * Function to get the number of trades recorded by the load
+     * @return count Trades recorded
+     * @since 1.1
+     */
+    public long getWriteCount() {
+        long count = 0;
+        for(Worker worker : workers) {
+            count += worker.writes;
+        }
+        return count;
+    }
+
+    /**
+     * Function to get the number of queries of the load
+     * @return count Volume Weighted price and index queries
+     * @since 1.1
+     */
+    public long getReadCount() {
+        long count = 0;
+        for(Worker worker : workers) {
+            count += worker.reads;
+        }
+        return count;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#violationCount} for more information
+     */
+    public long getViolationCount() {
+        return violationCount;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.LoadGenerator#violations} for more information
+     */
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    /**
+     * Function to check if the load ran without any violation
+     * @return True - If no invariant was violated, False - Otherwise
+     * @since 1.1
+     */
+    public boolean isPassed() {
+        return violationCount == 0;
+    }
+
+    /**
+     * Function to run a soak test of the service on the wall clock with the stocks of the config and synthetic stocks
+     * @param args Options of the load
+     */
+    public static void main(String[] args) {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        int symbolCount = DEFAULT_SYMBOL_COUNT;
+        LoadGenerator generator;
+        try {
+            StockModel.getModelInstance().init();
+            for(String option : args) {
+                if(option.startsWith("--symbols=")) {
+                    symbolCount = Integer.parseInt(option.substring("--symbols=".length()));
+                }
+            }
+            StockServiceMetrics metrics = new StockServiceMetrics();
+            TradeClock clock = SystemTradeClock.getClockInstance();
+            generator = new LoadGenerator(new StockServiceImpl(clock, metrics), clock, metrics, createStocks(symbolCount));
+            for(String option : args) {
+                if(option.startsWith("--symbols=")) {
+                    continue;
+                } else if(option.startsWith("--zipf=")) {
+                    generator.setZipfExponent(Double.parseDouble(option.substring("--zipf=".length())));
+                } else if(option.startsWith("--threads=")) {
+                    generator.setThreadCount(Integer.parseInt(option.substring("--threads=".length())));
+                } else if(option.startsWith("--read-ratio=")) {
+                    generator.setReadRatio(Double.parseDouble(option.substring("--read-ratio=".length())));
+                } else if(option.startsWith("--index-ratio=")) {
+                    generator.setIndexRatio(Double.parseDouble(option.substring("--index-ratio=".length())));
+                } else if(option.startsWith("--duration=")) {
+                    generator.setDurationMillis(Long.parseLong(option.substring("--duration=".length())) * 1000L);
+                } else if(option.startsWith("--report-every=")) {
+                    generator.setReportIntervalMillis(Long.parseLong(option.substring("--report-every=".length())) * 1000L);
+                } else if(option.startsWith("--seed=")) {
+                    generator.setSeed(Long.parseLong(option.substring("--seed=".length())));
+                } else {
+                    throw new IllegalArgumentException("Option " + option + " is not supported");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp SuperSimpleStockMarket-1.0.jar " + LoadGenerator.class.getName()
+                    + " [--symbols=<n>] [--zipf=<exponent>] [--threads=<n>] [--read-ratio=<0..1>] [--index-ratio=<0..1>]"
+                    + " [--duration=<seconds>] [--report-every=<seconds>] [--seed=<n>]");
+            System.exit(2);
+            return;
+        }
+        try {
+            boolean passed = generator.run(System.out);
+            generator.printReport(System.out);
+            System.exit(passed ? 0 : 1);
+        } catch (InterruptedException e) {
+            System.err.println("Load was interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Function to check the trades recorded by every stock against the trades recorded by the threads, must be called
+     * while the threads are held
+     */
+    private void checkTradeCounts() {
+        for(int i = 0; i < symbols.length; i++) {
+            long expected = baseTradeCounts[i];
+            for(Worker worker : workers) {
+                expected += worker.tradeCounts[i];
+            }
+            long recorded = stocks[i].getRecordedTradeCount();
+            if(recorded != expected) {
+                addViolation("Stock " + symbols[i] + " recorded " + recorded + " trades instead of " + expected);
+                baseTradeCounts[i] += recorded - expected;
+            }
+        }
+    }
+
+    /**
+     * Function to add up the quantity and quantity x ticks of the trades kept by a stock
+     */
+    private void sumTrades(int index, long[] quantities, long[] notionals) {
+        TradeCursor cursor = stocks[index].openCursor(new TradeCursor());
+        long quantity = 0;
+        long notional = 0;
+        while(cursor.next()) {
+            quantity += cursor.getQuantity();
+            notional += cursor.getQuantity() * cursor.getPriceTicks();
+        }
+        quantities[index] = quantity;
+        notionals[index] = notional;
+    }
+
+    private void addViolation(String violation) {
+        violationCount++;
+        if(violations.size() < MAX_VIOLATION_MESSAGES) {
+            violations.add(violation);
+        }
+    }
+
+    /**
+     * Worker sends operations to the service from one thread and counts the trades it recorded by symbol
+     */
+    private class Worker implements Runnable {
+
+        private final ZipfSampler sampler;
+
+        private final SplittableRandom random;
+
+        private final long[] tradeCounts = new long[symbols.length];
+
+        private final long[] quantities = new long[symbols.length];
+
+        private final long[] notionals = new long[symbols.length];
+
+        private long writes;
+
+        private long reads;
+
+        private long rejected;
+
+        private long invalidReads;
+
+        private Worker(ZipfSampler sampler, SplittableRandom random) {
+            this.sampler = sampler;
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while(!stopped) {
+                    checkLock.readLock().lock();
+                    try {
+                        for(int i = 0; i < BATCH_SIZE && !stopped; i++) {
+                            operate();
+                        }
+                    } finally {
+                        checkLock.readLock().unlock();
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+                stopped = true;
+            }
+        }
+
+        private void operate() {
+            int rank = sampler.sample(random.nextDouble());
+            if(random.nextDouble() < readRatio) {
+                double price = random.nextDouble() < indexRatio ? stockService.calculateGBCEAllShareIndex()
+                        : stockService.calculateVolWeightedPrice(stockIds[rank]);
+                if(!(price == 0 || (price >= MIN_PRICE - 1e-9 && price <= MAX_PRICE + 1e-9))) {
+                    invalidReads++;
+                }
+                reads++;
+                return;
+            }
+            int quantity = 1 + random.nextInt(MAX_QUANTITY);
+            double price = MIN_PRICE + random.nextInt(PRICE_CENTS) / 100.0;
+            try {
+                stockService.recordTrade(stockIds[rank], clock.currentTimeNanos(), quantity, price,
+                        random.nextBoolean() ? TradeDomain.Indicator.BUY : TradeDomain.Indicator.SELL);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                return;
+            }
+            tradeCounts[rank]++;
+            quantities[rank] += quantity;
+            notionals[rank] += quantity * PriceTicks.toTicks(price);
+            writes++;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.metrics.LatencyHistogram;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TapeReplay replays a tape of captured trades through {@link StockService#recordTrade(int, long, int, double, TradeDomain.Indicator)},
+ * interleaved with Volume Weighted price and GBCE All Share Index queries, to load test the service or reproduce an incident
+ *
+ * The tape is streamed by {@link TradeTapeReader}, so tapes of any size are replayed in a fixed amount of memory. The
+ * service runs on a {@link SimulatedTradeClock} following the timestamps of the tape, so windows and the index are
+ * those of the time of the trades, and the tape is replayed at one of two speeds:
+ *
+ * <ul>
+ *     <li>Max speed - trades are recorded one after the other as fast as the service takes them</li>
+ *     <li>Time scaled - trades are recorded at the pace of their timestamps multiplied by the speed, e.g. 10 replays
+ *     an hour of trades in 6 minutes</li>
+ * </ul>
+ *
+ * Every query interval the Volume Weighted price of the stock of the latest trade and the GBCE All Share Index are
+ * calculated. The report has the trades recorded per second, the latency percentiles of the service from its
+ * {@link StockServiceMetrics} and the index and Volume Weighted prices at the end of the tape.
+ *
+ * Run from the jar built by the assembly plugin, with the stocks of the config of {@link StockModel}:
+ *
+ * <pre>
+ *     java -jar SuperSimpleStockMarket-1.0.jar trades.csv [--speed=max|&lt;factor&gt;] [--query-every=&lt;trades&gt;] [--buffer-kb=&lt;kb&gt;]
+ *     java -jar SuperSimpleStockMarket-1.0.jar --convert trades.csv trades.bin
+ * </pre>
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class TapeReplay {
+
+    /**
+     * Default number of trades between two rounds of queries
+     */
+    public static final int DEFAULT_QUERY_INTERVAL = 100;
+
+    /**
+     * Number of symbols with their Volume Weighted price in the report
+     */
+    private static final int REPORTED_SYMBOLS = 20;
+
+    private static final int UNRESOLVED = -2;
+
+    private static final long MILLISECOND = 1000000L;
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private static final TradeDomain.Indicator[] INDICATORS = TradeDomain.Indicator.values();
+
+    private final StockService stockService;
+
+    private final SimulatedTradeClock clock;
+
+    private final StockServiceMetrics metrics;
+
+    /**
+     * Multiple of the pace of the tape, 0 for max speed
+     */
+    private final double speed;
+
+    /**
+     * Number of trades between two rounds of queries, 0 for no query
+     */
+    private final int queryInterval;
+
+    /**
+     * Stock ids by symbol index of the tape, -1 for symbols without a stock
+     */
+    private int[] stockIds = new int[0];
+
+    private long tradesRead;
+
+    private long tradesRecorded;
+
+    private long tradesRejected;
+
+    private long linesSkipped;
+
+    private long queryCount;
+
+    private long elapsedNanos;
+
+    private double gbceAllShareIndex;
+
+    private String[] reportedSymbols = new String[0];
+
+    private double[] reportedVolWeightedPrices = new double[0];
+
+    private int symbolCount;
+
+    /**
+     * Creates the replay of a service
+     * @param stockService Service the trades are recorded to, running on the clock
+     * @param clock Clock of the service, moved to the time of every trade
+     * @param metrics Metrics of the service, read for the latencies of the report
+     * @param speed Multiple of the pace of the tape, 0 for max speed
+     * @param queryInterval Number of trades between two rounds of queries, 0 for no query
+     * @throws IllegalArgumentException When speed or query interval is negative
+     */
+    public TapeReplay(StockService stockService, SimulatedTradeClock clock, StockServiceMetrics metrics, double speed,
+                      int queryInterval) throws IllegalArgumentException {
+        if(!(speed >= 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Replay speed must be 0 for max speed or a positive number");
+        }
+        if(queryInterval < 0) {
+            throw new IllegalArgumentException("Query interval can not be negative");
+        }
+        this.stockService = stockService;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.speed = speed;
+        this.queryInterval = queryInterval;
+    }
+
+    /**
+     * Function to replay all the trades of a tape, trades rejected by the service are counted and skipped
+     * @param reader Tape positioned before its first trade
+     * @throws IOException When the tape can not be read
+     * @since 1.1
+     */
+    public void replay(TradeTapeReader reader) throws IOException {
+        long startTime = System.nanoTime();
+        long firstTimestamp = 0;
+        while(reader.next()) {
+            long timestamp = reader.getTimestamp();
+            if(tradesRead == 0) {
+                firstTimestamp = timestamp;
+            } else if(speed > 0) {
+                long waitNanos = startTime + (long) ((timestamp - firstTimestamp) / speed) - System.nanoTime();
+                if(waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+            }
+            tradesRead++;
+            clock.advanceTo(timestamp);
+            int symbolIndex = reader.getSymbolIndex();
+            int stockId = resolveStockId(reader, symbolIndex);
+            TradeDomain.Indicator tradeIndicator = INDICATORS[reader.getIndicator()];
+            try {
+                if(stockId >= 0) {
+                    stockService.recordTrade(stockId, timestamp, reader.getQuantity(), reader.getPrice(), tradeIndicator);
+                } else {
+                    stockService.recordTrade(reader.getSymbol(symbolIndex), timestamp, reader.getQuantity(), reader.getPrice(), tradeIndicator);
+                }
+                tradesRecorded++;
+            } catch (IllegalArgumentException e) {
+                tradesRejected++;
+            }
+            if(queryInterval > 0 && tradesRead % queryInterval == 0) {
+                if(stockId >= 0) {
+                    stockService.calculateVolWeightedPrice(stockId);
+                }
+                stockService.calculateGBCEAllShareIndex();
+                queryCount++;
+            }
+        }
+        elapsedNanos = System.nanoTime() - startTime;
+        linesSkipped = reader.getSkippedLineCount();
+        gbceAllShareIndex = stockService.calculateGBCEAllShareIndex();
+        symbolCount = reader.getSymbolCount();
+        int reported = 0;
+        reportedSymbols = new String[Math.min(symbolCount, REPORTED_SYMBOLS)];
+        reportedVolWeightedPrices = new double[reportedSymbols.length];
+        for(int i = 0; i < symbolCount && reported < reportedSymbols.length; i++) {
+            if(i < stockIds.length && stockIds[i] >= 0) {
+                reportedSymbols[reported] = reader.getSymbol(i);
+                reportedVolWeightedPrices[reported++] = stockService.calculateVolWeightedPrice(stockIds[i]);
+            }
+        }
+        reportedSymbols = Arrays.copyOf(reportedSymbols, reported);
+        reportedVolWeightedPrices = Arrays.copyOf(reportedVolWeightedPrices, reported);
+    }
+
+    /**
+     * Function to print the throughput, latencies and final values of the replay
+     * @param out Stream of the report
+     * @since 1.1
+     */
+    public void printReport(PrintStream out) {
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Trades read", tradesRead));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Trades recorded", tradesRecorded));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Trades rejected", tradesRejected));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Lines skipped", linesSkipped));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Symbols", symbolCount));
+        out.println(String.format(Locale.ROOT, "%-28s %d", "Query rounds", queryCount));
+        out.println(String.format(Locale.ROOT, "%-28s %d ms", "Elapsed", elapsedNanos / MILLISECOND));
+        out.println(String.format(Locale.ROOT, "%-28s %.0f trades/sec", "Throughput", getTradesPerSecond()));
+        out.println();
+        printLatencies(out, metrics);
+        out.println();
+        out.println(String.format(Locale.ROOT, "%-28s %.6f", "GBCE All Share Index", gbceAllShareIndex));
+        for(int i = 0; i < reportedSymbols.length; i++) {
+            out.println(String.format(Locale.ROOT, "%-28s %.6f", "Volume Weighted price " + reportedSymbols[i], reportedVolWeightedPrices[i]));
+        }
+        if(symbolCount > reportedSymbols.length) {
+            out.println("Volume Weighted price of the first " + reportedSymbols.length + " known symbols of " + symbolCount + " are reported");
+        }
+    }
+
+    /**
+     * Function to get the trades recorded per second of the replay
+     * @return throughput Trades recorded per second or 0 before the replay
+     * @since 1.1
+     */
+    public double getTradesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : tradesRecorded * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#tradesRead} for more information
+     */
+    public long getTradesRead() {
+        return tradesRead;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#tradesRecorded} for more information
+     */
+    public long getTradesRecorded() {
+        return tradesRecorded;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#tradesRejected} for more information
+     */
+    public long getTradesRejected() {
+        return tradesRejected;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#linesSkipped} for more information
+     */
+    public long getLinesSkipped() {
+        return linesSkipped;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#queryCount} for more information
+     */
+    public long getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#elapsedNanos} for more information
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TapeReplay#gbceAllShareIndex} for more information
+     */
+    public double getGBCEAllShareIndex() {
+        return gbceAllShareIndex;
+    }
+
+    /**
+     * Function to replay a tape file through the service of the stocks of the config, or convert a CSV tape to binary
+     * @param args Tape file and options, or --convert with the CSV and binary tape files
+     */
+    public static void main(String[] args) {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        try {
+            if(args.length == 3 && "--convert".equals(args[0])) {
+                long converted = convert(new File(args[1]), new File(args[2]));
+                System.out.println("Trades converted " + converted);
+                return;
+            }
+            if(args.length == 0 || args[0].startsWith("--")) {
+                throw new IllegalArgumentException("Tape file is missing");
+            }
+            double speed = 0;
+            int queryInterval = DEFAULT_QUERY_INTERVAL;
+            int bufferSize = TradeTapeReader.DEFAULT_BUFFER_SIZE;
+            for(int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if(option.startsWith("--speed=")) {
+                    String value = option.substring("--speed=".length());
+                    speed = "max".equalsIgnoreCase(value) ? 0 : Double.parseDouble(value);
+                } else if(option.startsWith("--query-every=")) {
+                    queryInterval = Integer.parseInt(option.substring("--query-every=".length()));
+                } else if(option.startsWith("--buffer-kb=")) {
+                    bufferSize = Integer.parseInt(option.substring("--buffer-kb=".length())) << 10;
+                } else {
+                    throw new IllegalArgumentException("Option " + option + " is not supported");
+                }
+            }
+            StockModel.getModelInstance().init();
+            SimulatedTradeClock clock = new SimulatedTradeClock(0);
+            StockServiceMetrics metrics = new StockServiceMetrics();
+            TapeReplay replay = new TapeReplay(new StockServiceImpl(clock, metrics), clock, metrics, speed, queryInterval);
+            File tape = new File(args[0]);
+            try (TradeTapeReader reader = new TradeTapeReader(tape, bufferSize)) {
+                replay.replay(reader);
+            }
+            System.out.println("Tape " + tape + (speed == 0 ? " at max speed" : " at " + speed + " times its pace"));
+            replay.printReport(System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -jar SuperSimpleStockMarket-1.0.jar <tape.csv|tape.bin> [--speed=max|<factor>] [--query-every=<trades>] [--buffer-kb=<kb>]");
+            System.err.println("       java -jar SuperSimpleStockMarket-1.0.jar --convert <tape.csv> <tape.bin>");
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Tape can not be replayed : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Function to convert a tape to a binary tape
+     * @param from Tape to be converted
+     * @param to Binary tape, with the .bin extension
+     * @return count Number of trades converted
+     * @throws IOException When a tape can not be read or written
+     * @since 1.1
+     */
+    public static long convert(File from, File to) throws IOException {
+        long count = 0;
+        try (TradeTapeReader reader = new TradeTapeReader(from); TradeTapeWriter writer = new TradeTapeWriter(to)) {
+            while(reader.next()) {
+                writer.writeTrade(reader.getSymbol(reader.getSymbolIndex()), reader.getTimestamp(), reader.getQuantity(),
+                        reader.getPrice(), INDICATORS[reader.getIndicator()]);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Function to get the stock id of a symbol of the tape, looked up once per symbol
+     */
+    private int resolveStockId(TradeTapeReader reader, int symbolIndex) {
+        if(symbolIndex >= stockIds.length) {
+            int length = stockIds.length;
+            stockIds = Arrays.copyOf(stockIds, Math.max(reader.getSymbolCount(), Math.max(16, length << 1)));
+            Arrays.fill(stockIds, length, stockIds.length, UNRESOLVED);
+        }
+        if(stockIds[symbolIndex] == UNRESOLVED) {
+            try {
+                stockIds[symbolIndex] = stockService.getStockId(reader.getSymbol(symbolIndex));
+            } catch (IllegalArgumentException e) {
+                stockIds[symbolIndex] = -1;
+            }
+        }
+        return stockIds[symbolIndex];
+    }
+
+    /**
+     * Function to print the latency percentiles of recordTrade and the Volume Weighted price and index queries
+     */
+    static void printLatencies(PrintStream out, StockServiceMetrics metrics) {
+        out.println(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s %10s %10s", "Latency in microseconds", "count",
+                "p50", "p90", "p99", "p99.9", "max"));
+        printLatency(out, "recordTrade", metrics.getRecordTradeLatency());
+        printLatency(out, "calculateVolWeightedPrice", metrics.getVolWeightedPriceLatency());
+        printLatency(out, "calculateGBCEAllShareIndex", metrics.getGBCEAllShareIndexLatency());
+    }
+
+    private static void printLatency(PrintStream out, String function, LatencyHistogram histogram) {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-28s %10d", function, histogram.getCount()));
+        for(double percentile : PERCENTILES) {
+            line.append(String.format(Locale.ROOT, " %10.2f", histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        line.append(String.format(Locale.ROOT, " %10.2f", histogram.getMaxNanos() / 1000.0));
+        out.println(line);
+    }
+}
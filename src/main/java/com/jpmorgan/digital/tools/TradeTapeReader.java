@@ -0,0 +1,501 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * TradeTapeReader streams the trades of a tape file through a fixed buffer, so tapes of any size are replayed
+ * without being loaded in memory and without creating an object per trade
+ *
+ * Two formats are read, chosen by the extension of the file:
+ *
+ * <ul>
+ *     <li>.bin - the binary format written by {@link TradeTapeWriter}</li>
+ *     <li>.csv or any other - one trade per line: symbol,timestamp,quantity,price,indicator where the timestamp is
+ *     in epoch nanoseconds and the indicator is BUY or SELL. Empty lines, lines starting with # and a first line
+ *     starting with symbol are skipped, lines which can not be parsed are counted and skipped</li>
+ * </ul>
+ *
+ * Symbols are given an index in the order they first appear, {@link #getSymbolIndex()} identifies the symbol of
+ * the current trade without a String per trade. Like {@link com.jpmorgan.digital.dto.TradeCursor} the reader is
+ * moved with {@link #next()} and the current trade is read with its getters.
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class TradeTapeReader implements Closeable {
+
+    /**
+     * Default size of the read buffer, 1 MB
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final int INITIAL_SYMBOLS = 64;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+            100000000000000L, 1000000000000000L};
+
+    private static final byte BUY = (byte) TradeDomain.Indicator.BUY.ordinal();
+
+    private static final byte SELL = (byte) TradeDomain.Indicator.SELL.ordinal();
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final boolean binary;
+
+    private boolean endOfFile;
+
+    /**
+     * Symbols by their index, in the order they first appear
+     */
+    private String[] symbols = new String[INITIAL_SYMBOLS];
+
+    private byte[][] symbolBytes = new byte[INITIAL_SYMBOLS][];
+
+    private int symbolCount;
+
+    /**
+     * Open addressing table of the symbol index + 1 by the hash of its bytes, 0 for an empty slot
+     */
+    private int[] symbolTable = new int[INITIAL_SYMBOLS * 2];
+
+    /**
+     * Start and end of each of the 5 fields of the current CSV line
+     */
+    private final int[] fields = new int[10];
+
+    private int symbolIndex;
+
+    private long timestamp;
+
+    private int quantity;
+
+    private double price;
+
+    private byte indicator;
+
+    private long lineNumber;
+
+    private long skippedLineCount;
+
+    /**
+     * Opens a tape with the default buffer size
+     * @param file Tape file
+     * @throws IOException When the file can not be opened or is not a tape
+     */
+    public TradeTapeReader(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a tape
+     * @param file Tape file
+     * @param bufferSize Size of the read buffer in bytes, a CSV line can not be longer
+     * @throws IOException When the file can not be opened or is not a tape
+     * @throws IllegalArgumentException When buffer size is below 64 bytes
+     */
+    public TradeTapeReader(File file, int bufferSize) throws IOException, IllegalArgumentException {
+        if(bufferSize < 64) {
+            throw new IllegalArgumentException("Tape buffer can not be smaller than 64 bytes");
+        }
+        binary = file.getName().toLowerCase().endsWith(".bin");
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocate(bufferSize);
+        ((Buffer) buffer).flip();
+        if(binary) {
+            if(!fill(8) || buffer.getInt() != TradeTapeWriter.MAGIC || buffer.getInt() != TradeTapeWriter.VERSION) {
+                channel.close();
+                throw new IOException("Tape " + file + " is not of a supported version");
+            }
+        }
+    }
+
+    /**
+     * Function to move to the next trade of the tape
+     * @return True - If the reader is on a trade, False - If all the trades are read
+     * @throws IOException When the tape can not be read or a binary tape is damaged
+     * @since 1.1
+     */
+    public boolean next() throws IOException {
+        return binary ? nextBinary() : nextCsv();
+    }
+
+    /**
+     * Function to get the symbol of an index
+     * @param index Index of the symbol, below {@link #getSymbolCount()}
+     * @return symbol Stock symbol
+     * @since 1.1
+     */
+    public String getSymbol(int index) {
+        if(index < 0 || index >= symbolCount) {
+            throw new IndexOutOfBoundsException("Symbol " + index + " is not in the " + symbolCount + " symbols read");
+        }
+        return symbols[index];
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TradeTapeReader#symbolCount} for more information
+     */
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TradeTapeReader#symbolIndex} for more information
+     */
+    public int getSymbolIndex() {
+        return symbolIndex;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TradeTapeReader#timestamp} for more information
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TradeTapeReader#quantity} for more information
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TradeTapeReader#price} for more information
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * Function to get Buy or Sell Indicator of the current trade
+     * @return indicator Ordinal of {@link TradeDomain.Indicator}
+     * @since 1.1
+     */
+    public byte getIndicator() {
+        return indicator;
+    }
+
+    /**
+     * Check {@link com.jpmorgan.digital.tools.TradeTapeReader#skippedLineCount} for more information
+     */
+    public long getSkippedLineCount() {
+        return skippedLineCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Function to read the records of a binary tape up to the next trade
+     */
+    private boolean nextBinary() throws IOException {
+        while(fill(1)) {
+            byte tag = buffer.get();
+            if(tag == TradeTapeWriter.SYMBOL_RECORD) {
+                if(!fill(2)) {
+                    throw new IOException("Tape is truncated");
+                }
+                int length = buffer.getShort() & 0xFFFF;
+                if(!fill(length)) {
+                    throw new IOException("Tape is truncated");
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                addSymbol(bytes, 0, length, hash(bytes, 0, length));
+            } else if(tag == TradeTapeWriter.TRADE_RECORD) {
+                if(!fill(TradeTapeWriter.TRADE_SIZE)) {
+                    throw new IOException("Tape is truncated");
+                }
+                symbolIndex = buffer.getInt();
+                timestamp = buffer.getLong();
+                quantity = buffer.getInt();
+                price = buffer.getDouble();
+                indicator = buffer.get();
+                if(symbolIndex < 0 || symbolIndex >= symbolCount) {
+                    throw new IOException("Tape has a trade of an undefined symbol " + symbolIndex);
+                }
+                if(indicator < 0 || indicator >= TradeDomain.Indicator.values().length) {
+                    throw new IOException("Tape has a trade of an unknown indicator " + indicator);
+                }
+                return true;
+            } else {
+                throw new IOException("Tape has a record of unknown type " + tag);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Function to read the lines of a CSV tape up to the next valid trade
+     */
+    private boolean nextCsv() throws IOException {
+        while(true) {
+            int lineEnd = findLineEnd();
+            if(lineEnd < 0) {
+                return false;
+            }
+            byte[] bytes = buffer.array();
+            int lineStart = buffer.position();
+            ((Buffer) buffer).position(Math.min(lineEnd + 1, buffer.limit()));
+            lineNumber++;
+            int end = lineEnd;
+            if(end > lineStart && bytes[end - 1] == '\r') {
+                end--;
+            }
+            int start = skipSpaces(bytes, lineStart, end);
+            if(start == end || bytes[start] == '#') {
+                continue;
+            }
+            if(lineNumber == 1 && end - start >= 6 && new String(bytes, start, 6, StandardCharsets.US_ASCII).equalsIgnoreCase("symbol")) {
+                continue;
+            }
+            if(parseCsv(bytes, start, end)) {
+                return true;
+            }
+            skippedLineCount++;
+        }
+    }
+
+    /**
+     * Function to parse a CSV trade, without any object unless the symbol is new
+     * @return True - If the line is a valid trade, False - Otherwise
+     */
+    private boolean parseCsv(byte[] bytes, int start, int end) {
+        int count = 0;
+        int fieldStart = start;
+        while(count < fields.length) {
+            int fieldEnd = fieldStart;
+            while(fieldEnd < end && bytes[fieldEnd] != ',') {
+                fieldEnd++;
+            }
+            int valueStart = skipSpaces(bytes, fieldStart, fieldEnd);
+            fields[count++] = valueStart;
+            fields[count++] = trimSpaces(bytes, valueStart, fieldEnd);
+            if(fieldEnd == end) {
+                break;
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        if(count < fields.length || fields[0] == fields[1]) {
+            return false;
+        }
+        long parsedTimestamp = parseLong(bytes, fields[2], fields[3]);
+        long parsedQuantity = parseLong(bytes, fields[4], fields[5]);
+        double parsedPrice = parseDouble(bytes, fields[6], fields[7]);
+        byte parsedIndicator = parseIndicator(bytes, fields[8], fields[9]);
+        if(parsedTimestamp == Long.MIN_VALUE || parsedQuantity == Long.MIN_VALUE || parsedQuantity > Integer.MAX_VALUE
+                || Double.isNaN(parsedPrice) || parsedIndicator < 0) {
+            return false;
+        }
+        symbolIndex = findSymbol(bytes, fields[0], fields[1]);
+        timestamp = parsedTimestamp;
+        quantity = (int) parsedQuantity;
+        price = parsedPrice;
+        indicator = parsedIndicator;
+        return true;
+    }
+
+    /**
+     * Function to find the end of the next line, reading more of the file when the buffer holds no full line
+     * @return position Position of the line feed, or of the end of the last line without one, -1 at the end of the file
+     */
+    private int findLineEnd() throws IOException {
+        int searched = buffer.position();
+        while(true) {
+            byte[] bytes = buffer.array();
+            for(int i = searched; i < buffer.limit(); i++) {
+                if(bytes[i] == '\n') {
+                    return i;
+                }
+            }
+            if(endOfFile) {
+                return buffer.hasRemaining() ? buffer.limit() : -1;
+            }
+            if(buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                throw new IOException("Tape line " + (lineNumber + 1) + " is longer than the buffer of " + buffer.capacity() + " bytes");
+            }
+            searched = buffer.remaining();
+            buffer.compact();
+            endOfFile = channel.read(buffer) < 0;
+            ((Buffer) buffer).flip();
+        }
+    }
+
+    /**
+     * Function to read more of the file until the buffer holds the provided number of bytes
+     * @return True - If the bytes are in the buffer, False - If the file ends before
+     */
+    private boolean fill(int count) throws IOException {
+        if(count > buffer.capacity()) {
+            throw new IOException("Tape record of " + count + " bytes is longer than the buffer of " + buffer.capacity() + " bytes");
+        }
+        while(buffer.remaining() < count) {
+            if(endOfFile) {
+                return false;
+            }
+            buffer.compact();
+            endOfFile = channel.read(buffer) < 0;
+            ((Buffer) buffer).flip();
+        }
+        return true;
+    }
+
+    /**
+     * Function to get the index of the symbol of the provided bytes, adding it when it is new
+     */
+    private int findSymbol(byte[] bytes, int start, int end) {
+        int hash = hash(bytes, start, end);
+        int mask = symbolTable.length - 1;
+        for(int slot = hash & mask; symbolTable[slot] != 0; slot = (slot + 1) & mask) {
+            byte[] candidate = symbolBytes[symbolTable[slot] - 1];
+            if(candidate.length == end - start && rangeEquals(candidate, bytes, start)) {
+                return symbolTable[slot] - 1;
+            }
+        }
+        return addSymbol(bytes, start, end, hash);
+    }
+
+    private int addSymbol(byte[] bytes, int start, int end, int hash) {
+        if(symbolCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, symbolCount << 1);
+            symbolBytes = Arrays.copyOf(symbolBytes, symbolCount << 1);
+        }
+        symbolBytes[symbolCount] = Arrays.copyOfRange(bytes, start, end);
+        symbols[symbolCount] = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        symbolCount++;
+        if(symbolCount * 2 > symbolTable.length) {
+            symbolTable = new int[symbolTable.length << 1];
+            for(int i = 0; i < symbolCount; i++) {
+                insertSymbol(hash(symbolBytes[i], 0, symbolBytes[i].length), i);
+            }
+        } else {
+            insertSymbol(hash, symbolCount - 1);
+        }
+        return symbolCount - 1;
+    }
+
+    private void insertSymbol(int hash, int index) {
+        int mask = symbolTable.length - 1;
+        int slot = hash & mask;
+        while(symbolTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        symbolTable[slot] = index + 1;
+    }
+
+    private static boolean rangeEquals(byte[] candidate, byte[] bytes, int start) {
+        for(int i = 0; i < candidate.length; i++) {
+            if(candidate[i] != bytes[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int skipSpaces(byte[] bytes, int start, int end) {
+        while(start < end && (bytes[start] == ' ' || bytes[start] == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimSpaces(byte[] bytes, int start, int end) {
+        while(end > start && (bytes[end - 1] == ' ' || bytes[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Function to parse a decimal long without exceptions, in case of an empty or wrong number returns Long.MIN_VALUE
+     */
+    private static long parseLong(byte[] bytes, int start, int end) {
+        boolean negative = start < end && bytes[start] == '-';
+        int first = negative ? start + 1 : start;
+        if(first == end || end - first > 19) {
+            return Long.MIN_VALUE;
+        }
+        long number = 0;
+        for(int i = first; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if(digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            number = number * 10 + digit;
+        }
+        if(number < 0) {
+            return Long.MIN_VALUE;
+        }
+        return negative ? -number : number;
+    }
+
+    /**
+     * Function to parse a decimal price without exceptions, in case of a wrong price returns NaN
+     *
+     * Prices of up to 15 digits are the exact division of their digits by a power of ten, so they are the same
+     * double as {@link Double#parseDouble(String)} gives, which parses any other price
+     */
+    private static double parseDouble(byte[] bytes, int start, int end) {
+        long digits = 0;
+        int digitCount = 0;
+        int decimals = -1;
+        for(int i = start; i < end; i++) {
+            byte character = bytes[i];
+            if(character >= '0' && character <= '9' && digitCount < 15) {
+                digits = digits * 10 + (character - '0');
+                digitCount++;
+                if(decimals >= 0) {
+                    decimals++;
+                }
+            } else if(character == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                try {
+                    return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        if(digitCount == 0) {
+            return Double.NaN;
+        }
+        return decimals > 0 ? (double) digits / POWERS_OF_TEN[decimals] : digits;
+    }
+
+    private static byte parseIndicator(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if(length == 3 && (bytes[start] | 0x20) == 'b' && (bytes[start + 1] | 0x20) == 'u' && (bytes[start + 2] | 0x20) == 'y') {
+            return BUY;
+        }
+        if(length == 4 && (bytes[start] | 0x20) == 's' && (bytes[start + 1] | 0x20) == 'e' && (bytes[start + 2] | 0x20) == 'l'
+                && (bytes[start + 3] | 0x20) == 'l') {
+            return SELL;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,133 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TradeTapeWriter writes trades to a binary tape read back by {@link TradeTapeReader}
+ *
+ * A tape starts with a magic and a version, followed by records of one of two types:
+ *
+ * <pre>
+ *  Type    Size  Fields
+ *  Symbol  3+n   type 0, length of the symbol - unsigned short, symbol - n bytes of UTF-8
+ *  Trade   26    type 1, symbol index - int, timestamp in epoch nanoseconds - long, quantity - int,
+ *                price - double, ordinal of {@link TradeDomain.Indicator} - byte
+ * </pre>
+ *
+ * A symbol is written before its first trade and gets the next index, so a tape is written and read in a single
+ * pass. Trades take 26 bytes, against around 40 bytes of a CSV line with a timestamp in nanoseconds.
+ *
+ * @author Aman Chhabra
+ * @since 1.1
+ */
+public class TradeTapeWriter implements Closeable {
+
+    static final int MAGIC = 0x53535454;
+
+    static final int VERSION = 1;
+
+    static final byte SYMBOL_RECORD = 0;
+
+    static final byte TRADE_RECORD = 1;
+
+    /**
+     * Size of a trade record after its type
+     */
+    static final int TRADE_SIZE = 25;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final Map<String, Integer> symbolIndexes = new HashMap<String, Integer>();
+
+    /**
+     * Creates the tape, replacing any file of the same name
+     * @param file Tape file, with the .bin extension to be read by {@link TradeTapeReader}
+     * @throws IOException When the file can not be created
+     */
+    public TradeTapeWriter(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    /**
+     * Function to append a trade to the tape
+     * @param stockSymbol Symbol of the stock of the trade
+     * @param timestamp Timestamp of the trade in epoch nanoseconds
+     * @param quantity Quantity of the trade
+     * @param price Price of the trade
+     * @param indicator Buy or Sell Indicator of the trade
+     * @throws IOException When the tape can not be written
+     * @throws IllegalArgumentException When symbol or indicator is null or the symbol is too long
+     * @since 1.1
+     */
+    public void writeTrade(String stockSymbol, long timestamp, int quantity, double price, TradeDomain.Indicator indicator)
+            throws IOException, IllegalArgumentException {
+        if(stockSymbol == null || indicator == null) {
+            throw new IllegalArgumentException("Trade symbol and indicator can not be null");
+        }
+        Integer symbolIndex = symbolIndexes.get(stockSymbol);
+        if(symbolIndex == null) {
+            byte[] bytes = stockSymbol.getBytes(StandardCharsets.UTF_8);
+            if(bytes.length > 0xFFFF || bytes.length + 3 > BUFFER_SIZE) {
+                throw new IllegalArgumentException("Trade symbol is too long");
+            }
+            ensureRoom(bytes.length + 3);
+            buffer.put(SYMBOL_RECORD);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+            symbolIndex = symbolIndexes.size();
+            symbolIndexes.put(stockSymbol, symbolIndex);
+        }
+        ensureRoom(TRADE_SIZE + 1);
+        buffer.put(TRADE_RECORD);
+        buffer.putInt(symbolIndex);
+        buffer.putLong(timestamp);
+        buffer.putInt(quantity);
+        buffer.putDouble(price);
+        buffer.put((byte) indicator.ordinal());
+    }
+
+    /**
+     * Function to write the buffered records and close the tape
+     * @throws IOException When the tape can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureRoom(int length) throws IOException {
+        if(buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        ((Buffer) buffer).flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+}
@@ -0,0 +1,86 @@
+package com.jpmorgan.digital.tools;
+
+/**
+ * ZipfSampler draws ranks from 0 to count - 1 with a Zipfian popularity, the rank k is drawn with a probability
+ * proportional to 1 / (k + 1)^exponent
+ *
+ * An exponent of 0 draws every rank alike, 1 is the classic skew of traded symbols where the most traded symbol gets
+ * about as many trades as the next 10 together, higher exponents concentrate the draws on even fewer ranks.
+ *
+ * The cumulative probabilities are computed once, so a draw is a binary search without any object and the sampler can
+ * be shared by any number of threads, each drawing with its own source of random numbers.
+ *
+ *  @author Aman Chhabra
+ *  @since 1.1
+ */
+public class ZipfSampler {
+
+    /**
+     * Probability to draw a rank up to the index, the last one is 1
+     */
+    private final double[] cumulative;
+
+    /**
+     * Creates the sampler
+     * @param count Number of ranks
+     * @param exponent Skew of the popularity, 0 for uniform
+     * @throws IllegalArgumentException When count is not positive or exponent is negative
+     */
+    public ZipfSampler(int count, double exponent) throws IllegalArgumentException {
+        if(count <= 0) {
+            throw new IllegalArgumentException("Number of ranks must be positive");
+        }
+        if(!(exponent >= 0) || Double.isInfinite(exponent)) {
+            throw new IllegalArgumentException("Zipf exponent must be 0 or a positive number");
+        }
+        cumulative = new double[count];
+        double total = 0;
+        for(int i = 0; i < count; i++) {
+            total += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = total;
+        }
+        for(int i = 0; i < count; i++) {
+            cumulative[i] /= total;
+        }
+        cumulative[count - 1] = 1.0;
+    }
+
+    /**
+     * Function to draw a rank
+     * @param uniform Random number from 0 inclusive to 1 exclusive
+     * @return rank Rank from 0 to count - 1
+     * @since 1.1
+     */
+    public int sample(double uniform) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(cumulative[middle] > uniform) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Function to get the probability to draw a rank
+     * @param rank Rank from 0 to count - 1
+     * @return probability Probability of the rank
+     * @since 1.1
+     */
+    public double getProbability(int rank) {
+        return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+    }
+
+    /**
+     * Function to get the number of ranks
+     * @return count Number of ranks
+     * @since 1.1
+     */
+    public int getCount() {
+        return cumulative.length;
+    }
+}
@@ -0,0 +1,181 @@
+package com.jpmorgan.digital.dto;
+
+import com.jpmorgan.digital.helper.LateTradePolicy;
+import com.jpmorgan.digital.helper.LateTradePublisher;
+import com.jpmorgan.digital.helper.StockHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests to verify trades of a stock are recorded and read safely from multiple threads
+ *
+ * @author Aman Chhabra
+ */
+public class StockDTOTest {
+
+    private static final int THREADS = 8;
+
+    private static final int TRADES_PER_THREAD = 20000;
+
+    private TradeDTO prepareSampleTrade(int quantity, double price){
+        TradeDTO trade = new TradeDTO();
+        trade.setTimestamp(ZonedDateTime.now());
+        trade.setQuantity(quantity);
+        trade.setPrice(price);
+        return trade;
+    }
+
+    @Test
+    public void verifyGetAllTradesWhenNoTrade(){
+        Assert.assertEquals(0, new StockDTO().getAllTrades().length);
+    }
+
+    @Test
+    public void verifyConcurrentAddTradeLosesNoTrade() throws Exception {
+        StockDTO stock = new StockDTO();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] writers = new Future<?>[THREADS];
+        for(int i = 0; i < THREADS; i++) {
+            writers[i] = executor.submit(() -> {
+                start.await();
+                for(int j = 0; j < TRADES_PER_THREAD; j++) {
+                    stock.addTrade(prepareSampleTrade(2, 10.0));
+                }
+                return null;
+            });
+        }
+        Future<Double> reader = executor.submit(() -> {
+            start.await();
+            double volWeightPrice = 10.0;
+            while(!writers[THREADS - 1].isDone() && volWeightPrice == 10.0) {
+                double current = stock.getVolWeightedPrice(StockHelper.getCurrentTimeNanos());
+                if(current != 0.0) {
+                    volWeightPrice = current;
+                }
+            }
+            return volWeightPrice;
+        });
+        start.countDown();
+        for(Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+        }
+        Assert.assertEquals(10.0, reader.get(1, TimeUnit.MINUTES), 0.0);
+        executor.shutdown();
+
+        Assert.assertEquals(THREADS * TRADES_PER_THREAD, stock.getAllTrades().length);
+        Assert.assertEquals(2L * THREADS * TRADES_PER_THREAD, stock.getVolWeightedPriceAggregator().getQuantityTotal());
+        Assert.assertEquals(10.0, stock.getVolWeightedPrice(StockHelper.getCurrentTimeNanos()), 0.0);
+    }
+
+    @Test
+    public void verifyOptimisticReadsSurviveGrowingWindow() throws Exception {
+        StockDTO stock = new StockDTO();
+        long start = StockHelper.getCurrentTimeNanos() - 60L * 1000000000L;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch ready = new CountDownLatch(1);
+        Future<?> writer = executor.submit(() -> {
+            ready.await();
+            for(int j = 0; j < THREADS * TRADES_PER_THREAD; j++) {
+                stock.addTrade(start + j, 1 + j % 7, 10.0 + j % 3, (byte) 0);
+            }
+            return null;
+        });
+        List<Future<?>> readers = new ArrayList<Future<?>>();
+        for(int i = 1; i < THREADS; i++) {
+            readers.add(executor.submit(() -> {
+                ready.await();
+                while(!writer.isDone()) {
+                    double volWeightPrice = stock.getVolWeightedPrice(start + 1000L);
+                    Assert.assertTrue(volWeightPrice == 0.0 || (volWeightPrice >= 10.0 && volWeightPrice <= 12.0));
+                    Assert.assertTrue(stock.getNextWindowExpiry(start) > start);
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        writer.get(1, TimeUnit.MINUTES);
+        for(Future<?> reader : readers) {
+            reader.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        Assert.assertEquals(THREADS * TRADES_PER_THREAD, stock.getVolWeightedPriceAggregator().getTradeCount());
+    }
+
+    @Test
+    public void verifyTradesWithinLatenessAreAddedInTimeOrder(){
+        StockDTO stock = new StockDTO();
+        stock.setTradeReordering(10, 100, LateTradePolicy.DROP);
+        stock.addTrade(100, 10, 100.0, (byte) 0);
+        stock.addTrade(95, 10, 50.0, (byte) 0);
+        stock.addTrade(105, 10, 200.0, (byte) 0);
+        Assert.assertEquals(95, stock.getWatermark());
+        Assert.assertEquals(2, stock.getPendingTradeCount());
+        Assert.assertEquals(1, stock.getAllTrades().length);
+
+        stock.addTrade(120, 10, 300.0, (byte) 0);
+        TradeCursor cursor = stock.openCursor(new TradeCursor());
+        long previous = Long.MIN_VALUE;
+        while(cursor.next()) {
+            Assert.assertTrue(cursor.getTimestamp() >= previous);
+            previous = cursor.getTimestamp();
+        }
+        Assert.assertEquals(3, cursor.getTradeCount());
+        Assert.assertEquals(0, stock.getLateTradeCount());
+        Assert.assertEquals(4, stock.getRecordedTradeCount());
+
+        Assert.assertTrue(stock.releaseTrades(130));
+        Assert.assertEquals(0, stock.getPendingTradeCount());
+        Assert.assertEquals(162.5, stock.getRangeVolWeightedPrice(0, 200), 0.0);
+    }
+
+    @Test
+    public void verifyTradesBeyondWatermarkAreCountedAndRouted(){
+        StockDTO stock = new StockDTO();
+        stock.setStockSymbol("GIN");
+        LateTradePublisher publisher = new LateTradePublisher();
+        List<TradeDTO> lateTrades = new ArrayList<TradeDTO>();
+        publisher.subscribe((stockSymbol, trade) -> lateTrades.add(trade));
+        stock.setLateTradePublisher(publisher);
+        stock.setTradeReordering(10, 100, LateTradePolicy.DROP);
+        stock.addTrade(100, 10, 100.0, (byte) 0);
+        stock.addTrade(89, 20, 50.0, (byte) 1);
+        Assert.assertEquals(1, stock.getLateTradeCount());
+        Assert.assertEquals(1, lateTrades.size());
+        Assert.assertEquals(20, lateTrades.get(0).getQuantity());
+        Assert.assertEquals("SELL", lateTrades.get(0).getIndicator());
+        stock.releaseTrades(200);
+        Assert.assertEquals(100.0, stock.getRangeVolWeightedPrice(0, 200), 0.0);
+
+        stock.setTradeReordering(0, 1, LateTradePolicy.APPLY);
+        stock.addTrade(300, 10, 100.0, (byte) 0);
+        stock.addTrade(299, 10, 50.0, (byte) 0);
+        Assert.assertEquals(2, stock.getLateTradeCount());
+        Assert.assertEquals(75.0, stock.getRangeVolWeightedPrice(250, 350), 0.0);
+    }
+
+    @Test
+    public void verifyFullReorderBufferReleasesOldestTrade(){
+        StockDTO stock = new StockDTO();
+        stock.setTradeReordering(1000, 2, LateTradePolicy.DROP);
+        stock.addTrade(10, 1, 1.0, (byte) 0);
+        stock.addTrade(20, 1, 1.0, (byte) 0);
+        stock.addTrade(30, 1, 1.0, (byte) 0);
+        Assert.assertEquals(2, stock.getPendingTradeCount());
+        Assert.assertEquals(10, stock.getWatermark());
+        stock.addTrade(5, 1, 1.0, (byte) 0);
+        Assert.assertEquals(1, stock.getLateTradeCount());
+        stock.addTrade(15, 1, 1.0, (byte) 0);
+        Assert.assertEquals(2, stock.getPendingTradeCount());
+        Assert.assertEquals(2, stock.getAllTrades().length);
+    }
+}
@@ -0,0 +1,97 @@
+package com.jpmorgan.digital.dto;
+
+import com.jpmorgan.digital.helper.PriceTicks;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify trades are kept and scanned from the columns of the store
+ *
+ * @author Aman Chhabra
+ */
+public class TradeStoreTest {
+
+    TradeStore tradeStore = new TradeStore(2);
+
+    @Test
+    public void verifyCursorWhenNoTrade(){
+        TradeCursor cursor = tradeStore.openCursor(new TradeCursor());
+        Assert.assertEquals(0, cursor.getTradeCount());
+        Assert.assertFalse(cursor.next());
+    }
+
+    @Test
+    public void verifyCursorVisitsTradesInOrder(){
+        for(int i = 0; i < 100; i++) {
+            tradeStore.addTrade(i, i + 1, PriceTicks.toTicks(i * 0.5), (byte) (i % 2));
+        }
+        Assert.assertEquals(100, tradeStore.getTradeCount());
+        TradeCursor cursor = tradeStore.openCursor(new TradeCursor());
+        int position = 0;
+        while(cursor.next()) {
+            Assert.assertEquals(position, cursor.getTimestamp());
+            Assert.assertEquals(position + 1, cursor.getQuantity());
+            Assert.assertEquals(position * 0.5, cursor.getPrice(), 0.0);
+            Assert.assertEquals(position % 2, cursor.getIndicator());
+            position++;
+        }
+        Assert.assertEquals(100, position);
+    }
+
+    @Test
+    public void verifyCursorDoesNotSeeLaterTrades(){
+        tradeStore.addTrade(1, 1, PriceTicks.toTicks(1.0), (byte) 0);
+        TradeCursor cursor = tradeStore.openCursor(new TradeCursor());
+        tradeStore.addTrade(2, 1, PriceTicks.toTicks(1.0), (byte) 0);
+        tradeStore.addTrade(3, 1, PriceTicks.toTicks(1.0), (byte) 0);
+        Assert.assertEquals(1, cursor.getTradeCount());
+        Assert.assertTrue(cursor.next());
+        Assert.assertFalse(cursor.next());
+    }
+
+    @Test
+    public void verifyCursorIsReusable(){
+        TradeCursor cursor = new TradeCursor();
+        tradeStore.addTrade(1, 1, PriceTicks.toTicks(1.0), (byte) 0);
+        tradeStore.openCursor(cursor);
+        while(cursor.next()) {
+        }
+        tradeStore.addTrade(2, 1, PriceTicks.toTicks(1.0), (byte) 0);
+        tradeStore.openCursor(cursor);
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(1, cursor.getTimestamp());
+    }
+
+    @Test
+    public void verifyEvictedTradesStayReadableAfterCompaction(){
+        for(int i = 0; i < 10; i++) {
+            tradeStore.addTrade(i, i + 1, PriceTicks.toTicks(1.0), (byte) 0);
+        }
+        TradeCursor evicted = new TradeCursor();
+        Assert.assertEquals(6, tradeStore.evictBefore(6, evicted));
+        Assert.assertEquals(4, tradeStore.getTradeCount());
+        for(int i = 10; i < 100; i++) {
+            tradeStore.addTrade(i, i + 1, PriceTicks.toTicks(1.0), (byte) 0);
+        }
+        Assert.assertEquals(6, evicted.getTradeCount());
+        int position = 0;
+        while(evicted.next()) {
+            Assert.assertEquals(position++, evicted.getTimestamp());
+        }
+        Assert.assertEquals(6, position);
+        TradeCursor cursor = tradeStore.openCursor(new TradeCursor());
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(6, cursor.getTimestamp());
+        Assert.assertEquals(94, cursor.getTradeCount());
+    }
+
+    @Test
+    public void verifyColumnsFollowRetainedTrades(){
+        for(int i = 0; i < 100000; i++) {
+            tradeStore.addTrade(i, 1, PriceTicks.toTicks(1.0), (byte) 0);
+            tradeStore.evictBefore(i - 100, null);
+        }
+        Assert.assertEquals(101, tradeStore.getTradeCount());
+        Assert.assertEquals(0, tradeStore.evictBefore(Long.MIN_VALUE, null));
+    }
+}
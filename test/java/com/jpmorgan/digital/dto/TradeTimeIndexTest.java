@@ -0,0 +1,82 @@
+package com.jpmorgan.digital.dto;
+
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.helper.PriceTicks;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests to verify Volume Weighted price of any time range is served from the time index
+ *
+ * @author Aman Chhabra
+ */
+public class TradeTimeIndexTest {
+
+    TradeTimeIndex tradeTimeIndex = new TradeTimeIndex();
+
+    @Test
+    public void verifyRangeWhenNoTrade(){
+        Assert.assertEquals(0.0, tradeTimeIndex.getVolWeightedPrice(0, Long.MAX_VALUE), 0.0);
+    }
+
+    @Test
+    public void verifyRangeIsHalfOpen(){
+        tradeTimeIndex.addTrade(10, 10, PriceTicks.toTicks(100.0));
+        tradeTimeIndex.addTrade(20, 30, PriceTicks.toTicks(120.0));
+        tradeTimeIndex.addTrade(30, 10, PriceTicks.toTicks(200.0));
+        Assert.assertEquals(115.0, tradeTimeIndex.getVolWeightedPrice(10, 30), 0.0);
+        Assert.assertEquals(120.0, tradeTimeIndex.getVolWeightedPrice(11, 30), 0.0);
+        Assert.assertEquals(132.0, tradeTimeIndex.getVolWeightedPrice(0, 31), 0.0);
+        Assert.assertEquals(0.0, tradeTimeIndex.getVolWeightedPrice(21, 30), 0.0);
+        Assert.assertEquals(0.0, tradeTimeIndex.getVolWeightedPrice(30, 30), 0.0);
+    }
+
+    @Test
+    public void verifyLateTradeTakesItsTimeOrderedPlace(){
+        tradeTimeIndex.addTrade(10, 10, PriceTicks.toTicks(100.0));
+        tradeTimeIndex.addTrade(30, 10, PriceTicks.toTicks(200.0));
+        tradeTimeIndex.addTrade(20, 30, PriceTicks.toTicks(120.0));
+        tradeTimeIndex.addTrade(5, 10, PriceTicks.toTicks(50.0));
+        Assert.assertEquals(4, tradeTimeIndex.getTradeCount());
+        Assert.assertEquals(115.0, tradeTimeIndex.getVolWeightedPrice(10, 30), 0.0);
+        Assert.assertEquals(50.0, tradeTimeIndex.getVolWeightedPrice(0, 10), 0.0);
+        Assert.assertEquals(140.0, tradeTimeIndex.getVolWeightedPrice(20, 40), 0.0);
+    }
+
+    @Test
+    public void verifyRangesOfRetainedTradesAfterEviction(){
+        for(int i = 0; i < 100; i++) {
+            tradeTimeIndex.addTrade(i * 10, 1 + i % 3, PriceTicks.toTicks(100.0 + i));
+        }
+        Assert.assertEquals(50, tradeTimeIndex.evictBefore(500));
+        Assert.assertEquals(50, tradeTimeIndex.getTradeCount());
+        Assert.assertEquals(0.0, tradeTimeIndex.getVolWeightedPrice(0, 500), 0.0);
+        Assert.assertEquals(150.0, tradeTimeIndex.getVolWeightedPrice(0, 510), 0.0);
+        tradeTimeIndex.addTrade(495, 2, PriceTicks.toTicks(10.0));
+        Assert.assertEquals((2 * 10.0 + 3 * 150.0) / 5, tradeTimeIndex.getVolWeightedPrice(490, 510), 1e-9);
+        for(int i = 100; i < 200; i++) {
+            tradeTimeIndex.addTrade(i * 10, 1, PriceTicks.toTicks(100.0));
+        }
+        Assert.assertEquals(100.0, tradeTimeIndex.getVolWeightedPrice(1000, 2000), 0.0);
+        Assert.assertEquals((3 * 150.0 + 151.0) / 4, tradeTimeIndex.getVolWeightedPrice(500, 520), 1e-9);
+    }
+
+    @Test
+    public void verifyRangesMatchScanOfAllTrades(){
+        StockDTO stock = new StockDTO();
+        Random random = new Random(7);
+        long timestamp = 0;
+        for(int i = 0; i < 5000; i++) {
+            timestamp += random.nextInt(1000);
+            long tradeTime = random.nextInt(10) == 0 ? timestamp - random.nextInt(5000) : timestamp;
+            stock.addTrade(tradeTime, 1 + random.nextInt(100), 1 + random.nextInt(10000) / 100.0, (byte) 0);
+        }
+        for(int i = 0; i < 500; i++) {
+            long fromTime = random.nextInt((int) timestamp);
+            long toTime = fromTime + 1 + random.nextInt((int) timestamp);
+            Assert.assertEquals(StockHelper.scanVolWeightPrice(stock, fromTime, toTime), stock.getRangeVolWeightedPrice(fromTime, toTime), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.BarDTO;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify Open, High, Low, Close and Volume bars are built from trades
+ *
+ * @author Aman Chhabra
+ */
+public class BarAggregatorTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long MARKET_OPEN = 1485338400L * SECOND;
+
+    private static final byte BUY = 0;
+
+    private static final byte SELL = 1;
+
+    @Test
+    public void verifyBarOfOneInterval(){
+        BarAggregator aggregator = new BarAggregator(60);
+        Assert.assertFalse(aggregator.addTrade(MARKET_OPEN + 10 * SECOND, 10, PriceTicks.toTicks(100.0), BUY));
+        Assert.assertFalse(aggregator.addTrade(MARKET_OPEN + 20 * SECOND, 5, PriceTicks.toTicks(120.0), SELL));
+        Assert.assertFalse(aggregator.addTrade(MARKET_OPEN + 5 * SECOND, 1, PriceTicks.toTicks(90.0), BUY));
+        Assert.assertFalse(aggregator.addTrade(MARKET_OPEN + 50 * SECOND, 4, PriceTicks.toTicks(110.0), SELL));
+        Assert.assertNull(aggregator.getLastBar("TEA"));
+
+        BarDTO bar = aggregator.getCurrentBar("TEA");
+        Assert.assertEquals("TEA", bar.getStockSymbol());
+        Assert.assertEquals(60, bar.getIntervalSeconds());
+        Assert.assertEquals(MARKET_OPEN, bar.getStartTime());
+        Assert.assertEquals(90.0, bar.getOpen(), 0.0);
+        Assert.assertEquals(120.0, bar.getHigh(), 0.0);
+        Assert.assertEquals(90.0, bar.getLow(), 0.0);
+        Assert.assertEquals(110.0, bar.getClose(), 0.0);
+        Assert.assertEquals(20, bar.getVolume());
+        Assert.assertEquals(11, bar.getBuyVolume());
+        Assert.assertEquals(9, bar.getSellVolume());
+        Assert.assertEquals(4, bar.getTradeCount());
+    }
+
+    @Test
+    public void verifyBarFinishedByLaterTradeOrTime(){
+        BarAggregator aggregator = new BarAggregator(60);
+        aggregator.addTrade(MARKET_OPEN, 10, PriceTicks.toTicks(100.0), BUY);
+        Assert.assertTrue(aggregator.addTrade(MARKET_OPEN + 180 * SECOND, 10, PriceTicks.toTicks(101.0), BUY));
+        Assert.assertEquals(1, aggregator.getBarCount());
+        Assert.assertEquals(MARKET_OPEN, aggregator.getLastBar("TEA").getStartTime());
+
+        Assert.assertFalse(aggregator.finishBar(MARKET_OPEN + 239 * SECOND));
+        Assert.assertTrue(aggregator.finishBar(MARKET_OPEN + 240 * SECOND));
+        Assert.assertNull(aggregator.getCurrentBar("TEA"));
+        Assert.assertEquals(MARKET_OPEN + 180 * SECOND, aggregator.getLastBar("TEA").getStartTime());
+        Assert.assertFalse(aggregator.finishBar(MARKET_OPEN + 600 * SECOND));
+    }
+
+    @Test
+    public void verifyLateTradeUpdatesFinishedBar(){
+        BarAggregator aggregator = new BarAggregator(60);
+        aggregator.addTrade(MARKET_OPEN, 10, PriceTicks.toTicks(100.0), BUY);
+        aggregator.addTrade(MARKET_OPEN + 60 * SECOND, 10, PriceTicks.toTicks(100.0), BUY);
+        aggregator.finishBar(MARKET_OPEN + 120 * SECOND);
+        Assert.assertFalse(aggregator.addTrade(MARKET_OPEN + 30 * SECOND, 5, PriceTicks.toTicks(150.0), SELL));
+        Assert.assertFalse(aggregator.addTrade(MARKET_OPEN + 90 * SECOND, 5, PriceTicks.toTicks(50.0), SELL));
+
+        BarDTO[] bars = aggregator.getBars("TEA");
+        Assert.assertEquals(2, bars.length);
+        Assert.assertEquals(150.0, bars[0].getHigh(), 0.0);
+        Assert.assertEquals(100.0, bars[0].getClose(), 0.0);
+        Assert.assertEquals(15, bars[0].getVolume());
+        Assert.assertEquals(50.0, bars[1].getLow(), 0.0);
+        Assert.assertEquals(5, bars[1].getSellVolume());
+        Assert.assertNull(aggregator.getCurrentBar("TEA"));
+    }
+
+    @Test
+    public void verifyOnlyLatestBarsKept(){
+        BarAggregator aggregator = new BarAggregator(1, 100);
+        for(int i = 0; i <= 1000; i++) {
+            aggregator.addTrade(MARKET_OPEN + i * SECOND, 1, PriceTicks.toTicks(i), BUY);
+        }
+        BarDTO[] bars = aggregator.getBars("TEA");
+        Assert.assertEquals(100, bars.length);
+        for(int i = 0; i < bars.length; i++) {
+            Assert.assertEquals(900 + i, bars[i].getOpen(), 0.0);
+        }
+        aggregator.addTrade(MARKET_OPEN + 950 * SECOND, 1, PriceTicks.toTicks(5000.0), BUY);
+        Assert.assertEquals(5000.0, aggregator.getBars("TEA")[50].getHigh(), 0.0);
+    }
+}
@@ -0,0 +1,133 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeDTO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Tests to verify the running GBCE All Share Index
+ *
+ * @author Aman Chhabra
+ */
+public class GBCEIndexAggregatorTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long START_TIME = 1485000000L * SECOND;
+
+    GBCEIndexAggregator indexAggregator = new GBCEIndexAggregator();
+
+    private StockDTO recordTrade(StockDTO stock, long time, int quantity, double price) {
+        TradeDTO trade = new TradeDTO();
+        trade.setTimestamp(ZonedDateTime.ofInstant(Instant.ofEpochSecond(0, time), ZoneId.of("UTC")));
+        trade.setQuantity(quantity);
+        trade.setPrice(price);
+        stock.addTrade(trade);
+        indexAggregator.markUpdated(stock);
+        return stock;
+    }
+
+    @Test
+    public void verifyIndexWhenNoTrade(){
+        Assert.assertEquals(0.0, indexAggregator.getIndex(START_TIME), 0.0);
+        Assert.assertEquals(0, indexAggregator.getStockCount());
+    }
+
+    @Test
+    public void verifyIndexIsGeometricMean(){
+        recordTrade(new StockDTO(), START_TIME, 1, 2.0);
+        recordTrade(new StockDTO(), START_TIME, 1, 8.0);
+        Assert.assertEquals(4.0, indexAggregator.getIndex(START_TIME), 1e-9);
+        Assert.assertEquals(2, indexAggregator.getStockCount());
+    }
+
+    @Test
+    public void verifyIndexUpdatesOnlyChangedStock(){
+        StockDTO tea = recordTrade(new StockDTO(), START_TIME, 1, 2.0);
+        recordTrade(new StockDTO(), START_TIME, 1, 8.0);
+        Assert.assertEquals(4.0, indexAggregator.getIndex(START_TIME), 1e-9);
+        recordTrade(tea, START_TIME + SECOND, 3, 10.0);
+        Assert.assertEquals(8.0, indexAggregator.getIndex(START_TIME + SECOND), 1e-9);
+    }
+
+    @Test
+    public void verifyStockIsIndexedBySeveralAggregators(){
+        GBCEIndexAggregator otherAggregator = new GBCEIndexAggregator();
+        StockDTO tea = recordTrade(new StockDTO(), START_TIME, 1, 2.0);
+        StockDTO gin = recordTrade(new StockDTO(), START_TIME, 1, 8.0);
+        otherAggregator.markUpdated(tea);
+        Assert.assertEquals(4.0, indexAggregator.getIndex(START_TIME), 1e-9);
+        Assert.assertEquals(2.0, otherAggregator.getIndex(START_TIME), 1e-9);
+        otherAggregator.removeStock(tea);
+        indexAggregator.releaseStocks();
+        Assert.assertEquals(0.0, otherAggregator.getIndex(START_TIME), 0.0);
+        Assert.assertEquals(0.0, indexAggregator.getIndex(START_TIME), 0.0);
+        indexAggregator.markUpdated(gin);
+        Assert.assertEquals(8.0, indexAggregator.getIndex(START_TIME), 1e-9);
+    }
+
+    /**
+     * Stock whose window is emptied by a reader with a later clock right after every read of the index
+     */
+    private static class EvictedStock extends StockDTO {
+
+        @Override
+        public double getVolWeightedPrice(long currentTime) {
+            double volWeightPrice = super.getVolWeightedPrice(currentTime);
+            super.getVolWeightedPrice(currentTime + 1000 * SECOND);
+            return volWeightPrice;
+        }
+
+        @Override
+        public WindowPrice getWindowPrice(long currentTime) {
+            WindowPrice windowPrice = super.getWindowPrice(currentTime);
+            super.getVolWeightedPrice(currentTime + 1000 * SECOND);
+            return windowPrice;
+        }
+    }
+
+    @Test
+    public void verifyIndexDropsStockEvictedByLaterReader(){
+        StockDTO tea = recordTrade(new EvictedStock(), START_TIME, 1, 2.0);
+        recordTrade(new StockDTO(), START_TIME + 100 * SECOND, 1, 8.0);
+        Assert.assertEquals(4.0, indexAggregator.getIndex(START_TIME + 100 * SECOND), 1e-9);
+        Assert.assertEquals(0, tea.getVolWeightedPriceAggregator().getTradeCount());
+        Assert.assertEquals(8.0, indexAggregator.getIndex(START_TIME + 300 * SECOND), 1e-9);
+        Assert.assertEquals(1, indexAggregator.getStockCount());
+    }
+
+    @Test
+    public void verifyIndexDropsStockWhenWindowExpires(){
+        StockDTO tea = recordTrade(new StockDTO(), START_TIME, 1, 2.0);
+        recordTrade(new StockDTO(), START_TIME + 100 * SECOND, 1, 8.0);
+        Assert.assertEquals(4.0, indexAggregator.getIndex(START_TIME + 100 * SECOND), 1e-9);
+        Assert.assertEquals(8.0, indexAggregator.getIndex(START_TIME + 300 * SECOND), 1e-9);
+        Assert.assertEquals(1, indexAggregator.getStockCount());
+        Assert.assertEquals(0.0, indexAggregator.getIndex(START_TIME + 400 * SECOND), 0.0);
+        recordTrade(tea, START_TIME + 401 * SECOND, 1, 5.0);
+        Assert.assertEquals(5.0, indexAggregator.getIndex(START_TIME + 401 * SECOND), 1e-9);
+    }
+
+    @Test
+    public void verifyIndexMatchesFullRecalculation(){
+        StockDTO[] stocks = new StockDTO[50];
+        for(int i = 0; i < stocks.length; i++) {
+            stocks[i] = new StockDTO();
+            for(int j = 1; j <= 3; j++) {
+                TradeDTO trade = new TradeDTO();
+                trade.setTimestamp(ZonedDateTime.now().minusSeconds(j));
+                trade.setQuantity(j + i);
+                trade.setPrice(i + j * 0.5);
+                stocks[i].addTrade(trade);
+            }
+            indexAggregator.markUpdated(stocks[i]);
+        }
+        Assert.assertEquals(StockHelper.calculateGBCEAllShareIndex(stocks),
+                StockHelper.calculateGBCEAllShareIndex(indexAggregator), 0.0);
+    }
+}
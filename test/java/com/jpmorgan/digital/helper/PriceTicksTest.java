@@ -0,0 +1,64 @@
+package com.jpmorgan.digital.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify prices are converted to ticks and back at the default scale
+ *
+ * @author Aman Chhabra
+ */
+public class PriceTicksTest {
+
+    @Test
+    public void verifyPriceIsRoundedToNearestTick(){
+        Assert.assertEquals(PriceTicks.DEFAULT_SCALE, PriceTicks.SCALE);
+        Assert.assertEquals(1234567L, PriceTicks.toTicks(123.4567));
+        Assert.assertEquals(1234568L, PriceTicks.toTicks(123.45675));
+        Assert.assertEquals(1000L, PriceTicks.toTicks(0.1));
+        Assert.assertEquals(0L, PriceTicks.toTicks(0.0));
+    }
+
+    @Test
+    public void verifyTicksAreConvertedBackToPrice(){
+        double[] prices = {0.1, 0.2, 0.3, 123.4567, 9999.9999, 1.0E11};
+        for(double price : prices) {
+            Assert.assertEquals(price, PriceTicks.toPrice(PriceTicks.toTicks(price)), 0.0);
+        }
+    }
+
+    @Test
+    public void verifyVolWeightedPriceOfExactTotals(){
+        long quantityTicksTotal = 10 * PriceTicks.toTicks(0.1) + 20 * PriceTicks.toTicks(0.2);
+        Assert.assertEquals(0.5 / 3, PriceTicks.toVolWeightedPrice(quantityTicksTotal, 30), 1e-15);
+        Assert.assertEquals(0.0, PriceTicks.toVolWeightedPrice(quantityTicksTotal, 0), 0.0);
+    }
+
+    @Test
+    public void verifyVolWeightedPriceOfTotalWiderThanLong(){
+        long quantityTicksTotal = 3L * 1000000000L * PriceTicks.toTicks(900000.0);
+        Assert.assertEquals(900000.0, PriceTicks.toVolWeightedPrice(1, quantityTicksTotal, 3000000000L), 1e-9);
+        Assert.assertEquals(900000.0, PriceTicks.toVolWeightedPrice(0, 2L * 1000000000L * PriceTicks.toTicks(900000.0), 2000000000L), 0.0);
+        Assert.assertEquals(0.5, PriceTicks.toVolWeightedPrice(0, PriceTicks.toTicks(5.0), 10), 0.0);
+        Assert.assertEquals(0.0, PriceTicks.toVolWeightedPrice(1, quantityTicksTotal, 0), 0.0);
+    }
+
+    @Test
+    public void verifyPriceWhichCanNotBeHeldIsInvalid(){
+        Assert.assertTrue(PriceTicks.isValidPrice(0.0));
+        Assert.assertTrue(PriceTicks.isValidPrice(PriceTicks.MAX_PRICE));
+        Assert.assertFalse(PriceTicks.isValidPrice(-0.0001));
+        Assert.assertFalse(PriceTicks.isValidPrice(PriceTicks.MAX_PRICE * 2));
+        Assert.assertFalse(PriceTicks.isValidPrice(Double.NaN));
+    }
+
+    @Test
+    public void verifyTradeValueWhichCanNotBeHeldIsInvalid(){
+        long maxTicks = Long.MAX_VALUE / 1000000000;
+        Assert.assertTrue(PriceTicks.isValidTradeValue(1000000000, PriceTicks.toPrice(maxTicks)));
+        Assert.assertFalse(PriceTicks.isValidTradeValue(1000000000, PriceTicks.toPrice(maxTicks + 1)));
+        Assert.assertTrue(PriceTicks.isValidTradeValue(1, PriceTicks.MAX_PRICE));
+        Assert.assertFalse(PriceTicks.isValidTradeValue(2000000000, 10000000.0));
+        Assert.assertFalse(PriceTicks.isValidTradeValue(0, 1.0));
+    }
+}
@@ -0,0 +1,92 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Tests to verify stocks are loaded alike from the XML, CSV and binary configs
+ *
+ * @author Aman Chhabra
+ */
+public class StockConfigLoaderTest {
+
+    private static final long SECOND = 1000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void assertSameStock(StockDTO expected, StockDTO actual) {
+        Assert.assertEquals(expected.getStockSymbol(), actual.getStockSymbol());
+        Assert.assertEquals(expected.getStockType(), actual.getStockType());
+        Assert.assertEquals(expected.getLastDividend(), actual.getLastDividend());
+        Assert.assertEquals(expected.getFixedDividend(), actual.getFixedDividend());
+        Assert.assertEquals(expected.getParValue(), actual.getParValue());
+        Assert.assertEquals(expected.getRetentionNanos(), actual.getRetentionNanos());
+    }
+
+    @Test
+    public void verifyXmlConfigIsLoadedLikeConfigLoader() throws IOException {
+        ConfigLoader configLoader = new ConfigLoader();
+        configLoader.loadConfig("/configStockExchange.xml");
+        List<StockDTO> stocks = StockConfigLoader.loadXml(getClass().getResourceAsStream("/configStockExchange.xml"));
+        Assert.assertEquals(configLoader.getAllSection().size(), stocks.size());
+        for(StockDTO stock : stocks) {
+            String stockSymbol = stock.getStockSymbol();
+            Assert.assertEquals(configLoader.getConfiguration(stockSymbol, "TYPE"), stock.getStockType());
+            Assert.assertEquals(configLoader.getConfiguration(stockSymbol, "PAR_VALUE"), String.valueOf(stock.getParValue()));
+        }
+        Assert.assertEquals(0, stocks.get(0).getFixedDividend());
+    }
+
+    @Test
+    public void verifyLargeCsvConfigIsLoadedInParallelChunksInOrder() {
+        StringBuilder csv = new StringBuilder("symbol,type,lastDividend,fixedDividend,parValue,retentionSeconds\n# comment\n");
+        int count = 0;
+        while(csv.length() < 3 * StockConfigLoader.PARALLEL_CHUNK_BYTES) {
+            csv.append(" S").append(count).append(" ,").append(count % 2 == 0 ? "Common" : "Preferred").append(',')
+                    .append(count % 20).append(',').append(count % 3 == 0 ? "" : "2").append(",100,")
+                    .append(count % 7 == 0 ? "60" : "").append("\r\n");
+            count++;
+        }
+        List<StockDTO> stocks = StockConfigLoader.loadCsv(csv.toString().getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(count, stocks.size());
+        for(int i = 0; i < count; i++) {
+            StockDTO stock = stocks.get(i);
+            Assert.assertEquals("S" + i, stock.getStockSymbol());
+            Assert.assertEquals(i % 2 == 0 ? "Common" : "Preferred", stock.getStockType());
+            Assert.assertEquals(i % 20, stock.getLastDividend());
+            Assert.assertEquals(i % 3 == 0 ? 0 : 2, stock.getFixedDividend());
+            Assert.assertEquals(100, stock.getParValue());
+            Assert.assertEquals(i % 7 == 0 ? 60 * SECOND : 0, stock.getRetentionNanos());
+        }
+    }
+
+    @Test
+    public void verifyBinaryConfigIsLoadedAsWritten() throws IOException {
+        List<StockDTO> stocks = StockConfigLoader.loadCsv("GIN,Preferred,8,2,100,3600\nTEA,,0,,100\nPOP,Common,x,1,+50\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(stocks.get(1).getStockType());
+        Assert.assertEquals(0, stocks.get(2).getLastDividend());
+        Assert.assertEquals(50, stocks.get(2).getParValue());
+        File file = folder.newFile("stocks.bin");
+        StockConfigLoader.writeBinary(stocks, file);
+        List<StockDTO> loaded = StockConfigLoader.load(file);
+        Assert.assertEquals(stocks.size(), loaded.size());
+        for(int i = 0; i < stocks.size(); i++) {
+            assertSameStock(stocks.get(i), loaded.get(i));
+        }
+    }
+
+    @Test (expected = IOException.class)
+    public void verifyInvalidXmlConfigIsRejected() throws IOException {
+        StockConfigLoader.loadXml(new ByteArrayInputStream("<root><section>GIN".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -111,4 +111,76 @@ public class StockHelperTest {
         double volWeightPrice = StockHelper.calculateVolWeightPrice(prepareSampleStockWithMultipleTrades());
         Assert.assertEquals(10.0,volWeightPrice,0.0);
     }
+
+    @Test
+    public void verifyScanVolWeightPriceForRange(){
+        StockDTO stockDTO = new StockDTO();
+        stockDTO.addTrade(100L, 2, 10.0, (byte) 0);
+        stockDTO.addTrade(200L, 3, 20.0, (byte) 1);
+        stockDTO.addTrade(300L, 5, 40.0, (byte) 0);
+        Assert.assertEquals(16.0, StockHelper.scanVolWeightPrice(stockDTO, 100L, 300L), 0.0);
+        Assert.assertEquals(32.5, StockHelper.scanVolWeightPrice(stockDTO, 150L, 301L), 0.0);
+        Assert.assertEquals(0.0, StockHelper.scanVolWeightPrice(stockDTO, 400L, 500L), 0.0);
+    }
+
+    private StockDTO prepareStock(String stockType, int lastDividend, int fixedDividend, int parValue) {
+        StockDTO stock = new StockDTO();
+        stock.setStockType(stockType);
+        stock.setLastDividend(lastDividend);
+        stock.setFixedDividend(fixedDividend);
+        stock.setParValue(parValue);
+        return stock;
+    }
+
+    @Test
+    public void verifyDividendYieldsOfUniverseMatchEveryStock(){
+        StockDTO[] stocks = {prepareStock("Common", 8, 0, 100), prepareStock("Preferred", 8, 2, 100),
+                prepareStock("Common", 0, 0, 100), null, prepareStock("Other", 8, 0, 100), prepareStock("Common", 23, 0, 60)};
+        StockReferenceData referenceData = new StockReferenceData(stocks);
+        double[] prices = {7.0, 3.3, 12.0, 5.0, 0.0, 0.0, 1.0};
+        double[] dividendYields = new double[prices.length];
+        StockHelper.calculateDividendYields(referenceData, prices, dividendYields);
+        for(int i = 0; i < 3; i++) {
+            Assert.assertEquals(stocks[i].getDividendYieldStrategy().calculateDividendYield(stocks[i], prices[i]), dividendYields[i], 0.0);
+        }
+        Assert.assertTrue(Double.isNaN(dividendYields[3]));
+        Assert.assertEquals(0.0, dividendYields[4], 0.0);
+        Assert.assertTrue(Double.isNaN(dividendYields[5]));
+        Assert.assertTrue(Double.isNaN(dividendYields[6]));
+
+        prices[0] = -1.0;
+        StockHelper.calculateDividendYields(referenceData, prices, dividendYields);
+        Assert.assertTrue(Double.isNaN(dividendYields[0]));
+    }
+
+    @Test
+    public void verifyPERatiosOfUniverseMatchEveryStock(){
+        StockDTO[] stocks = {prepareStock("Common", 8, 0, 100), prepareStock("Preferred", 0, 2, 100), null,
+                prepareStock("Common", 23, 0, 60)};
+        StockReferenceData referenceData = new StockReferenceData(stocks);
+        double[] prices = {7.0, 3.0, 5.0, -1.0};
+        double[] pERatios = new double[5];
+        StockHelper.calculatePERatios(referenceData, prices, pERatios);
+        Assert.assertEquals(StockHelper.calculatePERatio(8, 7.0), pERatios[0], 0.0);
+        Assert.assertTrue(Double.isNaN(pERatios[1]));
+        Assert.assertTrue(Double.isNaN(pERatios[2]));
+        Assert.assertTrue(Double.isNaN(pERatios[3]));
+        Assert.assertEquals(0.0, pERatios[4], 0.0);
+    }
+
+    @Test
+    public void verifyParallelGBCEAllShareIndexMatchesScan(){
+        StockDTO[] stocks = new StockDTO[5000];
+        for(int i = 0; i < stocks.length; i++) {
+            stocks[i] = new StockDTO();
+            if(i % 7 != 0) {
+                stocks[i].addTrade(100L + i, 1 + i % 5, 1.0 + i % 113, (byte) 0);
+            }
+        }
+        double gbceAllShareIndex = StockHelper.calculateGBCEAllShareIndex(stocks, 200000L);
+        Assert.assertTrue(gbceAllShareIndex > 0);
+        Assert.assertEquals(gbceAllShareIndex, StockHelper.calculateGBCEAllShareIndex(stocks, 200000L, 1), 0.0);
+        Assert.assertEquals(gbceAllShareIndex, StockHelper.calculateGBCEAllShareIndex(stocks, 200000L, 5000), 0.0);
+        Assert.assertEquals(0.0, StockHelper.calculateGBCEAllShareIndex(new StockDTO[0], 200000L, 1), 0.0);
+    }
 }
@@ -0,0 +1,155 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.BarDTO;
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeCursor;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests to verify stocks are restored from a snapshot with the same trades and aggregates
+ *
+ * @author Aman Chhabra
+ */
+public class StockSnapshotTest {
+
+    private static final long MARKET_OPEN = 1485338400000000000L;
+
+    private static final long SECOND = 1000000000L;
+
+    private static final int[] BAR_INTERVALS = {60, 300};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StockDTO prepareStock(String stockSymbol) {
+        StockDTO stock = new StockDTO();
+        stock.setStockSymbol(stockSymbol);
+        stock.setStockType("Common");
+        stock.setLastDividend(8);
+        stock.setParValue(100);
+        stock.setBarIntervals(BAR_INTERVALS);
+        stock.setTradeReordering(2 * SECOND, 16, LateTradePolicy.APPLY);
+        return stock;
+    }
+
+    private StockDTO prepareTradedStock(String stockSymbol) {
+        StockDTO stock = prepareStock(stockSymbol);
+        for(int i = 0; i < 5000; i++) {
+            long timestamp = MARKET_OPEN + i * SECOND / 2 - (i % 5 == 0 ? SECOND : 0);
+            stock.addTrade(timestamp, 1 + i % 40, 100.0 + i % 17, (byte) (i % 2));
+        }
+        stock.setRetentionNanos(600 * SECOND);
+        stock.evictTrades(null);
+        return stock;
+    }
+
+    private void assertSameState(StockDTO expected, StockDTO actual) {
+        long now = MARKET_OPEN + 2500 * SECOND;
+        Assert.assertEquals(expected.getRecordedTradeCount(), actual.getRecordedTradeCount());
+        Assert.assertEquals(expected.getLateTradeCount(), actual.getLateTradeCount());
+        Assert.assertEquals(expected.getEvictedTradeCount(), actual.getEvictedTradeCount());
+        Assert.assertEquals(expected.getWatermark(), actual.getWatermark());
+        Assert.assertEquals(expected.getPendingTradeCount(), actual.getPendingTradeCount());
+        Assert.assertEquals(expected.getVolWeightedPrice(now), actual.getVolWeightedPrice(now), 0.0);
+        Assert.assertEquals(expected.getVolWeightedPrice(now, 3600 * SECOND), actual.getVolWeightedPrice(now, 3600 * SECOND), 0.0);
+        Assert.assertEquals(expected.getRangeVolWeightedPrice(MARKET_OPEN, now), actual.getRangeVolWeightedPrice(MARKET_OPEN, now), 0.0);
+        for(int intervalSeconds : BAR_INTERVALS) {
+            BarDTO[] expectedBars = expected.getBars(intervalSeconds);
+            BarDTO[] actualBars = actual.getBars(intervalSeconds);
+            Assert.assertEquals(expectedBars.length, actualBars.length);
+            for(int i = 0; i < expectedBars.length; i++) {
+                Assert.assertEquals(expectedBars[i].getStartTime(), actualBars[i].getStartTime());
+                Assert.assertEquals(expectedBars[i].getClose(), actualBars[i].getClose(), 0.0);
+                Assert.assertEquals(expectedBars[i].getVolume(), actualBars[i].getVolume());
+            }
+            Assert.assertEquals(expected.getCurrentBar(intervalSeconds).getVolume(), actual.getCurrentBar(intervalSeconds).getVolume());
+        }
+        TradeCursor expectedTrades = expected.openCursor(new TradeCursor());
+        TradeCursor actualTrades = actual.openCursor(new TradeCursor());
+        Assert.assertEquals(expectedTrades.getTradeCount(), actualTrades.getTradeCount());
+        while(expectedTrades.next()) {
+            Assert.assertTrue(actualTrades.next());
+            Assert.assertEquals(expectedTrades.getTimestamp(), actualTrades.getTimestamp());
+            Assert.assertEquals(expectedTrades.getQuantity(), actualTrades.getQuantity());
+            Assert.assertEquals(expectedTrades.getPrice(), actualTrades.getPrice(), 0.0);
+            Assert.assertEquals(expectedTrades.getIndicator(), actualTrades.getIndicator());
+        }
+    }
+
+    @Test
+    public void verifyStocksAreRestoredFromSnapshot() throws IOException {
+        StockSnapshot stockSnapshot = new StockSnapshot(folder.newFolder("snapshot"));
+        StockDTO gin = prepareTradedStock("GIN");
+        StockDTO tea = prepareStock("TEA");
+        File file = stockSnapshot.write(new StockDTO[] {gin, tea}, 42);
+        Assert.assertEquals(42, StockSnapshot.getJournalSequence(file));
+
+        Map<String, StockDTO> stocks = new HashMap<String, StockDTO>();
+        stocks.put("GIN", prepareStock("GIN"));
+        List<StockDTO> addedStocks = new ArrayList<StockDTO>();
+        Assert.assertEquals(42, stockSnapshot.read(file, stocks, stock -> {
+            stock.setBarIntervals(BAR_INTERVALS);
+            stock.setTradeReordering(2 * SECOND, 16, LateTradePolicy.APPLY);
+            addedStocks.add(stock);
+        }));
+        assertSameState(gin, stocks.get("GIN"));
+        Assert.assertTrue(gin.getEvictedTradeCount() > 0);
+        Assert.assertEquals(1, addedStocks.size());
+        Assert.assertEquals("TEA", addedStocks.get(0).getStockSymbol());
+        Assert.assertEquals(8, addedStocks.get(0).getLastDividend());
+        Assert.assertEquals(0, addedStocks.get(0).getRecordedTradeCount());
+    }
+
+    @Test
+    public void verifyRestoredStockContinuesLikeTheOriginal() throws IOException {
+        StockSnapshot stockSnapshot = new StockSnapshot(folder.newFolder("snapshot"));
+        StockDTO gin = prepareTradedStock("GIN");
+        File file = stockSnapshot.write(new StockDTO[] {gin}, 0);
+        Map<String, StockDTO> stocks = new HashMap<String, StockDTO>();
+        stocks.put("GIN", prepareStock("GIN"));
+        stockSnapshot.read(file, stocks, stock -> Assert.fail());
+        StockDTO restored = stocks.get("GIN");
+        for(int i = 5000; i < 6000; i++) {
+            long timestamp = MARKET_OPEN + i * SECOND / 2;
+            gin.addTrade(timestamp, 7, 90.0 + i % 3, (byte) 0);
+            restored.addTrade(timestamp, 7, 90.0 + i % 3, (byte) 0);
+        }
+        assertSameState(gin, restored);
+    }
+
+    @Test
+    public void verifyOnlyLatestSnapshotsAreKept() throws IOException {
+        StockSnapshot stockSnapshot = new StockSnapshot(folder.newFolder("snapshot"));
+        StockDTO[] stocks = {prepareTradedStock("GIN")};
+        for(long journalSequence = 10; journalSequence <= 40; journalSequence += 10) {
+            stockSnapshot.write(stocks, journalSequence);
+        }
+        List<File> files = stockSnapshot.getFiles();
+        Assert.assertEquals(StockSnapshot.KEPT_SNAPSHOTS, files.size());
+        Assert.assertEquals(40, StockSnapshot.getJournalSequence(files.get(0)));
+        Assert.assertEquals(30, StockSnapshot.getJournalSequence(files.get(1)));
+    }
+
+    @Test (expected = IOException.class)
+    public void verifyTruncatedSnapshotIsRejected() throws IOException {
+        StockSnapshot stockSnapshot = new StockSnapshot(folder.newFolder("snapshot"));
+        File file = stockSnapshot.write(new StockDTO[] {prepareTradedStock("GIN")}, 0);
+        try (RandomAccessFile snapshotFile = new RandomAccessFile(file, "rw")) {
+            snapshotFile.setLength(snapshotFile.length() - 100);
+        }
+        Map<String, StockDTO> stocks = new HashMap<String, StockDTO>();
+        stocks.put("GIN", prepareStock("GIN"));
+        stockSnapshot.read(file, stocks, stock -> Assert.fail());
+    }
+}
@@ -0,0 +1,136 @@
+package com.jpmorgan.digital.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Tests to verify Volume Weighted price of windows of any length is served from time buckets
+ *
+ * @author Aman Chhabra
+ */
+public class TimeBucketAggregatorTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long MARKET_OPEN = 1485338400L * SECOND;
+
+    private static final int TRADES = 20000;
+
+    private final long[] timestamps = new long[TRADES];
+
+    private final int[] quantities = new int[TRADES];
+
+    private final double[] prices = new double[TRADES];
+
+    /**
+     * Records trades spread over two hours after market open, a few of them late
+     */
+    private TimeBucketAggregator prepareTwoHoursOfTrades() {
+        TimeBucketAggregator aggregator = new TimeBucketAggregator();
+        Random random = new Random(7);
+        for(int i = 0; i < TRADES; i++) {
+            long timestamp = MARKET_OPEN + i * (7200L * SECOND / TRADES);
+            if(i % 50 == 0 && i > 0) {
+                timestamp -= random.nextInt(30) * SECOND;
+            }
+            timestamps[i] = timestamp;
+            quantities[i] = 1 + random.nextInt(100);
+            prices[i] = 50 + random.nextInt(5000) / 100.0;
+            aggregator.addTrade(timestamps[i], quantities[i], PriceTicks.toTicks(prices[i]));
+        }
+        return aggregator;
+    }
+
+    private double scanFrom(long fromTime) {
+        long quantity = 0;
+        double quantityPrice = 0.0;
+        for(int i = 0; i < TRADES; i++) {
+            if(timestamps[i] >= fromTime) {
+                quantity += quantities[i];
+                quantityPrice += quantities[i] * prices[i];
+            }
+        }
+        return quantityPrice / quantity;
+    }
+
+    @Test
+    public void verifyNoTrade(){
+        Assert.assertEquals(0.0, new TimeBucketAggregator().getVolWeightedPrice(MARKET_OPEN, 60 * SECOND), 0.0);
+    }
+
+    @Test
+    public void verifyWindowsWithinSecondBuckets(){
+        TimeBucketAggregator aggregator = prepareTwoHoursOfTrades();
+        long currentTime = MARKET_OPEN + 7199 * SECOND + SECOND / 2;
+        for(long windowSeconds : new long[]{1, 60, 119, 121, 300, 500}) {
+            long fromTime = (currentTime / SECOND - windowSeconds + 1) * SECOND;
+            Assert.assertEquals(scanFrom(fromTime), aggregator.getVolWeightedPrice(currentTime, windowSeconds * SECOND), 1e-9);
+        }
+    }
+
+    @Test
+    public void verifyWindowsBeyondSecondBucketsStartAtWholeMinute(){
+        TimeBucketAggregator aggregator = prepareTwoHoursOfTrades();
+        long currentTime = MARKET_OPEN + 7200 * SECOND + 25 * SECOND;
+        for(long windowSeconds : new long[]{900, 3600, 7000}) {
+            long fromMinute = (currentTime / SECOND - windowSeconds + 1 + 59) / 60;
+            Assert.assertEquals(scanFrom(fromMinute * 60 * SECOND), aggregator.getVolWeightedPrice(currentTime, windowSeconds * SECOND), 1e-9);
+        }
+    }
+
+    @Test
+    public void verifyBucketsClearedAfterGap(){
+        TimeBucketAggregator aggregator = new TimeBucketAggregator();
+        aggregator.addTrade(MARKET_OPEN, 10, PriceTicks.toTicks(100.0));
+        aggregator.addTrade(MARKET_OPEN + 3 * 3600 * SECOND, 10, PriceTicks.toTicks(200.0));
+        long currentTime = MARKET_OPEN + 3 * 3600 * SECOND;
+        Assert.assertEquals(200.0, aggregator.getVolWeightedPrice(currentTime, 60 * SECOND), 0.0);
+        Assert.assertEquals(200.0, aggregator.getVolWeightedPrice(currentTime, 7000 * SECOND), 0.0);
+        Assert.assertEquals(0.0, aggregator.getVolWeightedPrice(currentTime + 61 * SECOND, 60 * SECOND), 0.0);
+    }
+
+    @Test
+    public void verifyLateTradeAddedToItsBuckets(){
+        TimeBucketAggregator aggregator = new TimeBucketAggregator();
+        aggregator.addTrade(MARKET_OPEN + 100 * SECOND, 10, PriceTicks.toTicks(100.0));
+        aggregator.addTrade(MARKET_OPEN + 10 * SECOND, 30, PriceTicks.toTicks(200.0));
+        long currentTime = MARKET_OPEN + 100 * SECOND;
+        Assert.assertEquals(100.0, aggregator.getVolWeightedPrice(currentTime, 60 * SECOND), 0.0);
+        Assert.assertEquals(175.0, aggregator.getVolWeightedPrice(currentTime, 100 * SECOND), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyWindowLongerThanBuckets(){
+        new TimeBucketAggregator().getVolWeightedPrice(MARKET_OPEN, 128 * 60 * SECOND);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyBucketsNotPowerOfTwo(){
+        new TimeBucketAggregator(100, 128);
+    }
+
+    @Test
+    public void verifyBucketTotalsDoNotWrapForTradesOfHighestValue() throws IOException {
+        TimeBucketAggregator aggregator = new TimeBucketAggregator();
+        long price = PriceTicks.toTicks(900000.0);
+        aggregator.addTrade(MARKET_OPEN, 1000000000, price);
+        aggregator.addTrade(MARKET_OPEN, 1000000000, price);
+        aggregator.addTrade(MARKET_OPEN + SECOND, 1000000000, price);
+        long currentTime = MARKET_OPEN + 2 * SECOND;
+        Assert.assertEquals(900000.0, aggregator.getVolWeightedPrice(currentTime, 60 * SECOND), 0.0);
+        Assert.assertEquals(900000.0, aggregator.getVolWeightedPrice(currentTime, 7000 * SECOND), 0.0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        aggregator.writeSnapshot(new DataOutputStream(bytes));
+        TimeBucketAggregator restored = new TimeBucketAggregator();
+        restored.readSnapshot(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(900000.0, restored.getVolWeightedPrice(currentTime, 7000 * SECOND), 0.0);
+    }
+}
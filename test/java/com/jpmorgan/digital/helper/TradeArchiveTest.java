@@ -0,0 +1,93 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeCursor;
+import com.jpmorgan.digital.dto.TradeStore;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Tests to verify evicted trades are archived compressed and read back unchanged
+ *
+ * @author Aman Chhabra
+ */
+public class TradeArchiveTest {
+
+    private static final long MARKET_OPEN = 1485338400000000000L;
+
+    private static final long SECOND = 1000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TradeStore prepareSampleTrades() {
+        TradeStore store = new TradeStore();
+        for(int i = 0; i < 1000; i++) {
+            store.addTrade(MARKET_OPEN + i * 3000000L - (i % 7 == 0 ? 5000000L : 0), 1 + i % 500, PriceTicks.toTicks(100.0 + i / 100.0), (byte) (i % 2));
+        }
+        return store;
+    }
+
+    @Test
+    public void verifyArchivedTradesAreReadBack() throws IOException {
+        TradeArchive tradeArchive = new TradeArchive(folder.newFolder("archive"));
+        TradeStore store = prepareSampleTrades();
+        TradeCursor cursor = new TradeCursor();
+        store.evictBefore(MARKET_OPEN + 1500 * 1000000L, cursor);
+        Assert.assertEquals(500, tradeArchive.write("GIN", cursor));
+        Assert.assertEquals(500, tradeArchive.write("GIN", store.openCursor(cursor)));
+        Assert.assertTrue(tradeArchive.getFile("GIN").length() < 1000 * 16);
+
+        TradeStore archived = new TradeStore();
+        Assert.assertEquals(1000, tradeArchive.read("GIN", archived));
+        Assert.assertEquals(0, tradeArchive.read("TEA", archived));
+        TradeCursor expected = prepareSampleTrades().openCursor(new TradeCursor());
+        TradeCursor actual = archived.openCursor(new TradeCursor());
+        while(expected.next()) {
+            Assert.assertTrue(actual.next());
+            Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            Assert.assertEquals(expected.getQuantity(), actual.getQuantity());
+            Assert.assertEquals(expected.getPrice(), actual.getPrice(), 0.0);
+            Assert.assertEquals(expected.getIndicator(), actual.getIndicator());
+        }
+        Assert.assertFalse(actual.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void verifyReadWhenArchiveIsTruncated() throws IOException {
+        TradeArchive tradeArchive = new TradeArchive(folder.newFolder("archive"));
+        TradeStore store = new TradeStore();
+        store.addTrade(MARKET_OPEN, 10, PriceTicks.toTicks(100.0), (byte) 0);
+        tradeArchive.write("GIN", store.openCursor(new TradeCursor()));
+        try (RandomAccessFile file = new RandomAccessFile(tradeArchive.getFile("GIN"), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        tradeArchive.read("GIN", new TradeStore());
+    }
+
+    @Test
+    public void verifyEvictorArchivesTradesOlderThanRetention() throws IOException {
+        TradeArchive tradeArchive = new TradeArchive(folder.newFolder("archive"));
+        TradeEvictor tradeEvictor = new TradeEvictor(tradeArchive);
+        StockDTO stock = new StockDTO();
+        stock.setStockSymbol("GIN");
+        stock.setRetentionNanos(300 * SECOND);
+        StockDTO[] stocks = {stock};
+        for(int i = 0; i < 6 * 3600; i++) {
+            stock.addTrade(MARKET_OPEN + i * SECOND, 10, 100.0, (byte) 0);
+            if(i % 60 == 0) {
+                tradeEvictor.evict(stocks);
+            }
+        }
+        tradeEvictor.evict(stocks);
+        Assert.assertEquals(301, stock.getAllTrades().length);
+        Assert.assertEquals(6 * 3600 - 301, stock.getEvictedTradeCount());
+        Assert.assertEquals(6 * 3600 - 301, tradeArchive.read("GIN", new TradeStore()));
+        Assert.assertEquals(100.0, stock.getRangeVolWeightedPrice(0, Long.MAX_VALUE), 0.0);
+    }
+}
@@ -0,0 +1,50 @@
+package com.jpmorgan.digital.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify the clocks used for time based calculations
+ *
+ * @author Aman Chhabra
+ */
+public class TradeClockTest {
+
+    @Test
+    public void verifySystemClockFollowsWallClock(){
+        long before = System.currentTimeMillis() * 1000000L;
+        long time = new SystemTradeClock().currentTimeNanos();
+        long after = System.currentTimeMillis() * 1000000L;
+        Assert.assertTrue(time >= before - 1000000L);
+        Assert.assertTrue(time <= after + 1000000L);
+    }
+
+    @Test
+    public void verifySystemClockNeverGoesBack(){
+        TradeClock clock = SystemTradeClock.getClockInstance();
+        long previous = clock.currentTimeNanos();
+        for(int i = 0; i < 100000; i++) {
+            long time = clock.currentTimeNanos();
+            Assert.assertTrue(time >= previous);
+            previous = time;
+        }
+    }
+
+    @Test
+    public void verifySimulatedClockMovesOnlyWhenTold(){
+        SimulatedTradeClock clock = new SimulatedTradeClock(100L);
+        Assert.assertEquals(100L, clock.currentTimeNanos());
+        clock.advanceTo(50L);
+        Assert.assertEquals(100L, clock.currentTimeNanos());
+        clock.advanceTo(150L);
+        clock.advanceBy(10L);
+        Assert.assertEquals(160L, clock.currentTimeNanos());
+        clock.setTime(20L);
+        Assert.assertEquals(20L, clock.currentTimeNanos());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifySimulatedClockCanNotMoveBack(){
+        new SimulatedTradeClock(100L).advanceBy(-1L);
+    }
+}
@@ -0,0 +1,127 @@
+package com.jpmorgan.digital.helper;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests to verify recorded trades are journaled and replayed after the journal is reopened
+ *
+ * @author Aman Chhabra
+ */
+public class TradeJournalTest {
+
+    private static final long MARKET_OPEN = 1485338400000000000L;
+
+    private static final long SECOND = 1000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, StockDTO> prepareStocks(String... stockSymbols) {
+        Map<String, StockDTO> stocks = new HashMap<String, StockDTO>();
+        int stockId = 0;
+        for(String stockSymbol : stockSymbols) {
+            StockDTO stock = new StockDTO();
+            stock.setStockSymbol(stockSymbol);
+            stock.setStockId(stockId++);
+            stocks.put(stockSymbol, stock);
+        }
+        return stocks;
+    }
+
+    private TradeJournal openJournal(File directory, Map<String, StockDTO> stocks) throws IOException {
+        TradeJournal tradeJournal = new TradeJournal(directory, 1000, 64);
+        for(StockDTO stock : stocks.values()) {
+            tradeJournal.registerStock(stock);
+        }
+        return tradeJournal;
+    }
+
+    private void recordTrades(TradeJournal tradeJournal, Map<String, StockDTO> stocks, int count) {
+        for(int i = 0; i < count; i++) {
+            StockDTO stock = stocks.get(i % 3 == 0 ? "GIN" : "TEA");
+            long timestamp = MARKET_OPEN + i * SECOND;
+            tradeJournal.append(stock.getStockId(), timestamp, 1 + i % 50, 100.0 + i, (byte) (i % 2));
+            stock.addTrade(timestamp, 1 + i % 50, 100.0 + i, (byte) (i % 2));
+        }
+    }
+
+    @Test
+    public void verifyJournaledTradesAreReplayed() throws IOException {
+        File directory = folder.newFolder("journal");
+        Map<String, StockDTO> stocks = prepareStocks("GIN", "TEA");
+        TradeJournal tradeJournal = openJournal(directory, stocks);
+        recordTrades(tradeJournal, stocks, 1000);
+        tradeJournal.close();
+
+        Map<String, StockDTO> recovered = prepareStocks("TEA", "GIN", "POP");
+        TradeJournal reopened = openJournal(directory, recovered);
+        Assert.assertEquals(1000, reopened.getRecordCount());
+        Assert.assertEquals(1000, reopened.replay(recovered));
+        for(String stockSymbol : new String[] {"GIN", "TEA"}) {
+            Assert.assertEquals(stocks.get(stockSymbol).getRecordedTradeCount(), recovered.get(stockSymbol).getRecordedTradeCount());
+            Assert.assertEquals(stocks.get(stockSymbol).getRangeVolWeightedPrice(MARKET_OPEN, MARKET_OPEN + 1000 * SECOND),
+                    recovered.get(stockSymbol).getRangeVolWeightedPrice(MARKET_OPEN, MARKET_OPEN + 1000 * SECOND), 0.0);
+        }
+        Assert.assertEquals(0, recovered.get("POP").getRecordedTradeCount());
+        reopened.close();
+    }
+
+    @Test
+    public void verifyAppendingResumesAfterReopen() throws IOException {
+        File directory = folder.newFolder("journal");
+        Map<String, StockDTO> stocks = prepareStocks("GIN", "TEA");
+        TradeJournal tradeJournal = openJournal(directory, stocks);
+        recordTrades(tradeJournal, stocks, 100);
+        tradeJournal.close();
+
+        TradeJournal reopened = openJournal(directory, prepareStocks("GIN", "TEA"));
+        reopened.append(0, MARKET_OPEN + 100 * SECOND, 10, 50.0, (byte) 0);
+        reopened.close();
+
+        Map<String, StockDTO> recovered = prepareStocks("GIN", "TEA");
+        TradeJournal replayed = openJournal(directory, recovered);
+        Assert.assertEquals(101, replayed.replay(recovered));
+        Assert.assertEquals(35, recovered.get("GIN").getRecordedTradeCount());
+        replayed.close();
+    }
+
+    @Test
+    public void verifyTornRecordIsSkipped() throws IOException {
+        File directory = folder.newFolder("journal");
+        Map<String, StockDTO> stocks = prepareStocks("GIN", "TEA");
+        TradeJournal tradeJournal = openJournal(directory, stocks);
+        recordTrades(tradeJournal, stocks, 10);
+        tradeJournal.close();
+        try (RandomAccessFile segment = new RandomAccessFile(new File(directory, "journal-00000000.dat"), "rw")) {
+            segment.seek(4 * TradeJournal.RECORD_SIZE + 8);
+            segment.writeDouble(1.0);
+        }
+
+        Map<String, StockDTO> recovered = prepareStocks("GIN", "TEA");
+        TradeJournal reopened = openJournal(directory, recovered);
+        Assert.assertEquals(9, reopened.replay(recovered));
+        Assert.assertEquals(4, recovered.get("GIN").getRecordedTradeCount());
+        Assert.assertEquals(5, recovered.get("TEA").getRecordedTradeCount());
+        reopened.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verifyTradeOfUnregisteredStockIsRejected() throws IOException {
+        TradeJournal tradeJournal = openJournal(folder.newFolder("journal"), prepareStocks("GIN"));
+        try {
+            tradeJournal.append(1, MARKET_OPEN, 10, 50.0, (byte) 0);
+        } finally {
+            tradeJournal.close();
+        }
+    }
+}
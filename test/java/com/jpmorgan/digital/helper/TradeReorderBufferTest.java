@@ -0,0 +1,58 @@
+package com.jpmorgan.digital.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify trades are held and released from the reorder buffer in time order
+ *
+ * @author Aman Chhabra
+ */
+public class TradeReorderBufferTest {
+
+    TradeReorderBuffer reorderBuffer = new TradeReorderBuffer(44);
+
+    @Test
+    public void verifyPeekWhenNoTrade(){
+        Assert.assertEquals(Long.MAX_VALUE, reorderBuffer.peekTimestamp());
+        reorderBuffer.removeOldest();
+        Assert.assertEquals(0, reorderBuffer.getTradeCount());
+    }
+
+    @Test
+    public void verifyTradesAreReleasedInTimeOrder(){
+        long[] timestamps = {5, 3, 9, 1, 7, 7, 2};
+        for(int round = 0; round < 10; round++) {
+            for(long timestamp : timestamps) {
+                reorderBuffer.addTrade(round * 10 + timestamp, (int) timestamp, PriceTicks.toTicks(timestamp * 1.5), (byte) (timestamp % 2));
+            }
+            for(int i = 0; i < 3; i++) {
+                reorderBuffer.removeOldest();
+            }
+        }
+        Assert.assertEquals(40, reorderBuffer.getTradeCount());
+        Assert.assertFalse(reorderBuffer.isFull());
+        long previous = Long.MIN_VALUE;
+        while(reorderBuffer.getTradeCount() > 0) {
+            long timestamp = reorderBuffer.peekTimestamp();
+            Assert.assertTrue(timestamp >= previous);
+            Assert.assertEquals(timestamp % 10, reorderBuffer.peekQuantity());
+            Assert.assertEquals(PriceTicks.toTicks(timestamp % 10 * 1.5), reorderBuffer.peekPrice());
+            Assert.assertEquals(timestamp % 2, reorderBuffer.peekIndicator());
+            previous = timestamp;
+            reorderBuffer.removeOldest();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verifyAddTradeWhenFull(){
+        TradeReorderBuffer buffer = new TradeReorderBuffer(1);
+        buffer.addTrade(1, 1, PriceTicks.toTicks(1.0), (byte) 0);
+        buffer.addTrade(2, 1, PriceTicks.toTicks(1.0), (byte) 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyCapacityWhenZero(){
+        new TradeReorderBuffer(0);
+    }
+}
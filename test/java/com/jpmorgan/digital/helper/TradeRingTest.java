@@ -0,0 +1,90 @@
+package com.jpmorgan.digital.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify trades are handed over through the ring in order, without loss, from several threads
+ *
+ * @author Aman Chhabra
+ */
+public class TradeRingTest {
+
+    @Test
+    public void verifyTradesArePolledInOrder(){
+        TradeRing ring = new TradeRing(4);
+        Assert.assertFalse(ring.poll());
+        for(int lap = 0; lap < 3; lap++) {
+            for(int i = 0; i < 3; i++) {
+                Assert.assertTrue(ring.offer(i, 100L + i, 10 * i, 1.5 * i, (byte) (i % 2)));
+            }
+            for(int i = 0; i < 3; i++) {
+                Assert.assertTrue(ring.poll());
+                Assert.assertEquals(i, ring.getStockId());
+                Assert.assertEquals(100L + i, ring.getTimestamp());
+                Assert.assertEquals(10 * i, ring.getQuantity());
+                Assert.assertEquals(1.5 * i, ring.getPrice(), 0.0);
+                Assert.assertEquals((byte) (i % 2), ring.getIndicator());
+            }
+            Assert.assertFalse(ring.poll());
+        }
+        Assert.assertEquals(9L, ring.getOfferedCount());
+        Assert.assertEquals(9L, ring.getPolledCount());
+    }
+
+    @Test
+    public void verifyFullRingRefusesTrades(){
+        TradeRing ring = new TradeRing(2);
+        Assert.assertTrue(ring.offer(1, 1L, 1, 1.0, (byte) 0));
+        Assert.assertTrue(ring.offer(2, 2L, 1, 1.0, (byte) 0));
+        Assert.assertFalse(ring.offer(3, 3L, 1, 1.0, (byte) 0));
+        Assert.assertTrue(ring.poll());
+        Assert.assertEquals(1, ring.getStockId());
+        Assert.assertTrue(ring.offer(3, 3L, 1, 1.0, (byte) 0));
+        Assert.assertEquals(3L, ring.getOfferedCount());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyCapacityMustBePowerOfTwo(){
+        new TradeRing(12);
+    }
+
+    @Test
+    public void verifyTradesOfSeveralProducersAreNotLost() throws InterruptedException {
+        final int producerCount = 4;
+        final int tradesPerProducer = 100000;
+        final TradeRing ring = new TradeRing(64);
+        Thread[] producers = new Thread[producerCount];
+        for(int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < tradesPerProducer; i++) {
+                        while(!ring.offer(producer, i, 1, 1.0, (byte) 0)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        long[] nextTimestamps = new long[producerCount];
+        int polled = 0;
+        while(polled < producerCount * tradesPerProducer) {
+            if(ring.poll()) {
+                Assert.assertEquals(nextTimestamps[ring.getStockId()]++, ring.getTimestamp());
+                polled++;
+            } else {
+                Thread.yield();
+            }
+        }
+        for(Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertFalse(ring.poll());
+        for(int p = 0; p < producerCount; p++) {
+            Assert.assertEquals(tradesPerProducer, nextTimestamps[p]);
+        }
+    }
+}
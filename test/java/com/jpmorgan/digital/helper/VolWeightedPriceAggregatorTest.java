@@ -0,0 +1,103 @@
+package com.jpmorgan.digital.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to verify the sliding window totals used for Volume Weighted price
+ *
+ * @author Aman Chhabra
+ */
+public class VolWeightedPriceAggregatorTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long START_TIME = 1485000000L * SECOND;
+
+    VolWeightedPriceAggregator aggregator = new VolWeightedPriceAggregator();
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyCreateWhenWindowIsZero(){
+        new VolWeightedPriceAggregator(0);
+    }
+
+    @Test
+    public void verifyVolWeightedPriceWhenNoTrade(){
+        Assert.assertEquals(0.0, aggregator.getVolWeightedPrice(START_TIME), 0.0);
+    }
+
+    @Test
+    public void verifyVolWeightedPriceIsWeightedByQuantity(){
+        aggregator.addTrade(START_TIME, 2, PriceTicks.toTicks(10.0));
+        aggregator.addTrade(START_TIME + SECOND, 3, PriceTicks.toTicks(20.0));
+        Assert.assertEquals(16.0, aggregator.getVolWeightedPrice(START_TIME + 2 * SECOND), 0.0);
+        Assert.assertEquals(5, aggregator.getQuantityTotal());
+    }
+
+    @Test
+    public void verifyExpiredTradesAreEvicted(){
+        aggregator.addTrade(START_TIME, 2, PriceTicks.toTicks(10.0));
+        aggregator.addTrade(START_TIME + 10 * SECOND, 3, PriceTicks.toTicks(20.0));
+        Assert.assertEquals(20.0, aggregator.getVolWeightedPrice(START_TIME + 300 * SECOND), 0.0);
+        Assert.assertEquals(1, aggregator.getTradeCount());
+        Assert.assertEquals(0.0, aggregator.getVolWeightedPrice(START_TIME + 310 * SECOND), 0.0);
+        Assert.assertEquals(0, aggregator.getTradeCount());
+        Assert.assertEquals(0L, aggregator.getQuantityPriceTotal());
+    }
+
+    @Test
+    public void verifyTradeJustInsideWindowIsKept(){
+        aggregator.addTrade(START_TIME, 4, PriceTicks.toTicks(10.0));
+        Assert.assertEquals(10.0, aggregator.getVolWeightedPrice(START_TIME + 300 * SECOND - 1), 0.0);
+    }
+
+    @Test
+    public void verifyLateTradeIsEvictedInTimeOrder(){
+        aggregator.addTrade(START_TIME + 20 * SECOND, 1, PriceTicks.toTicks(30.0));
+        aggregator.addTrade(START_TIME, 1, PriceTicks.toTicks(10.0));
+        aggregator.addTrade(START_TIME + 10 * SECOND, 1, PriceTicks.toTicks(20.0));
+        Assert.assertEquals(25.0, aggregator.getVolWeightedPrice(START_TIME + 305 * SECOND), 0.0);
+        Assert.assertEquals(30.0, aggregator.getVolWeightedPrice(START_TIME + 315 * SECOND), 0.0);
+    }
+
+    @Test
+    public void verifyWindowGrowsBeyondInitialCapacity(){
+        for(int i = 0; i < 1000; i++) {
+            aggregator.addTrade(START_TIME + i * SECOND / 10, 1, PriceTicks.toTicks(i));
+        }
+        Assert.assertEquals(1000, aggregator.getTradeCount());
+        Assert.assertEquals(499.5, aggregator.getVolWeightedPrice(START_TIME + 100 * SECOND), 0.0);
+        Assert.assertEquals(750.0, aggregator.getVolWeightedPrice(START_TIME + 350 * SECOND), 0.0);
+    }
+
+    @Test
+    public void verifyTotalsDoNotDriftOverManyTrades(){
+        double[] prices = {0.1, 0.2, 0.3, 100.07, 9999.9999};
+        long time = START_TIME;
+        for(int i = 0; i < 2000000; i++) {
+            aggregator.addTrade(time, 3 + i % 7, PriceTicks.toTicks(prices[i % prices.length]));
+            aggregator.evictExpired(time);
+            time += SECOND / 1000;
+        }
+        aggregator.addTrade(time + 600 * SECOND, 3, PriceTicks.toTicks(0.1));
+        aggregator.evictExpired(time + 600 * SECOND);
+        Assert.assertEquals(1, aggregator.getTradeCount());
+        Assert.assertEquals(3L * PriceTicks.toTicks(0.1), aggregator.getQuantityPriceTotal());
+        Assert.assertEquals(0.1, aggregator.getVolWeightedPrice(time + 600 * SECOND), 0.0);
+    }
+
+    @Test
+    public void verifyTotalsDoNotWrapForTradesOfHighestValue(){
+        long price = PriceTicks.toTicks(900000.0);
+        aggregator.addTrade(START_TIME, 1000000000, price);
+        aggregator.addTrade(START_TIME + SECOND, 1000000000, price);
+        Assert.assertEquals(900000.0, aggregator.getVolWeightedPrice(START_TIME + 2 * SECOND), 0.0);
+        aggregator.addTrade(START_TIME + 2 * SECOND, 1000000000, price);
+        Assert.assertEquals(1L, aggregator.getQuantityPriceCarry());
+        Assert.assertEquals(900000.0, aggregator.peekVolWeightedPrice(START_TIME + 300 * SECOND), 0.0);
+        Assert.assertEquals(900000.0, aggregator.getVolWeightedPrice(START_TIME + 300 * SECOND), 0.0);
+        Assert.assertEquals(0L, aggregator.getQuantityPriceCarry());
+        Assert.assertEquals(0.0, aggregator.getVolWeightedPrice(START_TIME + 310 * SECOND), 0.0);
+        Assert.assertEquals(0L, aggregator.getQuantityPriceTotal());
+    }
+}
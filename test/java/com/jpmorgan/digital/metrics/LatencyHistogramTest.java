@@ -0,0 +1,80 @@
+package com.jpmorgan.digital.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests to verify latencies are counted in the right buckets and percentiles are read back
+ *
+ * @author Aman Chhabra
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void verifyEmptyHistogram(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getP99Nanos());
+    }
+
+    @Test
+    public void verifyBucketsCoverEveryLatency(){
+        long previousHighest = -1;
+        for(int bucket = 0; bucket <= LatencyHistogram.bucketOf(1L << 36); bucket++) {
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            Assert.assertEquals(bucket, LatencyHistogram.bucketOf(previousHighest + 1));
+            Assert.assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            Assert.assertTrue(highest - previousHighest <= Math.max(1, highest / 32));
+            previousHighest = highest;
+        }
+        Assert.assertEquals(LatencyHistogram.bucketOf(Long.MAX_VALUE), LatencyHistogram.bucketOf(1L << 40));
+    }
+
+    @Test
+    public void verifyPercentiles(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long latency = 1; latency <= 100000; latency++) {
+            histogram.record(latency * 10);
+        }
+        Assert.assertEquals(100000, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMaxNanos());
+        Assert.assertEquals(500000, histogram.getP50Nanos(), 500000 / 32);
+        Assert.assertEquals(990000, histogram.getP99Nanos(), 990000 / 32);
+        Assert.assertEquals(999000, histogram.getP999Nanos(), 999000 / 32);
+        Assert.assertEquals(1000000, histogram.getValueAtPercentile(100.0));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyPercentileAboveHundred(){
+        new LatencyHistogram().getValueAtPercentile(100.1);
+    }
+
+    @Test
+    public void verifyConcurrentRecordLosesNoCall() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Future<?>[] recorders = new Future<?>[8];
+        for(int i = 0; i < recorders.length; i++) {
+            recorders[i] = executor.submit(() -> {
+                for(int j = 0; j < 100000; j++) {
+                    histogram.record(j & 1023);
+                }
+            });
+        }
+        for(Future<?> recorder : recorders) {
+            recorder.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        Assert.assertEquals(800000, histogram.getCount());
+        Assert.assertEquals(1023, histogram.getMaxNanos());
+    }
+}
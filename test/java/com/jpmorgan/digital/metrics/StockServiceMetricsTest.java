@@ -0,0 +1,94 @@
+package com.jpmorgan.digital.metrics;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Tests to verify latency and trade counters of the service are kept and published over JMX
+ *
+ * @author Aman Chhabra
+ */
+public class StockServiceMetricsTest {
+
+    private static final long TIME = 1485338400000000000L;
+
+    private StockServiceMetrics metrics;
+
+    private StockService stockService;
+
+    @Before
+    public void init(){
+        StockModel.getModelInstance().init();
+        metrics = new StockServiceMetrics();
+        stockService = new StockServiceImpl(new SimulatedTradeClock(TIME), metrics);
+    }
+
+    private void recordRejectedTrade(String stockSymbol, int quantity) {
+        try {
+            stockService.recordTrade(stockSymbol, TIME, quantity, 10.0, TradeDomain.Indicator.BUY);
+            Assert.fail("Trade should be rejected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void verifyTradesCountedPerStock(){
+        stockService.recordTrade("TEA", TIME, 1, 10.0, TradeDomain.Indicator.BUY);
+        stockService.recordTrade("TEA", TIME, 2, 10.0, TradeDomain.Indicator.SELL);
+        stockService.recordTrade("GIN", TIME, 3, 10.0, TradeDomain.Indicator.BUY);
+        recordRejectedTrade("GIN", 0);
+        recordRejectedTrade("XYZ", 1);
+        recordRejectedTrade(null, 1);
+
+        Assert.assertEquals(Long.valueOf(2), metrics.getTradesRecorded().get("TEA"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getTradesRecorded().get("GIN"));
+        Assert.assertEquals(Long.valueOf(0), metrics.getTradesRecorded().get("POP"));
+        Assert.assertEquals(Long.valueOf(1), metrics.getTradesRejected().get("GIN"));
+        Assert.assertEquals(3, metrics.getTotalTradesRecorded());
+        Assert.assertEquals(3, metrics.getTotalTradesRejected());
+        Assert.assertEquals(2, metrics.getUnknownSymbolTradesRejected());
+        Assert.assertEquals(6, metrics.getRecordTradeLatency().getCount());
+    }
+
+    @Test
+    public void verifyLatencyOfEveryFunction(){
+        stockService.recordTrade("TEA", TIME, 1, 10.0, TradeDomain.Indicator.BUY);
+        stockService.calculateVolWeightedPrice("TEA");
+        stockService.calculateGBCEAllShareIndex();
+        stockService.calculateDividendYield("TEA", 10.0);
+        stockService.calculatePERatio("POP", 10.0);
+        Assert.assertEquals(1, metrics.getRecordTradeLatency().getCount());
+        Assert.assertEquals(1, metrics.getVolWeightedPriceLatency().getCount());
+        Assert.assertEquals(1, metrics.getGBCEAllShareIndexLatency().getCount());
+        Assert.assertEquals(1, metrics.getDividendYieldLatency().getCount());
+        Assert.assertEquals(1, metrics.getPERatioLatency().getCount());
+        Assert.assertTrue(metrics.getRecordTradeLatency().getP999Nanos() > 0);
+    }
+
+    @Test
+    public void verifyMetricsPublishedOverJMX() throws Exception {
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        metrics.register(mBeanServer);
+        stockService.recordTrade("ALE", TIME, 5, 10.0, TradeDomain.Indicator.BUY);
+
+        ObjectName recordTrade = new ObjectName("com.jpmorgan.digital:type=StockService,name=recordTrade");
+        Assert.assertEquals(1L, mBeanServer.getAttribute(recordTrade, "Count"));
+        Assert.assertTrue((Long) mBeanServer.getAttribute(recordTrade, "P99Nanos") > 0);
+
+        ObjectName tradeCounters = new ObjectName("com.jpmorgan.digital:type=TradeCounters");
+        Assert.assertEquals(1L, mBeanServer.getAttribute(tradeCounters, "TotalTradesRecorded"));
+        TabularData tradesRecorded = (TabularData) mBeanServer.getAttribute(tradeCounters, "TradesRecorded");
+        Assert.assertEquals(1L, tradesRecorded.get(new Object[]{"ALE"}).get("value"));
+    }
+}
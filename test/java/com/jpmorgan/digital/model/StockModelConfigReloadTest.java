@@ -0,0 +1,208 @@
+package com.jpmorgan.digital.model;
+
+import com.jpmorgan.digital.dto.StockDTO;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests to verify stocks are reloaded from a config file while trades keep being recorded
+ *
+ * @author Aman Chhabra
+ */
+public class StockModelConfigReloadTest {
+
+    private static final long MARKET_OPEN = 1485338400000000000L;
+
+    private static final long SECOND = 1000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File configFile;
+
+    private StockModel stockModel;
+
+    @Before
+    public void init() throws IOException {
+        configFile = new File(folder.getRoot(), "configStockExchange.xml");
+        writeConfig(section("GIN", "Preferred", 8, 2), section("TEA", "Common", 0, 0));
+        System.setProperty(StockModel.CONFIG_FILE_PROPERTY, configFile.getPath());
+        stockModel = StockModel.getModelInstance();
+        stockModel.init();
+    }
+
+    @After
+    public void cleanUp() {
+        System.clearProperty(StockModel.CONFIG_FILE_PROPERTY);
+        stockModel.init();
+    }
+
+    private String section(String stockSymbol, String stockType, int lastDividend, int fixedDividend) {
+        return "<section>" + stockSymbol
+                + "<tag>TYPE<value>" + stockType + "</value></tag>"
+                + "<tag>LAST_DIVIDEND<value>" + lastDividend + "</value></tag>"
+                + "<tag>FIXED_DIVIDEND<value>" + fixedDividend + "</value></tag>"
+                + "<tag>PAR_VALUE<value>100</value></tag>"
+                + "</section>";
+    }
+
+    private void writeConfig(String... sections) throws IOException {
+        File temporary = new File(folder.getRoot(), "config.tmp");
+        Files.write(temporary.toPath(), ("<root>" + String.join("", sections) + "</root>").getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), configFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void recordTrades(StockDTO stock, int count) {
+        for(int i = 0; i < count; i++) {
+            stock.addTrade(MARKET_OPEN + i * SECOND, 10, 100.0 + i, (byte) 0);
+        }
+    }
+
+    @Test
+    public void verifyReloadKeepsTradesOfUnchangedStocks() throws IOException {
+        Assert.assertEquals(2, stockModel.getAllStocks().length);
+        StockDTO gin = stockModel.getStock("GIN");
+        StockDTO tea = stockModel.getStock("TEA");
+        recordTrades(gin, 10);
+        recordTrades(tea, 20);
+        stockModel.getGBCEIndexAggregator().markUpdated(gin);
+        stockModel.getGBCEIndexAggregator().markUpdated(tea);
+
+        writeConfig(section("GIN", "Preferred", 8, 2), section("TEA", "Common", 5, 0), section("ALE", "Common", 23, 0));
+        stockModel.reloadConfig();
+
+        Assert.assertSame(gin, stockModel.getStock("GIN"));
+        Assert.assertSame(tea, stockModel.getStock("TEA"));
+        Assert.assertSame(tea, stockModel.getStock(tea.getStockId()));
+        Assert.assertEquals(5, tea.getLastDividend());
+        Assert.assertEquals(5.0, stockModel.getReferenceData().getLastDividend(tea.getStockId()), 0.0);
+        Assert.assertEquals(20, tea.getRecordedTradeCount());
+        Assert.assertEquals(2, stockModel.getStockId("ALE"));
+        Assert.assertEquals(3, stockModel.getReferenceData().getStockIdCount());
+        stockModel.getGBCEIndexAggregator().getIndex(MARKET_OPEN + 20 * SECOND);
+        Assert.assertEquals(2, stockModel.getGBCEIndexAggregator().getStockCount());
+    }
+
+    @Test
+    public void verifyReloadChangingReferenceDataKeepsTradesRecordedMeanwhile() throws Exception {
+        StockDTO tea = stockModel.getStock("TEA");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        int[] recorded = new int[1];
+        Thread recorder = new Thread(() -> {
+            try {
+                while(running.get()) {
+                    stockModel.getStock("TEA").addTrade(MARKET_OPEN + recorded[0] * SECOND, 10, 100.0, (byte) 0);
+                    recorded[0]++;
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        recorder.start();
+        try {
+            for(int lastDividend = 1; lastDividend <= 20; lastDividend++) {
+                writeConfig(section("GIN", "Preferred", 8, 2), section("TEA", "Common", lastDividend, 0));
+                stockModel.reloadConfig();
+            }
+        } finally {
+            running.set(false);
+            recorder.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertSame(tea, stockModel.getStock("TEA"));
+        Assert.assertEquals(20, tea.getLastDividend());
+        Assert.assertEquals(recorded[0], tea.getRecordedTradeCount());
+    }
+
+    @Test
+    public void verifyReloadRemovesStocksMissingFromConfig() throws IOException {
+        StockDTO added = new StockDTO();
+        added.setStockSymbol("GOE");
+        stockModel.addStock(added);
+        StockDTO gin = stockModel.getStock("GIN");
+        recordTrades(gin, 10);
+        stockModel.getGBCEIndexAggregator().markUpdated(gin);
+        Assert.assertEquals(104.5, stockModel.getGBCEIndexAggregator().getIndex(MARKET_OPEN + 10 * SECOND), 0.001);
+
+        writeConfig(section("TEA", "Common", 0, 0));
+        stockModel.reloadConfig();
+
+        Assert.assertNull(stockModel.findStock("GIN"));
+        Assert.assertNull(stockModel.findStock(gin.getStockId()));
+        Assert.assertSame(added, stockModel.getStock("GOE"));
+        Assert.assertEquals(2, stockModel.getAllStocks().length);
+        recordTrades(gin, 1);
+        stockModel.getGBCEIndexAggregator().markUpdated(gin);
+        Assert.assertEquals(0.0, stockModel.getGBCEIndexAggregator().getIndex(MARKET_OPEN + 10 * SECOND), 0.0);
+    }
+
+    @Test
+    public void verifyStocksAreLoadedFromCsvConfig() throws IOException {
+        File csvFile = folder.newFile("stocks.csv");
+        Files.write(csvFile.toPath(), "symbol,type,lastDividend,fixedDividend,parValue\nGIN,Preferred,8,2,100\nALE,Common,23,,60\n".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(StockModel.CONFIG_FILE_PROPERTY, csvFile.getPath());
+        stockModel.init();
+        Assert.assertEquals(2, stockModel.getAllStocks().length);
+        Assert.assertEquals(0, stockModel.getStockId("ALE"));
+        Assert.assertEquals(23, stockModel.getStock("ALE").getLastDividend());
+        Assert.assertEquals(2, stockModel.getStock("GIN").getFixedDividend());
+    }
+
+    @Test
+    public void verifyInvalidConfigLeavesStocksAsTheyAre() throws IOException {
+        StockDTO gin = stockModel.getStock("GIN");
+        Files.write(configFile.toPath(), "<root><section>".getBytes(StandardCharsets.UTF_8));
+        try {
+            stockModel.reloadConfig();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertSame(gin, stockModel.getStock("GIN"));
+            Assert.assertEquals(2, stockModel.getAllStocks().length);
+        }
+    }
+
+    @Test
+    public void verifyChangedConfigFileIsReloadedWhileTradesAreRecorded() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread recorder = new Thread(() -> {
+            long timestamp = MARKET_OPEN;
+            try {
+                while(running.get()) {
+                    stockModel.getStock("GIN").addTrade(timestamp += SECOND, 10, 100.0, (byte) 0);
+                    stockModel.getStock(stockModel.getStockId("GIN")).getVolWeightedPrice(timestamp);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        recorder.start();
+        try {
+            writeConfig(section("GIN", "Preferred", 8, 2), section("TEA", "Common", 0, 0), section("POP", "Common", 8, 0));
+            long deadline = System.currentTimeMillis() + 10000;
+            while(stockModel.findStock("POP") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            running.set(false);
+            recorder.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertNotNull(stockModel.findStock("POP"));
+        Assert.assertEquals(8, stockModel.getStock("POP").getLastDividend());
+        Assert.assertTrue(stockModel.getStock("GIN").getRecordedTradeCount() > 0);
+    }
+}
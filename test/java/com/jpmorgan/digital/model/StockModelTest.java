@@ -1,21 +1,20 @@
 package com.jpmorgan.digital.model;
 
 import com.jpmorgan.digital.dto.StockDTO;
-import com.jpmorgan.digital.helper.ConfigLoader;
-import com.jpmorgan.digital.helper.ConfigLoaderTest;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Created by Aman on 22-01-2017.
@@ -27,38 +26,67 @@ public class StockModelTest {
 
     private StockModel stockModelInstance;
 
-    private ConfigLoader mockConfigLoader;
+    private StringBuilder config;
 
     @Before
     public void init(){
-        mockConfigLoader = Mockito.mock(ConfigLoader.class);
+        config = new StringBuilder();
+    }
+
+    /**
+     * Function to add a stock section with its tags and values to the config of the classpath
+     */
+    private void addSection(String stockSymbol, String... tagValues){
+        config.append("<section>").append(stockSymbol);
+        for(int i = 0; i < tagValues.length; i += 2) {
+            config.append("<tag>").append(tagValues[i]).append("<value>").append(tagValues[i + 1]).append("</value></tag>");
+        }
+        config.append("</section>");
+    }
+
+    /**
+     * Function to serve the sections added so far as the config of the classpath
+     */
+    private void mockConfig() throws IOException {
+        final byte[] xml = ("<root>" + config + "</root>").getBytes(StandardCharsets.UTF_8);
         try {
-            PowerMockito.whenNew(ConfigLoader.class).withNoArguments().thenReturn(mockConfigLoader);
+            PowerMockito.whenNew(BufferedInputStream.class).withAnyArguments().thenAnswer(new Answer<BufferedInputStream>() {
+                @Override
+                public BufferedInputStream answer(InvocationOnMock invocation) {
+                    return new ConfigStream(xml);
+                }
+            });
         } catch (Exception e) {
-            e.printStackTrace();
+            throw new IOException(e);
         }
     }
 
-    private Set<String> prepareSampleInvalidSection(){
-        Set<String> sectionSet = new HashSet<>();
-        sectionSet.add("AMA");
-        return sectionSet;
+    /**
+     * Config of the classpath read by every load of the model
+     */
+    private static class ConfigStream extends BufferedInputStream {
+
+        ConfigStream(byte[] xml) {
+            super(new ByteArrayInputStream(xml));
+        }
+    }
+
+    private void prepareSampleInvalidSection(String... tagValues) throws IOException {
+        addSection("AMA", tagValues);
+        mockConfig();
     }
 
     @Test
-    public void verifyLoadStockWhenEmptySet() throws IllegalArgumentException{
-        Set<String> sectionSet = new HashSet<>();
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(sectionSet);
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "LAST_DIVIDEND")).thenReturn("");
+    public void verifyLoadStockWhenEmptySet() throws IllegalArgumentException, IOException{
+        mockConfig();
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         Assert.assertEquals(0, stockModelInstance.getAllStocks().length);
     }
 
     @Test
-    public void verifyLoadStockWhenLastDividendIsEmpty() throws IllegalArgumentException{
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "LAST_DIVIDEND")).thenReturn("");
+    public void verifyLoadStockWhenLastDividendIsEmpty() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("LAST_DIVIDEND", "");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         int actualLastDividend = stockModelInstance.getStock("AMA").getLastDividend();
@@ -67,9 +95,8 @@ public class StockModelTest {
     }
 
     @Test
-    public void verifyLoadStockWhenLastDividendIsInvalid() throws IllegalArgumentException{
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "LAST_DIVIDEND")).thenReturn("last_dividend");
+    public void verifyLoadStockWhenLastDividendIsInvalid() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("LAST_DIVIDEND", "last_dividend");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         int actualLastDividend = stockModelInstance.getStock("AMA").getLastDividend();
@@ -78,9 +105,8 @@ public class StockModelTest {
     }
 
     @Test
-    public void verifyLoadStockWhenFixedDividendIsEmpty() throws IllegalArgumentException{
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "FIXED_DIVIDEND")).thenReturn("");
+    public void verifyLoadStockWhenFixedDividendIsEmpty() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("FIXED_DIVIDEND", "");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         int actualFixedDividend = stockModelInstance.getStock("AMA").getFixedDividend();
@@ -89,9 +115,8 @@ public class StockModelTest {
     }
 
     @Test
-    public void verifyLoadStockWhenFixedDividendIsInvalid() throws IllegalArgumentException {
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "FIXED_DIVIDEND")).thenReturn("fixed_dividend");
+    public void verifyLoadStockWhenFixedDividendIsInvalid() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("FIXED_DIVIDEND", "fixed_dividend");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         int actualFixedDividend = stockModelInstance.getStock("AMA").getFixedDividend();
@@ -100,9 +125,8 @@ public class StockModelTest {
     }
 
     @Test
-    public void verifyLoadStockWhenParValueIsEmpty() throws IllegalArgumentException{
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "PAR_VALUE")).thenReturn("");
+    public void verifyLoadStockWhenParValueIsEmpty() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("PAR_VALUE", "");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         int actualParValue = stockModelInstance.getStock("AMA").getParValue();
@@ -111,9 +135,8 @@ public class StockModelTest {
     }
 
     @Test
-    public void verifyLoadStockWhenParValueIsInvalid() throws IllegalArgumentException{
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "PAR_VALUE")).thenReturn("par_value");
+    public void verifyLoadStockWhenParValueIsInvalid() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("PAR_VALUE", "par_value");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         int actualParValue = stockModelInstance.getStock("AMA").getParValue();
@@ -122,9 +145,8 @@ public class StockModelTest {
     }
 
     @Test
-    public void verifyLoadStockWhenStockTypeValid() throws IllegalArgumentException{
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
-        Mockito.when(mockConfigLoader.getConfiguration("AMA", "TYPE")).thenReturn("Common");
+    public void verifyLoadStockWhenStockTypeValid() throws IllegalArgumentException, IOException{
+        prepareSampleInvalidSection("TYPE", "Common");
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         String actualType = stockModelInstance.getStock("AMA").getStockType();
@@ -133,26 +155,100 @@ public class StockModelTest {
     }
 
     @Test (expected = IllegalArgumentException.class)
-    public void verifyGetStockWhenStockSymbolIsNull(){
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
+    public void verifyGetStockWhenStockSymbolIsNull() throws IOException{
+        prepareSampleInvalidSection();
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         StockDTO stock = stockModelInstance.getStock(null);
     }
 
     @Test (expected = IllegalArgumentException.class)
-    public void verifyGetStockWhenStockSymbolIsEmpty(){
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
+    public void verifyGetStockWhenStockSymbolIsEmpty() throws IOException{
+        prepareSampleInvalidSection();
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         StockDTO stock = stockModelInstance.getStock("");
     }
 
     @Test (expected = IllegalArgumentException.class)
-    public void verifyGetStockWhenStockSymbolIsInvalid(){
-        Mockito.when(mockConfigLoader.getAllSection()).thenReturn(prepareSampleInvalidSection());
+    public void verifyGetStockWhenStockSymbolIsInvalid() throws IOException{
+        prepareSampleInvalidSection();
         stockModelInstance = StockModel.getModelInstance();
         stockModelInstance.init();
         StockDTO stock = stockModelInstance.getStock("GI");
     }
+
+    private void prepareSampleSections(String... ginTagValues) throws IOException {
+        addSection("POP");
+        addSection("ALE");
+        addSection("GIN", ginTagValues);
+        mockConfig();
+    }
+
+    @Test
+    public void verifyStockIdsFollowSymbolOrder() throws IOException{
+        prepareSampleSections();
+        stockModelInstance = StockModel.getModelInstance();
+        stockModelInstance.init();
+        Assert.assertEquals(0, stockModelInstance.getStockId("ALE"));
+        Assert.assertEquals(1, stockModelInstance.getStockId("GIN"));
+        Assert.assertEquals(2, stockModelInstance.getStockId("POP"));
+        Assert.assertSame(stockModelInstance.getStock("GIN"), stockModelInstance.getStock(1));
+    }
+
+    @Test
+    public void verifyAddStockGetsNextId() throws IOException{
+        prepareSampleSections();
+        stockModelInstance = StockModel.getModelInstance();
+        stockModelInstance.init();
+        for(int i = 0; i < 10; i++) {
+            StockDTO stock = new StockDTO();
+            stock.setStockSymbol("NEW" + i);
+            stockModelInstance.addStock(stock);
+            Assert.assertEquals(3 + i, stock.getStockId());
+            Assert.assertSame(stock, stockModelInstance.getStock(3 + i));
+        }
+        Assert.assertNull(stockModelInstance.findStock(13));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyAddStockWhenStockSymbolIsSupported() throws IOException{
+        prepareSampleSections();
+        stockModelInstance = StockModel.getModelInstance();
+        stockModelInstance.init();
+        StockDTO stock = new StockDTO();
+        stock.setStockSymbol("GIN");
+        stockModelInstance.addStock(stock);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyGetStockWhenStockIdIsInvalid() throws IOException{
+        prepareSampleSections();
+        stockModelInstance = StockModel.getModelInstance();
+        stockModelInstance.init();
+        stockModelInstance.getStock(-1);
+    }
+
+    @Test
+    public void verifyRetentionOfStockIsEvictedInBackground() throws InterruptedException, IOException {
+        prepareSampleSections("RETENTION_SECONDS", "60");
+        System.setProperty(StockModel.TRADE_EVICTION_PERIOD_PROPERTY, "10");
+        try {
+            stockModelInstance = StockModel.getModelInstance();
+            stockModelInstance.init();
+            StockDTO stock = stockModelInstance.getStock("GIN");
+            Assert.assertEquals(60000000000L, stock.getRetentionNanos());
+            Assert.assertEquals(0, stockModelInstance.getStock("POP").getRetentionNanos());
+            for(int i = 0; i < 600; i++) {
+                stock.addTrade(i * 1000000000L, 1, 1.0, (byte) 0);
+            }
+            for(int i = 0; i < 500 && stock.getEvictedTradeCount() < 539; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(539, stock.getEvictedTradeCount());
+            Assert.assertEquals(61, stock.getAllTrades().length);
+        } finally {
+            System.clearProperty(StockModel.TRADE_EVICTION_PERIOD_PROPERTY);
+        }
+    }
 }
@@ -0,0 +1,271 @@
+package com.jpmorgan.digital.service.impl;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.BarDTO;
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeBatch;
+import com.jpmorgan.digital.helper.BarListener;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests to verify the sharded service records trades like the Stock Service once its shards are flushed
+ *
+ * @author Aman Chhabra
+ */
+public class ShardedStockServiceTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long MARKET_OPEN = StockHelper.toEpochNanos(ZonedDateTime.of(2017, 1, 25, 10, 0, 0, 0, ZoneId.of("UTC")));
+
+    private static final String[] SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SimulatedTradeClock clock;
+
+    private StockServiceMetrics metrics;
+
+    private ShardedStockService stockService;
+
+    private StockModel stockModel;
+
+    @Before
+    public void init(){
+        stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        clock = new SimulatedTradeClock(MARKET_OPEN + 100 * SECOND);
+        metrics = new StockServiceMetrics();
+        stockService = new ShardedStockService(clock, metrics, 3, 16);
+    }
+
+    @After
+    public void shutdown(){
+        stockService.shutdown();
+    }
+
+    private void recordTrades(StockServiceImpl service) {
+        for(int i = 0; i < 100; i++) {
+            service.recordTrade(SYMBOLS[(i * 7) % SYMBOLS.length], MARKET_OPEN + i * SECOND, 1 + i % 9, 10.0 + i % 13,
+                    i % 3 == 0 ? TradeDomain.Indicator.SELL : TradeDomain.Indicator.BUY);
+        }
+    }
+
+    @Test
+    public void verifyTradesAreRecordedLikeStockService(){
+        recordTrades(stockService);
+        stockService.flush();
+        double[] volWeightedPrices = new double[SYMBOLS.length];
+        for(int i = 0; i < SYMBOLS.length; i++) {
+            Assert.assertEquals(20L, stockModel.getStock(SYMBOLS[i]).getRecordedTradeCount());
+            volWeightedPrices[i] = stockService.calculateVolWeightedPrice(SYMBOLS[i]);
+        }
+        double gbceAllShareIndex = stockService.calculateGBCEAllShareIndex();
+        Assert.assertTrue(gbceAllShareIndex > 0);
+        stockService.shutdown();
+
+        stockModel.init();
+        StockServiceImpl expectedService = new StockServiceImpl(clock, new StockServiceMetrics());
+        recordTrades(expectedService);
+        for(int i = 0; i < SYMBOLS.length; i++) {
+            Assert.assertEquals(expectedService.calculateVolWeightedPrice(SYMBOLS[i]), volWeightedPrices[i], 0.0);
+        }
+        Assert.assertEquals(expectedService.calculateGBCEAllShareIndex(), gbceAllShareIndex, 0.0);
+        Assert.assertEquals(100L, metrics.getRecordTradeLatency().getCount());
+    }
+
+    @Test
+    public void verifyIndexFollowsTheWindowOnTheClock(){
+        stockService.recordTrade("TEA", MARKET_OPEN, 10, 4.0, TradeDomain.Indicator.BUY);
+        stockService.recordTrade("POP", MARKET_OPEN + 90 * SECOND, 10, 9.0, TradeDomain.Indicator.BUY);
+        stockService.flush();
+        Assert.assertEquals(6.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+
+        clock.advanceBy(250 * SECOND);
+        stockService.flush();
+        Assert.assertEquals(9.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+    }
+
+    @Test
+    public void verifyInvalidTradesAreRejectedRightAway(){
+        try {
+            stockService.recordTrade("GIN", MARKET_OPEN, 0, 100.0, TradeDomain.Indicator.BUY);
+            Assert.fail("Trade of zero quantity was recorded");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Quantity can not be zero or negative", e.getMessage());
+        }
+        try {
+            stockService.recordTrade("XYZ", MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+            Assert.fail("Trade of unknown stock was recorded");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(2L, metrics.getTotalTradesRejected());
+        }
+
+        int ginId = stockService.getStockId("GIN");
+        TradeBatch batch = new TradeBatch();
+        batch.add(ginId, MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(ginId, MARKET_OPEN + 200 * SECOND, 10, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(-1, MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(ginId, MARKET_OPEN + SECOND, 30, 120.0, TradeDomain.Indicator.SELL);
+        Assert.assertEquals(2, stockService.recordTrades(batch));
+        Assert.assertFalse(batch.isRejected(0));
+        Assert.assertTrue(batch.isRejected(1));
+        Assert.assertTrue(batch.isRejected(2));
+        Assert.assertFalse(batch.isRejected(3));
+        stockService.flush();
+        StockDTO gin = stockModel.getStock("GIN");
+        Assert.assertEquals(2L, gin.getRecordedTradeCount());
+        Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+    }
+
+    @Test
+    public void verifyStocksKeepTheirShard(){
+        for(String stockSymbol : SYMBOLS) {
+            int shard = ShardedStockService.shardOf(stockSymbol, 3);
+            Assert.assertTrue(shard >= 0 && shard < 3);
+            Assert.assertEquals(shard, ShardedStockService.shardOf(stockSymbol, 3));
+            Assert.assertEquals(0, ShardedStockService.shardOf(stockSymbol, 1));
+        }
+        Assert.assertEquals(3, stockService.getShardCount());
+    }
+
+    @Test
+    public void verifyTradesRecordedBeforeAreIndexed(){
+        stockService.shutdown();
+        stockModel.init();
+        new StockServiceImpl(clock, new StockServiceMetrics())
+                .recordTrade("ALE", MARKET_OPEN, 10, 25.0, TradeDomain.Indicator.BUY);
+        stockService = new ShardedStockService(clock, metrics, 2, 16);
+        stockService.flush();
+        Assert.assertEquals(25.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+    }
+
+    private String section(String stockSymbol, int lastDividend) {
+        return "<section>" + stockSymbol
+                + "<tag>TYPE<value>Common</value></tag>"
+                + "<tag>LAST_DIVIDEND<value>" + lastDividend + "</value></tag>"
+                + "<tag>FIXED_DIVIDEND<value>0</value></tag>"
+                + "<tag>PAR_VALUE<value>100</value></tag>"
+                + "</section>";
+    }
+
+    private void writeConfig(File configFile, String... sections) throws IOException {
+        File temporary = new File(folder.getRoot(), "config.tmp");
+        Files.write(temporary.toPath(), ("<root>" + String.join("", sections) + "</root>").getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), configFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    public void verifyConfigReloadedWhileShardsRunReachesTheShards() throws IOException {
+        File configFile = new File(folder.getRoot(), "configStockExchange.xml");
+        writeConfig(configFile, section("TEA", 0), section("POP", 8), section("GIN", 8));
+        System.setProperty(StockModel.CONFIG_FILE_PROPERTY, configFile.getPath());
+        try {
+            stockService.shutdown();
+            stockModel.init();
+            stockService = new ShardedStockService(clock, metrics, 3, 16);
+            stockService.recordTrade("TEA", MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+            stockService.recordTrade("POP", MARKET_OPEN, 10, 400.0, TradeDomain.Indicator.BUY);
+            stockService.recordTrade("GIN", MARKET_OPEN, 10, 25.0, TradeDomain.Indicator.BUY);
+            stockService.flush();
+            Assert.assertEquals(100.0, stockService.calculateGBCEAllShareIndex(), 0.01);
+
+            StockDTO tea = stockModel.getStock("TEA");
+            writeConfig(configFile, section("TEA", 5), section("POP", 8), section("ALE", 23));
+            stockModel.reloadConfig();
+            Assert.assertSame(tea, stockModel.getStock("TEA"));
+            Assert.assertEquals(5, tea.getLastDividend());
+            Assert.assertNull(stockModel.findStock("GIN"));
+            stockService.recordTrade("TEA", MARKET_OPEN + SECOND, 10, 100.0, TradeDomain.Indicator.BUY);
+            stockService.recordTrade("ALE", MARKET_OPEN + SECOND, 10, 200.0, TradeDomain.Indicator.BUY);
+            stockService.flush();
+            Assert.assertEquals(200.0, stockService.calculateGBCEAllShareIndex(), 0.01);
+            Assert.assertEquals(2L, tea.getRecordedTradeCount());
+
+            stockService.shutdown();
+            Assert.assertEquals(200.0, stockModel.getGBCEIndexAggregator().getIndex(clock.currentTimeNanos()), 0.01);
+        } finally {
+            System.clearProperty(StockModel.CONFIG_FILE_PROPERTY);
+        }
+    }
+
+    @Test
+    public void verifyBarsOfStockAddedWhileShardsRunAreFinished(){
+        List<BarDTO> publishedBars = new ArrayList<BarDTO>();
+        BarListener listener = publishedBars::add;
+        stockService.subscribeBars(listener);
+        StockDTO goe = new StockDTO();
+        goe.setStockSymbol("GOE");
+        stockModel.addStock(goe);
+        stockService.recordTrade("GOE", MARKET_OPEN + 10 * SECOND, 10, 100.0, TradeDomain.Indicator.BUY);
+        clock.advanceTo(MARKET_OPEN + 300 * SECOND);
+        stockService.finishBars();
+        stockService.flush();
+        Assert.assertEquals(2, publishedBars.size());
+        Assert.assertEquals("GOE", publishedBars.get(0).getStockSymbol());
+        Assert.assertEquals(100.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+        stockService.unsubscribeBars(listener);
+    }
+
+    @Test
+    public void verifyTradesRecordedWhileShuttingDownAreAdded() throws InterruptedException {
+        for(int round = 0; round < 20; round++) {
+            stockService.shutdown();
+            stockModel.init();
+            stockService = new ShardedStockService(clock, metrics, 2, 16);
+            AtomicLong recorded = new AtomicLong();
+            Thread[] producers = new Thread[4];
+            for(int i = 0; i < producers.length; i++) {
+                String stockSymbol = SYMBOLS[i];
+                producers[i] = new Thread(() -> {
+                    try {
+                        while(true) {
+                            stockService.recordTrade(stockSymbol, MARKET_OPEN, 1, 10.0, TradeDomain.Indicator.BUY);
+                            recorded.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // the service is shut down
+                    }
+                });
+                producers[i].start();
+            }
+            Thread.sleep(5);
+            stockService.shutdown();
+            for(Thread producer : producers) {
+                producer.join();
+            }
+            long added = 0;
+            for(StockDTO stock : stockModel.getAllStocks()) {
+                added += stock.getRecordedTradeCount();
+            }
+            Assert.assertEquals(recorded.get(), added);
+        }
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void verifyTradesAreRefusedAfterShutdown(){
+        stockService.shutdown();
+        stockService.recordTrade("TEA", MARKET_OPEN, 10, 4.0, TradeDomain.Indicator.BUY);
+    }
+}
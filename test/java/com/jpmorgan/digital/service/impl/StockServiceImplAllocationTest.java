@@ -0,0 +1,79 @@
+package com.jpmorgan.digital.service.impl;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.PriceTicks;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.service.StockService;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Tests to verify the primitive recordTrade does not allocate once the stock storage is sized
+ *
+ * @author Aman Chhabra
+ */
+public class StockServiceImplAllocationTest {
+
+    /**
+     * Trades recorded before measuring, enough for the JIT to compile the path
+     */
+    private static final int WARM_UP_TRADES = 150000;
+
+    /**
+     * Trades measured, chosen so the columns sized by the warm up (262144 trades) do not grow again
+     */
+    private static final int MEASURED_TRADES = 100000;
+
+    private StockService stockService = new StockServiceImpl();
+
+    private void recordTrades(int count, long timestamp) {
+        for(int i = 0; i < count; i++) {
+            stockService.recordTrade("POP", timestamp, 1 + (i & 7), 10.0 + (i & 3), TradeDomain.Indicator.SELL);
+        }
+    }
+
+    @Test
+    public void verifyRecordTradeDoesNotAllocate(){
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        long timestamp = StockHelper.getCurrentTimeNanos();
+
+        recordTrades(WARM_UP_TRADES, timestamp);
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        recordTrades(MEASURED_TRADES, timestamp);
+        long allocatedAfter = threadBean.getThreadAllocatedBytes(threadId);
+
+        double bytesPerTrade = (allocatedAfter - allocatedBefore) / (double) MEASURED_TRADES;
+        Assert.assertTrue("Allocated " + bytesPerTrade + " bytes per trade", bytesPerTrade < 1.0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void recordTradeWhenQuantityIsZero(){
+        stockService.recordTrade("POP", StockHelper.getCurrentTimeNanos(), 0, 10.0, TradeDomain.Indicator.BUY);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void recordTradeWhenPriceIsNegative(){
+        stockService.recordTrade("POP", StockHelper.getCurrentTimeNanos(), 1, -1.0, TradeDomain.Indicator.BUY);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void recordTradeWhenPriceIsBeyondTicks(){
+        stockService.recordTrade("POP", StockHelper.getCurrentTimeNanos(), 1, PriceTicks.MAX_PRICE * 2, TradeDomain.Indicator.BUY);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void recordTradeWhenTimestampIsFuture(){
+        stockService.recordTrade("POP", StockHelper.getCurrentTimeNanos() + 5000000000L, 1, 10.0, TradeDomain.Indicator.BUY);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void recordTradeWhenIndicatorIsNull(){
+        stockService.recordTrade("POP", StockHelper.getCurrentTimeNanos(), 1, 10.0, null);
+    }
+}
@@ -0,0 +1,161 @@
+package com.jpmorgan.digital.service.impl;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.StockDTO;
+import com.jpmorgan.digital.dto.TradeBatch;
+import com.jpmorgan.digital.dto.TradeDTO;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Tests to verify a batch of trades is recorded like the same trades recorded one by one
+ *
+ * @author Aman Chhabra
+ */
+public class StockServiceImplBatchTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long MARKET_OPEN = StockHelper.toEpochNanos(ZonedDateTime.of(2017, 1, 25, 10, 0, 0, 0, ZoneId.of("UTC")));
+
+    private static final String[] SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+
+    private SimulatedTradeClock clock;
+
+    private StockServiceMetrics metrics;
+
+    private StockService stockService;
+
+    private StockModel stockModel;
+
+    @Before
+    public void init(){
+        stockModel = StockModel.getModelInstance();
+        stockModel.init();
+        clock = new SimulatedTradeClock(MARKET_OPEN + 100 * SECOND);
+        metrics = new StockServiceMetrics();
+        stockService = new StockServiceImpl(clock, metrics);
+    }
+
+    private TradeBatch prepareBatch() {
+        TradeBatch batch = new TradeBatch(4);
+        for(int i = 0; i < 100; i++) {
+            String stockSymbol = SYMBOLS[(i * 7) % SYMBOLS.length];
+            batch.add(stockService.getStockId(stockSymbol), MARKET_OPEN + i * SECOND, 1 + i % 9, 10.0 + i % 13,
+                    i % 3 == 0 ? TradeDomain.Indicator.SELL : TradeDomain.Indicator.BUY);
+        }
+        return batch;
+    }
+
+    @Test
+    public void verifyBatchIsRecordedLikeTradesOneByOne(){
+        TradeBatch batch = prepareBatch();
+        Assert.assertEquals(100, batch.size());
+        Assert.assertEquals(100, stockService.recordTrades(batch));
+        double[] volWeightedPrices = new double[SYMBOLS.length];
+        TradeDTO[][] trades = new TradeDTO[SYMBOLS.length][];
+        for(int i = 0; i < SYMBOLS.length; i++) {
+            volWeightedPrices[i] = stockService.calculateVolWeightedPrice(SYMBOLS[i]);
+            trades[i] = stockModel.getStock(SYMBOLS[i]).getAllTrades();
+        }
+        double gbceAllShareIndex = stockService.calculateGBCEAllShareIndex();
+
+        stockModel.init();
+        for(int i = 0; i < batch.size(); i++) {
+            stockService.recordTrade(batch.getStockIds()[i], batch.getTimestamps()[i], batch.getQuantities()[i],
+                    batch.getPrices()[i], TradeDomain.Indicator.values()[batch.getIndicators()[i]]);
+        }
+        for(int i = 0; i < SYMBOLS.length; i++) {
+            Assert.assertEquals(volWeightedPrices[i], stockService.calculateVolWeightedPrice(SYMBOLS[i]), 0.0);
+            TradeDTO[] expectedTrades = stockModel.getStock(SYMBOLS[i]).getAllTrades();
+            Assert.assertEquals(expectedTrades.length, trades[i].length);
+            for(int j = 0; j < expectedTrades.length; j++) {
+                Assert.assertEquals(expectedTrades[j].getTimestamp(), trades[i][j].getTimestamp());
+                Assert.assertEquals(expectedTrades[j].getQuantity(), trades[i][j].getQuantity());
+                Assert.assertEquals(expectedTrades[j].getIndicator(), trades[i][j].getIndicator());
+            }
+        }
+        Assert.assertEquals(gbceAllShareIndex, stockService.calculateGBCEAllShareIndex(), 0.0);
+        Assert.assertEquals(1L, metrics.getRecordTradesLatency().getCount());
+    }
+
+    @Test
+    public void verifyInvalidTradesOfBatchAreRejectedAlone(){
+        int ginId = stockService.getStockId("GIN");
+        TradeBatch batch = new TradeBatch();
+        batch.add(ginId, MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(ginId, MARKET_OPEN, 0, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(ginId, MARKET_OPEN, 10, -1.0, TradeDomain.Indicator.BUY);
+        batch.add(ginId, MARKET_OPEN, 10, 100.0, null);
+        batch.add(ginId, MARKET_OPEN + 200 * SECOND, 10, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(-1, MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+        batch.add(ginId, MARKET_OPEN + SECOND, 30, 120.0, TradeDomain.Indicator.SELL);
+        Assert.assertEquals(2, stockService.recordTrades(batch));
+        boolean[] expectedRejected = {false, true, true, true, true, true, false};
+        for(int i = 0; i < expectedRejected.length; i++) {
+            Assert.assertEquals(expectedRejected[i], batch.isRejected(i));
+        }
+        StockDTO gin = stockModel.getStock("GIN");
+        Assert.assertEquals(2L, gin.getRecordedTradeCount());
+        Assert.assertEquals(4L, gin.getRejectedTradeCount());
+        Assert.assertEquals(5L, metrics.getTotalTradesRejected());
+        Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+
+        batch.clear();
+        batch.add(ginId, MARKET_OPEN + 2 * SECOND, 10, 100.0, TradeDomain.Indicator.BUY);
+        Assert.assertEquals(1, stockService.recordTrades(batch));
+        Assert.assertFalse(batch.isRejected(0));
+    }
+
+    @Test
+    public void verifyTradeWhoseValueOverflowsIsRejected(){
+        try {
+            stockService.recordTrade("TEA", MARKET_OPEN, 2000000000, 10000000.0, TradeDomain.Indicator.BUY);
+            Assert.fail("Trade whose quantity x price overflows was recorded");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Trade quantity x price can not be more than"));
+        }
+        int teaId = stockService.getStockId("TEA");
+        TradeBatch batch = new TradeBatch();
+        batch.add(teaId, MARKET_OPEN, 2000000000, 10000000.0, TradeDomain.Indicator.BUY);
+        batch.add(teaId, MARKET_OPEN, 900000, 10000000.0, TradeDomain.Indicator.BUY);
+        Assert.assertEquals(1, stockService.recordTrades(batch));
+        Assert.assertTrue(batch.isRejected(0));
+        Assert.assertEquals(2L, stockModel.getStock("TEA").getRejectedTradeCount());
+        Assert.assertEquals(10000000.0, stockService.calculateVolWeightedPrice("TEA"), 0.0);
+        Assert.assertEquals(10000000.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+    }
+
+    @Test
+    public void verifyBatchOfColumnsIsRecorded(){
+        int teaId = stockService.getStockId("TEA");
+        int popId = stockService.getStockId("POP");
+        int[] stockIds = {popId, teaId, popId, teaId};
+        long[] timestamps = {MARKET_OPEN, MARKET_OPEN, MARKET_OPEN + SECOND, MARKET_OPEN + SECOND};
+        int[] quantities = {1, 1, 1, 1};
+        double[] prices = {9.0, 4.0, 9.0, 4.0};
+        byte[] indicators = {0, 1, 2, 0};
+        Assert.assertEquals(3, stockService.recordTrades(stockIds, timestamps, quantities, prices, indicators, 4));
+        Assert.assertEquals(6.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+        Assert.assertEquals(1L, stockModel.getStock("POP").getRejectedTradeCount());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyBatchOfShortColumnsIsRejected(){
+        stockService.recordTrades(new int[2], new long[2], new int[1], new double[2], new byte[2], 2);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyNullBatchIsRejected(){
+        stockService.recordTrades(null);
+    }
+}
@@ -0,0 +1,272 @@
+package com.jpmorgan.digital.service.impl;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.dto.BarDTO;
+import com.jpmorgan.digital.dto.TradeDTO;
+import com.jpmorgan.digital.helper.BarListener;
+import com.jpmorgan.digital.helper.GBCEIndexMode;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests to verify trades of a past day can be replayed on a simulated clock
+ *
+ * @author Aman Chhabra
+ */
+public class StockServiceImplReplayTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long MARKET_OPEN = StockHelper.toEpochNanos(ZonedDateTime.of(2017, 1, 25, 10, 0, 0, 0, ZoneId.of("UTC")));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SimulatedTradeClock clock;
+
+    private StockService stockService;
+
+    @Before
+    public void init(){
+        StockModel.getModelInstance().init();
+        clock = new SimulatedTradeClock(MARKET_OPEN);
+        stockService = new StockServiceImpl(clock);
+    }
+
+    private void replayTrade(String stockSymbol, long timestamp, int quantity, double price) {
+        clock.advanceTo(timestamp);
+        stockService.recordTrade(stockSymbol, timestamp, quantity, price, TradeDomain.Indicator.BUY);
+    }
+
+    @Test
+    public void verifyVolWeightedPriceOfPastDay(){
+        replayTrade("GIN", MARKET_OPEN, 10, 100.0);
+        replayTrade("GIN", MARKET_OPEN + 60 * SECOND, 30, 120.0);
+        Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+
+        clock.advanceTo(MARKET_OPEN + 300 * SECOND);
+        Assert.assertEquals(120.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+
+        clock.advanceTo(MARKET_OPEN + 360 * SECOND);
+        Assert.assertEquals(0.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+    }
+
+    @Test
+    public void verifyGBCEAllShareIndexOfPastDay(){
+        replayTrade("TEA", MARKET_OPEN, 1, 4.0);
+        replayTrade("POP", MARKET_OPEN + 100 * SECOND, 1, 9.0);
+        Assert.assertEquals(6.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+
+        clock.advanceTo(MARKET_OPEN + 350 * SECOND);
+        Assert.assertEquals(9.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyTradeAfterSimulatedTimeIsFuture(){
+        stockService.recordTrade("GIN", MARKET_OPEN + 5 * SECOND, 1, 1.0, TradeDomain.Indicator.BUY);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void verifyTradeDomainChecksAgainstItsClock(){
+        TradeDomain trade = new TradeDomain(clock);
+        trade.setTimestamp(ZonedDateTime.of(2017, 1, 25, 10, 0, 5, 0, ZoneId.of("UTC")));
+    }
+
+    @Test
+    public void verifyStockIdFunctionsOfPastDay(){
+        int stockId = stockService.getStockId("GIN");
+        clock.advanceTo(MARKET_OPEN);
+        stockService.recordTrade(stockId, MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+        stockService.recordTrade("GIN", MARKET_OPEN, 30, 120.0, TradeDomain.Indicator.SELL);
+        Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice(stockId), 0.0);
+        Assert.assertEquals(stockService.calculateDividendYield("GIN", 50.0), stockService.calculateDividendYield(stockId, 50.0), 0.0);
+        Assert.assertEquals(stockService.calculatePERatio("GIN", 50.0), stockService.calculatePERatio(stockId, 50.0), 0.0);
+        Assert.assertEquals(115.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyRecordTradeWhenStockIdIsInvalid(){
+        stockService.recordTrade(StockModel.getModelInstance().getAllStocks().length, MARKET_OPEN, 10, 100.0, TradeDomain.Indicator.BUY);
+    }
+
+    @Test
+    public void verifyVolWeightedPriceOfSeveralWindows(){
+        replayTrade("TEA", MARKET_OPEN, 10, 100.0);
+        replayTrade("TEA", MARKET_OPEN + 1800 * SECOND, 10, 200.0);
+        replayTrade("TEA", MARKET_OPEN + 3500 * SECOND, 20, 300.0);
+        Assert.assertEquals(300.0, stockService.calculateVolWeightedPrice("TEA", 60), 0.0);
+        Assert.assertEquals(300.0, stockService.calculateVolWeightedPrice("TEA", 300), 0.0);
+        Assert.assertEquals(266.67, stockService.calculateVolWeightedPrice("TEA", 1800), 0.0);
+        Assert.assertEquals(225.0, stockService.calculateVolWeightedPrice(stockService.getStockId("TEA"), 3600), 0.0);
+        Assert.assertEquals(300.0, stockService.calculateVolWeightedPrice("TEA"), 0.0);
+    }
+
+    @Test
+    public void verifyVolWeightedPriceOfHistoricalRange(){
+        replayTrade("GIN", MARKET_OPEN + 180 * SECOND, 10, 100.0);
+        replayTrade("GIN", MARKET_OPEN + 600 * SECOND, 30, 120.0);
+        replayTrade("GIN", MARKET_OPEN + 1020 * SECOND, 10, 200.0);
+        replayTrade("GIN", MARKET_OPEN + 7200 * SECOND, 10, 300.0);
+        long from = StockHelper.toEpochNanos(ZonedDateTime.of(2017, 1, 25, 10, 3, 0, 0, ZoneId.of("UTC")));
+        long to = StockHelper.toEpochNanos(ZonedDateTime.of(2017, 1, 25, 10, 17, 0, 0, ZoneId.of("UTC")));
+        Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN", from, to), 0.0);
+        Assert.assertEquals(132.0, stockService.calculateVolWeightedPrice(stockService.getStockId("GIN"), from, to + SECOND), 0.0);
+        Assert.assertEquals(0.0, stockService.calculateVolWeightedPrice("TEA", from, to), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyVolWeightedPriceWhenRangeIsEmpty(){
+        stockService.calculateVolWeightedPrice("GIN", MARKET_OPEN, MARKET_OPEN);
+    }
+
+    @Test
+    public void verifyBarsOfPastDay(){
+        List<BarDTO> publishedBars = new ArrayList<BarDTO>();
+        BarListener listener = publishedBars::add;
+        stockService.subscribeBars(listener);
+        replayTrade("ALE", MARKET_OPEN + 10 * SECOND, 10, 100.0);
+        replayTrade("ALE", MARKET_OPEN + 50 * SECOND, 10, 104.0);
+        replayTrade("ALE", MARKET_OPEN + 70 * SECOND, 10, 102.0);
+        Assert.assertEquals(1, publishedBars.size());
+        Assert.assertEquals(104.0, publishedBars.get(0).getClose(), 0.0);
+        Assert.assertEquals(1, stockService.getBars("ALE", 60).length);
+        Assert.assertNull(stockService.getCurrentBar("GIN", 60));
+        Assert.assertEquals(30, stockService.getCurrentBar("ALE", 300).getVolume());
+
+        clock.advanceTo(MARKET_OPEN + 300 * SECOND);
+        stockService.finishBars();
+        Assert.assertEquals(3, publishedBars.size());
+        Assert.assertEquals(300, publishedBars.get(2).getIntervalSeconds());
+        Assert.assertEquals(100.0, publishedBars.get(2).getOpen(), 0.0);
+        Assert.assertEquals(102.0, publishedBars.get(2).getClose(), 0.0);
+
+        stockService.unsubscribeBars(listener);
+        replayTrade("ALE", MARKET_OPEN + 900 * SECOND, 10, 102.0);
+        replayTrade("ALE", MARKET_OPEN + 1000 * SECOND, 10, 102.0);
+        Assert.assertEquals(3, publishedBars.size());
+        Assert.assertEquals(3, stockService.getBars("ALE", 60).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyBarsWhenIntervalIsNotConfigured(){
+        stockService.getBars("ALE", 17);
+    }
+
+    @Test
+    public void verifyTradesOfSlowVenueWithinLateness(){
+        System.setProperty(StockModel.TRADE_LATENESS_PROPERTY, "60000");
+        try {
+            StockModel.getModelInstance().init();
+            StockServiceMetrics metrics = new StockServiceMetrics();
+            stockService = new StockServiceImpl(clock, metrics);
+            List<TradeDTO> lateTrades = new ArrayList<TradeDTO>();
+            stockService.subscribeLateTrades((stockSymbol, trade) -> lateTrades.add(trade));
+            replayTrade("GIN", MARKET_OPEN + 100 * SECOND, 10, 100.0);
+            replayTrade("GIN", MARKET_OPEN + 170 * SECOND, 10, 200.0);
+            replayTrade("GIN", MARKET_OPEN + 130 * SECOND, 20, 150.0);
+            Assert.assertEquals(100.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+
+            replayTrade("GIN", MARKET_OPEN + 230 * SECOND, 10, 300.0);
+            Assert.assertEquals(150.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+            Assert.assertEquals(150.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+            replayTrade("GIN", MARKET_OPEN + 120 * SECOND, 10, 1000.0);
+            Assert.assertEquals(1, lateTrades.size());
+            Assert.assertEquals(1L, metrics.getTradesLate().get("GIN").longValue());
+            Assert.assertEquals(1L, metrics.getTotalTradesLate());
+
+            clock.advanceTo(MARKET_OPEN + 300 * SECOND);
+            stockService.releaseTrades();
+            Assert.assertEquals(316.67, stockService.calculateVolWeightedPrice(stockService.getStockId("GIN"), 600), 0.0);
+        } finally {
+            System.clearProperty(StockModel.TRADE_LATENESS_PROPERTY);
+            StockModel.getModelInstance().init();
+        }
+    }
+
+    @Test
+    public void verifyTradesAreRecoveredFromJournalOnInit() throws Exception {
+        System.setProperty(StockModel.JOURNAL_DIR_PROPERTY, folder.newFolder("journal").getAbsolutePath());
+        try {
+            StockModel.getModelInstance().init();
+            replayTrade("GIN", MARKET_OPEN, 10, 100.0);
+            replayTrade("TEA", MARKET_OPEN + 30 * SECOND, 1, 4.0);
+            replayTrade("GIN", MARKET_OPEN + 60 * SECOND, 30, 120.0);
+
+            StockModel.getModelInstance().init();
+            Assert.assertEquals(2, StockModel.getModelInstance().getStock("GIN").getRecordedTradeCount());
+            Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+            Assert.assertEquals(Math.sqrt(115.0 * 4.0), stockService.calculateGBCEAllShareIndex(), 0.01);
+        } finally {
+            System.clearProperty(StockModel.JOURNAL_DIR_PROPERTY);
+            StockModel.getModelInstance().init();
+        }
+    }
+
+    @Test
+    public void verifyTradesAreRestoredFromSnapshotAndJournalTailOnInit() throws Exception {
+        System.setProperty(StockModel.JOURNAL_DIR_PROPERTY, folder.newFolder("journal").getAbsolutePath());
+        System.setProperty(StockModel.SNAPSHOT_DIR_PROPERTY, folder.newFolder("snapshot").getAbsolutePath());
+        System.setProperty(StockModel.SNAPSHOT_PERIOD_PROPERTY, "0");
+        try {
+            StockModel stockModel = StockModel.getModelInstance();
+            stockModel.init();
+            replayTrade("GIN", MARKET_OPEN, 10, 100.0);
+            replayTrade("GIN", MARKET_OPEN + 30 * SECOND, 20, 110.0);
+            Assert.assertNotNull(stockModel.snapshot());
+            replayTrade("TEA", MARKET_OPEN + 40 * SECOND, 1, 4.0);
+            replayTrade("GIN", MARKET_OPEN + 60 * SECOND, 10, 140.0);
+
+            stockModel.init();
+            Assert.assertEquals(3, stockModel.getStock("GIN").getRecordedTradeCount());
+            Assert.assertEquals(1, stockModel.getStock("TEA").getRecordedTradeCount());
+            Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+            Assert.assertEquals(1, stockService.getBars("GIN", 60).length);
+
+            replayTrade("GIN", MARKET_OPEN + 70 * SECOND, 40, 115.0);
+            stockModel.init();
+            Assert.assertEquals(4, stockModel.getStock("GIN").getRecordedTradeCount());
+            Assert.assertEquals(115.0, stockService.calculateVolWeightedPrice("GIN"), 0.0);
+        } finally {
+            System.clearProperty(StockModel.JOURNAL_DIR_PROPERTY);
+            System.clearProperty(StockModel.SNAPSHOT_DIR_PROPERTY);
+            System.clearProperty(StockModel.SNAPSHOT_PERIOD_PROPERTY);
+            StockModel.getModelInstance().init();
+        }
+    }
+
+    @Test
+    public void verifyGBCEAllShareIndexOfEveryMode(){
+        replayTrade("TEA", MARKET_OPEN, 1, 4.0);
+        replayTrade("POP", MARKET_OPEN + 100 * SECOND, 1, 9.0);
+        try {
+            for(GBCEIndexMode mode : GBCEIndexMode.values()) {
+                System.setProperty(StockModel.GBCE_INDEX_MODE_PROPERTY, mode.name());
+                System.setProperty(StockModel.GBCE_PARALLEL_THRESHOLD_PROPERTY, "1");
+                StockModel.getModelInstance().init();
+                Assert.assertEquals(mode, StockModel.getModelInstance().getGBCEIndexMode());
+                Assert.assertEquals(1, StockModel.getModelInstance().getGBCEParallelThreshold());
+                clock.advanceTo(MARKET_OPEN + 100 * SECOND);
+                stockService.recordTrade("TEA", MARKET_OPEN, 1, 4.0, TradeDomain.Indicator.BUY);
+                stockService.recordTrade("POP", MARKET_OPEN + 100 * SECOND, 1, 9.0, TradeDomain.Indicator.BUY);
+                Assert.assertEquals(6.0, stockService.calculateGBCEAllShareIndex(), 0.0);
+            }
+        } finally {
+            System.clearProperty(StockModel.GBCE_INDEX_MODE_PROPERTY);
+            System.clearProperty(StockModel.GBCE_PARALLEL_THRESHOLD_PROPERTY);
+            StockModel.getModelInstance().init();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.jpmorgan.digital.service.impl;
 import com.jpmorgan.digital.domain.TradeDomain;
 import com.jpmorgan.digital.dto.StockDTO;
 import com.jpmorgan.digital.dto.TradeDTO;
+import com.jpmorgan.digital.helper.GBCEIndexAggregator;
 import com.jpmorgan.digital.model.StockModel;
 import com.jpmorgan.digital.service.StockService;
 import org.junit.Assert;
@@ -11,6 +12,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
@@ -23,6 +25,7 @@ import java.time.ZonedDateTime;
  */
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(StockModel.class)
+@PowerMockIgnore("javax.management.*")
 public class StockServiceImplTest {
 
     private StockService stockServiceInstance,stockServiceWithMockStockModel;
@@ -187,7 +190,9 @@ public class StockServiceImplTest {
     @Test
     public void recordTradeSuccessfully() throws IllegalArgumentException{
         StockDTO stock = new StockDTO();
+        GBCEIndexAggregator indexAggregator = new GBCEIndexAggregator();
         Mockito.when(stockModelMock.getStock("GIN")).thenReturn(stock);
+        Mockito.when(stockModelMock.getGBCEIndexAggregator()).thenReturn(indexAggregator);
         TradeDomain sampleTrade = prepareSampleTrade();
         stockServiceWithMockStockModel.recordTrade("GIN",sampleTrade);
         TradeDTO trade[] = stock.getAllTrades();
@@ -196,6 +201,7 @@ public class StockServiceImplTest {
         Assert.assertEquals(expectedTrade.getPrice(),trade[0].getPrice(),0.0);
         Assert.assertEquals(expectedTrade.getQuantity(),trade[0].getQuantity());
         Assert.assertEquals(expectedTrade.getTimestamp(),trade[0].getTimestamp());
+        Assert.assertEquals(8.0,stockServiceWithMockStockModel.calculateGBCEAllShareIndex(),0.0);
 
     }
 
@@ -224,19 +230,19 @@ public class StockServiceImplTest {
 
     @Test
     public void calculateGBCEAllShareIndexWithNoStock(){
-        Mockito.when(stockModelMock.getAllStocks()).thenReturn(new StockDTO[0]);
+        Mockito.when(stockModelMock.getGBCEIndexAggregator()).thenReturn(new GBCEIndexAggregator());
         double gbceAllShareIndex = stockServiceWithMockStockModel.calculateGBCEAllShareIndex();
         Assert.assertEquals(0.0,gbceAllShareIndex,0.0);
     }
 
     @Test
     public void calculateGBCEAllShareIndexWithSomeStocks(){
-        StockDTO stockDTOArray[] = new StockDTO[2];
-        stockDTOArray[0]=prepareSampleStockWithMultipleTrades();
-        stockDTOArray[1]=prepareSampleStockWithMultipleTrades();
-        Mockito.when(stockModelMock.getAllStocks()).thenReturn(stockDTOArray);
+        GBCEIndexAggregator indexAggregator = new GBCEIndexAggregator();
+        indexAggregator.markUpdated(prepareSampleStockWithMultipleTrades());
+        indexAggregator.markUpdated(prepareSampleStockWithMultipleTrades());
+        Mockito.when(stockModelMock.getGBCEIndexAggregator()).thenReturn(indexAggregator);
         double gbceAllShareIndex = stockServiceWithMockStockModel.calculateGBCEAllShareIndex();
-        Assert.assertEquals(4.47,gbceAllShareIndex,0.0);
+        Assert.assertEquals(10.0,gbceAllShareIndex,0.0);
     }
 
 }
@@ -0,0 +1,77 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.SystemTradeClock;
+import com.jpmorgan.digital.helper.TradeClock;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Tests to verify the load generator keeps its invariants under contention and catches a lost or extra trade
+ *
+ * @author Aman Chhabra
+ */
+public class LoadGeneratorTest {
+
+    private StockServiceMetrics metrics;
+
+    private StockService stockService;
+
+    private TradeClock clock = SystemTradeClock.getClockInstance();
+
+    private LoadGenerator generator;
+
+    private ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Before
+    public void init(){
+        StockModel.getModelInstance().init();
+        metrics = new StockServiceMetrics();
+        stockService = new StockServiceImpl(clock, metrics);
+        generator = new LoadGenerator(stockService, clock, metrics, LoadGenerator.createStocks(20));
+        generator.setThreadCount(3);
+        generator.setReadRatio(0.3);
+        generator.setDurationMillis(400);
+        generator.setReportIntervalMillis(100);
+    }
+
+    @Test
+    public void verifyInvariantsHoldUnderContention() throws InterruptedException {
+        Assert.assertTrue(generator.run(new PrintStream(output, true)));
+        generator.printReport(new PrintStream(output, true));
+        Assert.assertTrue(generator.getWriteCount() > 0);
+        Assert.assertTrue(generator.getReadCount() > 0);
+        Assert.assertEquals(0, generator.getViolationCount());
+        Assert.assertEquals(0, metrics.getTotalTradesRejected());
+        Assert.assertEquals(generator.getWriteCount(), metrics.getRecordTradeLatency().getCount());
+        Assert.assertTrue(output.toString().contains("PASSED"));
+    }
+
+    @Test
+    public void verifyTradeRecordedBehindLoadIsCaught() throws InterruptedException {
+        generator.setDurationMillis(100);
+        Assert.assertTrue(generator.run(new PrintStream(output, true)));
+        stockService.recordTrade("L3", clock.currentTimeNanos(), 10, 20.0, TradeDomain.Indicator.BUY);
+        Assert.assertEquals(2, generator.checkInvariants());
+        Assert.assertFalse(generator.isPassed());
+        Assert.assertTrue(generator.getViolations().get(0).startsWith("Stock L3 recorded"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void createGeneratorForUnknownSymbol(){
+        new LoadGenerator(stockService, clock, metrics, new String[]{"XYZ"});
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void setReadRatioAboveOne(){
+        generator.setReadRatio(1.5);
+    }
+}
@@ -0,0 +1,110 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import com.jpmorgan.digital.helper.SimulatedTradeClock;
+import com.jpmorgan.digital.helper.StockHelper;
+import com.jpmorgan.digital.metrics.StockServiceMetrics;
+import com.jpmorgan.digital.model.StockModel;
+import com.jpmorgan.digital.service.StockService;
+import com.jpmorgan.digital.service.impl.StockServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Tests to verify a replayed tape gives the results of the same trades recorded directly
+ *
+ * @author Aman Chhabra
+ */
+public class TapeReplayTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private static final long MARKET_OPEN = StockHelper.toEpochNanos(ZonedDateTime.of(2017, 1, 25, 10, 0, 0, 0, ZoneId.of("UTC")));
+
+    private static final String[] SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE", "XYZ"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SimulatedTradeClock clock;
+
+    private StockServiceMetrics metrics;
+
+    private StockService stockService;
+
+    @Before
+    public void init(){
+        StockModel.getModelInstance().init();
+        clock = new SimulatedTradeClock(MARKET_OPEN);
+        metrics = new StockServiceMetrics();
+        stockService = new StockServiceImpl(clock, metrics);
+    }
+
+    private File writeTape(int count) throws IOException {
+        File file = new File(folder.getRoot(), "trades.bin");
+        try (TradeTapeWriter writer = new TradeTapeWriter(file)) {
+            for(int i = 0; i < count; i++) {
+                writer.writeTrade(SYMBOLS[i % SYMBOLS.length], MARKET_OPEN + i * SECOND / 10, 1 + i % 9, 10.0 + i % 13,
+                        i % 3 == 0 ? TradeDomain.Indicator.SELL : TradeDomain.Indicator.BUY);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void verifyReplayMatchesTradesRecordedDirectly() throws IOException {
+        TapeReplay replay = new TapeReplay(stockService, clock, metrics, 0, 10);
+        try (TradeTapeReader reader = new TradeTapeReader(writeTape(600))) {
+            replay.replay(reader);
+        }
+        Assert.assertEquals(600, replay.getTradesRead());
+        Assert.assertEquals(500, replay.getTradesRecorded());
+        Assert.assertEquals(100, replay.getTradesRejected());
+        Assert.assertEquals(60, replay.getQueryCount());
+        Assert.assertEquals(600, metrics.getRecordTradeLatency().getCount());
+        Assert.assertEquals(100, metrics.getUnknownSymbolTradesRejected());
+        double gbceAllShareIndex = replay.getGBCEAllShareIndex();
+        Assert.assertTrue(gbceAllShareIndex > 0);
+
+        init();
+        for(int i = 0; i < 600; i++) {
+            if(i % SYMBOLS.length != 5) {
+                clock.advanceTo(MARKET_OPEN + i * SECOND / 10);
+                stockService.recordTrade(SYMBOLS[i % SYMBOLS.length], MARKET_OPEN + i * SECOND / 10, 1 + i % 9,
+                        10.0 + i % 13, i % 3 == 0 ? TradeDomain.Indicator.SELL : TradeDomain.Indicator.BUY);
+            }
+        }
+        Assert.assertEquals(stockService.calculateGBCEAllShareIndex(), gbceAllShareIndex, 0.0);
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        replay.printReport(new PrintStream(report, true));
+        Assert.assertTrue(report.toString().contains("Volume Weighted price TEA"));
+        Assert.assertFalse(report.toString().contains("Volume Weighted price XYZ"));
+    }
+
+    @Test
+    public void verifyTimeScaledReplayFollowsTapePace() throws IOException {
+        TapeReplay replay = new TapeReplay(stockService, clock, metrics, 20, 0);
+        try (TradeTapeReader reader = new TradeTapeReader(writeTape(40))) {
+            replay.replay(reader);
+        }
+        // 3.9 seconds of trades at 20 times their pace take at least 195 milliseconds
+        Assert.assertTrue(replay.getElapsedNanos() >= 195000000L);
+        Assert.assertEquals(0, replay.getQueryCount());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void createReplayWhenSpeedIsNegative(){
+        new TapeReplay(stockService, clock, metrics, -1, 10);
+    }
+}
@@ -0,0 +1,120 @@
+package com.jpmorgan.digital.tools;
+
+import com.jpmorgan.digital.domain.TradeDomain;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tests to verify CSV and binary tapes are read back with the trades written
+ *
+ * @author Aman Chhabra
+ */
+public class TradeTapeReaderTest {
+
+    private static final long TIMESTAMP = 1485338400000000000L;
+
+    private static final String[] SYMBOLS = {"TEA", "POP", "ALE", "GIN", "JOE"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeCsv(int count) throws IOException {
+        File file = folder.newFile("trades.csv");
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("symbol,timestamp,quantity,price,indicator");
+            writer.println("# captured 25 Jan 2017");
+            for(int i = 0; i < count; i++) {
+                writer.println(SYMBOLS[i % SYMBOLS.length] + "," + (TIMESTAMP + i) + "," + (1 + i % 9) + ","
+                        + (10.25 + i % 13) + "," + (i % 3 == 0 ? "SELL" : "buy"));
+                if(i % 100 == 0) {
+                    writer.println();
+                }
+            }
+        }
+        return file;
+    }
+
+    private void verifyTrades(TradeTapeReader reader, int count) throws IOException {
+        for(int i = 0; i < count; i++) {
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals(SYMBOLS[i % SYMBOLS.length], reader.getSymbol(reader.getSymbolIndex()));
+            Assert.assertEquals(TIMESTAMP + i, reader.getTimestamp());
+            Assert.assertEquals(1 + i % 9, reader.getQuantity());
+            Assert.assertEquals(10.25 + i % 13, reader.getPrice(), 0.0);
+            Assert.assertEquals((i % 3 == 0 ? TradeDomain.Indicator.SELL : TradeDomain.Indicator.BUY).ordinal(), reader.getIndicator());
+        }
+        Assert.assertFalse(reader.next());
+        Assert.assertEquals(SYMBOLS.length, reader.getSymbolCount());
+    }
+
+    @Test
+    public void verifyCsvTapeIsReadThroughSmallBuffer() throws IOException {
+        File file = writeCsv(1000);
+        try (TradeTapeReader reader = new TradeTapeReader(file, 64)) {
+            verifyTrades(reader, 1000);
+            Assert.assertEquals(0, reader.getSkippedLineCount());
+        }
+    }
+
+    @Test
+    public void verifyInvalidCsvLinesAreSkipped() throws IOException {
+        File file = folder.newFile("trades.csv");
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("TEA," + TIMESTAMP + ",5,10.5,BUY");
+            writer.println("TEA,yesterday,5,10.5,BUY");
+            writer.println("TEA," + TIMESTAMP + ",5,10.5,HOLD");
+            writer.println("TEA," + TIMESTAMP + ",5");
+            writer.print("POP," + (TIMESTAMP + 1) + ",7,1e2,SELL");
+        }
+        try (TradeTapeReader reader = new TradeTapeReader(file)) {
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals("TEA", reader.getSymbol(reader.getSymbolIndex()));
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals("POP", reader.getSymbol(reader.getSymbolIndex()));
+            Assert.assertEquals(100.0, reader.getPrice(), 0.0);
+            Assert.assertEquals(TradeDomain.Indicator.SELL.ordinal(), reader.getIndicator());
+            Assert.assertFalse(reader.next());
+            Assert.assertEquals(3, reader.getSkippedLineCount());
+        }
+    }
+
+    @Test
+    public void verifyBinaryTapeIsReadBackAfterConvert() throws IOException {
+        File binary = new File(folder.getRoot(), "trades.bin");
+        Assert.assertEquals(1000, TapeReplay.convert(writeCsv(1000), binary));
+        try (TradeTapeReader reader = new TradeTapeReader(binary, 64)) {
+            verifyTrades(reader, 1000);
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void readTruncatedBinaryTape() throws IOException {
+        File binary = new File(folder.getRoot(), "trades.bin");
+        TapeReplay.convert(writeCsv(10), binary);
+        try (FileChannel channel = FileChannel.open(binary.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try (TradeTapeReader reader = new TradeTapeReader(binary)) {
+            while(reader.next()) {
+                Assert.assertEquals(TIMESTAMP, reader.getTimestamp() - reader.getTimestamp() % 10);
+            }
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void readBinaryTapeOfAnotherFormat() throws IOException {
+        File binary = folder.newFile("trades.bin");
+        try (PrintWriter writer = new PrintWriter(binary, "UTF-8")) {
+            writer.println("TEA," + TIMESTAMP + ",5,10.5,BUY");
+        }
+        new TradeTapeReader(binary).close();
+    }
+}
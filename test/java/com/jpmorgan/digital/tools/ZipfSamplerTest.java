@@ -0,0 +1,62 @@
+package com.jpmorgan.digital.tools;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+/**
+ * Tests to verify the ranks drawn by the Zipf sampler follow their popularity
+ *
+ * @author Aman Chhabra
+ */
+public class ZipfSamplerTest {
+
+    @Test
+    public void verifyProbabilitiesFollowZipfLaw(){
+        ZipfSampler sampler = new ZipfSampler(100, 1.0);
+        double total = 0;
+        for(int i = 0; i < sampler.getCount(); i++) {
+            total += sampler.getProbability(i);
+        }
+        Assert.assertEquals(1.0, total, 1e-12);
+        Assert.assertEquals(2.0, sampler.getProbability(0) / sampler.getProbability(1), 1e-9);
+        Assert.assertEquals(10.0, sampler.getProbability(0) / sampler.getProbability(9), 1e-9);
+    }
+
+    @Test
+    public void verifyDrawsFollowProbabilities(){
+        ZipfSampler sampler = new ZipfSampler(50, 1.2);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] counts = new int[sampler.getCount()];
+        int draws = 1000000;
+        for(int i = 0; i < draws; i++) {
+            counts[sampler.sample(random.nextDouble())]++;
+        }
+        for(int i = 0; i < counts.length; i++) {
+            double expected = sampler.getProbability(i) * draws;
+            Assert.assertEquals("Rank " + i, expected, counts[i], 5 * Math.sqrt(expected) + 1);
+        }
+        Assert.assertEquals(0, sampler.sample(0.0));
+        Assert.assertEquals(49, sampler.sample(Math.nextDown(1.0)));
+    }
+
+    @Test
+    public void verifyZeroExponentIsUniform(){
+        ZipfSampler sampler = new ZipfSampler(4, 0.0);
+        for(int i = 0; i < 4; i++) {
+            Assert.assertEquals(0.25, sampler.getProbability(i), 1e-12);
+        }
+        Assert.assertEquals(2, sampler.sample(0.5));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void createSamplerWithoutRanks(){
+        new ZipfSampler(0, 1.0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void createSamplerWhenExponentIsNegative(){
+        new ZipfSampler(10, -0.5);
+    }
+}